@@ -56,6 +56,10 @@ public final class ByteBufUtil {
     };
 
     private static final int MAX_CHAR_BUFFER_SIZE;
+    // Ranges shorter than this are searched byte by byte as setting up the word-at-a-time search does not pay off.
+    private static final int SWAR_MIN_LENGTH = 16;
+    // Needles of at least this length use Boyer-Moore-Horspool, shorter ones a first byte search plus compare.
+    private static final int HORSPOOL_MIN_NEEDLE_LENGTH = 16;
     private static final char[] HEXDUMP_TABLE = new char[256 * 4];
     private static final String NEWLINE = StringUtil.NEWLINE;
     private static final String[] BYTE2HEX = new String[256];
@@ -426,13 +430,78 @@ public final class ByteBufUtil {
         }
     }
 
+    /**
+     * Returns the index of the first occurrence of the readable bytes of {@code needle} within the readable bytes of
+     * {@code haystack}, or {@code -1} if {@code needle} is not contained in {@code haystack}. The returned index is
+     * an absolute index of {@code haystack}. An empty {@code needle} is found at the reader index of
+     * {@code haystack}.
+     */
+    public static int indexOf(ByteBuf needle, ByteBuf haystack) {
+        final int needleLength = needle.readableBytes();
+        final int fromIndex = haystack.readerIndex();
+        if (needleLength > haystack.readableBytes()) {
+            return -1;
+        }
+        if (needleLength == 0) {
+            return fromIndex;
+        }
+        final int needleIndex = needle.readerIndex();
+        final int lastIndex = haystack.writerIndex() - needleLength;
+        if (needleLength >= HORSPOOL_MIN_NEEDLE_LENGTH) {
+            return indexOfHorspool(needle, needleIndex, needleLength, haystack, fromIndex, lastIndex);
+        }
+
+        // Short needles such as line or frame delimiters: look for the first byte with the word-at-a-time search
+        // and only compare the remaining bytes for each candidate.
+        final byte first = needle.getByte(needleIndex);
+        for (int i = fromIndex; i <= lastIndex; i ++) {
+            i = firstIndexOf(haystack, i, lastIndex + 1, first);
+            if (i < 0) {
+                return -1;
+            }
+            if (equals(haystack, i + 1, needle, needleIndex + 1, needleLength - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Boyer-Moore-Horspool search which skips ahead based on the last byte of the current window.
+     */
+    private static int indexOfHorspool(ByteBuf needle, int needleIndex, int needleLength,
+                                       ByteBuf haystack, int fromIndex, int lastIndex) {
+        final int last = needleLength - 1;
+        final int[] shifts = new int[256];
+        Arrays.fill(shifts, needleLength);
+        for (int i = 0; i < last; i ++) {
+            shifts[needle.getByte(needleIndex + i) & 0xFF] = last - i;
+        }
+
+        final byte lastByte = needle.getByte(needleIndex + last);
+        for (int i = fromIndex; i <= lastIndex;) {
+            final byte b = haystack.getByte(i + last);
+            if (b == lastByte && equals(haystack, i, needle, needleIndex, last)) {
+                return i;
+            }
+            i += shifts[b & 0xFF];
+        }
+        return -1;
+    }
+
     private static int firstIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
         fromIndex = Math.max(fromIndex, 0);
         if (fromIndex >= toIndex || buffer.capacity() == 0) {
             return -1;
         }
 
-        return buffer.forEachByte(fromIndex, toIndex - fromIndex, new ByteProcessor.IndexOfProcessor(value));
+        final int length = toIndex - fromIndex;
+        if (length >= SWAR_MIN_LENGTH && buffer instanceof AbstractByteBuf) {
+            AbstractByteBuf buf = (AbstractByteBuf) buffer;
+            buf.checkIndex(fromIndex, length);
+            return firstIndexOfSwar(buf, fromIndex, toIndex, value);
+        }
+        return buffer.forEachByte(fromIndex, length, new ByteProcessor.IndexOfProcessor(value));
     }
 
     private static int lastIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
@@ -441,7 +510,69 @@ public final class ByteBufUtil {
             return -1;
         }
 
-        return buffer.forEachByteDesc(toIndex, fromIndex - toIndex, new ByteProcessor.IndexOfProcessor(value));
+        final int length = fromIndex - toIndex;
+        if (length >= SWAR_MIN_LENGTH && buffer instanceof AbstractByteBuf) {
+            AbstractByteBuf buf = (AbstractByteBuf) buffer;
+            buf.checkIndex(toIndex, length);
+            return lastIndexOfSwar(buf, fromIndex, toIndex, value);
+        }
+        return buffer.forEachByteDesc(toIndex, length, new ByteProcessor.IndexOfProcessor(value));
+    }
+
+    /**
+     * Searches {@code [fromIndex, toIndex)} eight bytes at a time. {@link AbstractByteBuf#_getLong(int)} always
+     * returns the bytes in big endian order, so the first matching byte is the most significant one.
+     */
+    private static int firstIndexOfSwar(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        final long pattern = swarPattern(value);
+        int i = fromIndex;
+        for (final int end = toIndex - 7; i < end; i += 8) {
+            final long matches = swarZeroBytes(buffer._getLong(i) ^ pattern);
+            if (matches != 0) {
+                return i + (Long.numberOfLeadingZeros(matches) >>> 3);
+            }
+        }
+        for (; i < toIndex; i ++) {
+            if (buffer._getByte(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches {@code [toIndex, fromIndex)} backwards eight bytes at a time, so the last matching byte is the least
+     * significant one.
+     */
+    private static int lastIndexOfSwar(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        final long pattern = swarPattern(value);
+        int i = fromIndex;
+        for (final int end = toIndex + 8; i >= end; i -= 8) {
+            final long matches = swarZeroBytes(buffer._getLong(i - 8) ^ pattern);
+            if (matches != 0) {
+                return i - 1 - (Long.numberOfTrailingZeros(matches) >>> 3);
+            }
+        }
+        while (i > toIndex) {
+            if (buffer._getByte(-- i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long swarPattern(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    /**
+     * Returns a word which has the highest bit set for every byte of {@code word} which is zero, and all other bits
+     * cleared. Unlike the classic {@code (x - 0x01..) & ~x & 0x80..} trick this never reports false positives, so
+     * the position of any set bit can be used directly.
+     */
+    private static long swarZeroBytes(long word) {
+        final long tmp = (word & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+        return ~(tmp | word | 0x7F7F7F7F7F7F7F7FL);
     }
 
     /**
@@ -23,9 +23,11 @@ import io.netty.util.internal.StringUtil;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
-abstract class PoolArena<T> implements PoolArenaMetric {
+abstract class PoolArena<T> implements PoolArenaThreadCacheMetric {
     static final boolean HAS_UNSAFE = PlatformDependent.hasUnsafe();
 
     enum SizeClass {
@@ -47,32 +49,42 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     private final PoolSubpage<T>[] tinySubpagePools;
     private final PoolSubpage<T>[] smallSubpagePools;
 
-    private final PoolChunkList<T> q050;
-    private final PoolChunkList<T> q025;
-    private final PoolChunkList<T> q000;
-    private final PoolChunkList<T> qInit;
-    private final PoolChunkList<T> q075;
-    private final PoolChunkList<T> q100;
+    // The chunks are split over multiple stripes which are guarded by their own lock, so allocations that are not
+    // served by the PoolThreadCache do not all contend on the same monitor.
+    private final Stripe<T>[] stripes;
+    private final AtomicInteger nextStripe = new AtomicInteger();
 
     private final List<PoolChunkListMetric> chunkListMetrics;
 
     // Metrics for allocations and deallocations
-    private long allocationsTiny;
-    private long allocationsSmall;
-    private long allocationsNormal;
-    // We need to use the LongCounter here as this is not guarded via synchronized block.
+    // We need to use the LongCounter here as these are updated while holding different locks.
+    private final LongCounter allocationsTiny = PlatformDependent.newLongCounter();
+    private final LongCounter allocationsSmall = PlatformDependent.newLongCounter();
+    private final LongCounter allocationsNormal = PlatformDependent.newLongCounter();
     private final LongCounter allocationsHuge = PlatformDependent.newLongCounter();
 
-    private long deallocationsTiny;
-    private long deallocationsSmall;
-    private long deallocationsNormal;
-    // We need to use the LongCounter here as this is not guarded via synchronized block.
+    private final LongCounter deallocationsTiny = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsSmall = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsNormal = PlatformDependent.newLongCounter();
     private final LongCounter deallocationsHuge = PlatformDependent.newLongCounter();
 
+    // Metrics of the thread caches which use this arena.
+    private final LongCounter threadCacheHits = PlatformDependent.newLongCounter();
+    private final LongCounter threadCacheMisses = PlatformDependent.newLongCounter();
+    private final LongCounter threadCacheTrimmed = PlatformDependent.newLongCounter();
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
+        this(parent, pageSize, maxOrder, pageShifts, chunkSize, 1);
+    }
+
+    protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                        int numStripes) {
+        if (numStripes < 1) {
+            throw new IllegalArgumentException("numStripes: " + numStripes + " (expected: > 0)");
+        }
         this.parent = parent;
         this.pageSize = pageSize;
         this.maxOrder = maxOrder;
@@ -90,30 +102,28 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             smallSubpagePools[i] = newSubpagePoolHead(pageSize);
         }
 
-        q100 = new PoolChunkList<T>(null, 100, Integer.MAX_VALUE);
-        q075 = new PoolChunkList<T>(q100, 75, 100);
-        q050 = new PoolChunkList<T>(q075, 50, 100);
-        q025 = new PoolChunkList<T>(q050, 25, 75);
-        q000 = new PoolChunkList<T>(q025, 1, 50);
-        qInit = new PoolChunkList<T>(q000, Integer.MIN_VALUE, 25);
-
-        q100.prevList(q075);
-        q075.prevList(q050);
-        q050.prevList(q025);
-        q025.prevList(q000);
-        q000.prevList(null);
-        qInit.prevList(qInit);
-
-        List<PoolChunkListMetric> metrics = new ArrayList<PoolChunkListMetric>(6);
-        metrics.add(qInit);
-        metrics.add(q000);
-        metrics.add(q025);
-        metrics.add(q050);
-        metrics.add(q075);
-        metrics.add(q100);
+        stripes = newStripeArray(numStripes);
+        for (int i = 0; i < stripes.length; i ++) {
+            stripes[i] = new Stripe<T>(i);
+        }
+
+        // Each usage bucket is exposed as one metric which aggregates the lists of all stripes.
+        List<PoolChunkListMetric> metrics = new ArrayList<PoolChunkListMetric>(Stripe.NUM_CHUNK_LISTS);
+        for (int i = 0; i < Stripe.NUM_CHUNK_LISTS; i ++) {
+            PoolChunkList<?>[] lists = new PoolChunkList<?>[numStripes];
+            for (int j = 0; j < lists.length; j ++) {
+                lists[j] = stripes[j].chunkLists()[i];
+            }
+            metrics.add(new StripedChunkListMetric(lists));
+        }
         chunkListMetrics = Collections.unmodifiableList(metrics);
     }
 
+    @SuppressWarnings("unchecked")
+    private static <T> Stripe<T>[] newStripeArray(int size) {
+        return new Stripe[size];
+    }
+
     private PoolSubpage<T> newSubpagePoolHead(int pageSize) {
         PoolSubpage<T> head = new PoolSubpage<T>(pageSize);
         head.prev = head;
@@ -128,6 +138,26 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     abstract boolean isDirect();
 
+    /**
+     * Returns the index of the stripe a new {@link PoolThreadCache} should use by default. The stripes are handed
+     * out in a round-robin fashion so the threads that share this arena are spread over all of them.
+     */
+    int nextStripe() {
+        return Math.abs(nextStripe.getAndIncrement() % stripes.length);
+    }
+
+    int numStripes() {
+        return stripes.length;
+    }
+
+    /**
+     * Returns the index of the stripe the given {@link Thread} should use first if its {@link PoolThreadCache} has
+     * no stripe of this arena assigned. The threads are spread over all the stripes by their id.
+     */
+    int stripe(Thread thread) {
+        return (int) (thread.getId() % stripes.length);
+    }
+
     PooledByteBuf<T> allocate(PoolThreadCache cache, int reqCapacity, int maxCapacity) {
         PooledByteBuf<T> buf = newByteBuf(maxCapacity);
         allocate(cache, buf, reqCapacity);
@@ -195,14 +225,14 @@ abstract class PoolArena<T> implements PoolArenaMetric {
                     s.chunk.initBufWithSubpage(buf, handle, reqCapacity);
 
                     if (tiny) {
-                        ++allocationsTiny;
+                        allocationsTiny.increment();
                     } else {
-                        ++allocationsSmall;
+                        allocationsSmall.increment();
                     }
                     return;
                 }
             }
-            allocateNormal(buf, reqCapacity, normCapacity);
+            allocateNormal(cache, buf, reqCapacity, normCapacity);
             return;
         }
         if (normCapacity <= chunkSize) {
@@ -210,27 +240,50 @@ abstract class PoolArena<T> implements PoolArenaMetric {
                 // was able to allocate out of the cache so move on
                 return;
             }
-            allocateNormal(buf, reqCapacity, normCapacity);
+            allocateNormal(cache, buf, reqCapacity, normCapacity);
         } else {
             // Huge allocations are never served via the cache so just call allocateHuge
             allocateHuge(buf, reqCapacity);
         }
     }
 
-    private synchronized void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
-            ++allocationsNormal;
-        if (q050.allocate(buf, reqCapacity, normCapacity) || q025.allocate(buf, reqCapacity, normCapacity) ||
-            q000.allocate(buf, reqCapacity, normCapacity) || qInit.allocate(buf, reqCapacity, normCapacity) ||
-            q075.allocate(buf, reqCapacity, normCapacity) || q100.allocate(buf, reqCapacity, normCapacity)) {
-            return;
+    private void allocateNormal(PoolThreadCache cache, PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
+        allocationsNormal.increment();
+
+        final Stripe<T>[] stripes = this.stripes;
+        final int home = cache.stripe(this);
+        final Stripe<T> homeStripe = stripes[home];
+        synchronized (homeStripe) {
+            if (homeStripe.allocate(buf, reqCapacity, normCapacity)) {
+                return;
+            }
+        }
+
+        // Try to use the free space of the other stripes before we add a new chunk, as otherwise we would end up
+        // with more chunks than needed.
+        for (int i = 1; i < stripes.length; i ++) {
+            Stripe<T> stripe = stripes[(home + i) % stripes.length];
+            synchronized (stripe) {
+                if (stripe.allocate(buf, reqCapacity, normCapacity)) {
+                    return;
+                }
+            }
         }
 
-        // Add a new chunk.
-        PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
-        long handle = c.allocate(normCapacity);
-        assert handle > 0;
-        c.initBuf(buf, handle, reqCapacity);
-        qInit.add(c);
+        synchronized (homeStripe) {
+            // Check again as another thread may have added a new chunk in the meantime.
+            if (homeStripe.allocate(buf, reqCapacity, normCapacity)) {
+                return;
+            }
+
+            // Add a new chunk.
+            PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
+            c.stripe = homeStripe.index;
+            long handle = c.allocate(normCapacity);
+            assert handle > 0;
+            c.initBuf(buf, handle, reqCapacity);
+            homeStripe.qInit.add(c);
+        }
     }
 
     private void allocateHuge(PooledByteBuf<T> buf, int reqCapacity) {
@@ -240,7 +293,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     void free(PoolChunk<T> chunk, long handle, int normCapacity, PoolThreadCache cache) {
         if (chunk.unpooled) {
-            allocationsHuge.decrement();
+            deallocationsHuge.increment();
             destroyChunk(chunk);
         } else {
             SizeClass sizeClass = sizeClass(normCapacity);
@@ -261,21 +314,24 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     void freeChunk(PoolChunk<T> chunk, long handle, SizeClass sizeClass) {
+        switch (sizeClass) {
+        case Normal:
+            deallocationsNormal.increment();
+            break;
+        case Small:
+            deallocationsSmall.increment();
+            break;
+        case Tiny:
+            deallocationsTiny.increment();
+            break;
+        default:
+            throw new Error();
+        }
+
         final boolean destroyChunk;
-        synchronized (this) {
-            switch (sizeClass) {
-            case Normal:
-                ++deallocationsNormal;
-                break;
-            case Small:
-                ++deallocationsSmall;
-                break;
-            case Tiny:
-                ++deallocationsTiny;
-                break;
-            default:
-                throw new Error();
-            }
+        // Only the stripe which owns the chunk needs to be locked, as a chunk never moves to another stripe.
+        final Stripe<T> stripe = stripes[chunk.stripe];
+        synchronized (stripe) {
             destroyChunk = !chunk.parent.free(chunk, handle);
         }
         if (destroyChunk) {
@@ -432,42 +488,44 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public long numAllocations() {
-        return allocationsTiny + allocationsSmall + allocationsNormal + allocationsHuge.value();
+        return allocationsTiny.value() + allocationsSmall.value() + allocationsNormal.value() +
+                allocationsHuge.value();
     }
 
     @Override
     public long numTinyAllocations() {
-        return allocationsTiny;
+        return allocationsTiny.value();
     }
 
     @Override
     public long numSmallAllocations() {
-        return allocationsSmall;
+        return allocationsSmall.value();
     }
 
     @Override
     public long numNormalAllocations() {
-        return allocationsNormal;
+        return allocationsNormal.value();
     }
 
     @Override
     public long numDeallocations() {
-        return deallocationsTiny + deallocationsSmall + allocationsNormal + deallocationsHuge.value();
+        return deallocationsTiny.value() + deallocationsSmall.value() + deallocationsNormal.value() +
+                deallocationsHuge.value();
     }
 
     @Override
     public long numTinyDeallocations() {
-        return deallocationsTiny;
+        return deallocationsTiny.value();
     }
 
     @Override
     public long numSmallDeallocations() {
-        return deallocationsSmall;
+        return deallocationsSmall.value();
     }
 
     @Override
     public long numNormalDeallocations() {
-        return deallocationsNormal;
+        return deallocationsNormal.value();
     }
 
     @Override
@@ -510,6 +568,33 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return val >= 0 ? val : 0;
     }
 
+    @Override
+    public long numThreadCacheHits() {
+        return threadCacheHits.value();
+    }
+
+    @Override
+    public long numThreadCacheMisses() {
+        return threadCacheMisses.value();
+    }
+
+    @Override
+    public long numThreadCacheTrimmed() {
+        return threadCacheTrimmed.value();
+    }
+
+    void updateThreadCacheMetrics(int hits, int misses, int trimmed) {
+        if (hits > 0) {
+            threadCacheHits.add(hits);
+        }
+        if (misses > 0) {
+            threadCacheMisses.add(misses);
+        }
+        if (trimmed > 0) {
+            threadCacheTrimmed.add(trimmed);
+        }
+    }
+
     protected abstract PoolChunk<T> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize);
     protected abstract PoolChunk<T> newUnpooledChunk(int capacity);
     protected abstract PooledByteBuf<T> newByteBuf(int maxCapacity);
@@ -517,33 +602,14 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     protected abstract void destroyChunk(PoolChunk<T> chunk);
 
     @Override
-    public synchronized String toString() {
-        StringBuilder buf = new StringBuilder()
-            .append("Chunk(s) at 0~25%:")
-            .append(StringUtil.NEWLINE)
-            .append(qInit)
-            .append(StringUtil.NEWLINE)
-            .append("Chunk(s) at 0~50%:")
-            .append(StringUtil.NEWLINE)
-            .append(q000)
-            .append(StringUtil.NEWLINE)
-            .append("Chunk(s) at 25~75%:")
-            .append(StringUtil.NEWLINE)
-            .append(q025)
-            .append(StringUtil.NEWLINE)
-            .append("Chunk(s) at 50~100%:")
-            .append(StringUtil.NEWLINE)
-            .append(q050)
-            .append(StringUtil.NEWLINE)
-            .append("Chunk(s) at 75~100%:")
-            .append(StringUtil.NEWLINE)
-            .append(q075)
-            .append(StringUtil.NEWLINE)
-            .append("Chunk(s) at 100%:")
-            .append(StringUtil.NEWLINE)
-            .append(q100)
-            .append(StringUtil.NEWLINE)
-            .append("tiny subpages:");
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        for (Stripe<T> stripe: stripes) {
+            synchronized (stripe) {
+                stripe.appendTo(buf);
+            }
+        }
+        buf.append("tiny subpages:");
         for (int i = 1; i < tinySubpagePools.length; i ++) {
             PoolSubpage<T> head = tinySubpagePools[i];
             if (head.next == head) {
@@ -587,12 +653,125 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return buf.toString();
     }
 
+    /**
+     * A set of {@link PoolChunkList}s ordered by their usage. All the chunks of a stripe and the lists they are
+     * stored in are guarded by the monitor of the {@link Stripe} itself.
+     */
+    private static final class Stripe<T> {
+        static final int NUM_CHUNK_LISTS = 6;
+
+        final int index;
+        final PoolChunkList<T> q050;
+        final PoolChunkList<T> q025;
+        final PoolChunkList<T> q000;
+        final PoolChunkList<T> qInit;
+        final PoolChunkList<T> q075;
+        final PoolChunkList<T> q100;
+
+        Stripe(int index) {
+            this.index = index;
+            q100 = new PoolChunkList<T>(null, 100, Integer.MAX_VALUE);
+            q075 = new PoolChunkList<T>(q100, 75, 100);
+            q050 = new PoolChunkList<T>(q075, 50, 100);
+            q025 = new PoolChunkList<T>(q050, 25, 75);
+            q000 = new PoolChunkList<T>(q025, 1, 50);
+            qInit = new PoolChunkList<T>(q000, Integer.MIN_VALUE, 25);
+
+            q100.prevList(q075);
+            q075.prevList(q050);
+            q050.prevList(q025);
+            q025.prevList(q000);
+            q000.prevList(null);
+            qInit.prevList(qInit);
+        }
+
+        /**
+         * Returns the {@link PoolChunkList}s of this stripe ordered by their usage.
+         */
+        PoolChunkList<?>[] chunkLists() {
+            return new PoolChunkList<?>[] { qInit, q000, q025, q050, q075, q100 };
+        }
+
+        boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
+            return q050.allocate(buf, reqCapacity, normCapacity) || q025.allocate(buf, reqCapacity, normCapacity) ||
+                   q000.allocate(buf, reqCapacity, normCapacity) || qInit.allocate(buf, reqCapacity, normCapacity) ||
+                   q075.allocate(buf, reqCapacity, normCapacity) || q100.allocate(buf, reqCapacity, normCapacity);
+        }
+
+        void appendTo(StringBuilder buf) {
+            buf.append("Chunk(s) at 0~25%:")
+               .append(StringUtil.NEWLINE)
+               .append(qInit)
+               .append(StringUtil.NEWLINE)
+               .append("Chunk(s) at 0~50%:")
+               .append(StringUtil.NEWLINE)
+               .append(q000)
+               .append(StringUtil.NEWLINE)
+               .append("Chunk(s) at 25~75%:")
+               .append(StringUtil.NEWLINE)
+               .append(q025)
+               .append(StringUtil.NEWLINE)
+               .append("Chunk(s) at 50~100%:")
+               .append(StringUtil.NEWLINE)
+               .append(q050)
+               .append(StringUtil.NEWLINE)
+               .append("Chunk(s) at 75~100%:")
+               .append(StringUtil.NEWLINE)
+               .append(q075)
+               .append(StringUtil.NEWLINE)
+               .append("Chunk(s) at 100%:")
+               .append(StringUtil.NEWLINE)
+               .append(q100)
+               .append(StringUtil.NEWLINE);
+        }
+    }
+
+    /**
+     * A {@link PoolChunkListMetric} which aggregates the {@link PoolChunkList}s of the same usage of all stripes.
+     */
+    private static final class StripedChunkListMetric implements PoolChunkListMetric {
+        private final PoolChunkList<?>[] lists;
+
+        StripedChunkListMetric(PoolChunkList<?>[] lists) {
+            this.lists = lists;
+        }
+
+        @Override
+        public int minUsage() {
+            return lists[0].minUsage();
+        }
+
+        @Override
+        public int maxUsage() {
+            return lists[0].maxUsage();
+        }
+
+        @Override
+        public Iterator<PoolChunkMetric> iterator() {
+            if (lists.length == 1) {
+                return lists[0].iterator();
+            }
+            List<PoolChunkMetric> metrics = new ArrayList<PoolChunkMetric>();
+            for (PoolChunkList<?> list: lists) {
+                for (PoolChunkMetric metric: list) {
+                    metrics.add(metric);
+                }
+            }
+            return metrics.iterator();
+        }
+    }
+
     static final class HeapArena extends PoolArena<byte[]> {
 
         HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
             super(parent, pageSize, maxOrder, pageShifts, chunkSize);
         }
 
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                  int numStripes) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize, numStripes);
+        }
+
         @Override
         boolean isDirect() {
             return false;
@@ -635,6 +814,11 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             super(parent, pageSize, maxOrder, pageShifts, chunkSize);
         }
 
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                  int numStripes) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize, numStripes);
+        }
+
         @Override
         boolean isDirect() {
             return true;
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+/**
+ * Expose metrics of the thread caches which use an arena. These are provided by
+ * {@link PooledByteBufAllocator#heapArenaThreadCaches()} and {@link PooledByteBufAllocator#directArenaThreadCaches()}.
+ */
+public interface PoolArenaThreadCacheMetric extends PoolArenaMetric {
+
+    /**
+     * Return the number of allocations which were served by the thread caches that use this arena. The value is
+     * updated each time a thread cache is trimmed.
+     */
+    long numThreadCacheHits();
+
+    /**
+     * Return the number of allocations which could not be served by the thread caches that use this arena, because
+     * the cache for the requested size was empty. The value is updated each time a thread cache is trimmed.
+     */
+    long numThreadCacheMisses();
+
+    /**
+     * Return the number of cached buffers which were released back to this arena because a thread cache was
+     * trimmed.
+     */
+    long numThreadCacheTrimmed();
+}
@@ -123,6 +123,8 @@ final class PoolChunk<T> implements PoolChunkMetric {
     private int freeBytes;
 
     PoolChunkList<T> parent;
+    // The index of the stripe of the arena this chunk belongs to.
+    int stripe;
     PoolChunk<T> prev;
     PoolChunk<T> next;
 
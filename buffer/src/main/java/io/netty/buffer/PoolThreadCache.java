@@ -21,12 +21,16 @@ import io.netty.buffer.PoolArena.SizeClass;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.ThreadDeathWatcher;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Acts a Thread cache for allocations. This implementation is moduled after
@@ -41,6 +45,10 @@ final class PoolThreadCache {
     final PoolArena<byte[]> heapArena;
     final PoolArena<ByteBuffer> directArena;
 
+    // The stripes of the arenas which are tried first when the allocation can not be served by this cache.
+    private final int heapStripe;
+    private final int directStripe;
+
     // Hold the caches for the different size classes, which are tiny, small and normal.
     private final MemoryRegionCache<byte[]>[] tinySubPageHeapCaches;
     private final MemoryRegionCache<byte[]>[] smallSubPageHeapCaches;
@@ -55,6 +63,10 @@ final class PoolThreadCache {
     private final int freeSweepAllocationThreshold;
 
     private int allocations;
+    // The task which trims the cache periodically, or null if none was scheduled.
+    private volatile Future<?> trimFuture;
+    // Set if a trim was requested by another Thread, which is then done by the owning Thread on its next allocation.
+    private volatile boolean trimRequested;
 
     private final Thread thread = Thread.currentThread();
     private final Runnable freeTask = new Runnable() {
@@ -81,6 +93,8 @@ final class PoolThreadCache {
         this.freeSweepAllocationThreshold = freeSweepAllocationThreshold;
         this.heapArena = heapArena;
         this.directArena = directArena;
+        heapStripe = heapArena != null ? heapArena.nextStripe() : 0;
+        directStripe = directArena != null ? directArena.nextStripe() : 0;
         if (directArena != null) {
             tinySubPageDirectCaches = createSubPageCaches(
                     tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
@@ -182,6 +196,22 @@ final class PoolThreadCache {
         return allocate(cacheForNormal(area, normCapacity), buf, reqCapacity);
     }
 
+    /**
+     * Returns the index of the stripe of the given {@link PoolArena} which should be used first if an allocation
+     * can not be served by this cache.
+     */
+    int stripe(PoolArena<?> area) {
+        if (area == directArena) {
+            return directStripe;
+        }
+        if (area == heapArena) {
+            return heapStripe;
+        }
+        // The arena is not the one this cache belongs to, this may happen on reallocation. Spread these allocations
+        // over all the stripes of the arena, so they do not all contend on the same one.
+        return area.stripe(Thread.currentThread());
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     private boolean allocate(MemoryRegionCache<?> cache, PooledByteBuf buf, int reqCapacity) {
         if (cache == null) {
@@ -189,7 +219,7 @@ final class PoolThreadCache {
             return false;
         }
         boolean allocated = cache.allocate(buf, reqCapacity);
-        if (++ allocations >= freeSweepAllocationThreshold) {
+        if (++ allocations >= freeSweepAllocationThreshold || trimRequested) {
             allocations = 0;
             trim();
         }
@@ -231,60 +261,92 @@ final class PoolThreadCache {
     }
 
     private void free0() {
-        int numFreed = free(tinySubPageDirectCaches) +
-                free(smallSubPageDirectCaches) +
-                free(normalDirectCaches) +
-                free(tinySubPageHeapCaches) +
-                free(smallSubPageHeapCaches) +
-                free(normalHeapCaches);
+        Future<?> trimFuture = this.trimFuture;
+        if (trimFuture != null) {
+            trimFuture.cancel(false);
+        }
+
+        int numFreed = free(tinySubPageDirectCaches, directArena) +
+                free(smallSubPageDirectCaches, directArena) +
+                free(normalDirectCaches, directArena) +
+                free(tinySubPageHeapCaches, heapArena) +
+                free(smallSubPageHeapCaches, heapArena) +
+                free(normalHeapCaches, heapArena);
 
         if (numFreed > 0 && logger.isDebugEnabled()) {
             logger.debug("Freed {} thread-local buffer(s) from thread: {}", numFreed, thread.getName());
         }
     }
 
-    private static int free(MemoryRegionCache<?>[] caches) {
+    private static int free(MemoryRegionCache<?>[] caches, PoolArena<?> arena) {
         if (caches == null) {
             return 0;
         }
 
         int numFreed = 0;
         for (MemoryRegionCache<?> c: caches) {
-            numFreed += free(c);
+            numFreed += free(c, arena);
         }
         return numFreed;
     }
 
-    private static int free(MemoryRegionCache<?> cache) {
+    private static int free(MemoryRegionCache<?> cache, PoolArena<?> arena) {
         if (cache == null) {
             return 0;
         }
-        return cache.free();
+        return cache.free(arena);
     }
 
+    /**
+     * Schedule a task on the given {@link EventExecutor} which will {@linkplain #requestTrim() trim} this cache every
+     * {@code intervalMillis}. This makes sure that buffers are released back to the arena even if the thread does not
+     * allocate anymore. The task is cancelled once this cache is freed.
+     */
+    void scheduleTrim(EventExecutor executor, long intervalMillis) {
+        TrimTask task = new TrimTask(this);
+        trimFuture = task.future = executor.scheduleAtFixedRate(
+                task, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Trim all the caches if called from the {@link Thread} which owns this cache. Otherwise the owning
+     * {@link Thread} will trim them on its next allocation, as only it may take buffers out of the caches.
+     */
+    void requestTrim() {
+        if (Thread.currentThread() == thread) {
+            trim();
+        } else {
+            trimRequested = true;
+        }
+    }
+
+    /**
+     * Trim all the caches. Must only be called from the {@link Thread} which owns this cache.
+     */
     void trim() {
-        trim(tinySubPageDirectCaches);
-        trim(smallSubPageDirectCaches);
-        trim(normalDirectCaches);
-        trim(tinySubPageHeapCaches);
-        trim(smallSubPageHeapCaches);
-        trim(normalHeapCaches);
+        trimRequested = false;
+        trim(tinySubPageDirectCaches, directArena);
+        trim(smallSubPageDirectCaches, directArena);
+        trim(normalDirectCaches, directArena);
+        trim(tinySubPageHeapCaches, heapArena);
+        trim(smallSubPageHeapCaches, heapArena);
+        trim(normalHeapCaches, heapArena);
     }
 
-    private static void trim(MemoryRegionCache<?>[] caches) {
+    private static void trim(MemoryRegionCache<?>[] caches, PoolArena<?> arena) {
         if (caches == null) {
             return;
         }
         for (MemoryRegionCache<?> c: caches) {
-            trim(c);
+            trim(c, arena);
         }
     }
 
-    private static void trim(MemoryRegionCache<?> cache) {
+    private static void trim(MemoryRegionCache<?> cache, PoolArena<?> arena) {
         if (cache == null) {
             return;
         }
-        cache.trim();
+        cache.trim(arena);
     }
 
     private MemoryRegionCache<?> cacheForTiny(PoolArena<?> area, int normCapacity) {
@@ -349,15 +411,54 @@ final class PoolThreadCache {
         }
     }
 
+    /**
+     * Periodically {@linkplain #requestTrim() trims} a {@link PoolThreadCache}. It only references the cache weakly,
+     * so a cache which was not {@linkplain #free() freed} is not kept alive by the {@link EventExecutor}. The task
+     * cancels itself once the cache was collected.
+     */
+    private static final class TrimTask implements Runnable {
+        private final WeakReference<PoolThreadCache> cache;
+        volatile Future<?> future;
+
+        TrimTask(PoolThreadCache cache) {
+            this.cache = new WeakReference<PoolThreadCache>(cache);
+        }
+
+        @Override
+        public void run() {
+            PoolThreadCache cache = this.cache.get();
+            if (cache != null) {
+                cache.requestTrim();
+            } else {
+                Future<?> future = this.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * A cache for one size which adapts the number of entries it keeps to the observed hits and misses. The limit
+     * starts with the configured size, which is also its upper bound. If less than half of the limit was used since
+     * the last trim it is halved, so caches which are idle or only used rarely do not pin memory. It is doubled again,
+     * up to the configured size, if there were more misses than hits since the last trim.
+     */
     private abstract static class MemoryRegionCache<T> {
-        private final int size;
+        private final int maxSize;
         private final Queue<Entry<T>> queue;
         private final SizeClass sizeClass;
+        // The number of entries this cache will hold at most at the moment. Written by the owning thread only but
+        // read by all threads which add to the cache.
+        private volatile int limit;
+        // allocations and misses are only accessed by the owning thread.
         private int allocations;
+        private int misses;
 
         MemoryRegionCache(int size, SizeClass sizeClass) {
-            this.size = powerOfTwo(size);
-            queue = PlatformDependent.newFixedMpscQueue(this.size);
+            maxSize = powerOfTwo(size);
+            limit = maxSize;
+            queue = PlatformDependent.newFixedMpscQueue(maxSize);
             this.sizeClass = sizeClass;
         }
 
@@ -386,6 +487,9 @@ final class PoolThreadCache {
          */
         @SuppressWarnings("unchecked")
         public final boolean add(PoolChunk<T> chunk, long handle) {
+            if (queue.size() >= limit) {
+                return false;
+            }
             Entry<T> entry = newEntry(chunk, handle);
             boolean queued = queue.offer(entry);
             if (!queued) {
@@ -402,6 +506,8 @@ final class PoolThreadCache {
         public final boolean allocate(PooledByteBuf<T> buf, int reqCapacity) {
             Entry<T> entry = queue.poll();
             if (entry == null) {
+                // misses is not thread-safe which is fine as this is only called from the same thread all time.
+                ++ misses;
                 return false;
             }
             initBuf(entry.chunk, entry.handle, buf, reqCapacity);
@@ -415,8 +521,10 @@ final class PoolThreadCache {
         /**
          * Clear out this cache and free up all previous cached {@link PoolChunk}s and {@code handle}s.
          */
-        public final int free() {
-            return free(Integer.MAX_VALUE);
+        public final int free(PoolArena<?> arena) {
+            int numFreed = free(Integer.MAX_VALUE);
+            updateMetrics(arena, 0);
+            return numFreed;
         }
 
         private int free(int max) {
@@ -434,16 +542,35 @@ final class PoolThreadCache {
         }
 
         /**
-         * Free up cached {@link PoolChunk}s if not allocated frequently enough.
+         * Adapt the limit of the cache to the hits and misses since the last call and free up cached
+         * {@link PoolChunk}s if not allocated frequently enough.
          */
-        public final void trim() {
-            int free = size - allocations;
-            allocations = 0;
+        public final void trim(PoolArena<?> arena) {
+            int allocations = this.allocations;
+            int limit = this.limit;
+            if (misses > allocations) {
+                // The cache was too small to serve most of the allocations.
+                limit = Math.min(maxSize, limit << 1);
+            } else if (allocations < limit >>> 1) {
+                limit = Math.max(1, limit >>> 1);
+            }
+            this.limit = limit;
 
-            // We not even allocated all the number that are
+            // Only keep as many entries as were allocated out of the cache since the last trim.
+            int numFreed = 0;
+            int free = queue.size() - Math.min(allocations, limit);
             if (free > 0) {
-                free(free);
+                numFreed = free(free);
             }
+            updateMetrics(arena, numFreed);
+        }
+
+        private void updateMetrics(PoolArena<?> arena, int numTrimmed) {
+            if (arena != null) {
+                arena.updateThreadCacheMetrics(allocations, misses, numTrimmed);
+            }
+            allocations = 0;
+            misses = 0;
         }
 
         @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -45,13 +45,18 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
         assert handle >= 0;
         assert chunk != null;
 
+        if (this.chunk != chunk) {
+            // The cached view spans the whole memory of the chunk it was created for, so it can be reused as long
+            // as this instance is recycled into the same chunk. This saves an allocation per (re)use, which is
+            // most of the allocations done when writing pooled buffers via NIO.
+            tmpNioBuf = null;
+        }
         this.chunk = chunk;
         this.handle = handle;
         memory = chunk.memory;
         this.offset = offset;
         this.length = length;
         this.maxLength = maxLength;
-        tmpNioBuf = null;
         this.cache = cache;
     }
 
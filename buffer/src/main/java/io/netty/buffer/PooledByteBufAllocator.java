@@ -16,7 +16,9 @@
 
 package io.netty.buffer;
 
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.ThreadExecutorMap;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
@@ -33,6 +35,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PooledByteBufAllocator.class);
     private static final int DEFAULT_NUM_HEAP_ARENA;
     private static final int DEFAULT_NUM_DIRECT_ARENA;
+    private static final int DEFAULT_NUM_STRIPES;
 
     private static final int DEFAULT_PAGE_SIZE;
     private static final int DEFAULT_MAX_ORDER; // 8192 << 11 = 16 MiB per chunk
@@ -41,6 +44,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private static final int DEFAULT_NORMAL_CACHE_SIZE;
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
+    private static final long DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
 
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
@@ -89,6 +93,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
                                 defaultMinNumArena,
                                 PlatformDependent.maxDirectMemory() / defaultChunkSize / 2 / 3)));
 
+        // Split the chunks of each arena over multiple stripes which are guarded by their own lock. This reduces the
+        // contention if more threads than arenas allocate buffers which can not be served by their thread cache.
+        DEFAULT_NUM_STRIPES = Math.max(1,
+                SystemPropertyUtil.getInt(
+                        "io.netty.allocator.numStripes",
+                        Math.min(4, runtime.availableProcessors())));
+
         // cache sizes
         DEFAULT_TINY_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.tinyCacheSize", 512);
         DEFAULT_SMALL_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.smallCacheSize", 256);
@@ -103,9 +114,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         DEFAULT_CACHE_TRIM_INTERVAL = SystemPropertyUtil.getInt(
                 "io.netty.allocator.cacheTrimInterval", 8192);
 
+        // the interval in which the thread-local caches of EventLoops are trimmed, even if they do not allocate.
+        DEFAULT_CACHE_TRIM_INTERVAL_MILLIS = SystemPropertyUtil.getLong(
+                "io.netty.allocator.cacheTrimIntervalMillis", 10000);
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
+            logger.debug("-Dio.netty.allocator.numStripes: {}", DEFAULT_NUM_STRIPES);
             if (pageSizeFallbackCause == null) {
                 logger.debug("-Dio.netty.allocator.pageSize: {}", DEFAULT_PAGE_SIZE);
             } else {
@@ -122,6 +138,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
+            logger.debug("-Dio.netty.allocator.cacheTrimIntervalMillis: {}", DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
         }
     }
 
@@ -135,6 +152,8 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private final int normalCacheSize;
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
+    private final List<PoolArenaThreadCacheMetric> heapArenaThreadCacheMetrics;
+    private final List<PoolArenaThreadCacheMetric> directArenaThreadCacheMetrics;
     private final PoolThreadLocalCache threadCache;
 
     public PooledByteBufAllocator() {
@@ -175,30 +194,41 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         if (nHeapArena > 0) {
             heapArenas = newArenaArray(nHeapArena);
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(heapArenas.length);
+            List<PoolArenaThreadCacheMetric> cacheMetrics =
+                    new ArrayList<PoolArenaThreadCacheMetric>(heapArenas.length);
             for (int i = 0; i < heapArenas.length; i ++) {
-                PoolArena.HeapArena arena = new PoolArena.HeapArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                PoolArena.HeapArena arena = new PoolArena.HeapArena(
+                        this, pageSize, maxOrder, pageShifts, chunkSize, DEFAULT_NUM_STRIPES);
                 heapArenas[i] = arena;
                 metrics.add(arena);
+                cacheMetrics.add(arena);
             }
             heapArenaMetrics = Collections.unmodifiableList(metrics);
+            heapArenaThreadCacheMetrics = Collections.unmodifiableList(cacheMetrics);
         } else {
             heapArenas = null;
             heapArenaMetrics = Collections.emptyList();
+            heapArenaThreadCacheMetrics = Collections.emptyList();
         }
 
         if (nDirectArena > 0) {
             directArenas = newArenaArray(nDirectArena);
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(directArenas.length);
+            List<PoolArenaThreadCacheMetric> cacheMetrics =
+                    new ArrayList<PoolArenaThreadCacheMetric>(directArenas.length);
             for (int i = 0; i < directArenas.length; i ++) {
                 PoolArena.DirectArena arena = new PoolArena.DirectArena(
-                        this, pageSize, maxOrder, pageShifts, chunkSize);
+                        this, pageSize, maxOrder, pageShifts, chunkSize, DEFAULT_NUM_STRIPES);
                 directArenas[i] = arena;
                 metrics.add(arena);
+                cacheMetrics.add(arena);
             }
             directArenaMetrics = Collections.unmodifiableList(metrics);
+            directArenaThreadCacheMetrics = Collections.unmodifiableList(cacheMetrics);
         } else {
             directArenas = null;
             directArenaMetrics = Collections.emptyList();
+            directArenaThreadCacheMetrics = Collections.emptyList();
         }
     }
 
@@ -298,9 +328,20 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             } else {
                 directArena = null;
             }
-            return new PoolThreadCache(
+            PoolThreadCache cache = new PoolThreadCache(
                     heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize,
                     DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
+
+            if (DEFAULT_CACHE_TRIM_INTERVAL_MILLIS > 0 && tinyCacheSize + smallCacheSize + normalCacheSize > 0) {
+                // If the cache is used by an EventLoop, trim it periodically so an idle EventLoop does not keep the
+                // cached buffers forever. The task is bound to this cache, as the EventLoop may be executed by
+                // another Thread later.
+                EventExecutor executor = ThreadExecutorMap.currentExecutor();
+                if (executor != null) {
+                    cache.scheduleTrim(executor, DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
+                }
+            }
+            return cache;
         }
 
         @Override
@@ -338,6 +379,22 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return directArenaMetrics;
     }
 
+    /**
+     * Return a {@link List} of the {@link PoolArenaThreadCacheMetric}s of all heap arenas that are provided by this
+     * pool, in the same order as {@link #heapArenas()}.
+     */
+    public List<PoolArenaThreadCacheMetric> heapArenaThreadCaches() {
+        return heapArenaThreadCacheMetrics;
+    }
+
+    /**
+     * Return a {@link List} of the {@link PoolArenaThreadCacheMetric}s of all direct arenas that are provided by this
+     * pool, in the same order as {@link #directArenas()}.
+     */
+    public List<PoolArenaThreadCacheMetric> directArenaThreadCaches() {
+        return directArenaThreadCacheMetrics;
+    }
+
     /**
      * Return the number of thread local caches used by this {@link PooledByteBufAllocator}.
      */
@@ -370,6 +427,19 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return threadCache.get();
     }
 
+    /**
+     * Trim the thread local cache of the current {@link Thread}, which releases the cached buffers that were not
+     * used since the last trim back to the arenas. Returns {@code true} if a cache was trimmed, {@code false} if the
+     * current {@link Thread} does not use a thread local cache of this {@link PooledByteBufAllocator}.
+     */
+    public boolean trimCurrentThreadCache() {
+        if (!threadCache.isSet()) {
+            return false;
+        }
+        threadCache.get().trim();
+        return true;
+    }
+
     // Too noisy at the moment.
     //
     //public String toString() {
@@ -17,6 +17,9 @@ package io.netty.buffer;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import static org.junit.Assert.*;
 
 public abstract class AbstractPooledByteBufTest extends AbstractByteBufTest {
@@ -65,6 +68,27 @@ public abstract class AbstractPooledByteBufTest extends AbstractByteBufTest {
         assertTrue(buf2.release());
     }
 
+    @Test
+    public void testInternalNioBufferReusedAfterRecycle() {
+        // Use big endian so we get the view of the pooled buffer itself and not a swapped slice of it.
+        ByteBuf buf = newBuffer(8).order(ByteOrder.BIG_ENDIAN);
+        buf.writeLong(1);
+        ByteBuffer nioBuffer = buf.internalNioBuffer(buf.readerIndex(), buf.readableBytes());
+        assertEquals(1, nioBuffer.getLong(nioBuffer.position()));
+        assertTrue(buf.release());
+
+        ByteBuf buf2 = newBuffer(8).order(ByteOrder.BIG_ENDIAN);
+        assertSame(unwrapIfNeeded(buf), unwrapIfNeeded(buf2));
+        buf2.writeLong(2);
+
+        // The recycled buffer was allocated out of the same chunk again, so the view is reused.
+        ByteBuffer nioBuffer2 = buf2.internalNioBuffer(buf2.readerIndex(), buf2.readableBytes());
+        assertSame(nioBuffer, nioBuffer2);
+        assertEquals(8, nioBuffer2.remaining());
+        assertEquals(2, nioBuffer2.getLong(nioBuffer2.position()));
+        assertTrue(buf2.release());
+    }
+
     private static ByteBuf unwrapIfNeeded(ByteBuf buf) {
         if (buf instanceof AdvancedLeakAwareByteBuf || buf instanceof SimpleLeakAwareByteBuf) {
             return buf.unwrap();
@@ -174,4 +174,79 @@ public class ByteBufUtilTest {
         Assert.assertEquals(text, ByteBufUtil.decodeString(buffer, 0, buffer.readableBytes(), charset));
         buffer.release();
     }
+
+    @Test
+    public void testIndexOfMatchesByteByByteSearch() {
+        Random rand = new Random();
+        byte[] bytes = new byte[100];
+        rand.nextBytes(bytes);
+        ByteBuf[] buffers = { Unpooled.wrappedBuffer(bytes),
+                Unpooled.directBuffer(bytes.length).writeBytes(bytes),
+                Unpooled.wrappedBuffer(bytes).slice(3, 90) };
+        try {
+            for (ByteBuf buffer: buffers) {
+                for (int from = 0; from <= buffer.capacity(); from ++) {
+                    for (int to = from; to <= buffer.capacity(); to += 7) {
+                        for (int i = from; i < to; i ++) {
+                            byte value = buffer.getByte(i);
+                            Assert.assertEquals(naiveIndexOf(buffer, from, to, value),
+                                    ByteBufUtil.indexOf(buffer, from, to, value));
+                            Assert.assertEquals(naiveIndexOf(buffer, to, from, value),
+                                    ByteBufUtil.indexOf(buffer, to, from, value));
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (ByteBuf buffer: buffers) {
+                buffer.release();
+            }
+        }
+    }
+
+    private static int naiveIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        if (fromIndex <= toIndex) {
+            for (int i = fromIndex; i < toIndex; i ++) {
+                if (buffer.getByte(i) == value) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = fromIndex - 1; i >= toIndex; i --) {
+                if (buffer.getByte(i) == value) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testIndexOfNeedle() {
+        ByteBuf haystack = Unpooled.copiedBuffer("xxabcabcabdxx--0123456789abcdefghij--", CharsetUtil.US_ASCII);
+        haystack.readerIndex(1);
+        try {
+            assertIndexOf(5, "abcabd", haystack);
+            assertIndexOf(2, "abc", haystack);
+            assertIndexOf(13, "--", haystack);
+            assertIndexOf(15, "0123456789abcdefghij", haystack);
+            assertIndexOf(25, "abcdefghij--", haystack);
+            assertIndexOf(1, "", haystack);
+            assertIndexOf(-1, "abce", haystack);
+            assertIndexOf(-1, "0123456789abcdefghik", haystack);
+            assertIndexOf(-1, "xxabc", haystack);
+            assertIndexOf(-1, "j---", haystack);
+        } finally {
+            haystack.release();
+        }
+    }
+
+    private static void assertIndexOf(int expected, String needle, ByteBuf haystack) {
+        ByteBuf buffer = Unpooled.copiedBuffer(needle, CharsetUtil.US_ASCII);
+        try {
+            Assert.assertEquals(expected, ByteBufUtil.indexOf(buffer, haystack));
+        } finally {
+            buffer.release();
+        }
+    }
 }
@@ -20,6 +20,9 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class PoolArenaTest {
 
@@ -32,4 +35,89 @@ public class PoolArenaTest {
             Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
         }
     }
+
+    @Test
+    public void testConcurrentAllocateAndFree() throws Exception {
+        // Use only one arena and no thread cache so all threads need to allocate out of the same arena.
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 0, 1, 8192, 11, 0, 0, 0);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final int[] sizes = { 16, 512, 1024, 8192, 65536 };
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i ++) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+                        for (int j = 0; j < 1000; j ++) {
+                            int size = sizes[j % sizes.length];
+                            ByteBuf buf = allocator.directBuffer(size);
+                            buf.writeZero(size);
+                            buffers.add(buf);
+                            if (buffers.size() == 64) {
+                                for (ByteBuf b: buffers) {
+                                    b.release();
+                                }
+                                buffers.clear();
+                            }
+                        }
+                        for (ByteBuf b: buffers) {
+                            b.release();
+                        }
+                    } catch (Throwable cause) {
+                        error.compareAndSet(null, cause);
+                    }
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t: threads) {
+            t.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+
+        PoolArenaMetric metric = allocator.directArenas().get(0);
+        Assert.assertEquals(8000, metric.numAllocations());
+        Assert.assertEquals(0, metric.numActiveAllocations());
+    }
+
+    @Test
+    public void testChunkListsAreAggregatedOverStripes() {
+        // Every chunk only holds a single page, so each allocation needs its own chunk.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 0, 0, 0, 0);
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(allocator, 8192, 0, 13, 8192, 4);
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        for (int i = 0; i < 4; i ++) {
+            PoolThreadCache cache = new PoolThreadCache(null, arena, 0, 0, 0, 0, 8192);
+            buffers.add(arena.allocate(cache, 8192, 8192));
+        }
+
+        Assert.assertEquals(6, arena.numChunkLists());
+        Assert.assertEquals(6, arena.chunkLists().size());
+        int chunks = 0;
+        for (PoolChunkListMetric list: arena.chunkLists()) {
+            for (PoolChunkMetric chunk: list) {
+                Assert.assertEquals(100, chunk.usage());
+                Assert.assertEquals(100, list.minUsage());
+                chunks ++;
+            }
+        }
+        Assert.assertEquals(4, chunks);
+
+        for (ByteBuf buf: buffers) {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testForeignThreadsAreSpreadOverStripes() {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 8192, 0, 13, 8192, 4);
+        PoolArena<ByteBuffer> other = new PoolArena.DirectArena(null, 8192, 0, 13, 8192, 4);
+        PoolThreadCache cache = new PoolThreadCache(null, other, 0, 0, 0, 0, 8192);
+        Thread current = Thread.currentThread();
+        Assert.assertEquals((int) (current.getId() % 4), cache.stripe(arena));
+    }
 }
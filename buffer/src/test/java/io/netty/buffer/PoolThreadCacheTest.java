@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.ThreadDeathWatcher;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class PoolThreadCacheTest {
+
+    @Test
+    public void testTrimUpdatesMetricsAndReleasesIdleBuffers() {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 256, 0);
+        PoolArenaThreadCacheMetric metric = allocator.directArenaThreadCaches().get(0);
+        ByteBuf[] buffers = new ByteBuf[10];
+
+        // The first round can not be served by the cache, the second one can.
+        for (int round = 0; round < 2; round ++) {
+            for (int i = 0; i < buffers.length; i ++) {
+                buffers[i] = allocator.directBuffer(1024);
+            }
+            for (ByteBuf buf: buffers) {
+                assertTrue(buf.release());
+            }
+        }
+
+        assertTrue(allocator.trimCurrentThreadCache());
+        assertEquals(10, metric.numThreadCacheHits());
+        assertEquals(10, metric.numThreadCacheMisses());
+        // All the cached buffers were used since the last trim so none of them is released.
+        assertEquals(0, metric.numThreadCacheTrimmed());
+        assertEquals(10, metric.numActiveAllocations());
+
+        // Nothing was allocated since the last trim so all the cached buffers are released.
+        assertTrue(allocator.trimCurrentThreadCache());
+        assertEquals(10, metric.numThreadCacheTrimmed());
+        assertEquals(0, metric.numActiveAllocations());
+    }
+
+    @Test
+    public void testTrimRequestedByOtherThread() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 256, 0);
+        PoolArenaThreadCacheMetric metric = allocator.directArenaThreadCaches().get(0);
+        ByteBuf[] buffers = new ByteBuf[10];
+        for (int i = 0; i < buffers.length; i ++) {
+            buffers[i] = allocator.directBuffer(1024);
+        }
+        for (ByteBuf buf: buffers) {
+            assertTrue(buf.release());
+        }
+
+        // Another Thread must not take the buffers out of the cache.
+        final PoolThreadCache cache = allocator.threadCache();
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                cache.requestTrim();
+            }
+        });
+        t.start();
+        t.join();
+        assertEquals(0, metric.numThreadCacheTrimmed());
+        assertEquals(10, metric.numActiveAllocations());
+
+        // The owning Thread trims the cache on its next allocation instead, which keeps the one cached buffer that
+        // was allocated since the last trim.
+        ByteBuf buf = allocator.directBuffer(1024);
+        assertEquals(1, metric.numThreadCacheHits());
+        assertEquals(10, metric.numThreadCacheMisses());
+        assertEquals(8, metric.numThreadCacheTrimmed());
+        assertEquals(2, metric.numActiveAllocations());
+        assertTrue(buf.release());
+    }
+
+    @Test
+    public void testConfiguredSizeIsUpperBound() {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 4, 0);
+        PoolArenaMetric metric = allocator.directArenas().get(0);
+        ByteBuf[] buffers = new ByteBuf[10];
+
+        // Every round misses the cache more often than it hits, which must not grow the cache beyond its size.
+        for (int round = 0; round < 4; round ++) {
+            for (int i = 0; i < buffers.length; i ++) {
+                buffers[i] = allocator.directBuffer(1024);
+            }
+            for (ByteBuf buf: buffers) {
+                assertTrue(buf.release());
+            }
+            // Only the cached buffers are still allocated out of the arena.
+            assertEquals(4, metric.numActiveAllocations());
+            assertTrue(allocator.trimCurrentThreadCache());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testTrimTaskDoesNotRetainCache() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 256, 0);
+        @SuppressWarnings("unchecked")
+        PoolArena<ByteBuffer> arena = (PoolArena<ByteBuffer>) allocator.directArenas().get(0);
+        EventExecutor executor = new DefaultEventExecutor();
+        try {
+            PoolThreadCache cache = new PoolThreadCache(null, arena, 0, 256, 0, 32 * 1024, 8192);
+            cache.scheduleTrim(executor, 10);
+            WeakReference<PoolThreadCache> ref = new WeakReference<PoolThreadCache>(cache);
+            // Once freed, only the scheduled trim task may still know about the cache.
+            cache.free();
+            cache = null;
+            Runnable noop = new Runnable() {
+                @Override
+                public void run() {
+                }
+            };
+            // The ThreadDeathWatcher keeps the last entry it processed, so push the one of the cache out.
+            ThreadDeathWatcher.watch(Thread.currentThread(), noop);
+            ThreadDeathWatcher.unwatch(Thread.currentThread(), noop);
+
+            while (ref.get() != null) {
+                System.gc();
+                Thread.sleep(10);
+            }
+        } finally {
+            executor.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testTrimWithoutCache() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 256, 0);
+        final boolean[] trimmed = new boolean[1];
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                trimmed[0] = allocator.trimCurrentThreadCache();
+            }
+        });
+        t.start();
+        t.join();
+        assertFalse(trimmed[0]);
+    }
+}
@@ -15,7 +15,9 @@
  */
 package io.netty.handler.codec.dns;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.AddressedEnvelope;
+import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.util.internal.StringUtil;
 
 import java.net.SocketAddress;
@@ -177,5 +179,96 @@ final class DnsMessageUtil {
         }
     }
 
+    /**
+     * Encodes the header, the questions and the additional records of the specified {@link DnsQuery}.
+     */
+    static void encodeDnsQuery(DnsRecordEncoder recordEncoder, DnsQuery query, ByteBuf buf) throws Exception {
+        encodeQueryHeader(query, buf);
+        encodeQuestions(recordEncoder, query, buf);
+        encodeRecords(recordEncoder, query, DnsSection.ADDITIONAL, buf);
+    }
+
+    /**
+     * Encodes the header that is always 12 bytes long.
+     */
+    private static void encodeQueryHeader(DnsQuery query, ByteBuf buf) {
+        buf.writeShort(query.id());
+        int flags = 0;
+        flags |= (query.opCode().byteValue() & 0xFF) << 14;
+        flags |= query.isRecursionDesired()? 1 << 8 : 0;
+        buf.writeShort(flags);
+        buf.writeShort(query.count(DnsSection.QUESTION));
+        buf.writeShort(0); // answerCount
+        buf.writeShort(0); // authorityResourceCount
+        buf.writeShort(query.count(DnsSection.ADDITIONAL));
+    }
+
+    private static void encodeQuestions(DnsRecordEncoder recordEncoder, DnsQuery query, ByteBuf buf)
+            throws Exception {
+        final int count = query.count(DnsSection.QUESTION);
+        for (int i = 0; i < count; i ++) {
+            recordEncoder.encodeQuestion((DnsQuestion) query.recordAt(DnsSection.QUESTION, i), buf);
+        }
+    }
+
+    private static void encodeRecords(DnsRecordEncoder recordEncoder, DnsQuery query, DnsSection section, ByteBuf buf)
+            throws Exception {
+        final int count = query.count(section);
+        for (int i = 0; i < count; i ++) {
+            recordEncoder.encodeRecord(query.recordAt(section, i), buf);
+        }
+    }
+
+    /**
+     * Decodes the flags, the questions and the records of a DNS response into the specified {@link DnsResponse},
+     * whose ID was decoded already.
+     */
+    static void decodeDnsResponse(DnsRecordDecoder recordDecoder, ByteBuf buf, DnsResponse response)
+            throws Exception {
+        final int flags = buf.readUnsignedShort();
+        if (flags >> 15 == 0) {
+            throw new CorruptedFrameException("not a response");
+        }
+
+        response.setOpCode(DnsOpCode.valueOf((byte) (flags >> 11 & 0xf)));
+        response.setCode(DnsResponseCode.valueOf((byte) (flags & 0xf)));
+        response.setRecursionDesired((flags >> 8 & 1) == 1);
+        response.setAuthoritativeAnswer((flags >> 10 & 1) == 1);
+        response.setTruncated((flags >> 9 & 1) == 1);
+        response.setRecursionAvailable((flags >> 7 & 1) == 1);
+        response.setZ(flags >> 4 & 0x7);
+
+        final int questionCount = buf.readUnsignedShort();
+        final int answerCount = buf.readUnsignedShort();
+        final int authorityRecordCount = buf.readUnsignedShort();
+        final int additionalRecordCount = buf.readUnsignedShort();
+
+        decodeQuestions(recordDecoder, response, buf, questionCount);
+        decodeRecords(recordDecoder, response, DnsSection.ANSWER, buf, answerCount);
+        decodeRecords(recordDecoder, response, DnsSection.AUTHORITY, buf, authorityRecordCount);
+        decodeRecords(recordDecoder, response, DnsSection.ADDITIONAL, buf, additionalRecordCount);
+    }
+
+    private static void decodeQuestions(
+            DnsRecordDecoder recordDecoder, DnsResponse response, ByteBuf buf, int questionCount) throws Exception {
+        for (int i = questionCount; i > 0; i --) {
+            response.addRecord(DnsSection.QUESTION, recordDecoder.decodeQuestion(buf));
+        }
+    }
+
+    private static void decodeRecords(
+            DnsRecordDecoder recordDecoder, DnsResponse response, DnsSection section, ByteBuf buf, int count)
+            throws Exception {
+        for (int i = count; i > 0; i --) {
+            final DnsRecord r = recordDecoder.decodeRecord(buf);
+            if (r == null) {
+                // Truncated response
+                break;
+            }
+
+            response.addRecord(section, r);
+        }
+    }
+
     private DnsMessageUtil() { }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.dns;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Decodes the length-prefixed DNS responses which are received over TCP, as defined in
+ * <a href="https://tools.ietf.org/html/rfc1035#section-4.2.2">RFC1035, section 4.2.2</a>, into
+ * {@link DnsResponse}s. Several responses may be received over the same connection, in any order.
+ */
+public class TcpDnsResponseDecoder extends LengthFieldBasedFrameDecoder {
+
+    /**
+     * The max length of a DNS message over TCP, which is limited by its two bytes length prefix.
+     */
+    public static final int MAX_MESSAGE_LENGTH = 65535;
+
+    private final DnsRecordDecoder recordDecoder;
+
+    /**
+     * Creates a new decoder with {@linkplain DnsRecordDecoder#DEFAULT the default record decoder}.
+     */
+    public TcpDnsResponseDecoder() {
+        this(DnsRecordDecoder.DEFAULT);
+    }
+
+    /**
+     * Creates a new decoder with the specified {@code recordDecoder}.
+     */
+    public TcpDnsResponseDecoder(DnsRecordDecoder recordDecoder) {
+        super(MAX_MESSAGE_LENGTH + 2, 0, 2, 0, 2);
+        this.recordDecoder = checkNotNull(recordDecoder, "recordDecoder");
+    }
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        final ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+        if (frame == null) {
+            return null;
+        }
+
+        try {
+            final DnsResponse response = new DefaultDnsResponse(frame.readUnsignedShort());
+            boolean success = false;
+            try {
+                DnsMessageUtil.decodeDnsResponse(recordDecoder, frame, response);
+                success = true;
+                return response;
+            } finally {
+                if (!success) {
+                    response.release();
+                }
+            }
+        } finally {
+            frame.release();
+        }
+    }
+}
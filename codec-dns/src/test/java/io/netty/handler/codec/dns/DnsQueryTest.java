@@ -15,6 +15,7 @@
  */
 package io.netty.handler.codec.dns;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.embedded.EmbeddedChannel;
 
 import io.netty.channel.socket.DatagramPacket;
@@ -65,4 +66,28 @@ public class DnsQueryTest {
             Assert.assertNull(embedder.readOutbound());
         }
     }
+
+    @Test
+    public void writeTcpQueryTest() throws Exception {
+        EmbeddedChannel datagramEmbedder = new EmbeddedChannel(new DatagramDnsQueryEncoder());
+        EmbeddedChannel tcpEmbedder = new EmbeddedChannel(new TcpDnsQueryEncoder());
+        InetSocketAddress addr = new InetSocketAddress("8.8.8.8", 53);
+        DnsQuery query = new DatagramDnsQuery(null, addr, 42).setRecord(
+                DnsSection.QUESTION,
+                new DefaultDnsQuestion("www.example.com", DnsRecordType.A));
+
+        datagramEmbedder.writeOutbound(query.retain());
+        tcpEmbedder.writeOutbound(query);
+
+        DatagramPacket packet = datagramEmbedder.readOutbound();
+        ByteBuf buf = tcpEmbedder.readOutbound();
+
+        // The same message, prefixed with its length.
+        assertThat(buf.readUnsignedShort(), is(packet.content().readableBytes()));
+        assertThat(buf, is(packet.content()));
+
+        packet.release();
+        buf.release();
+        Assert.assertNull(tcpEmbedder.readOutbound());
+    }
 }
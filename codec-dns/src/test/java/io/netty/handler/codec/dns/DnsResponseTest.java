@@ -102,4 +102,35 @@ public class DnsResponseTest {
         exception.expect(CorruptedFrameException.class);
         embedder.writeInbound(new DatagramPacket(packet, null, new InetSocketAddress(0)));
     }
+
+    @Test
+    public void readTcpResponseTest() throws Exception {
+        EmbeddedChannel embedder = new EmbeddedChannel(new TcpDnsResponseDecoder());
+        ByteBuf stream = Unpooled.buffer();
+        for (byte[] p: packets) {
+            stream.writeShort(p.length);
+            stream.writeBytes(p);
+        }
+
+        // Feed the responses in small chunks, so that they are split at arbitrary positions.
+        while (stream.isReadable()) {
+            embedder.writeInbound(stream.readBytes(Math.min(7, stream.readableBytes())));
+        }
+        stream.release();
+
+        for (byte[] p: packets) {
+            DnsResponse response = embedder.readInbound();
+            assertThat(response, is(not(instanceOf(AddressedEnvelope.class))));
+
+            ByteBuf raw = Unpooled.wrappedBuffer(p);
+            assertThat(response.id(), is(raw.getUnsignedShort(0)));
+            assertThat(response.count(DnsSection.QUESTION), is(raw.getUnsignedShort(4)));
+            assertThat(response.count(DnsSection.ANSWER), is(raw.getUnsignedShort(6)));
+            assertThat(response.count(DnsSection.AUTHORITY), is(raw.getUnsignedShort(8)));
+            assertThat(response.count(DnsSection.ADDITIONAL), is(raw.getUnsignedShort(10)));
+
+            response.release();
+        }
+        assertThat(embedder.readInbound(), is(nullValue()));
+    }
 }
@@ -16,8 +16,14 @@
 package io.netty.handler.codec.http;
 
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.BrotliEncoder;
+import io.netty.handler.codec.compression.JdkZlibEncoder;
+import io.netty.handler.codec.compression.JdkZlibPool;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdEncoder;
 import io.netty.util.internal.StringUtil;
 
 /**
@@ -26,12 +32,31 @@ import io.netty.util.internal.StringUtil;
  * If there is no matching encoding, no compression is done.  For more
  * information on how this handler modifies the message, please refer to
  * {@link HttpContentEncoder}.
+ * <p>
+ * The {@code br} and {@code zstd} encodings can be enabled as well, and are used
+ * if the client asks for them explicitly and prefers them to {@code gzip} and
+ * {@code deflate}.
  */
 public class HttpContentCompressor extends HttpContentEncoder {
 
+    /**
+     * The base two logarithm of the max window size of the {@code zstd} encoding,
+     * which decoders are only required to support up to 8 MiB.
+     */
+    public static final int MAX_ZSTD_WINDOW_LOG = 23;
+
+    // The highest zstd compression level whose default window does not exceed MAX_ZSTD_WINDOW_LOG if the size of the
+    // content is unknown. The levels above use a window of up to 128 MiB.
+    private static final int MAX_ZSTD_LEVEL_WITH_DEFAULT_WINDOW = 19;
+
     private final int compressionLevel;
     private final int windowBits;
     private final int memLevel;
+    private final JdkZlibPool pool;
+    private final int brotliQuality;
+    private final int brotliWindowBits;
+    private final int zstdLevel;
+    private final int zstdWindowLog;
 
     /**
      * Creates a new handler with the default compression level (<tt>6</tt>),
@@ -74,6 +99,46 @@ public class HttpContentCompressor extends HttpContentEncoder {
      *        at the expense of memory usage.  The default value is {@code 8}
      */
     public HttpContentCompressor(int compressionLevel, int windowBits, int memLevel) {
+        this(compressionLevel, windowBits, memLevel, -1, Brotli.DEFAULT_WINDOW_BITS, -1, 0);
+    }
+
+    /**
+     * Creates a new handler which also compresses in {@code br} and {@code zstd}
+     * encoding if the client prefers them.  An encoding is only used if its
+     * library is available; see {@link Brotli#isAvailable()} and
+     * {@link Zstd#isAvailable()}.
+     *
+     * @param compressionLevel
+     *        the compression level of {@code gzip} and {@code deflate}.
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.  The default
+     *        compression level is {@code 6}.
+     * @param windowBits
+     *        the base two logarithm of the window size of {@code gzip} and
+     *        {@code deflate}, in the range {@code 9} to {@code 15} inclusive.
+     * @param memLevel
+     *        the memory level of {@code gzip} and {@code deflate}, in the range
+     *        {@code 1} to {@code 9} inclusive.
+     * @param brotliQuality
+     *        the quality of {@code br}.  {@code 0} yields the fastest compression
+     *        and {@code 11} yields the best compression.  {@code -1} disables
+     *        {@code br}.
+     * @param brotliWindowBits
+     *        the base two logarithm of the window size of {@code br}, in the
+     *        range {@code 10} to {@code 24} inclusive.
+     * @param zstdLevel
+     *        the compression level of {@code zstd}.  {@code 1} yields the fastest
+     *        compression and {@code 22} yields the best compression.  {@code -1}
+     *        disables {@code zstd}.
+     * @param zstdWindowLog
+     *        the base two logarithm of the window size of {@code zstd}, in the
+     *        range {@code 10} to {@value #MAX_ZSTD_WINDOW_LOG} inclusive, or
+     *        {@code 0} to use the window size of the compression level.  The
+     *        window size of the levels above {@code 19} exceeds the limit, so
+     *        {@value #MAX_ZSTD_WINDOW_LOG} is used for them instead.
+     */
+    public HttpContentCompressor(int compressionLevel, int windowBits, int memLevel,
+                                 int brotliQuality, int brotliWindowBits, int zstdLevel, int zstdWindowLog) {
         if (compressionLevel < 0 || compressionLevel > 9) {
             throw new IllegalArgumentException(
                     "compressionLevel: " + compressionLevel +
@@ -87,9 +152,55 @@ public class HttpContentCompressor extends HttpContentEncoder {
             throw new IllegalArgumentException(
                     "memLevel: " + memLevel + " (expected: 1-9)");
         }
+        if (brotliQuality != -1 && (brotliQuality < Brotli.MIN_QUALITY || brotliQuality > Brotli.MAX_QUALITY)) {
+            throw new IllegalArgumentException(
+                    "brotliQuality: " + brotliQuality + " (expected: -1 or 0-11)");
+        }
+        if (brotliWindowBits < Brotli.MIN_WINDOW_BITS || brotliWindowBits > Brotli.MAX_WINDOW_BITS) {
+            throw new IllegalArgumentException(
+                    "brotliWindowBits: " + brotliWindowBits + " (expected: 10-24)");
+        }
+        if (zstdLevel != -1 && (zstdLevel < Zstd.MIN_COMPRESSION_LEVEL || zstdLevel > Zstd.MAX_COMPRESSION_LEVEL)) {
+            throw new IllegalArgumentException(
+                    "zstdLevel: " + zstdLevel + " (expected: -1 or 1-22)");
+        }
+        if (zstdWindowLog != 0 && (zstdWindowLog < Zstd.MIN_WINDOW_LOG || zstdWindowLog > MAX_ZSTD_WINDOW_LOG)) {
+            throw new IllegalArgumentException(
+                    "zstdWindowLog: " + zstdWindowLog + " (expected: 0 or 10-" + MAX_ZSTD_WINDOW_LOG + ')');
+        }
         this.compressionLevel = compressionLevel;
         this.windowBits = windowBits;
         this.memLevel = memLevel;
+        pool = null;
+        this.brotliQuality = brotliQuality != -1 && Brotli.isAvailable() ? brotliQuality : -1;
+        this.brotliWindowBits = brotliWindowBits;
+        this.zstdLevel = zstdLevel != -1 && Zstd.isAvailable() ? zstdLevel : -1;
+        this.zstdWindowLog = zstdWindowLog(zstdLevel, zstdWindowLog);
+    }
+
+    /**
+     * Creates a new handler which borrows the compressor of every response from the specified {@link JdkZlibPool},
+     * and returns it once the response is complete. A pool can be shared by the handlers of all channels, so the
+     * native memory of a compressor is not allocated again for every response. The compression level is the one of
+     * the pool, and the window size is always <tt>15</tt>.
+     *
+     * @param pool the pool without a preset dictionary, as the {@code gzip} encoding does not support it
+     */
+    public HttpContentCompressor(JdkZlibPool pool) {
+        if (pool == null) {
+            throw new NullPointerException("pool");
+        }
+        if (pool.hasDictionary()) {
+            throw new IllegalArgumentException("pool must not have a preset dictionary: " + pool);
+        }
+        compressionLevel = pool.compressionLevel();
+        windowBits = 15;
+        memLevel = 8;
+        this.pool = pool;
+        brotliQuality = -1;
+        brotliWindowBits = Brotli.DEFAULT_WINDOW_BITS;
+        zstdLevel = -1;
+        zstdWindowLog = 0;
     }
 
     @Override
@@ -100,6 +211,16 @@ public class HttpContentCompressor extends HttpContentEncoder {
             return null;
         }
 
+        String encoding = determineEncoding(acceptEncoding);
+        if (encoding != null) {
+            if (HttpHeaderValues.BR.contentEquals(encoding)) {
+                return new Result(encoding, new EmbeddedChannel(new BrotliEncoder(brotliQuality, brotliWindowBits)));
+            }
+            if (HttpHeaderValues.ZSTD.contentEquals(encoding)) {
+                return new Result(encoding, new EmbeddedChannel(new ZstdEncoder(zstdLevel, zstdWindowLog)));
+            }
+        }
+
         ZlibWrapper wrapper = determineWrapper(acceptEncoding);
         if (wrapper == null) {
             return null;
@@ -117,12 +238,75 @@ public class HttpContentCompressor extends HttpContentEncoder {
             throw new Error();
         }
 
+        if (pool != null) {
+            return new Result(targetContentEncoding, new EmbeddedChannel(new JdkZlibEncoder(wrapper, pool)));
+        }
+
         return new Result(
                 targetContentEncoding,
                 new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(
                         wrapper, compressionLevel, windowBits, memLevel)));
     }
 
+    /**
+     * Returns the window log of the {@code zstd} encoding, which never exceeds {@link #MAX_ZSTD_WINDOW_LOG}.
+     */
+    static int zstdWindowLog(int zstdLevel, int zstdWindowLog) {
+        if (zstdWindowLog == 0 && zstdLevel > MAX_ZSTD_LEVEL_WITH_DEFAULT_WINDOW) {
+            return MAX_ZSTD_WINDOW_LOG;
+        }
+        return zstdWindowLog;
+    }
+
+    /**
+     * Returns {@code "br"} or {@code "zstd"} if it is enabled and preferred by the
+     * specified {@code "Accept-Encoding"}, or {@code null} to fall back to
+     * {@link #determineWrapper(CharSequence)}.
+     */
+    protected String determineEncoding(CharSequence acceptEncoding) {
+        return determineEncoding(acceptEncoding, brotliQuality != -1, zstdLevel != -1);
+    }
+
+    static String determineEncoding(CharSequence acceptEncoding, boolean brotli, boolean zstd) {
+        if (!brotli && !zstd) {
+            return null;
+        }
+
+        float brQ = -1.0f;
+        float zstdQ = -1.0f;
+        float zlibQ = -1.0f;
+        for (String encoding: StringUtil.split(acceptEncoding.toString(), ',')) {
+            float q = 1.0f;
+            int equalsPos = encoding.indexOf('=');
+            if (equalsPos != -1) {
+                try {
+                    q = Float.valueOf(encoding.substring(equalsPos + 1));
+                } catch (NumberFormatException e) {
+                    // Ignore encoding
+                    q = 0.0f;
+                }
+            }
+            int semicolonPos = encoding.indexOf(';');
+            String name = (semicolonPos != -1 ? encoding.substring(0, semicolonPos) : encoding).trim();
+            if (HttpHeaderValues.BR.contentEqualsIgnoreCase(name)) {
+                brQ = Math.max(brQ, q);
+            } else if (HttpHeaderValues.ZSTD.contentEqualsIgnoreCase(name)) {
+                zstdQ = Math.max(zstdQ, q);
+            } else if (name.contains("gzip") || name.contains("deflate")) {
+                zlibQ = Math.max(zlibQ, q);
+            }
+        }
+
+        // '*' does not select them, as only the clients which name them are known to support them.
+        if (brotli && brQ > 0.0f && brQ >= zlibQ && (!zstd || brQ >= zstdQ)) {
+            return HttpHeaderValues.BR.toString();
+        }
+        if (zstd && zstdQ > 0.0f && zstdQ >= zlibQ) {
+            return HttpHeaderValues.ZSTD.toString();
+        }
+        return null;
+    }
+
     @SuppressWarnings("FloatingPointEquality")
     protected ZlibWrapper determineWrapper(CharSequence acceptEncoding) {
         float starQ = -1.0f;
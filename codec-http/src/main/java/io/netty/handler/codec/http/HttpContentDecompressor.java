@@ -15,11 +15,17 @@
  */
 package io.netty.handler.codec.http;
 
+import static io.netty.handler.codec.http.HttpHeaderValues.BR;
 import static io.netty.handler.codec.http.HttpHeaderValues.DEFLATE;
 import static io.netty.handler.codec.http.HttpHeaderValues.GZIP;
 import static io.netty.handler.codec.http.HttpHeaderValues.X_DEFLATE;
 import static io.netty.handler.codec.http.HttpHeaderValues.X_GZIP;
+import static io.netty.handler.codec.http.HttpHeaderValues.ZSTD;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.BrotliDecoder;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdDecoder;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
 
@@ -27,6 +33,9 @@ import io.netty.handler.codec.compression.ZlibWrapper;
  * Decompresses an {@link HttpMessage} and an {@link HttpContent} compressed in
  * {@code gzip} or {@code deflate} encoding.  For more information on how this
  * handler modifies the message, please refer to {@link HttpContentDecoder}.
+ * <p>
+ * The {@code br} and {@code zstd} encodings are decompressed as well if {@link Brotli#isAvailable()} and
+ * {@link Zstd#isAvailable()} respectively.
  */
 public class HttpContentDecompressor extends HttpContentDecoder {
     private final boolean strict;
@@ -61,6 +70,13 @@ public class HttpContentDecompressor extends HttpContentDecoder {
             return new EmbeddedChannel(ZlibCodecFactory.newZlibDecoder(wrapper));
         }
 
+        if (BR.contentEqualsIgnoreCase(contentEncoding) && Brotli.isAvailable()) {
+            return new EmbeddedChannel(new BrotliDecoder());
+        }
+        if (ZSTD.contentEqualsIgnoreCase(contentEncoding) && Zstd.isAvailable()) {
+            return new EmbeddedChannel(new ZstdDecoder());
+        }
+
         // 'identity' or unsupported
         return null;
     }
@@ -48,6 +48,10 @@ public final class HttpHeaderValues {
      * {@code "boundary"}
      */
     public static final AsciiString BOUNDARY = new AsciiString("boundary");
+    /**
+     * {@code "br"}
+     */
+    public static final AsciiString BR = new AsciiString("br");
     /**
      * {@code "bytes"}
      */
@@ -200,6 +204,10 @@ public final class HttpHeaderValues {
      * {@code "websocket"}
      */
     public static final AsciiString WEBSOCKET = new AsciiString("websocket");
+    /**
+     * {@code "zstd"}
+     */
+    public static final AsciiString ZSTD = new AsciiString("zstd");
 
     private HttpHeaderValues() { }
 }
@@ -23,8 +23,11 @@ import io.netty.channel.socket.ChannelInputShutdownEvent;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderResult;
 import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AsciiString;
 import io.netty.util.ByteProcessor;
+import io.netty.util.CharsetUtil;
 import io.netty.util.internal.AppendableCharSequence;
+import io.netty.util.internal.EmptyArrays;
 
 import java.util.List;
 
@@ -56,6 +59,14 @@ import java.util.List;
  *     will be split into multiple {@link HttpContent}s whose length is
  *     {@code maxChunkSize} at maximum.</td>
  * </tr>
+ * <tr>
+ * <td>{@code asciiHeaders}</td>
+ * <td>If {@code true} the header names and values are decoded as {@link AsciiString}s which share a byte array
+ *     with the headers of other messages instead of being converted into {@link String}s one character at a time.
+ *     Well-known header names are replaced by the lower-case {@link HttpHeaderNames} constants.
+ *     As the array is shared, keeping a decoded message around also keeps up to a few kilobytes of
+ *     headers of other messages reachable.</td>
+ * </tr>
  * </table>
  *
  * <h3>Chunked Content</h3>
@@ -107,6 +118,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     protected final boolean validateHeaders;
     private final HeaderParser headerParser;
     private final LineParser lineParser;
+    private final AsciiHeaderParser asciiParser;
 
     private HttpMessage message;
     private long chunkSize;
@@ -162,6 +174,15 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     protected HttpObjectDecoder(
             int maxInitialLineLength, int maxHeaderSize, int maxChunkSize,
             boolean chunkedSupported, boolean validateHeaders) {
+        this(maxInitialLineLength, maxHeaderSize, maxChunkSize, chunkedSupported, validateHeaders, false);
+    }
+
+    /**
+     * Creates a new instance with the specified parameters.
+     */
+    protected HttpObjectDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize,
+            boolean chunkedSupported, boolean validateHeaders, boolean asciiHeaders) {
 
         if (maxInitialLineLength <= 0) {
             throw new IllegalArgumentException(
@@ -184,6 +205,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         AppendableCharSequence seq = new AppendableCharSequence(128);
         lineParser = new LineParser(seq, maxInitialLineLength);
         headerParser = new HeaderParser(seq, maxHeaderSize);
+        asciiParser = asciiHeaders ? new AsciiHeaderParser(maxInitialLineLength, maxHeaderSize) : null;
     }
 
     @Override
@@ -200,11 +222,19 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
             currentState = State.READ_INITIAL;
         }
         case READ_INITIAL: try {
-            AppendableCharSequence line = lineParser.parse(buffer);
-            if (line == null) {
-                return;
+            String[] initialLine;
+            if (asciiParser != null) {
+                if (!asciiParser.parseLine(buffer)) {
+                    return;
+                }
+                initialLine = asciiParser.splitInitialLine();
+            } else {
+                AppendableCharSequence line = lineParser.parse(buffer);
+                if (line == null) {
+                    return;
+                }
+                initialLine = splitInitialLine(line);
             }
-            String[] initialLine = splitInitialLine(line);
             if (initialLine.length < 3) {
                 // Invalid initial line - ignore.
                 currentState = State.SKIP_CONTROL_CHARS;
@@ -485,6 +515,9 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         contentLength = Long.MIN_VALUE;
         lineParser.reset();
         headerParser.reset();
+        if (asciiParser != null) {
+            asciiParser.reset();
+        }
         trailer = null;
         if (!isDecodingRequest()) {
             HttpResponse res = (HttpResponse) message;
@@ -550,9 +583,45 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         final HttpMessage message = this.message;
         final HttpHeaders headers = message.headers();
 
+        if (asciiParser != null) {
+            if (!readAsciiHeaders(buffer, headers)) {
+                return null;
+            }
+        } else if (!readHeaders(buffer, headers)) {
+            return null;
+        }
+
+        // Add the last header.
+        if (name != null) {
+            headers.add(name, value);
+        }
+        // reset name and value fields
+        name = null;
+        value = null;
+
+        State nextState;
+
+        if (isContentAlwaysEmpty(message)) {
+            HttpUtil.setTransferEncodingChunked(message, false);
+            nextState = State.SKIP_CONTROL_CHARS;
+        } else if (HttpUtil.isTransferEncodingChunked(message)) {
+            nextState = State.READ_CHUNK_SIZE;
+        } else if (contentLength() >= 0) {
+            nextState = State.READ_FIXED_LENGTH_CONTENT;
+        } else {
+            nextState = State.READ_VARIABLE_LENGTH_CONTENT;
+        }
+        return nextState;
+    }
+
+    /**
+     * Reads header lines until the empty line which terminates the headers, and returns {@code false} if more data
+     * is needed.
+     */
+    private boolean readHeaders(ByteBuf buffer, HttpHeaders headers) {
         AppendableCharSequence line = headerParser.parse(buffer);
         if (line == null) {
-            return null;
+            return false;
         }
         if (line.length() > 0) {
             do {
@@ -572,32 +641,43 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
 
                 line = headerParser.parse(buffer);
                 if (line == null) {
-                    return null;
+                    return false;
                 }
             } while (line.length() > 0);
         }
+        return true;
+    }
 
-        // Add the last header.
-        if (name != null) {
-            headers.add(name, value);
-        }
-        // reset name and value fields
-        name = null;
-        value = null;
-
-        State nextState;
+    /**
+     * The {@link AsciiHeaderParser} counterpart of {@link #readHeaders(ByteBuf, HttpHeaders)}.
+     */
+    private boolean readAsciiHeaders(ByteBuf buffer, HttpHeaders headers) {
+        final AsciiHeaderParser parser = asciiParser;
+        while (parser.parseHeader(buffer)) {
+            final byte[] array = parser.array;
+            final int start = parser.lineStart;
+            final int end = parser.lineEnd;
+            if (start == end) {
+                return true;
+            }
 
-        if (isContentAlwaysEmpty(message)) {
-            HttpUtil.setTransferEncodingChunked(message, false);
-            nextState = State.SKIP_CONTROL_CHARS;
-        } else if (HttpUtil.isTransferEncodingChunked(message)) {
-            nextState = State.READ_CHUNK_SIZE;
-        } else if (contentLength() >= 0) {
-            nextState = State.READ_FIXED_LENGTH_CONTENT;
-        } else {
-            nextState = State.READ_VARIABLE_LENGTH_CONTENT;
+            byte firstByte = array[start];
+            if (name != null && (firstByte == ' ' || firstByte == '\t')) {
+                int valueStart = findNonWhitespace(array, start, end);
+                int valueEnd = findEndOfString(array, valueStart, end);
+                StringBuilder buf = new StringBuilder(value.length() + valueEnd - valueStart + 1);
+                buf.append(value)
+                   .append(' ')
+                   .append(new String(array, valueStart, valueEnd - valueStart, CharsetUtil.US_ASCII));
+                value = buf.toString();
+            } else {
+                if (name != null) {
+                    headers.add(name, value);
+                }
+                splitHeader(array, start, end);
+            }
         }
-        return nextState;
+        return false;
     }
 
     private long contentLength() {
@@ -733,6 +813,68 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         }
     }
 
+    private void splitHeader(byte[] array, int start, int end) {
+        int nameStart;
+        int nameEnd;
+        int colonEnd;
+        int valueStart;
+
+        nameStart = findNonWhitespace(array, start, end);
+        for (nameEnd = nameStart; nameEnd < end; nameEnd ++) {
+            byte b = array[nameEnd];
+            if (b == ':' || isWhitespace(b)) {
+                break;
+            }
+        }
+
+        for (colonEnd = nameEnd; colonEnd < end; colonEnd ++) {
+            if (array[colonEnd] == ':') {
+                colonEnd ++;
+                break;
+            }
+        }
+
+        name = AsciiHeaderParser.headerName(array, nameStart, nameEnd);
+        valueStart = findNonWhitespace(array, colonEnd, end);
+        if (valueStart == end) {
+            value = AsciiString.EMPTY_STRING;
+        } else {
+            int valueEnd = findEndOfString(array, valueStart, end);
+            value = new AsciiString(array, valueStart, valueEnd - valueStart, false);
+        }
+    }
+
+    private static int findNonWhitespace(byte[] array, int start, int end) {
+        for (int result = start; result < end; ++result) {
+            if (!isWhitespace(array[result])) {
+                return result;
+            }
+        }
+        return end;
+    }
+
+    private static int findWhitespace(byte[] array, int start, int end) {
+        for (int result = start; result < end; ++result) {
+            if (isWhitespace(array[result])) {
+                return result;
+            }
+        }
+        return end;
+    }
+
+    private static int findEndOfString(byte[] array, int start, int end) {
+        for (int result = end - 1; result >= start; --result) {
+            if (!isWhitespace(array[result])) {
+                return result + 1;
+            }
+        }
+        return start;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return Character.isWhitespace((char) (b & 0xFF));
+    }
+
     private static int findNonWhitespace(AppendableCharSequence sb, int offset) {
         for (int result = offset; result < sb.length(); ++result) {
             if (!Character.isWhitespace(sb.charAtUnsafe(result))) {
@@ -830,4 +972,196 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
             return new TooLongFrameException("An HTTP line is larger than " + maxLength + " bytes.");
         }
     }
+
+    /**
+     * Parses the initial line and the headers by copying each line into a byte array, from which the
+     * {@link AsciiString} header names and values are created without copying them again. The array is only replaced
+     * when it is full, so it is shared between consecutive messages and no bytes written to it are ever modified.
+     */
+    private static final class AsciiHeaderParser {
+        private static final int ARRAY_SIZE = 4096;
+        private static final String[] INITIAL_LINE_TOKENS = {
+                "GET", "POST", "PUT", "HEAD", "DELETE", "OPTIONS", "PATCH", "TRACE", "CONNECT",
+                "HTTP/1.1", "HTTP/1.0", "200", "OK"
+        };
+        private static final AsciiString[] HEADER_NAMES = new AsciiString[256];
+
+        static {
+            AsciiString[] names = {
+                    HttpHeaderNames.ACCEPT, HttpHeaderNames.ACCEPT_CHARSET, HttpHeaderNames.ACCEPT_ENCODING,
+                    HttpHeaderNames.ACCEPT_LANGUAGE, HttpHeaderNames.ACCEPT_RANGES, HttpHeaderNames.AGE,
+                    HttpHeaderNames.ALLOW, HttpHeaderNames.AUTHORIZATION, HttpHeaderNames.CACHE_CONTROL,
+                    HttpHeaderNames.CONNECTION, HttpHeaderNames.CONTENT_DISPOSITION, HttpHeaderNames.CONTENT_ENCODING,
+                    HttpHeaderNames.CONTENT_LANGUAGE, HttpHeaderNames.CONTENT_LENGTH, HttpHeaderNames.CONTENT_LOCATION,
+                    HttpHeaderNames.CONTENT_RANGE, HttpHeaderNames.CONTENT_TYPE, HttpHeaderNames.COOKIE,
+                    HttpHeaderNames.DATE, HttpHeaderNames.ETAG, HttpHeaderNames.EXPECT, HttpHeaderNames.EXPIRES,
+                    HttpHeaderNames.HOST, HttpHeaderNames.IF_MATCH, HttpHeaderNames.IF_MODIFIED_SINCE,
+                    HttpHeaderNames.IF_NONE_MATCH, HttpHeaderNames.IF_RANGE, HttpHeaderNames.IF_UNMODIFIED_SINCE,
+                    HttpHeaderNames.KEEP_ALIVE, HttpHeaderNames.LAST_MODIFIED, HttpHeaderNames.LOCATION,
+                    HttpHeaderNames.ORIGIN, HttpHeaderNames.PRAGMA, HttpHeaderNames.PROXY_AUTHENTICATE,
+                    HttpHeaderNames.PROXY_AUTHORIZATION, HttpHeaderNames.RANGE, HttpHeaderNames.REFERER,
+                    HttpHeaderNames.RETRY_AFTER, HttpHeaderNames.SEC_WEBSOCKET_KEY, HttpHeaderNames.SEC_WEBSOCKET_KEY1,
+                    HttpHeaderNames.SEC_WEBSOCKET_KEY2, HttpHeaderNames.SEC_WEBSOCKET_PROTOCOL,
+                    HttpHeaderNames.SEC_WEBSOCKET_VERSION, HttpHeaderNames.SERVER, HttpHeaderNames.SET_COOKIE,
+                    HttpHeaderNames.TE, HttpHeaderNames.TRAILER, HttpHeaderNames.TRANSFER_ENCODING,
+                    HttpHeaderNames.UPGRADE, HttpHeaderNames.USER_AGENT, HttpHeaderNames.VARY, HttpHeaderNames.VIA,
+                    HttpHeaderNames.WARNING, HttpHeaderNames.WWW_AUTHENTICATE
+            };
+            for (AsciiString name: names) {
+                int i = hash(name.array(), name.arrayOffset(), name.arrayOffset() + name.length());
+                while (HEADER_NAMES[i] != null) {
+                    i = i + 1 & HEADER_NAMES.length - 1;
+                }
+                HEADER_NAMES[i] = name;
+            }
+        }
+
+        private final int maxInitialLineLength;
+        private final int maxHeaderSize;
+        private int headerSize;
+
+        byte[] array = EmptyArrays.EMPTY_BYTES;
+        private int arrayLength;
+        int lineStart;
+        int lineEnd;
+
+        AsciiHeaderParser(int maxInitialLineLength, int maxHeaderSize) {
+            this.maxInitialLineLength = maxInitialLineLength;
+            this.maxHeaderSize = maxHeaderSize;
+        }
+
+        boolean parseLine(ByteBuf buffer) {
+            int length = parse(buffer, 0, maxInitialLineLength);
+            if (length == -2) {
+                throw new TooLongFrameException("An HTTP line is larger than " + maxInitialLineLength + " bytes.");
+            }
+            return length >= 0;
+        }
+
+        boolean parseHeader(ByteBuf buffer) {
+            int length = parse(buffer, headerSize, maxHeaderSize);
+            if (length == -2) {
+                throw new TooLongFrameException("HTTP header is larger than " + maxHeaderSize + " bytes.");
+            }
+            if (length < 0) {
+                return false;
+            }
+            headerSize += length;
+            return true;
+        }
+
+        void reset() {
+            headerSize = 0;
+        }
+
+        /**
+         * Copies the next line without its line delimiter into {@link #array} and returns its length, {@code -1} if
+         * the line is not complete yet or {@code -2} if it would exceed {@code maxLength}.
+         */
+        private int parse(ByteBuf buffer, int size, int maxLength) {
+            final int readerIndex = buffer.readerIndex();
+            final int writerIndex = buffer.writerIndex();
+            final int lf = buffer.indexOf(readerIndex, writerIndex, HttpConstants.LF);
+            int end = lf < 0 ? writerIndex : lf;
+            if (end > readerIndex && buffer.getByte(end - 1) == HttpConstants.CR) {
+                end --;
+            }
+            final int length = end - readerIndex;
+            if (size + length > maxLength) {
+                return -2;
+            }
+            if (lf < 0) {
+                return -1;
+            }
+
+            if (array.length - arrayLength < length) {
+                // The bytes written so far may still be referenced by decoded headers, so start a new array.
+                array = new byte[Math.max(ARRAY_SIZE, length)];
+                arrayLength = 0;
+            }
+            buffer.getBytes(readerIndex, array, arrayLength, length);
+            lineStart = arrayLength;
+            lineEnd = arrayLength += length;
+            buffer.readerIndex(lf + 1);
+            return length;
+        }
+
+        String[] splitInitialLine() {
+            final byte[] array = this.array;
+            final int end = lineEnd;
+            int aStart = findNonWhitespace(array, lineStart, end);
+            int aEnd = findWhitespace(array, aStart, end);
+
+            int bStart = findNonWhitespace(array, aEnd, end);
+            int bEnd = findWhitespace(array, bStart, end);
+
+            int cStart = findNonWhitespace(array, bEnd, end);
+            int cEnd = findEndOfString(array, cStart, end);
+
+            return new String[] {
+                    initialLineToken(array, aStart, aEnd),
+                    initialLineToken(array, bStart, bEnd),
+                    cStart < cEnd ? initialLineToken(array, cStart, cEnd) : "" };
+        }
+
+        private static String initialLineToken(byte[] array, int start, int end) {
+            final int length = end - start;
+            for (String token: INITIAL_LINE_TOKENS) {
+                if (token.length() == length && matches(token, array, start)) {
+                    return token;
+                }
+            }
+            return new String(array, start, length, CharsetUtil.US_ASCII);
+        }
+
+        private static boolean matches(String token, byte[] array, int start) {
+            for (int i = 0; i < token.length(); i ++) {
+                if (token.charAt(i) != array[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the {@link HttpHeaderNames} constant which matches the given bytes ignoring case, or a new
+         * {@link AsciiString} which shares the given array.
+         */
+        static AsciiString headerName(byte[] array, int start, int end) {
+            final int length = end - start;
+            for (int i = hash(array, start, end);; i = i + 1 & HEADER_NAMES.length - 1) {
+                AsciiString name = HEADER_NAMES[i];
+                if (name == null) {
+                    return new AsciiString(array, start, length, false);
+                }
+                if (name.length() == length && matchesIgnoreCase(name, array, start)) {
+                    return name;
+                }
+            }
+        }
+
+        private static boolean matchesIgnoreCase(AsciiString name, byte[] array, int start) {
+            final byte[] nameArray = name.array();
+            final int nameOffset = name.arrayOffset();
+            for (int i = 0; i < name.length(); i ++) {
+                // The names in the table are all lower-case.
+                if (nameArray[nameOffset + i] != toLowerCase(array[start + i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(byte[] array, int start, int end) {
+            int h = end - start;
+            for (int i = start; i < end; i ++) {
+                h = h * 31 + toLowerCase(array[i]);
+            }
+            return (h ^ h >>> 8) & HEADER_NAMES.length - 1;
+        }
+
+        private static byte toLowerCase(byte b) {
+            return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+        }
+    }
 }
@@ -75,6 +75,18 @@ public class HttpRequestDecoder extends HttpObjectDecoder {
         super(maxInitialLineLength, maxHeaderSize, maxChunkSize, true, validateHeaders);
     }
 
+    /**
+     * Creates a new instance with the specified parameters.
+     *
+     * @param asciiHeaders    if {@code true} the header names and values are decoded as
+     *                        {@link io.netty.util.AsciiString}s as described in {@link HttpObjectDecoder}
+     */
+    public HttpRequestDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize, boolean validateHeaders,
+            boolean asciiHeaders) {
+        super(maxInitialLineLength, maxHeaderSize, maxChunkSize, true, validateHeaders, asciiHeaders);
+    }
+
     @Override
     protected HttpMessage createMessage(String[] initialLine) throws Exception {
         return new DefaultHttpRequest(
@@ -106,6 +106,18 @@ public class HttpResponseDecoder extends HttpObjectDecoder {
         super(maxInitialLineLength, maxHeaderSize, maxChunkSize, true, validateHeaders);
     }
 
+    /**
+     * Creates a new instance with the specified parameters.
+     *
+     * @param asciiHeaders    if {@code true} the header names and values are decoded as
+     *                        {@link io.netty.util.AsciiString}s as described in {@link HttpObjectDecoder}
+     */
+    public HttpResponseDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize, boolean validateHeaders,
+            boolean asciiHeaders) {
+        super(maxInitialLineLength, maxHeaderSize, maxChunkSize, true, validateHeaders, asciiHeaders);
+    }
+
     @Override
     protected HttpMessage createMessage(String[] initialLine) {
         return new DefaultHttpResponse(
@@ -55,6 +55,17 @@ public final class HttpServerCodec extends ChannelHandlerAppender implements
                 new HttpResponseEncoder());
     }
 
+    /**
+     * Creates a new instance with the specified decoder options.
+     *
+     * @see HttpRequestDecoder#HttpRequestDecoder(int, int, int, boolean, boolean)
+     */
+    public HttpServerCodec(int maxInitialLineLength, int maxHeaderSize, int maxChunkSize, boolean validateHeaders,
+                           boolean asciiHeaders) {
+        super(new HttpRequestDecoder(maxInitialLineLength, maxHeaderSize, maxChunkSize, validateHeaders, asciiHeaders),
+                new HttpResponseEncoder());
+    }
+
     /**
      * Upgrades to another protocol from HTTP. Removes the {@link HttpRequestDecoder} and
      * {@link HttpResponseEncoder} from the pipeline.
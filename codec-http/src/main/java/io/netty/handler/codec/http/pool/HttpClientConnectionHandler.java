@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.pool;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.PrematureChannelClosureException;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Tracks the in-flight requests of a single connection that is managed by a {@link HttpClientPool} and completes
+ * them in order with the aggregated {@link FullHttpResponse}s.
+ * <p>
+ * All state is only accessed from the {@link io.netty.channel.EventLoop} of the connection.
+ */
+final class HttpClientConnectionHandler extends ChannelHandlerAdapter {
+
+    private final HttpClientPool pool;
+    private final Queue<Promise<FullHttpResponse>> inFlight = new ArrayDeque<Promise<FullHttpResponse>>();
+    private ChannelHandlerContext ctx;
+    private boolean keepAlive = true;
+    private long lastActivityNanos = System.nanoTime();
+
+    // Used by the HttpClientPool to keep track of the state of the connection.
+    boolean leased;
+    boolean pipelinable;
+    boolean queued;
+
+    HttpClientConnectionHandler(HttpClientPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    /**
+     * Returns the number of requests which were written but are not completed yet.
+     */
+    int inFlightRequests() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns {@code true} if another request may be pipelined on this connection.
+     */
+    boolean canPipeline(int maxPipelinedRequests) {
+        return leased && pipelinable && keepAlive && inFlight.size() < maxPipelinedRequests && ctx.channel().isActive();
+    }
+
+    /**
+     * Returns {@code true} if the connection may be handed out by the pool again, which is the case if it is neither
+     * closed by either side nor busy, and was not idle for longer than {@code idleTimeoutNanos}.
+     */
+    boolean isReusable(long idleTimeoutNanos) {
+        return keepAlive && inFlight.isEmpty() && ctx.channel().isActive() &&
+               (idleTimeoutNanos <= 0 || System.nanoTime() - lastActivityNanos < idleTimeoutNanos);
+    }
+
+    /**
+     * Writes the request and completes the given {@link Promise} once the response was received.
+     */
+    void write(FullHttpRequest request, Promise<FullHttpResponse> promise) {
+        assert ctx.executor().inEventLoop();
+
+        if (!HttpUtil.isKeepAlive(request)) {
+            keepAlive = false;
+        }
+        inFlight.add(promise);
+        lastActivityNanos = System.nanoTime();
+        ctx.writeAndFlush(request).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (!future.isSuccess()) {
+                    // The responses can not be matched to the requests anymore, so fail everything.
+                    failInFlight(future.cause());
+                    future.channel().close();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof FullHttpResponse)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        FullHttpResponse response = (FullHttpResponse) msg;
+        if (response.status().codeClass() == HttpStatusClass.INFORMATIONAL) {
+            // Interim responses are not matched against a request.
+            response.release();
+            return;
+        }
+        Promise<FullHttpResponse> promise = inFlight.poll();
+        if (promise == null) {
+            response.release();
+            keepAlive = false;
+            ctx.close();
+            return;
+        }
+        lastActivityNanos = System.nanoTime();
+        if (!HttpUtil.isKeepAlive(response)) {
+            keepAlive = false;
+        }
+        if (!keepAlive) {
+            // The server will close the connection, so there is no way to receive responses for pipelined requests.
+            failInFlight(new PrematureChannelClosureException("Connection: close received with " +
+                                                              inFlight.size() + " requests in flight"));
+            ctx.close();
+        }
+        // Give the connection back before notifying the promise, so a request executed by the listener of the
+        // promise can reuse it.
+        pool.responseReceived(ctx.channel(), this);
+        if (!promise.trySuccess(response)) {
+            ReferenceCountUtil.release(response);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        keepAlive = false;
+        failInFlight(new PrematureChannelClosureException("Channel closed with " + inFlight.size() +
+                                                          " requests in flight"));
+        pool.responseReceived(ctx.channel(), this);
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent) {
+            // Only close the connection if it is in the pool. A leased one may just wait for a slow response.
+            if (!leased && inFlight.isEmpty()) {
+                ctx.close();
+            }
+            return;
+        }
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        keepAlive = false;
+        failInFlight(cause);
+        ctx.close();
+    }
+
+    private void failInFlight(Throwable cause) {
+        for (;;) {
+            Promise<FullHttpResponse> promise = inFlight.poll();
+            if (promise == null) {
+                break;
+            }
+            promise.tryFailure(cause);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.EventLoopAffineChannelPool;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.OneTimeTask;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.Closeable;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.*;
+
+/**
+ * A pool of HTTP/1.1 client connections to a single remote peer which executes {@link FullHttpRequest}s and
+ * completes them with the aggregated {@link FullHttpResponse}.
+ * <p>
+ * The connections are kept in an {@link EventLoopAffineChannelPool}, so requests which are executed from an
+ * {@link EventLoop} are preferably sent via a connection that is registered on the same {@link EventLoop}. Each
+ * connection uses a {@link HttpClientCodec} and a {@link HttpObjectAggregator} and keeps track of its in-flight
+ * requests:
+ * <ul>
+ *     <li>A connection is only returned to the pool once all of its in-flight requests are completed.</li>
+ *     <li>If {@code maxPipelinedRequests} is greater than {@code 1}, idempotent requests (as defined by
+ *     <a href="https://tools.ietf.org/html/rfc7231#section-4.2.2">RFC 7231</a>) are pipelined on connections that
+ *     only carry idempotent requests, until {@code maxPipelinedRequests} requests are in flight on the same
+ *     connection. Non-idempotent requests are never pipelined.</li>
+ *     <li>A connection is not reused if the request or the response is not keep-alive as determined by
+ *     {@link io.netty.handler.codec.http.HttpUtil#isKeepAlive(io.netty.handler.codec.http.HttpMessage)}. Requests
+ *     which were pipelined behind a {@code Connection: close} response are failed with a
+ *     {@link io.netty.handler.codec.PrematureChannelClosureException}.</li>
+ *     <li>Connections that were idle in the pool for longer than the configured idle timeout are closed by an
+ *     {@link IdleStateHandler} and removed from the pool, even if they are never acquired again.</li>
+ * </ul>
+ * The caller is responsible to release the returned {@link FullHttpResponse}. The {@link FullHttpRequest} is
+ * released by this pool once it was written.
+ */
+public final class HttpClientPool implements Closeable {
+
+    private static final AttributeKey<HttpClientConnectionHandler> HANDLER_KEY =
+            AttributeKey.newInstance("httpClientConnectionHandler");
+    private static final IllegalStateException CLOSED_EXCEPTION = new IllegalStateException("HttpClientPool closed");
+
+    static {
+        CLOSED_EXCEPTION.setStackTrace(EmptyArrays.EMPTY_STACK_TRACE);
+    }
+
+    private final ChannelPool pool;
+    private final Bootstrap bootstrap;
+    private final int maxContentLength;
+    private final int maxPipelinedRequests;
+    private final long idleTimeoutNanos;
+
+    // Connections which are leased and accept more pipelined requests.
+    private final Deque<Channel> pipelinedChannels = PlatformDependent.newConcurrentDeque();
+    private volatile boolean closed;
+
+    /**
+     * Creates a new instance which does not pipeline requests and never closes idle connections.
+     *
+     * @param bootstrap         the {@link Bootstrap} that is used for connections
+     * @param maxContentLength  the maximum length of the aggregated content of a response
+     */
+    public HttpClientPool(Bootstrap bootstrap, int maxContentLength) {
+        this(bootstrap, maxContentLength, 1, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap             the {@link Bootstrap} that is used for connections
+     * @param maxContentLength      the maximum length of the aggregated content of a response
+     * @param maxPipelinedRequests  the maximum number of idempotent requests which are in flight on the same
+     *                              connection. {@code 1} disables pipelining.
+     * @param idleTimeout           the time after which a connection which is idle in the pool is closed.
+     *                              {@code 0} disables the timeout.
+     * @param unit                  the {@link TimeUnit} of {@code idleTimeout}
+     */
+    public HttpClientPool(Bootstrap bootstrap, int maxContentLength, int maxPipelinedRequests,
+                          long idleTimeout, TimeUnit unit) {
+        checkNotNull(bootstrap, "bootstrap");
+        checkNotNull(unit, "unit");
+        if (maxContentLength <= 0) {
+            throw new IllegalArgumentException("maxContentLength: " + maxContentLength + " (expected: > 0)");
+        }
+        if (maxPipelinedRequests < 1) {
+            throw new IllegalArgumentException("maxPipelinedRequests: " + maxPipelinedRequests + " (expected: >= 1)");
+        }
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException("idleTimeout: " + idleTimeout + " (expected: >= 0)");
+        }
+        this.bootstrap = bootstrap;
+        this.maxContentLength = maxContentLength;
+        this.maxPipelinedRequests = maxPipelinedRequests;
+        idleTimeoutNanos = unit.toNanos(idleTimeout);
+        pool = new EventLoopAffineChannelPool(bootstrap, new AbstractChannelPoolHandler() {
+            @Override
+            public void channelCreated(Channel ch) throws Exception {
+                HttpClientConnectionHandler handler = new HttpClientConnectionHandler(HttpClientPool.this);
+                ChannelPipeline p = ch.pipeline();
+                if (idleTimeoutNanos > 0) {
+                    p.addLast(new IdleStateHandler(0, 0, idleTimeoutNanos, TimeUnit.NANOSECONDS));
+                }
+                p.addLast(new HttpClientCodec());
+                p.addLast(new HttpObjectAggregator(HttpClientPool.this.maxContentLength));
+                p.addLast(handler);
+                ch.attr(HANDLER_KEY).set(handler);
+            }
+
+            @Override
+            public void channelAcquired(Channel ch) throws Exception {
+                // Called from the EventLoop of the connection before it is handed out, so it is not closed as idle
+                // before the request is written.
+                ch.attr(HANDLER_KEY).get().leased = true;
+            }
+        }, new ChannelHealthChecker() {
+            @Override
+            public Future<Boolean> isHealthy(Channel channel) {
+                HttpClientConnectionHandler handler = channel.attr(HANDLER_KEY).get();
+                EventLoop loop = channel.eventLoop();
+                return handler != null && handler.isReusable(idleTimeoutNanos) ?
+                        loop.newSucceededFuture(Boolean.TRUE) : loop.newSucceededFuture(Boolean.FALSE);
+            }
+        });
+    }
+
+    /**
+     * Executes the given request and returns a {@link Future} which is notified with the response.
+     */
+    public Future<FullHttpResponse> execute(FullHttpRequest request) {
+        return execute(request, bootstrap.group().next().<FullHttpResponse>newPromise());
+    }
+
+    /**
+     * Executes the given request and notifies the given {@link Promise} with the response.
+     */
+    public Future<FullHttpResponse> execute(FullHttpRequest request, Promise<FullHttpResponse> promise) {
+        checkNotNull(request, "request");
+        checkNotNull(promise, "promise");
+        if (closed) {
+            ReferenceCountUtil.release(request);
+            promise.setFailure(CLOSED_EXCEPTION);
+            return promise;
+        }
+        if (maxPipelinedRequests > 1 && isIdempotent(request.method())) {
+            final Channel ch = pipelinedChannels.poll();
+            if (ch != null) {
+                executePipelined(ch, request, promise);
+                return promise;
+            }
+        }
+        acquireAndExecute(request, promise);
+        return promise;
+    }
+
+    private void executePipelined(final Channel ch, final FullHttpRequest request,
+                                  final Promise<FullHttpResponse> promise) {
+        EventLoop loop = ch.eventLoop();
+        if (loop.inEventLoop()) {
+            executePipelined0(ch, request, promise);
+        } else {
+            loop.execute(new OneTimeTask() {
+                @Override
+                public void run() {
+                    executePipelined0(ch, request, promise);
+                }
+            });
+        }
+    }
+
+    private void executePipelined0(Channel ch, FullHttpRequest request, Promise<FullHttpResponse> promise) {
+        HttpClientConnectionHandler handler = ch.attr(HANDLER_KEY).get();
+        handler.queued = false;
+        if (handler.canPipeline(maxPipelinedRequests)) {
+            write(ch, handler, request, promise);
+        } else {
+            // The connection was returned to the pool or closed in the meantime.
+            acquireAndExecute(request, promise);
+        }
+    }
+
+    private void acquireAndExecute(final FullHttpRequest request, final Promise<FullHttpResponse> promise) {
+        pool.acquire().addListener(new FutureListener<Channel>() {
+            @Override
+            public void operationComplete(Future<Channel> future) throws Exception {
+                if (!future.isSuccess()) {
+                    ReferenceCountUtil.release(request);
+                    promise.tryFailure(future.cause());
+                    return;
+                }
+                final Channel ch = future.getNow();
+                EventLoop loop = ch.eventLoop();
+                if (loop.inEventLoop()) {
+                    executeAcquired(ch, request, promise);
+                } else {
+                    loop.execute(new OneTimeTask() {
+                        @Override
+                        public void run() {
+                            executeAcquired(ch, request, promise);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void executeAcquired(Channel ch, FullHttpRequest request, Promise<FullHttpResponse> promise) {
+        HttpClientConnectionHandler handler = ch.attr(HANDLER_KEY).get();
+        handler.leased = true;
+        handler.pipelinable = isIdempotent(request.method());
+        write(ch, handler, request, promise);
+    }
+
+    private void write(Channel ch, HttpClientConnectionHandler handler, FullHttpRequest request,
+                       Promise<FullHttpResponse> promise) {
+        handler.write(request, promise);
+        offerForPipelining(ch, handler);
+    }
+
+    private void offerForPipelining(Channel ch, HttpClientConnectionHandler handler) {
+        if (maxPipelinedRequests > 1 && !handler.queued && handler.canPipeline(maxPipelinedRequests)) {
+            handler.queued = true;
+            pipelinedChannels.offer(ch);
+        }
+    }
+
+    /**
+     * Called by the {@link HttpClientConnectionHandler} from the {@link EventLoop} of the connection once a request
+     * was completed or the connection was closed.
+     */
+    void responseReceived(Channel ch, HttpClientConnectionHandler handler) {
+        if (!handler.leased) {
+            return;
+        }
+        if (handler.inFlightRequests() != 0) {
+            offerForPipelining(ch, handler);
+            return;
+        }
+        if (handler.queued) {
+            handler.queued = false;
+            pipelinedChannels.remove(ch);
+        }
+        handler.leased = false;
+        if (closed) {
+            // Close before releasing so the release health check does not offer it back to the pool.
+            ch.close();
+        }
+        // The release health check takes care of closing connections which must not be reused.
+        pool.release(ch);
+    }
+
+    /**
+     * Closes all idle connections. Connections with in-flight requests are closed once the requests are completed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pool.close();
+        // Leased connections are closed by responseReceived(...) once they become idle.
+        pipelinedChannels.clear();
+    }
+
+    private static boolean isIdempotent(HttpMethod method) {
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) ||
+               HttpMethod.OPTIONS.equals(method) || HttpMethod.TRACE.equals(method) ||
+               HttpMethod.PUT.equals(method) || HttpMethod.DELETE.equals(method);
+    }
+}
@@ -22,6 +22,8 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.CodecException;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.compression.JdkZlibDecoder;
+import io.netty.handler.codec.compression.JdkZlibPool;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
 import io.netty.handler.codec.http.DefaultHttpContent;
@@ -44,6 +46,7 @@ abstract class DeflateDecoder extends WebSocketExtensionDecoder {
     static final byte[] FRAME_TAIL = new byte[] {0x00, 0x00, (byte) 0xff, (byte) 0xff};
 
     private final boolean noContext;
+    private final JdkZlibPool pool;
 
     private EmbeddedChannel decoder;
 
@@ -52,7 +55,17 @@ abstract class DeflateDecoder extends WebSocketExtensionDecoder {
      * @param noContext true to disable context takeover.
      */
     public DeflateDecoder(boolean noContext) {
+        this(noContext, null);
+    }
+
+    /**
+     * Constructor
+     * @param noContext true to disable context takeover.
+     * @param pool the pool to borrow the decompressor from, or {@code null} to create a new one.
+     */
+    public DeflateDecoder(boolean noContext, JdkZlibPool pool) {
         this.noContext = noContext;
+        this.pool = pool;
     }
 
     protected abstract boolean appendFrameTail(WebSocketFrame msg);
@@ -65,7 +78,11 @@ abstract class DeflateDecoder extends WebSocketExtensionDecoder {
             if (!(msg instanceof TextWebSocketFrame) && !(msg instanceof BinaryWebSocketFrame)) {
                 throw new CodecException("unexpected initial frame type: " + msg.getClass().getName());
             }
-            decoder = new EmbeddedChannel(ZlibCodecFactory.newZlibDecoder(ZlibWrapper.NONE));
+            if (pool != null) {
+                decoder = new EmbeddedChannel(new JdkZlibDecoder(ZlibWrapper.NONE, pool));
+            } else {
+                decoder = new EmbeddedChannel(ZlibCodecFactory.newZlibDecoder(ZlibWrapper.NONE));
+            }
         }
 
         boolean readable = msg.content().isReadable();
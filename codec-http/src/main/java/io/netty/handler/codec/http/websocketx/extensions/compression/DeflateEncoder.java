@@ -16,11 +16,15 @@
 package io.netty.handler.codec.http.websocketx.extensions.compression;
 
 import static io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateDecoder.*;
+import static io.netty.handler.codec.http.websocketx.extensions.compression.
+        PerMessageDeflateServerExtensionHandshaker.*;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.CodecException;
+import io.netty.handler.codec.compression.JdkZlibEncoder;
+import io.netty.handler.codec.compression.JdkZlibPool;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
@@ -41,6 +45,7 @@ abstract class DeflateEncoder extends WebSocketExtensionEncoder {
     private final int compressionLevel;
     private final int windowSize;
     private final boolean noContext;
+    private final JdkZlibPool pool;
 
     private EmbeddedChannel encoder;
 
@@ -51,9 +56,21 @@ abstract class DeflateEncoder extends WebSocketExtensionEncoder {
      * @param noContext true to disable context takeover.
      */
     public DeflateEncoder(int compressionLevel, int windowSize, boolean noContext) {
+        this(compressionLevel, windowSize, noContext, null);
+    }
+
+    /**
+     * Constructor
+     * @param compressionLevel compression level of the compressor.
+     * @param windowSize maximum size of the window compressor buffer.
+     * @param noContext true to disable context takeover.
+     * @param pool the pool to borrow the compressor from, or {@code null} to create a new one.
+     */
+    public DeflateEncoder(int compressionLevel, int windowSize, boolean noContext, JdkZlibPool pool) {
         this.compressionLevel = compressionLevel;
         this.windowSize = windowSize;
         this.noContext = noContext;
+        this.pool = pool;
     }
 
     /**
@@ -72,8 +89,13 @@ abstract class DeflateEncoder extends WebSocketExtensionEncoder {
     protected void encode(ChannelHandlerContext ctx, WebSocketFrame msg,
             List<Object> out) throws Exception {
         if (encoder == null) {
-            encoder = new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(
-                    ZlibWrapper.NONE, compressionLevel, windowSize, 8));
+            if (pool != null && windowSize == MAX_WINDOW_SIZE) {
+                // A pooled compressor has a window of MAX_WINDOW_SIZE, like any java.util.zip.Deflater.
+                encoder = new EmbeddedChannel(new JdkZlibEncoder(ZlibWrapper.NONE, pool));
+            } else {
+                encoder = new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(
+                        ZlibWrapper.NONE, compressionLevel, windowSize, 8));
+            }
         }
 
         encoder.writeOutbound(msg.content().retain());
@@ -17,6 +17,8 @@ package io.netty.handler.codec.http.websocketx.extensions.compression;
 
 import static io.netty.handler.codec.http.websocketx.extensions.compression.
         PerMessageDeflateServerExtensionHandshaker.*;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import io.netty.handler.codec.compression.JdkZlibPool;
 import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtension;
 import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtensionHandshaker;
 import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
@@ -39,6 +41,7 @@ public final class PerMessageDeflateClientExtensionHandshaker implements WebSock
     private final int requestedServerWindowSize;
     private final boolean allowClientNoContext;
     private final boolean requestedServerNoContext;
+    private final JdkZlibPool pool;
 
     /**
      * Constructor with default configuration.
@@ -67,6 +70,44 @@ public final class PerMessageDeflateClientExtensionHandshaker implements WebSock
     public PerMessageDeflateClientExtensionHandshaker(int compressionLevel,
             boolean allowClientWindowSize, int requestedServerWindowSize,
             boolean allowClientNoContext, boolean requestedServerNoContext) {
+        this(compressionLevel, allowClientWindowSize, requestedServerWindowSize,
+                allowClientNoContext, requestedServerNoContext, null);
+    }
+
+    /**
+     * Constructor with custom configuration whose compressors and decompressors are borrowed from a
+     * {@link JdkZlibPool} which can be shared by all connections. They are returned to the pool after each message
+     * when context takeover is disabled, and when the connection is closed otherwise. The compression level is the
+     * one of the pool.
+     * <p>
+     * If the pool has a preset dictionary, it is used to compress and decompress every message when context
+     * takeover is disabled, and the first message otherwise. This is not part of the permessage-deflate
+     * specification, so the server must be configured with the same dictionary.
+     *
+     * @param pool
+     *            the pool to borrow the compressors and decompressors from.
+     * @param allowClientWindowSize
+     *            allows WebSocket server to customize the client inflater window size
+     *            (default is false).
+     * @param requestedServerWindowSize
+     *            indicates the requested sever window size to use if server inflater is customizable.
+     * @param allowClientNoContext
+     *            allows WebSocket server to activate client_no_context_takeover
+     *            (default is false).
+     * @param requestedServerNoContext
+     *            indicates if client needs to activate server_no_context_takeover
+     *            if server is compatible with (default is false).
+     */
+    public PerMessageDeflateClientExtensionHandshaker(JdkZlibPool pool,
+            boolean allowClientWindowSize, int requestedServerWindowSize,
+            boolean allowClientNoContext, boolean requestedServerNoContext) {
+        this(checkNotNull(pool, "pool").compressionLevel(), allowClientWindowSize, requestedServerWindowSize,
+                allowClientNoContext, requestedServerNoContext, pool);
+    }
+
+    private PerMessageDeflateClientExtensionHandshaker(int compressionLevel,
+            boolean allowClientWindowSize, int requestedServerWindowSize,
+            boolean allowClientNoContext, boolean requestedServerNoContext, JdkZlibPool pool) {
         if (requestedServerWindowSize > MAX_WINDOW_SIZE || requestedServerWindowSize < MIN_WINDOW_SIZE) {
             throw new IllegalArgumentException(
                     "requestedServerWindowSize: " + requestedServerWindowSize + " (expected: 8-15)");
@@ -80,6 +121,7 @@ public final class PerMessageDeflateClientExtensionHandshaker implements WebSock
         this.requestedServerWindowSize = requestedServerWindowSize;
         this.allowClientNoContext = allowClientNoContext;
         this.requestedServerNoContext = requestedServerNoContext;
+        this.pool = pool;
     }
 
     @Override
@@ -185,12 +227,12 @@ public final class PerMessageDeflateClientExtensionHandshaker implements WebSock
 
         @Override
         public WebSocketExtensionEncoder newExtensionEncoder() {
-            return new PerMessageDeflateEncoder(compressionLevel, serverWindowSize, serverNoContext);
+            return new PerMessageDeflateEncoder(compressionLevel, serverWindowSize, serverNoContext, pool);
         }
 
         @Override
         public WebSocketExtensionDecoder newExtensionDecoder() {
-            return new PerMessageDeflateDecoder(clientNoContext);
+            return new PerMessageDeflateDecoder(clientNoContext, pool);
         }
     }
 
@@ -16,6 +16,7 @@
 package io.netty.handler.codec.http.websocketx.extensions.compression;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.compression.JdkZlibPool;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
@@ -39,6 +40,15 @@ class PerMessageDeflateDecoder extends DeflateDecoder {
         super(noContext);
     }
 
+    /**
+     * Constructor
+     * @param noContext true to disable context takeover.
+     * @param pool the pool to borrow the decompressor from, or {@code null} to create a new one.
+     */
+    public PerMessageDeflateDecoder(boolean noContext, JdkZlibPool pool) {
+        super(noContext, pool);
+    }
+
     @Override
     public boolean acceptInboundMessage(Object msg) throws Exception {
         return ((msg instanceof TextWebSocketFrame ||
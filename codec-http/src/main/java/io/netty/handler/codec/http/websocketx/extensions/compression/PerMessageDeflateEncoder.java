@@ -16,6 +16,7 @@
 package io.netty.handler.codec.http.websocketx.extensions.compression;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.compression.JdkZlibPool;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
@@ -41,6 +42,17 @@ class PerMessageDeflateEncoder extends DeflateEncoder {
         super(compressionLevel, windowSize, noContext);
     }
 
+    /**
+     * Constructor
+     * @param compressionLevel compression level of the compressor.
+     * @param windowSize maximum size of the window compressor buffer.
+     * @param noContext true to disable context takeover.
+     * @param pool the pool to borrow the compressor from, or {@code null} to create a new one.
+     */
+    public PerMessageDeflateEncoder(int compressionLevel, int windowSize, boolean noContext, JdkZlibPool pool) {
+        super(compressionLevel, windowSize, noContext, pool);
+    }
+
     @Override
     public boolean acceptOutboundMessage(Object msg) throws Exception {
         return ((msg instanceof TextWebSocketFrame ||
@@ -15,6 +15,7 @@
  */
 package io.netty.handler.codec.http.websocketx.extensions.compression;
 
+import io.netty.handler.codec.compression.JdkZlibPool;
 import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
 import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionDecoder;
 import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionEncoder;
@@ -25,6 +26,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map.Entry;
 
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
 /**
  * <a href="http://tools.ietf.org/html/draft-ietf-hybi-permessage-compression-18">permessage-deflate</a>
  * handshake implementation.
@@ -45,6 +48,7 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
     private final int preferredClientWindowSize;
     private final boolean allowServerNoContext;
     private final boolean preferredClientNoContext;
+    private final JdkZlibPool pool;
 
     /**
      * Constructor with default configuration.
@@ -73,6 +77,45 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
     public PerMessageDeflateServerExtensionHandshaker(int compressionLevel,
             boolean allowServerWindowSize, int preferredClientWindowSize,
             boolean allowServerNoContext, boolean preferredClientNoContext) {
+        this(compressionLevel, allowServerWindowSize, preferredClientWindowSize,
+                allowServerNoContext, preferredClientNoContext, null);
+    }
+
+    /**
+     * Constructor with custom configuration whose compressors and decompressors are borrowed from a
+     * {@link JdkZlibPool} which can be shared by all connections. They are returned to the pool after each message
+     * when context takeover is disabled, and when the connection is closed otherwise, so idle connections do not
+     * hold any zlib state. The compression level is the one of the pool.
+     * <p>
+     * If the pool has a preset dictionary, it is used to compress and decompress every message when context
+     * takeover is disabled, and the first message otherwise. This is not part of the permessage-deflate
+     * specification, so the clients must be configured with the same dictionary.
+     *
+     * @param pool
+     *            the pool to borrow the compressors and decompressors from.
+     * @param allowServerWindowSize
+     *            allows WebSocket client to customize the server inflater window size
+     *            (default is false).
+     * @param preferredClientWindowSize
+     *            indicates the preferred client window size to use if client inflater is customizable.
+     *            Only a window size of {@value #MAX_WINDOW_SIZE} uses the pool for compression.
+     * @param allowServerNoContext
+     *            allows WebSocket client to activate server_no_context_takeover
+     *            (default is false).
+     * @param preferredClientNoContext
+     *            indicates if server prefers to activate client_no_context_takeover
+     *            if client is compatible with (default is false).
+     */
+    public PerMessageDeflateServerExtensionHandshaker(JdkZlibPool pool,
+            boolean allowServerWindowSize, int preferredClientWindowSize,
+            boolean allowServerNoContext, boolean preferredClientNoContext) {
+        this(checkNotNull(pool, "pool").compressionLevel(), allowServerWindowSize, preferredClientWindowSize,
+                allowServerNoContext, preferredClientNoContext, pool);
+    }
+
+    private PerMessageDeflateServerExtensionHandshaker(int compressionLevel,
+            boolean allowServerWindowSize, int preferredClientWindowSize,
+            boolean allowServerNoContext, boolean preferredClientNoContext, JdkZlibPool pool) {
         if (preferredClientWindowSize > MAX_WINDOW_SIZE || preferredClientWindowSize < MIN_WINDOW_SIZE) {
             throw new IllegalArgumentException(
                     "preferredServerWindowSize: " + preferredClientWindowSize + " (expected: 8-15)");
@@ -86,6 +129,7 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
         this.preferredClientWindowSize = preferredClientWindowSize;
         this.allowServerNoContext = allowServerNoContext;
         this.preferredClientNoContext = preferredClientNoContext;
+        this.pool = pool;
     }
 
     @Override
@@ -136,7 +180,7 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
 
         if (deflateEnabled) {
             return new PermessageDeflateExtension(compressionLevel, serverNoContext,
-                    serverWindowSize, clientNoContext, clientWindowSize);
+                    serverWindowSize, clientNoContext, clientWindowSize, pool);
         } else {
             return null;
         }
@@ -149,14 +193,16 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
         private final int serverWindowSize;
         private final boolean clientNoContext;
         private final int clientWindowSize;
+        private final JdkZlibPool pool;
 
         public PermessageDeflateExtension(int compressionLevel, boolean serverNoContext,
-                int serverWindowSize, boolean clientNoContext, int clientWindowSize) {
+                int serverWindowSize, boolean clientNoContext, int clientWindowSize, JdkZlibPool pool) {
             this.compressionLevel = compressionLevel;
             this.serverNoContext = serverNoContext;
             this.serverWindowSize = serverWindowSize;
             this.clientNoContext = clientNoContext;
             this.clientWindowSize = clientWindowSize;
+            this.pool = pool;
         }
 
         @Override
@@ -166,12 +212,12 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
 
         @Override
         public WebSocketExtensionEncoder newExtensionEncoder() {
-            return new PerMessageDeflateEncoder(compressionLevel, clientWindowSize, clientNoContext);
+            return new PerMessageDeflateEncoder(compressionLevel, clientWindowSize, clientNoContext, pool);
         }
 
         @Override
         public WebSocketExtensionDecoder newExtensionDecoder() {
-            return new PerMessageDeflateDecoder(serverNoContext);
+            return new PerMessageDeflateDecoder(serverNoContext, pool);
         }
 
         @Override
@@ -19,6 +19,7 @@ import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.compression.JdkZlibPool;
 import io.netty.handler.codec.compression.ZlibWrapper;
 import io.netty.util.CharsetUtil;
 import io.netty.util.ReferenceCountUtil;
@@ -66,6 +67,50 @@ public class HttpContentCompressorTest {
         }
     }
 
+    @Test
+    public void testDetermineEncoding() throws Exception {
+        String[] tests = {
+            // Accept-Encoding -> Content-Encoding if br and zstd are enabled
+            "", null,
+            "*", null,
+            "gzip, deflate", null,
+            "br", "br",
+            "gzip, deflate, br", "br",
+            "br;q=0.5, gzip", null,
+            "gzip;q=0.5, br;q=0.5", "br",
+            "br;q=0", null,
+            "zstd", "zstd",
+            "zstd, br", "br",
+            "zstd, br;q=0.8, gzip;q=0.9", "zstd",
+            " BR ; q=0.5 , zstd;q=0.4", "br",
+        };
+        for (int i = 0; i < tests.length; i += 2) {
+            assertEquals(tests[i], tests[i + 1], HttpContentCompressor.determineEncoding(tests[i], true, true));
+        }
+
+        assertNull(HttpContentCompressor.determineEncoding("br, zstd", false, false));
+        assertEquals("zstd", HttpContentCompressor.determineEncoding("br, zstd", false, true));
+        assertEquals("br", HttpContentCompressor.determineEncoding("br, zstd;q=0.5", true, false));
+        assertNull(HttpContentCompressor.determineEncoding("zstd", true, false));
+    }
+
+    @Test
+    public void testZstdWindowLogIsLimited() throws Exception {
+        // The default window of the levels up to 19 fits the limit of the zstd encoding already.
+        assertEquals(0, HttpContentCompressor.zstdWindowLog(3, 0));
+        assertEquals(0, HttpContentCompressor.zstdWindowLog(19, 0));
+        assertEquals(HttpContentCompressor.MAX_ZSTD_WINDOW_LOG, HttpContentCompressor.zstdWindowLog(20, 0));
+        assertEquals(HttpContentCompressor.MAX_ZSTD_WINDOW_LOG, HttpContentCompressor.zstdWindowLog(22, 0));
+        assertEquals(20, HttpContentCompressor.zstdWindowLog(22, 20));
+
+        try {
+            new HttpContentCompressor(6, 15, 8, -1, 22, 22, HttpContentCompressor.MAX_ZSTD_WINDOW_LOG + 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
     @Test
     public void testSplitContent() throws Exception {
         EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor());
@@ -145,6 +190,46 @@ public class HttpContentCompressorTest {
         assertThat(ch.readOutbound(), is(nullValue()));
     }
 
+    @Test
+    public void testPooledCompressor() throws Exception {
+        JdkZlibPool pool = new JdkZlibPool(6);
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(pool));
+        for (int i = 0; i < 2; i++) {
+            ch.writeInbound(newRequest());
+
+            HttpResponse res = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+            res.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+            ch.writeOutbound(res);
+
+            assertEncodedResponse(ch);
+            assertThat(pool.pooledDeflaters(), is(0));
+
+            ch.writeOutbound(new DefaultHttpContent(Unpooled.copiedBuffer("Hell", CharsetUtil.US_ASCII)));
+            ch.writeOutbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("o, world", CharsetUtil.US_ASCII)));
+
+            // The compressor of the previous response was reset, so both responses are compressed alike.
+            HttpContent chunk;
+            chunk = ch.readOutbound();
+            assertThat(ByteBufUtil.hexDump(chunk.content()), is("1f8b0800000000000000f248cdc901000000ffff"));
+            chunk.release();
+
+            chunk = ch.readOutbound();
+            assertThat(ByteBufUtil.hexDump(chunk.content()), is("cad75128cf2fca4901000000ffff"));
+            chunk.release();
+
+            chunk = ch.readOutbound();
+            assertThat(ByteBufUtil.hexDump(chunk.content()), is("0300c2a99ae70c000000"));
+            chunk.release();
+
+            chunk = ch.readOutbound();
+            assertThat(chunk, is(instanceOf(LastHttpContent.class)));
+            chunk.release();
+
+            assertThat(ch.readOutbound(), is(nullValue()));
+            assertThat(pool.pooledDeflaters(), is(1));
+        }
+    }
+
     @Test
     public void testChunkedContentWithTrailingHeader() throws Exception {
         EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor());
@@ -18,6 +18,8 @@ package io.netty.handler.codec.http;
 
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AsciiString;
 import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
@@ -69,8 +71,17 @@ public class HttpRequestDecoderTest {
         testDecodeWholeRequestAtOnce(CONTENT_MIXED_DELIMITERS);
     }
 
+    @Test
+    public void testDecodeWholeRequestAtOnceAsciiHeaders() {
+        testDecodeWholeRequestAtOnce(CONTENT_MIXED_DELIMITERS, true);
+    }
+
     private static void testDecodeWholeRequestAtOnce(byte[] content) {
-        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
+        testDecodeWholeRequestAtOnce(content, false);
+    }
+
+    private static void testDecodeWholeRequestAtOnce(byte[] content, boolean asciiHeaders) {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(4096, 8192, 8192, true, asciiHeaders));
         assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(content)));
         HttpRequest req = channel.readInbound();
         assertNotNull(req);
@@ -100,7 +111,7 @@ public class HttpRequestDecoderTest {
     private static void checkHeader(HttpHeaders headers, String name, String value) {
         List<CharSequence> header1 = headers.getAll(name);
         assertEquals(1, header1.size());
-        assertEquals(value, header1.get(0));
+        assertEquals(value, header1.get(0).toString());
     }
 
     @Test
@@ -118,14 +129,24 @@ public class HttpRequestDecoderTest {
         testDecodeWholeRequestInMultipleSteps(CONTENT_MIXED_DELIMITERS);
     }
 
+    @Test
+    public void testDecodeWholeRequestInMultipleStepsAsciiHeaders() {
+        testDecodeWholeRequestInMultipleSteps(CONTENT_MIXED_DELIMITERS, true);
+    }
+
     private static void testDecodeWholeRequestInMultipleSteps(byte[] content) {
+        testDecodeWholeRequestInMultipleSteps(content, false);
+    }
+
+    private static void testDecodeWholeRequestInMultipleSteps(byte[] content, boolean asciiHeaders) {
         for (int i = 1; i < content.length; i++) {
-            testDecodeWholeRequestInMultipleSteps(content, i);
+            testDecodeWholeRequestInMultipleSteps(content, i, asciiHeaders);
         }
     }
 
-    private static void testDecodeWholeRequestInMultipleSteps(byte[] content, int fragmentSize) {
-        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
+    private static void testDecodeWholeRequestInMultipleSteps(byte[] content, int fragmentSize,
+                                                              boolean asciiHeaders) {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(4096, 8192, 8192, true, asciiHeaders));
         int headerLength = content.length - CONTENT_LENGTH;
 
         // split up the header
@@ -230,4 +251,57 @@ public class HttpRequestDecoderTest {
 
         assertThat(channel.finish(), is(false));
     }
+
+    @Test
+    public void testAsciiHeaders() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(4096, 8192, 8192, true, true));
+        String requests =
+                "GET /first HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "X-Custom:  some value \r\n" +
+                "X-Folded: first\r\n" +
+                "  second\r\n" +
+                "X-Empty:\r\n\r\n" +
+                "GET /second HTTP/1.1\r\n" +
+                "HOST: example.com\r\n\r\n";
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer(requests, CharsetUtil.US_ASCII)));
+
+        HttpRequest first = channel.readInbound();
+        assertSame(HttpMethod.GET, first.method());
+        assertSame(HttpVersion.HTTP_1_1, first.protocolVersion());
+        assertEquals("/first", first.uri());
+        HttpHeaders headers = first.headers();
+        assertEquals(4, headers.size());
+        assertSame(HttpHeaderNames.HOST, headers.iterator().next().getKey());
+        assertThat(headers.get("X-Custom"), is(instanceOf(AsciiString.class)));
+        assertEquals("some value", headers.get("X-Custom").toString());
+        assertEquals("first second", headers.get("X-Folded").toString());
+        assertEquals("", headers.get("X-Empty").toString());
+        assertThat(channel.readInbound(), is(instanceOf(LastHttpContent.class)));
+
+        HttpRequest second = channel.readInbound();
+        assertEquals("/second", second.uri());
+        assertSame(HttpHeaderNames.HOST, second.headers().iterator().next().getKey());
+        assertEquals("example.com", second.headers().get(HttpHeaderNames.HOST).toString());
+        // The headers of the first request must not be affected by decoding the second one.
+        assertEquals("localhost", headers.get(HttpHeaderNames.HOST).toString());
+        assertThat(channel.readInbound(), is(instanceOf(LastHttpContent.class)));
+
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testAsciiHeadersTooLarge() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(4096, 32, 8192, true, true));
+        String request =
+                "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "X-Too-Large: 0123456789\r\n\r\n";
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer(request, CharsetUtil.US_ASCII)));
+
+        HttpRequest req = channel.readInbound();
+        assertTrue(req.decoderResult().isFailure());
+        assertThat(req.decoderResult().cause(), is(instanceOf(TooLongFrameException.class)));
+        assertFalse(channel.finish());
+    }
 }
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.codec.PrematureChannelClosureException;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HttpClientPoolTest {
+    private static final String LOCAL_ADDR_ID = "test.http.pool";
+
+    private EventLoopGroup serverGroup;
+    private EventLoopGroup clientGroup;
+    private Channel serverChannel;
+    private Bootstrap clientBootstrap;
+    private HttpClientPool pool;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger closedConnections = new AtomicInteger();
+    private volatile int respondAfter = 1;
+
+    @Before
+    public void setUp() throws Exception {
+        serverGroup = new DefaultEventLoopGroup(1);
+        clientGroup = new DefaultEventLoopGroup(1);
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+
+        ServerBootstrap sb = new ServerBootstrap();
+        sb.group(serverGroup)
+          .channel(LocalServerChannel.class)
+          .childHandler(new ChannelInitializer<LocalChannel>() {
+              @Override
+              public void initChannel(LocalChannel ch) throws Exception {
+                  connections.incrementAndGet();
+                  ch.closeFuture().addListener(new ChannelFutureListener() {
+                      @Override
+                      public void operationComplete(ChannelFuture future) throws Exception {
+                          closedConnections.incrementAndGet();
+                      }
+                  });
+                  ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(1024), new ServerHandler());
+              }
+          });
+        serverChannel = sb.bind(addr).sync().channel();
+
+        clientBootstrap = new Bootstrap();
+        clientBootstrap.group(clientGroup)
+                       .channel(LocalChannel.class)
+                       .remoteAddress(addr);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        serverChannel.close().sync();
+        clientGroup.shutdownGracefully();
+        serverGroup.shutdownGracefully();
+    }
+
+    @Test
+    public void testReusesConnection() throws Exception {
+        pool = new HttpClientPool(clientBootstrap, 1024);
+        for (int i = 0; i < 3; i++) {
+            assertResponse("/" + i, pool.execute(get("/" + i)));
+        }
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    public void testPipelinesIdempotentRequests() throws Exception {
+        pool = new HttpClientPool(clientBootstrap, 1024, 3, 0, TimeUnit.MILLISECONDS);
+        assertResponse("/warmup", pool.execute(get("/warmup")));
+
+        // Only respond once all requests were received on the same connection.
+        respondAfter = 3;
+        List<Future<FullHttpResponse>> futures = executeFromEventLoop(get("/1"), get("/2"), get("/3"));
+        for (int i = 0; i < futures.size(); i++) {
+            assertResponse("/" + (i + 1), futures.get(i));
+        }
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    public void testDoesNotPipelineNonIdempotentRequests() throws Exception {
+        pool = new HttpClientPool(clientBootstrap, 1024, 3, 0, TimeUnit.MILLISECONDS);
+        assertResponse("/warmup", pool.execute(get("/warmup")));
+
+        List<Future<FullHttpResponse>> futures = executeFromEventLoop(
+                get("/1"), new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/2"));
+        assertResponse("/1", futures.get(0));
+        assertResponse("/2", futures.get(1));
+        assertEquals(2, connections.get());
+    }
+
+    @Test
+    public void testDoesNotReuseClosedConnection() throws Exception {
+        pool = new HttpClientPool(clientBootstrap, 1024);
+        assertResponse("/close", pool.execute(get("/close")));
+        assertResponse("/1", pool.execute(get("/1")));
+        assertEquals(2, connections.get());
+
+        FullHttpRequest request = get("/2");
+        HttpUtil.setKeepAlive(request, false);
+        assertResponse("/2", pool.execute(request));
+        assertResponse("/3", pool.execute(get("/3")));
+        assertEquals(3, connections.get());
+    }
+
+    @Test
+    public void testFailsRequestsPipelinedBehindClose() throws Exception {
+        pool = new HttpClientPool(clientBootstrap, 1024, 2, 0, TimeUnit.MILLISECONDS);
+        assertResponse("/warmup", pool.execute(get("/warmup")));
+
+        respondAfter = 2;
+        List<Future<FullHttpResponse>> futures = executeFromEventLoop(get("/close"), get("/1"));
+        assertResponse("/close", futures.get(0));
+        assertTrue(futures.get(1).await(5, TimeUnit.SECONDS));
+        assertTrue(futures.get(1).cause() instanceof PrematureChannelClosureException);
+    }
+
+    @Test
+    public void testEvictsIdleConnection() throws Exception {
+        pool = new HttpClientPool(clientBootstrap, 1024, 1, 100, TimeUnit.MILLISECONDS);
+        assertResponse("/1", pool.execute(get("/1")));
+        assertResponse("/2", pool.execute(get("/2")));
+        assertEquals(1, connections.get());
+
+        Thread.sleep(300);
+        assertResponse("/3", pool.execute(get("/3")));
+        assertEquals(2, connections.get());
+    }
+
+    @Test(timeout = 5000)
+    public void testClosesIdleConnectionsWhichAreNotAcquired() throws Exception {
+        pool = new HttpClientPool(clientBootstrap, 1024, 1, 100, TimeUnit.MILLISECONDS);
+
+        // Both requests are executed before any connection was created, so each one needs its own connection.
+        List<Future<FullHttpResponse>> futures = executeFromEventLoop(get("/1"), get("/2"));
+        assertResponse("/1", futures.get(0));
+        assertResponse("/2", futures.get(1));
+        assertEquals(2, connections.get());
+
+        // Nothing is acquired anymore, but still both connections are closed once they were idle for too long.
+        while (closedConnections.get() != 2) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Executes all requests from within the client's EventLoop, so requests are pipelined deterministically.
+     */
+    private List<Future<FullHttpResponse>> executeFromEventLoop(final FullHttpRequest... requests) throws Exception {
+        return clientGroup.next().submit(new Callable<List<Future<FullHttpResponse>>>() {
+            @Override
+            public List<Future<FullHttpResponse>> call() throws Exception {
+                List<Future<FullHttpResponse>> futures = new ArrayList<Future<FullHttpResponse>>();
+                for (FullHttpRequest request: requests) {
+                    futures.add(pool.execute(request));
+                }
+                return futures;
+            }
+        }).sync().getNow();
+    }
+
+    private static FullHttpRequest get(String uri) {
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+    }
+
+    private static void assertResponse(String expected, Future<FullHttpResponse> future) throws Exception {
+        FullHttpResponse response = future.sync().getNow();
+        try {
+            assertEquals(expected, response.content().toString(CharsetUtil.US_ASCII));
+        } finally {
+            response.release();
+        }
+    }
+
+    private final class ServerHandler extends ChannelHandlerAdapter {
+        private final Queue<FullHttpRequest> requests = new ArrayDeque<FullHttpRequest>();
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            requests.add((FullHttpRequest) msg);
+            if (requests.size() < respondAfter) {
+                return;
+            }
+            for (;;) {
+                FullHttpRequest request = requests.poll();
+                if (request == null) {
+                    break;
+                }
+                FullHttpResponse response = new DefaultFullHttpResponse(
+                        HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                        Unpooled.copiedBuffer(request.uri(), CharsetUtil.US_ASCII));
+                HttpUtil.setContentLength(response, response.content().readableBytes());
+                if (!HttpUtil.isKeepAlive(request) || request.uri().equals("/close")) {
+                    response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+                }
+                request.release();
+                ctx.writeAndFlush(response);
+            }
+        }
+    }
+}
@@ -19,11 +19,14 @@ import static org.junit.Assert.*;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.JdkZlibPool;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.util.CharsetUtil;
 
 import java.util.Arrays;
 import java.util.Random;
@@ -157,4 +160,31 @@ public class PerMessageDeflateEncoderTest {
         assertTrue(Arrays.equals(finalPayload3, payload3));
         uncompressedPayload3.release();
     }
+
+    @Test
+    public void testPooledCompressorWithDictionary() {
+        JdkZlibPool pool = new JdkZlibPool(6, "{\"event\":\"tick\",\"price\":".getBytes(CharsetUtil.US_ASCII));
+        EmbeddedChannel encoderChannel = new EmbeddedChannel(new PerMessageDeflateEncoder(6, 15, true, pool));
+        EmbeddedChannel decoderChannel = new EmbeddedChannel(new PerMessageDeflateDecoder(true, pool));
+
+        for (int i = 0; i < 3; i++) {
+            String payload = "{\"event\":\"tick\",\"price\":" + i + '}';
+            encoderChannel.writeOutbound(new TextWebSocketFrame(payload));
+            TextWebSocketFrame compressedFrame = encoderChannel.readOutbound();
+            assertEquals(WebSocketExtension.RSV1, compressedFrame.rsv());
+            assertTrue(compressedFrame.content().readableBytes() < payload.length());
+            // Context takeover is disabled, so the compressor went back to the pool after the message.
+            assertEquals(1, pool.pooledDeflaters());
+
+            decoderChannel.writeInbound(compressedFrame);
+            TextWebSocketFrame uncompressedFrame = decoderChannel.readInbound();
+            assertEquals(0, uncompressedFrame.rsv());
+            assertEquals(payload, uncompressedFrame.text());
+            uncompressedFrame.release();
+            assertEquals(1, pool.pooledInflaters());
+        }
+
+        assertFalse(encoderChannel.finish());
+        assertFalse(decoderChannel.finish());
+    }
 }
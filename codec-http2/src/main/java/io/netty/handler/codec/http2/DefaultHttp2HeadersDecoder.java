@@ -19,22 +19,13 @@ import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_HEADER_TABLE_S
 import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_MAX_HEADER_SIZE;
 import static io.netty.handler.codec.http2.Http2Error.COMPRESSION_ERROR;
 import static io.netty.handler.codec.http2.Http2Error.ENHANCE_YOUR_CALM;
-import static io.netty.handler.codec.http2.Http2Error.INTERNAL_ERROR;
 import static io.netty.handler.codec.http2.Http2Error.PROTOCOL_ERROR;
 import static io.netty.handler.codec.http2.Http2Exception.connectionError;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
-import io.netty.util.ByteString;
-
-import java.io.IOException;
-import java.io.InputStream;
-
-import com.twitter.hpack.Decoder;
-import com.twitter.hpack.HeaderListener;
 
 public class DefaultHttp2HeadersDecoder implements Http2HeadersDecoder, Http2HeadersDecoder.Configuration {
     private final int maxHeaderSize;
-    private final Decoder decoder;
+    private final HpackDecoder decoder;
     private final Http2HeaderTable headerTable;
     private final boolean validateHeaders;
 
@@ -54,7 +45,7 @@ public class DefaultHttp2HeadersDecoder implements Http2HeadersDecoder, Http2Hea
         if (maxHeaderSize <= 0) {
             throw new IllegalArgumentException("maxHeaderSize must be positive: " + maxHeaderSize);
         }
-        decoder = new Decoder(maxHeaderSize, maxHeaderTableSize);
+        decoder = new HpackDecoder(maxHeaderSize, maxHeaderTableSize);
         headerTable = new Http2HeaderTableDecoder();
         this.maxHeaderSize = maxHeaderSize;
         this.validateHeaders = validateHeaders;
@@ -85,17 +76,9 @@ public class DefaultHttp2HeadersDecoder implements Http2HeadersDecoder, Http2Hea
 
     @Override
     public Http2Headers decodeHeaders(ByteBuf headerBlock) throws Http2Exception {
-        InputStream in = new ByteBufInputStream(headerBlock);
         try {
             final Http2Headers headers = new DefaultHttp2Headers(validateHeaders);
-            HeaderListener listener = new HeaderListener() {
-                @Override
-                public void addHeader(byte[] key, byte[] value, boolean sensitive) {
-                    headers.add(new ByteString(key, false), new ByteString(value, false));
-                }
-            };
-
-            decoder.decode(in, listener);
+            decoder.decode(headerBlock, headers);
             if (decoder.endHeaderBlock()) {
                 maxHeaderSizeExceeded();
             }
@@ -106,8 +89,6 @@ public class DefaultHttp2HeadersDecoder implements Http2HeadersDecoder, Http2Hea
             }
 
             return headers;
-        } catch (IOException e) {
-            throw connectionError(COMPRESSION_ERROR, e, e.getMessage());
         } catch (Http2Exception e) {
             throw e;
         } catch (Throwable e) {
@@ -115,12 +96,6 @@ public class DefaultHttp2HeadersDecoder implements Http2HeadersDecoder, Http2Hea
             // the the Header builder throws IllegalArgumentException if the key or value was invalid
             // for any reason (e.g. the key was an invalid pseudo-header).
             throw connectionError(COMPRESSION_ERROR, e, e.getMessage());
-        } finally {
-            try {
-                in.close();
-            } catch (IOException e) {
-                throw connectionError(INTERNAL_ERROR, e, e.getMessage());
-            }
         }
     }
 
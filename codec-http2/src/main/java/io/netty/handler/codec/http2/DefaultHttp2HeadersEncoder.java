@@ -17,25 +17,15 @@ package io.netty.handler.codec.http2;
 
 import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_HEADER_TABLE_SIZE;
 import static io.netty.handler.codec.http2.Http2Error.COMPRESSION_ERROR;
-import static io.netty.handler.codec.http2.Http2Error.INTERNAL_ERROR;
 import static io.netty.handler.codec.http2.Http2Error.PROTOCOL_ERROR;
 import static io.netty.handler.codec.http2.Http2Exception.connectionError;
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufOutputStream;
-import io.netty.util.ByteString;
-
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.util.Map.Entry;
-
-import com.twitter.hpack.Encoder;
+import io.netty.buffer.Unpooled;
 
 public class DefaultHttp2HeadersEncoder implements Http2HeadersEncoder, Http2HeadersEncoder.Configuration {
-    private final Encoder encoder;
-    private final ByteArrayOutputStream tableSizeChangeOutput = new ByteArrayOutputStream();
+    private final HpackEncoder encoder;
+    private final ByteBuf tableSizeChangeOutput = Unpooled.buffer();
     private final SensitivityDetector sensitivityDetector;
     private final Http2HeaderTable headerTable;
 
@@ -45,13 +35,12 @@ public class DefaultHttp2HeadersEncoder implements Http2HeadersEncoder, Http2Hea
 
     public DefaultHttp2HeadersEncoder(int maxHeaderTableSize, SensitivityDetector sensitivityDetector) {
         this.sensitivityDetector = checkNotNull(sensitivityDetector, "sensitiveDetector");
-        encoder = new Encoder(maxHeaderTableSize);
+        encoder = new HpackEncoder(maxHeaderTableSize);
         headerTable = new Http2HeaderTableEncoder();
     }
 
     @Override
     public void encodeHeaders(Http2Headers headers, ByteBuf buffer) throws Http2Exception {
-        final OutputStream stream = new ByteBufOutputStream(buffer);
         try {
             if (headers.size() > headerTable.maxHeaderListSize()) {
                 throw connectionError(PROTOCOL_ERROR, "Number of headers (%d) exceeds maxHeaderListSize (%d)",
@@ -60,24 +49,16 @@ public class DefaultHttp2HeadersEncoder implements Http2HeadersEncoder, Http2Hea
 
             // If there was a change in the table size, serialize the output from the encoder
             // resulting from that change.
-            if (tableSizeChangeOutput.size() > 0) {
-                buffer.writeBytes(tableSizeChangeOutput.toByteArray());
-                tableSizeChangeOutput.reset();
+            if (tableSizeChangeOutput.isReadable()) {
+                buffer.writeBytes(tableSizeChangeOutput);
+                tableSizeChangeOutput.clear();
             }
 
-            for (Entry<ByteString, ByteString> header : headers) {
-                encodeHeader(header.getKey(), header.getValue(), stream);
-            }
+            encoder.encodeHeaders(buffer, headers, sensitivityDetector);
         } catch (Http2Exception e) {
             throw e;
         } catch (Throwable t) {
             throw connectionError(COMPRESSION_ERROR, t, "Failed encoding headers block: %s", t.getMessage());
-        } finally {
-            try {
-                stream.close();
-            } catch (IOException e) {
-                throw connectionError(INTERNAL_ERROR, e, e.getMessage());
-            }
         }
     }
 
@@ -91,13 +72,6 @@ public class DefaultHttp2HeadersEncoder implements Http2HeadersEncoder, Http2Hea
         return this;
     }
 
-    private void encodeHeader(ByteString key, ByteString value, OutputStream stream) throws IOException {
-        encoder.encodeHeader(stream,
-                key.isEntireArrayUsed() ? key.array() : new ByteString(key, true).array(),
-                value.isEntireArrayUsed() ? value.array() : new ByteString(value, true).array(),
-                sensitivityDetector.isSensitive(key, value));
-    }
-
     /**
      * {@link Http2HeaderTable} implementation to support {@link Http2HeadersEncoder}
      */
@@ -110,8 +84,6 @@ public class DefaultHttp2HeadersEncoder implements Http2HeadersEncoder, Http2Hea
             try {
                 // No headers should be emitted. If they are, we throw.
                 encoder.setMaxHeaderTableSize(tableSizeChangeOutput, max);
-            } catch (IOException e) {
-                throw new Http2Exception(COMPRESSION_ERROR, e.getMessage(), e);
             } catch (Throwable t) {
                 throw new Http2Exception(PROTOCOL_ERROR, t.getMessage(), t);
             }
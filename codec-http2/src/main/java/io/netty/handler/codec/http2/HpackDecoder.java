@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import static io.netty.handler.codec.http2.Http2Error.COMPRESSION_ERROR;
+import static io.netty.handler.codec.http2.Http2Exception.connectionError;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http2.HpackUtil.IndexType;
+import io.netty.util.AsciiString;
+import io.netty.util.ByteString;
+
+/**
+ * Decodes <a href="https://tools.ietf.org/html/rfc7541">HPACK</a> header blocks straight from a {@link ByteBuf} into
+ * {@link Http2Headers}. Names and values are {@link AsciiString}s, and names and values of the static table are
+ * shared constants.
+ */
+final class HpackDecoder {
+    private final HpackDynamicTable dynamicTable;
+    private final HpackHuffmanDecoder huffmanDecoder = new HpackHuffmanDecoder();
+    private final int maxHeaderSize;
+
+    private int maxDynamicTableSize;
+    private int encoderMaxDynamicTableSize;
+    private boolean maxDynamicTableSizeChangeRequired;
+    private long headerSize;
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param maxHeaderSize         the maximum sum of the lengths of all names and values of a header block.
+     * @param maxHeaderTableSize    the maximum size of the dynamic table.
+     */
+    HpackDecoder(int maxHeaderSize, int maxHeaderTableSize) {
+        dynamicTable = new HpackDynamicTable(maxHeaderTableSize);
+        this.maxHeaderSize = maxHeaderSize;
+        maxDynamicTableSize = maxHeaderTableSize;
+        encoderMaxDynamicTableSize = maxHeaderTableSize;
+    }
+
+    /**
+     * Decodes the header block fragment in {@code in} and adds the decoded headers to {@code headers}. Once the
+     * headers exceed the maximum header size the remaining ones are decoded, so the dynamic table stays in sync, but
+     * not added anymore, which is reported by {@link #endHeaderBlock()}.
+     */
+    void decode(ByteBuf in, Http2Headers headers) throws Http2Exception {
+        while (in.isReadable()) {
+            final byte b = in.getByte(in.readerIndex());
+            if (maxDynamicTableSizeChangeRequired && (b & 0xE0) != 0x20) {
+                // The first representation after a decrease of the maximum size must be a dynamic table size update.
+                throw connectionError(COMPRESSION_ERROR, "HPACK - max dynamic table size change required");
+            }
+            if (b < 0) {
+                // Indexed Header Field: 1xxxxxxx
+                int index = decodeULE128(in, 7);
+                if (index == 0) {
+                    throw connectionError(COMPRESSION_ERROR, "HPACK - illegal index value: 0");
+                }
+                HpackHeaderField field = getIndexedHeader(index);
+                addHeader(headers, field.name, field.value);
+            } else if ((b & 0x40) == 0x40) {
+                // Literal Header Field with Incremental Indexing: 01xxxxxx
+                readLiteral(in, decodeULE128(in, 6), IndexType.INCREMENTAL, headers);
+            } else if ((b & 0x20) == 0x20) {
+                // Dynamic Table Size Update: 001xxxxx
+                setDynamicTableSize(decodeULE128(in, 5));
+            } else {
+                // Literal Header Field without Indexing (0000xxxx) or Never Indexed (0001xxxx)
+                IndexType indexType = (b & 0x10) == 0x10 ? IndexType.NEVER : IndexType.NONE;
+                readLiteral(in, decodeULE128(in, 4), indexType, headers);
+            }
+        }
+    }
+
+    /**
+     * Ends the current header block and returns {@code true} if headers were dropped because the maximum header size
+     * was exceeded.
+     */
+    boolean endHeaderBlock() {
+        boolean truncated = headerSize > maxHeaderSize;
+        headerSize = 0;
+        return truncated;
+    }
+
+    /**
+     * Sets the maximum size of the dynamic table which the encoder on the other side may use. If this is less than
+     * what the encoder currently uses it has to send a dynamic table size update at the beginning of the next
+     * header block.
+     */
+    void setMaxHeaderTableSize(int maxHeaderTableSize) {
+        maxDynamicTableSize = maxHeaderTableSize;
+        if (maxDynamicTableSize < encoderMaxDynamicTableSize) {
+            maxDynamicTableSizeChangeRequired = true;
+            dynamicTable.setCapacity(maxDynamicTableSize);
+        }
+    }
+
+    /**
+     * Returns the current maximum size of the dynamic table.
+     */
+    int getMaxHeaderTableSize() {
+        return (int) dynamicTable.capacity();
+    }
+
+    private void setDynamicTableSize(int dynamicTableSize) throws Http2Exception {
+        if (dynamicTableSize > maxDynamicTableSize) {
+            throw connectionError(COMPRESSION_ERROR, "HPACK - invalid max dynamic table size: %d (expected: <= %d)",
+                    dynamicTableSize, maxDynamicTableSize);
+        }
+        encoderMaxDynamicTableSize = dynamicTableSize;
+        maxDynamicTableSizeChangeRequired = false;
+        dynamicTable.setCapacity(dynamicTableSize);
+    }
+
+    private HpackHeaderField getIndexedHeader(int index) throws Http2Exception {
+        if (index <= HpackStaticTable.length) {
+            return HpackStaticTable.getEntry(index);
+        }
+        if (index - HpackStaticTable.length <= dynamicTable.length()) {
+            return dynamicTable.getEntry(index - HpackStaticTable.length);
+        }
+        throw connectionError(COMPRESSION_ERROR, "HPACK - illegal index value: %d", index);
+    }
+
+    private void readLiteral(ByteBuf in, int nameIndex, IndexType indexType, Http2Headers headers)
+            throws Http2Exception {
+        final ByteString name = nameIndex == 0 ? readStringLiteral(in) : getIndexedHeader(nameIndex).name;
+        final ByteString value = readStringLiteral(in);
+        if (indexType == IndexType.INCREMENTAL) {
+            dynamicTable.add(new HpackHeaderField(name, value));
+        }
+        addHeader(headers, name, value);
+    }
+
+    private ByteString readStringLiteral(ByteBuf in) throws Http2Exception {
+        if (!in.isReadable()) {
+            throw connectionError(COMPRESSION_ERROR, "HPACK - incomplete header block");
+        }
+        final boolean huffmanEncoded = (in.getByte(in.readerIndex()) & 0x80) == 0x80;
+        final int length = decodeULE128(in, 7);
+        if (length > in.readableBytes()) {
+            throw connectionError(COMPRESSION_ERROR, "HPACK - incomplete header block");
+        }
+        if (huffmanEncoded) {
+            return huffmanDecoder.decode(in, length);
+        }
+        if (length == 0) {
+            return AsciiString.EMPTY_STRING;
+        }
+        byte[] bytes = new byte[length];
+        in.readBytes(bytes);
+        return new AsciiString(bytes, false);
+    }
+
+    private void addHeader(Http2Headers headers, ByteString name, ByteString value) {
+        if (headerSize > maxHeaderSize) {
+            return;
+        }
+        headerSize += name.length() + value.length();
+        if (headerSize <= maxHeaderSize) {
+            headers.add(name, value);
+        }
+    }
+
+    /**
+     * Decodes an integer with an N-bit prefix.
+     *
+     * @see <a href="https://tools.ietf.org/html/rfc7541#section-5.1">Integer Representation</a>
+     */
+    static int decodeULE128(ByteBuf in, int prefixBits) throws Http2Exception {
+        final int maxPrefix = (1 << prefixBits) - 1;
+        final int prefix = in.readByte() & maxPrefix;
+        if (prefix < maxPrefix) {
+            return prefix;
+        }
+
+        long result = prefix;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!in.isReadable()) {
+                throw connectionError(COMPRESSION_ERROR, "HPACK - incomplete header block");
+            }
+            byte b = in.readByte();
+            result += (long) (b & 0x7F) << shift;
+            if (result > Integer.MAX_VALUE) {
+                break;
+            }
+            if (b >= 0) {
+                return (int) result;
+            }
+        }
+        throw connectionError(COMPRESSION_ERROR, "HPACK - integer overflow");
+    }
+}
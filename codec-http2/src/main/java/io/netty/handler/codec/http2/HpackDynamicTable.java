@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import static io.netty.handler.codec.http2.HpackUtil.HEADER_ENTRY_OVERHEAD;
+
+/**
+ * The dynamic table of the {@link HpackDecoder}, a ring buffer of {@link HpackHeaderField}s in which the newest entry
+ * has the index {@code 1}.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7541#section-2.3.2">Dynamic Table</a>
+ */
+final class HpackDynamicTable {
+    private HpackHeaderField[] fields;
+    private int head;
+    private int tail;
+    private long size;
+    private long capacity = -1;
+
+    HpackDynamicTable(long initialCapacity) {
+        setCapacity(initialCapacity);
+    }
+
+    /**
+     * Returns the number of entries.
+     */
+    int length() {
+        if (head < tail) {
+            return fields.length - tail + head;
+        }
+        return head - tail;
+    }
+
+    /**
+     * Returns the sum of the sizes of all entries.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum size of all entries.
+     */
+    long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the entry with the given index, where {@code 1} is the newest entry.
+     */
+    HpackHeaderField getEntry(int index) {
+        if (index <= 0 || index > length()) {
+            throw new IndexOutOfBoundsException("index: " + index + " (expected: 1-" + length() + ')');
+        }
+        int i = head - index;
+        if (i < 0) {
+            return fields[i + fields.length];
+        }
+        return fields[i];
+    }
+
+    /**
+     * Adds an entry, evicting the oldest entries until it fits. If it does not fit at all the table is cleared.
+     */
+    void add(HpackHeaderField header) {
+        int headerSize = header.size();
+        if (headerSize > capacity) {
+            clear();
+            return;
+        }
+        while (capacity - size < headerSize) {
+            remove();
+        }
+        fields[head++] = header;
+        size += headerSize;
+        if (head == fields.length) {
+            head = 0;
+        }
+    }
+
+    /**
+     * Removes and returns the oldest entry, or {@code null} if the table is empty.
+     */
+    HpackHeaderField remove() {
+        HpackHeaderField removed = fields[tail];
+        if (removed == null) {
+            return null;
+        }
+        size -= removed.size();
+        fields[tail++] = null;
+        if (tail == fields.length) {
+            tail = 0;
+        }
+        return removed;
+    }
+
+    void clear() {
+        while (tail != head) {
+            fields[tail++] = null;
+            if (tail == fields.length) {
+                tail = 0;
+            }
+        }
+        head = 0;
+        tail = 0;
+        size = 0;
+    }
+
+    /**
+     * Sets the maximum size of all entries, evicting the oldest entries if needed.
+     */
+    void setCapacity(long capacity) {
+        if (capacity < 0 || capacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity: " + capacity + " (expected: 0-" + Integer.MAX_VALUE + ')');
+        }
+        if (this.capacity == capacity) {
+            return;
+        }
+        this.capacity = capacity;
+
+        if (capacity == 0) {
+            clear();
+        } else {
+            while (size > capacity) {
+                remove();
+            }
+        }
+
+        // Every entry takes at least HEADER_ENTRY_OVERHEAD bytes. Keep one slot more than can ever be used so a full
+        // ring buffer can not be mistaken for an empty one.
+        int maxEntries = (int) (capacity / HEADER_ENTRY_OVERHEAD) + 1;
+        if (fields != null && fields.length == maxEntries) {
+            return;
+        }
+
+        HpackHeaderField[] tmp = new HpackHeaderField[maxEntries];
+        int len = length();
+        int cursor = tail;
+        for (int i = 0; i < len; i++) {
+            tmp[i] = fields[cursor++];
+            if (cursor == fields.length) {
+                cursor = 0;
+            }
+        }
+        tail = 0;
+        head = len;
+        fields = tmp;
+    }
+}
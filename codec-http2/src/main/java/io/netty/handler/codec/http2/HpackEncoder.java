@@ -0,0 +1,350 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import static io.netty.handler.codec.http2.HpackUtil.equalsConstantTime;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http2.HpackUtil.IndexType;
+import io.netty.handler.codec.http2.Http2HeadersEncoder.SensitivityDetector;
+import io.netty.util.AsciiString;
+import io.netty.util.ByteString;
+
+import java.util.Arrays;
+import java.util.Map.Entry;
+
+/**
+ * Encodes {@link Http2Headers} straight into a {@link ByteBuf} using
+ * <a href="https://tools.ietf.org/html/rfc7541">HPACK</a>.
+ */
+final class HpackEncoder {
+    private static final int BUCKET_SIZE = 17;
+
+    // The entries of the dynamic table, hashed by name and linked in insertion order.
+    private final HeaderEntry[] headerFields = new HeaderEntry[BUCKET_SIZE];
+    private final HeaderEntry head = new HeaderEntry(-1, AsciiString.EMPTY_STRING, AsciiString.EMPTY_STRING,
+            Integer.MAX_VALUE, null);
+    private long size;
+    private long capacity;
+
+    HpackEncoder(int maxHeaderTableSize) {
+        if (maxHeaderTableSize < 0) {
+            throw new IllegalArgumentException("maxHeaderTableSize: " + maxHeaderTableSize + " (expected: >= 0)");
+        }
+        capacity = maxHeaderTableSize;
+        head.before = head.after = head;
+    }
+
+    /**
+     * Encodes all {@code headers} into {@code out}.
+     */
+    void encodeHeaders(ByteBuf out, Http2Headers headers, SensitivityDetector sensitivityDetector) {
+        for (Entry<ByteString, ByteString> header : headers) {
+            ByteString name = header.getKey();
+            ByteString value = header.getValue();
+            encodeHeader(out, name, value, sensitivityDetector.isSensitive(name, value),
+                    HpackHeaderField.sizeOf(name, value));
+        }
+    }
+
+    private void encodeHeader(ByteBuf out, ByteString name, ByteString value, boolean sensitive, long headerSize) {
+        // A sensitive header must never be indexed.
+        if (sensitive) {
+            encodeLiteral(out, name, value, IndexType.NEVER, getNameIndex(name));
+            return;
+        }
+
+        // The peer only uses the static table.
+        if (capacity == 0) {
+            int staticTableIndex = HpackStaticTable.getIndex(name, value);
+            if (staticTableIndex == -1) {
+                encodeLiteral(out, name, value, IndexType.NONE, HpackStaticTable.getIndex(name));
+            } else {
+                encodeInteger(out, 0x80, 7, staticTableIndex);
+            }
+            return;
+        }
+
+        // The header would not fit into the dynamic table at all.
+        if (headerSize > capacity) {
+            encodeLiteral(out, name, value, IndexType.NONE, getNameIndex(name));
+            return;
+        }
+
+        HeaderEntry headerField = getEntry(name, value);
+        if (headerField != null) {
+            encodeInteger(out, 0x80, 7, getIndex(headerField.index) + HpackStaticTable.length);
+        } else {
+            int staticTableIndex = HpackStaticTable.getIndex(name, value);
+            if (staticTableIndex != -1) {
+                encodeInteger(out, 0x80, 7, staticTableIndex);
+            } else {
+                // Evict before looking up the name index, as the entry found might be evicted otherwise.
+                ensureCapacity(headerSize);
+                encodeLiteral(out, name, value, IndexType.INCREMENTAL, getNameIndex(name));
+                add(name, value, headerSize);
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum size of the dynamic table and writes the dynamic table size update to {@code out}.
+     */
+    void setMaxHeaderTableSize(ByteBuf out, int maxHeaderTableSize) {
+        if (maxHeaderTableSize < 0) {
+            throw new IllegalArgumentException("maxHeaderTableSize: " + maxHeaderTableSize + " (expected: >= 0)");
+        }
+        if (capacity == maxHeaderTableSize) {
+            return;
+        }
+        capacity = maxHeaderTableSize;
+        ensureCapacity(0);
+        encodeInteger(out, 0x20, 5, maxHeaderTableSize);
+    }
+
+    /**
+     * Returns the current maximum size of the dynamic table.
+     */
+    int getMaxHeaderTableSize() {
+        return (int) capacity;
+    }
+
+    /**
+     * Encodes an integer with an N-bit prefix.
+     *
+     * @see <a href="https://tools.ietf.org/html/rfc7541#section-5.1">Integer Representation</a>
+     */
+    static void encodeInteger(ByteBuf out, int mask, int n, int i) {
+        final int nbits = 0xFF >>> (8 - n);
+        if (i < nbits) {
+            out.writeByte(mask | i);
+        } else {
+            out.writeByte(mask | nbits);
+            int length = i - nbits;
+            while ((length & ~0x7F) != 0) {
+                out.writeByte((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            out.writeByte(length);
+        }
+    }
+
+    /**
+     * Encodes a string literal, Huffman encoded if that is shorter.
+     */
+    private static void encodeStringLiteral(ByteBuf out, ByteString string) {
+        int huffmanLength = HpackHuffmanEncoder.getEncodedLength(string);
+        if (huffmanLength < string.length()) {
+            encodeInteger(out, 0x80, 7, huffmanLength);
+            HpackHuffmanEncoder.encode(out, string);
+        } else {
+            encodeInteger(out, 0x00, 7, string.length());
+            out.writeBytes(string.array(), string.arrayOffset(), string.length());
+        }
+    }
+
+    private static void encodeLiteral(ByteBuf out, ByteString name, ByteString value, IndexType indexType,
+                                      int nameIndex) {
+        final int mask;
+        final int prefixBits;
+        switch (indexType) {
+        case INCREMENTAL:
+            mask = 0x40;
+            prefixBits = 6;
+            break;
+        case NONE:
+            mask = 0x00;
+            prefixBits = 4;
+            break;
+        case NEVER:
+            mask = 0x10;
+            prefixBits = 4;
+            break;
+        default:
+            throw new Error("should not reach here");
+        }
+        encodeInteger(out, mask, prefixBits, nameIndex == -1 ? 0 : nameIndex);
+        if (nameIndex == -1) {
+            encodeStringLiteral(out, name);
+        }
+        encodeStringLiteral(out, value);
+    }
+
+    private int getNameIndex(ByteString name) {
+        int index = HpackStaticTable.getIndex(name);
+        if (index == -1) {
+            index = getIndex(name);
+            if (index >= 0) {
+                index += HpackStaticTable.length;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Evicts entries from the dynamic table until an entry of {@code headerSize} fits.
+     */
+    private void ensureCapacity(long headerSize) {
+        while (capacity - size < headerSize) {
+            if (length() == 0) {
+                break;
+            }
+            remove();
+        }
+    }
+
+    /**
+     * Returns the number of entries in the dynamic table.
+     */
+    int length() {
+        return size == 0 ? 0 : head.after.index - head.before.index + 1;
+    }
+
+    /**
+     * Returns the sum of the sizes of all entries in the dynamic table.
+     */
+    long size() {
+        return size;
+    }
+
+    private HeaderEntry getEntry(ByteString name, ByteString value) {
+        if (length() == 0) {
+            return null;
+        }
+        int h = name.hashCode();
+        for (HeaderEntry e = headerFields[index(h)]; e != null; e = e.next) {
+            if (e.hash == h && equalsConstantTime(name, e.name) && equalsConstantTime(value, e.value)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of the newest entry with the given name in the dynamic table, or {@code -1}.
+     */
+    private int getIndex(ByteString name) {
+        if (length() == 0) {
+            return -1;
+        }
+        int h = name.hashCode();
+        for (HeaderEntry e = headerFields[index(h)]; e != null; e = e.next) {
+            if (e.hash == h && equalsConstantTime(name, e.name)) {
+                return getIndex(e.index);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Converts the insertion counter of an entry into its index in the dynamic table, where the newest entry has the
+     * index {@code 1}.
+     */
+    private int getIndex(int index) {
+        return index == -1 ? -1 : index - head.before.index + 1;
+    }
+
+    private void add(ByteString name, ByteString value, long headerSize) {
+        if (headerSize > capacity) {
+            clear();
+            return;
+        }
+        while (capacity - size < headerSize) {
+            remove();
+        }
+
+        int h = name.hashCode();
+        int i = index(h);
+        HeaderEntry e = new HeaderEntry(h, name, value, head.before.index - 1, headerFields[i]);
+        headerFields[i] = e;
+        e.addBefore(head);
+        size += headerSize;
+    }
+
+    private HeaderEntry remove() {
+        if (size == 0) {
+            return null;
+        }
+        HeaderEntry eldest = head.after;
+        int i = index(eldest.hash);
+        HeaderEntry prev = headerFields[i];
+        HeaderEntry e = prev;
+        while (e != null) {
+            HeaderEntry next = e.next;
+            if (e == eldest) {
+                if (prev == eldest) {
+                    headerFields[i] = next;
+                } else {
+                    prev.next = next;
+                }
+                eldest.remove();
+                size -= eldest.size();
+                return eldest;
+            }
+            prev = e;
+            e = next;
+        }
+        return null;
+    }
+
+    private void clear() {
+        Arrays.fill(headerFields, null);
+        head.before = head.after = head;
+        size = 0;
+    }
+
+    private static int index(int h) {
+        return (h & Integer.MAX_VALUE) % BUCKET_SIZE;
+    }
+
+    /**
+     * An entry of the dynamic table of the encoder.
+     */
+    private static final class HeaderEntry extends HpackHeaderField {
+        // These fields comprise the doubly linked list used for iteration.
+        HeaderEntry before;
+        HeaderEntry after;
+
+        // These fields comprise the chained list for header fields with the same hash.
+        HeaderEntry next;
+        final int hash;
+
+        // The insertion counter, decreasing with every entry added.
+        final int index;
+
+        HeaderEntry(int hash, ByteString name, ByteString value, int index, HeaderEntry next) {
+            super(name, value);
+            this.index = index;
+            this.hash = hash;
+            this.next = next;
+        }
+
+        void remove() {
+            before.after = after;
+            after.before = before;
+            before = null;
+            after = null;
+            next = null;
+        }
+
+        void addBefore(HeaderEntry existingEntry) {
+            after = existingEntry;
+            before = existingEntry.before;
+            before.after = this;
+            after.before = this;
+        }
+    }
+}
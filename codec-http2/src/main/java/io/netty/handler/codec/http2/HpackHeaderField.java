@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import static io.netty.handler.codec.http2.HpackUtil.HEADER_ENTRY_OVERHEAD;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+import io.netty.util.ByteString;
+
+/**
+ * A name-value pair as stored in the static and dynamic tables of HPACK.
+ */
+class HpackHeaderField {
+    final ByteString name;
+    final ByteString value;
+
+    HpackHeaderField(ByteString name, ByteString value) {
+        this.name = checkNotNull(name, "name");
+        this.value = checkNotNull(value, "value");
+    }
+
+    /**
+     * Returns the size of an entry with the given name and value in the dynamic table.
+     */
+    static long sizeOf(ByteString name, ByteString value) {
+        return name.length() + value.length() + HEADER_ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Returns the size of this entry in the dynamic table.
+     */
+    final int size() {
+        return name.length() + value.length() + HEADER_ENTRY_OVERHEAD;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + value;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import static io.netty.handler.codec.http2.HpackUtil.HUFFMAN_CODES;
+import static io.netty.handler.codec.http2.HpackUtil.HUFFMAN_CODE_LENGTHS;
+import static io.netty.handler.codec.http2.HpackUtil.HUFFMAN_EOS;
+import static io.netty.handler.codec.http2.Http2Error.COMPRESSION_ERROR;
+import static io.netty.handler.codec.http2.Http2Exception.connectionError;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AsciiString;
+
+import java.util.Arrays;
+
+/**
+ * Decodes strings encoded with the static Huffman code of HPACK by looking up eight bits at a time in a flat table.
+ * Apart from the decoded {@link AsciiString} itself no objects are allocated, as the decoded bytes are collected in an
+ * array which is reused for all the strings decoded by the same instance.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7541#section-5.2">String Literal Representation</a>
+ */
+final class HpackHuffmanDecoder {
+    /**
+     * The decoding tree of the Huffman code. Every node consists of {@code 256} consecutive entries, one for each
+     * possible value of the next eight bits. An entry is either the (positive) offset of the child node in case the
+     * code is longer than the remaining bits, or {@code ~(symbol << 8 | bits)} where {@code bits} is the number of
+     * bits of the code that belong to the current node.
+     */
+    private static final int[] TABLE = buildTable();
+
+    // The shortest code has 5 bits, so the decoded string is at most 8 / 5 times longer than the encoded one.
+    private byte[] decoded = new byte[64];
+
+    /**
+     * Decodes {@code length} bytes starting at the reader index of {@code buf} and advances the reader index.
+     */
+    AsciiString decode(ByteBuf buf, int length) throws Http2Exception {
+        if (length == 0) {
+            return AsciiString.EMPTY_STRING;
+        }
+        final int maxDecodedLength = length * 8 / 5 + 1;
+        if (decoded.length < maxDecodedLength) {
+            decoded = new byte[Math.max(maxDecodedLength, decoded.length << 1)];
+        }
+        final byte[] decoded = this.decoded;
+        final int[] table = TABLE;
+
+        int k = 0;
+        int node = 0;
+        int current = 0;
+        int bits = 0;
+        final int end = buf.readerIndex() + length;
+        for (int i = buf.readerIndex(); i < end; i++) {
+            current = current << 8 | buf.getByte(i) & 0xFF;
+            bits += 8;
+            while (bits >= 8) {
+                int entry = table[node + ((current >>> (bits - 8)) & 0xFF)];
+                if (entry < 0) {
+                    entry = ~entry;
+                    int symbol = entry >>> 8;
+                    if (symbol == HUFFMAN_EOS) {
+                        throw connectionError(COMPRESSION_ERROR, "HPACK - EOS decoded");
+                    }
+                    decoded[k++] = (byte) symbol;
+                    bits -= entry & 0xFF;
+                    node = 0;
+                } else {
+                    node = entry;
+                    bits -= 8;
+                }
+            }
+        }
+
+        // Decode the codes which end within the remaining bits.
+        while (bits > 0) {
+            int entry = table[node + ((current << (8 - bits)) & 0xFF)];
+            if (entry >= 0) {
+                break;
+            }
+            entry = ~entry;
+            int codeBits = entry & 0xFF;
+            if (codeBits > bits) {
+                break;
+            }
+            int symbol = entry >>> 8;
+            if (symbol == HUFFMAN_EOS) {
+                throw connectionError(COMPRESSION_ERROR, "HPACK - EOS decoded");
+            }
+            decoded[k++] = (byte) symbol;
+            bits -= codeBits;
+            node = 0;
+        }
+
+        // What is left must be padding of at most 7 bits which corresponds to the most significant bits of EOS.
+        int mask = (1 << bits) - 1;
+        if (node != 0 || bits > 7 || (current & mask) != mask) {
+            throw connectionError(COMPRESSION_ERROR, "HPACK - Invalid Padding");
+        }
+
+        buf.readerIndex(end);
+        return new AsciiString(decoded, 0, k, true);
+    }
+
+    private static int[] buildTable() {
+        int[] table = new int[256 * 64];
+        int nodes = 1;
+        for (int symbol = 0; symbol < HUFFMAN_CODES.length; symbol++) {
+            int code = HUFFMAN_CODES[symbol];
+            int length = HUFFMAN_CODE_LENGTHS[symbol];
+
+            int node = 0;
+            while (length > 8) {
+                length -= 8;
+                int i = node + ((code >>> length) & 0xFF);
+                if (table[i] == 0) {
+                    if (nodes * 256 == table.length) {
+                        table = Arrays.copyOf(table, table.length << 1);
+                    }
+                    table[i] = nodes++ * 256;
+                }
+                node = table[i];
+            }
+
+            int shift = 8 - length;
+            int start = node + ((code << shift) & 0xFF);
+            int end = start + (1 << shift);
+            for (int i = start; i < end; i++) {
+                table[i] = ~(symbol << 8 | length);
+            }
+        }
+        return Arrays.copyOf(table, nodes * 256);
+    }
+}
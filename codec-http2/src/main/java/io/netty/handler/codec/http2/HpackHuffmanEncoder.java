@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import static io.netty.handler.codec.http2.HpackUtil.HUFFMAN_CODES;
+import static io.netty.handler.codec.http2.HpackUtil.HUFFMAN_CODE_LENGTHS;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ByteString;
+
+/**
+ * Encodes strings with the static Huffman code of HPACK straight into a {@link ByteBuf}.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7541#section-5.2">String Literal Representation</a>
+ */
+final class HpackHuffmanEncoder {
+    private HpackHuffmanEncoder() { }
+
+    /**
+     * Writes the Huffman encoded {@code data} to {@code out}, padded with the most significant bits of the EOS code.
+     */
+    static void encode(ByteBuf out, ByteString data) {
+        final byte[] array = data.array();
+        final int end = data.arrayOffset() + data.length();
+        long current = 0;
+        int n = 0;
+
+        for (int i = data.arrayOffset(); i < end; i++) {
+            int b = array[i] & 0xFF;
+            int nbits = HUFFMAN_CODE_LENGTHS[b];
+            current <<= nbits;
+            current |= HUFFMAN_CODES[b];
+            n += nbits;
+
+            while (n >= 8) {
+                n -= 8;
+                out.writeByte((int) (current >> n));
+            }
+        }
+
+        if (n > 0) {
+            current <<= 8 - n;
+            current |= 0xFF >>> n;
+            out.writeByte((int) current);
+        }
+    }
+
+    /**
+     * Returns the number of bytes {@link #encode(ByteBuf, ByteString)} would write for {@code data}.
+     */
+    static int getEncodedLength(ByteString data) {
+        final byte[] array = data.array();
+        final int end = data.arrayOffset() + data.length();
+        long len = 0;
+        for (int i = data.arrayOffset(); i < end; i++) {
+            len += HUFFMAN_CODE_LENGTHS[array[i] & 0xFF];
+        }
+        return (int) (len + 7 >> 3);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import static io.netty.handler.codec.http2.HpackUtil.equalsConstantTime;
+
+import io.netty.util.AsciiString;
+import io.netty.util.ByteString;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The static table of HPACK.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7541#appendix-A">Static Table Definition</a>
+ */
+final class HpackStaticTable {
+    private static final HpackHeaderField[] STATIC_TABLE = {
+            /* 1 */ newEntry(":authority", ""),
+            /* 2 */ newEntry(":method", "GET"),
+            /* 3 */ newEntry(":method", "POST"),
+            /* 4 */ newEntry(":path", "/"),
+            /* 5 */ newEntry(":path", "/index.html"),
+            /* 6 */ newEntry(":scheme", "http"),
+            /* 7 */ newEntry(":scheme", "https"),
+            /* 8 */ newEntry(":status", "200"),
+            /* 9 */ newEntry(":status", "204"),
+            /* 10 */ newEntry(":status", "206"),
+            /* 11 */ newEntry(":status", "304"),
+            /* 12 */ newEntry(":status", "400"),
+            /* 13 */ newEntry(":status", "404"),
+            /* 14 */ newEntry(":status", "500"),
+            /* 15 */ newEntry("accept-charset", ""),
+            /* 16 */ newEntry("accept-encoding", "gzip, deflate"),
+            /* 17 */ newEntry("accept-language", ""),
+            /* 18 */ newEntry("accept-ranges", ""),
+            /* 19 */ newEntry("accept", ""),
+            /* 20 */ newEntry("access-control-allow-origin", ""),
+            /* 21 */ newEntry("age", ""),
+            /* 22 */ newEntry("allow", ""),
+            /* 23 */ newEntry("authorization", ""),
+            /* 24 */ newEntry("cache-control", ""),
+            /* 25 */ newEntry("content-disposition", ""),
+            /* 26 */ newEntry("content-encoding", ""),
+            /* 27 */ newEntry("content-language", ""),
+            /* 28 */ newEntry("content-length", ""),
+            /* 29 */ newEntry("content-location", ""),
+            /* 30 */ newEntry("content-range", ""),
+            /* 31 */ newEntry("content-type", ""),
+            /* 32 */ newEntry("cookie", ""),
+            /* 33 */ newEntry("date", ""),
+            /* 34 */ newEntry("etag", ""),
+            /* 35 */ newEntry("expect", ""),
+            /* 36 */ newEntry("expires", ""),
+            /* 37 */ newEntry("from", ""),
+            /* 38 */ newEntry("host", ""),
+            /* 39 */ newEntry("if-match", ""),
+            /* 40 */ newEntry("if-modified-since", ""),
+            /* 41 */ newEntry("if-none-match", ""),
+            /* 42 */ newEntry("if-range", ""),
+            /* 43 */ newEntry("if-unmodified-since", ""),
+            /* 44 */ newEntry("last-modified", ""),
+            /* 45 */ newEntry("link", ""),
+            /* 46 */ newEntry("location", ""),
+            /* 47 */ newEntry("max-forwards", ""),
+            /* 48 */ newEntry("proxy-authenticate", ""),
+            /* 49 */ newEntry("proxy-authorization", ""),
+            /* 50 */ newEntry("range", ""),
+            /* 51 */ newEntry("referer", ""),
+            /* 52 */ newEntry("refresh", ""),
+            /* 53 */ newEntry("retry-after", ""),
+            /* 54 */ newEntry("server", ""),
+            /* 55 */ newEntry("set-cookie", ""),
+            /* 56 */ newEntry("strict-transport-security", ""),
+            /* 57 */ newEntry("transfer-encoding", ""),
+            /* 58 */ newEntry("user-agent", ""),
+            /* 59 */ newEntry("vary", ""),
+            /* 60 */ newEntry("via", ""),
+            /* 61 */ newEntry("www-authenticate", "")
+    };
+
+    /**
+     * The number of entries in the static table.
+     */
+    static final int length = STATIC_TABLE.length;
+
+    private static final Map<ByteString, Integer> STATIC_INDEX_BY_NAME = createMap();
+
+    private static HpackHeaderField newEntry(String name, String value) {
+        return new HpackHeaderField(new AsciiString(name), new AsciiString(value));
+    }
+
+    /**
+     * Returns the entry with the given index, starting at {@code 1}.
+     */
+    static HpackHeaderField getEntry(int index) {
+        return STATIC_TABLE[index - 1];
+    }
+
+    /**
+     * Returns the lowest index of an entry with the given name, or {@code -1} if there is no such entry.
+     */
+    static int getIndex(ByteString name) {
+        Integer index = STATIC_INDEX_BY_NAME.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the index of the entry with the given name and value, or {@code -1} if there is no such entry.
+     */
+    static int getIndex(ByteString name, ByteString value) {
+        int index = getIndex(name);
+        if (index == -1) {
+            return -1;
+        }
+
+        // Entries with the same name are next to each other.
+        for (; index <= length; index++) {
+            HpackHeaderField entry = getEntry(index);
+            if (!name.equals(entry.name)) {
+                break;
+            }
+            if (equalsConstantTime(value, entry.value)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<ByteString, Integer> createMap() {
+        Map<ByteString, Integer> map = new HashMap<ByteString, Integer>(length);
+        // Iterate backwards so the lowest index of a name is kept.
+        for (int index = length; index > 0; index--) {
+            map.put(getEntry(index).name, index);
+        }
+        return map;
+    }
+
+    private HpackStaticTable() { }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.AsciiString;
+import io.netty.util.ByteString;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class HpackHuffmanTest {
+
+    @Test
+    public void testRoundTripAllSymbols() throws Exception {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        roundTrip(bytes);
+    }
+
+    @Test
+    public void testRoundTripRandom() throws Exception {
+        Random random = new Random();
+        HpackHuffmanDecoder decoder = new HpackHuffmanDecoder();
+        for (int i = 0; i < 1000; i++) {
+            byte[] bytes = new byte[random.nextInt(100)];
+            random.nextBytes(bytes);
+            roundTrip(decoder, bytes);
+        }
+    }
+
+    @Test
+    public void testRfcExample() throws Exception {
+        // https://tools.ietf.org/html/rfc7541#appendix-C.4.1
+        ByteString string = new AsciiString("www.example.com");
+        ByteBuf buf = Unpooled.buffer();
+        HpackHuffmanEncoder.encode(buf, string);
+        assertEquals(12, HpackHuffmanEncoder.getEncodedLength(string));
+        assertEquals("f1e3c2e5f23a6ba0ab90f4ff", ByteBufUtil.hexDump(buf));
+        assertEquals(string, new HpackHuffmanDecoder().decode(buf, buf.readableBytes()));
+        assertFalse(buf.isReadable());
+        buf.release();
+    }
+
+    @Test(expected = Http2Exception.class)
+    public void testPaddingTooLong() throws Exception {
+        // 'a' (00011) followed by 11 bits of padding.
+        decode(0x1F, 0xFF);
+    }
+
+    @Test(expected = Http2Exception.class)
+    public void testPaddingNotEos() throws Exception {
+        // 'a' (00011) followed by 000 padding.
+        decode(0x18);
+    }
+
+    @Test(expected = Http2Exception.class)
+    public void testEosDecoded() throws Exception {
+        // EOS (30 ones) followed by two bits of padding.
+        decode(0xFF, 0xFF, 0xFF, 0xFF);
+    }
+
+    private static void decode(int... bytes) throws Http2Exception {
+        ByteBuf buf = Unpooled.buffer(bytes.length);
+        for (int b : bytes) {
+            buf.writeByte(b);
+        }
+        new HpackHuffmanDecoder().decode(buf, buf.readableBytes());
+    }
+
+    private static void roundTrip(byte[] bytes) throws Http2Exception {
+        roundTrip(new HpackHuffmanDecoder(), bytes);
+    }
+
+    private static void roundTrip(HpackHuffmanDecoder decoder, byte[] bytes) throws Http2Exception {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            HpackHuffmanEncoder.encode(buf, new ByteString(bytes, false));
+            AsciiString decoded = decoder.decode(buf, buf.readableBytes());
+            assertArrayEquals(bytes, decoded.toByteArray());
+            assertFalse(buf.isReadable());
+        } finally {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import com.twitter.hpack.Decoder;
+import com.twitter.hpack.Encoder;
+import com.twitter.hpack.HeaderListener;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.AsciiString;
+import io.netty.util.ByteString;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import static io.netty.handler.codec.http2.Http2HeadersEncoder.NEVER_SENSITIVE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link HpackDecoder} and {@link HpackEncoder}.
+ */
+public class HpackTest {
+
+    @Test
+    public void testDecodeRfcRequestExamplesWithoutHuffman() throws Exception {
+        // https://tools.ietf.org/html/rfc7541#appendix-C.3
+        HpackDecoder decoder = new HpackDecoder(8192, 4096);
+        assertHeaders(decode(decoder, "828684410f7777772e6578616d706c652e636f6d"),
+                ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com");
+        assertHeaders(decode(decoder, "828684be58086e6f2d6361636865"),
+                ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                "cache-control", "no-cache");
+        assertHeaders(decode(decoder, "828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565"),
+                ":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+                "custom-key", "custom-value");
+    }
+
+    @Test
+    public void testDecodeRfcRequestExamplesWithHuffman() throws Exception {
+        // https://tools.ietf.org/html/rfc7541#appendix-C.4
+        HpackDecoder decoder = new HpackDecoder(8192, 4096);
+        assertHeaders(decode(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff"),
+                ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com");
+        assertHeaders(decode(decoder, "828684be5886a8eb10649cbf"),
+                ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                "cache-control", "no-cache");
+        assertHeaders(decode(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"),
+                ":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+                "custom-key", "custom-value");
+    }
+
+    @Test
+    public void testStaticTableNamesAreShared() throws Exception {
+        Http2Headers headers = decode(new HpackDecoder(8192, 4096), "82");
+        Entry<ByteString, ByteString> header = headers.iterator().next();
+        assertSame(HpackStaticTable.getEntry(2).name, header.getKey());
+        assertSame(HpackStaticTable.getEntry(2).value, header.getValue());
+    }
+
+    @Test
+    public void testEncodeRfcRequestExamples() throws Exception {
+        // https://tools.ietf.org/html/rfc7541#appendix-C.4
+        HpackEncoder encoder = new HpackEncoder(4096);
+        assertEquals("828684418cf1e3c2e5f23a6ba0ab90f4ff", encode(encoder,
+                ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"));
+        assertEquals("828684be5886a8eb10649cbf", encode(encoder,
+                ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                "cache-control", "no-cache"));
+        assertEquals("828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf", encode(encoder,
+                ":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+                "custom-key", "custom-value"));
+        assertEquals(3, encoder.length());
+        assertEquals(164, encoder.size());
+    }
+
+    @Test
+    public void testRoundTripWithTableSizeChanges() throws Exception {
+        Random random = new Random();
+        HpackEncoder encoder = new HpackEncoder(4096);
+        HpackDecoder decoder = new HpackDecoder(Integer.MAX_VALUE, 4096);
+        for (int i = 0; i < 200; i++) {
+            ByteBuf buf = Unpooled.buffer();
+            if (i % 50 == 49) {
+                int size = random.nextInt(4096);
+                decoder.setMaxHeaderTableSize(size);
+                encoder.setMaxHeaderTableSize(buf, size);
+            }
+            Http2Headers headers = randomHeaders(random);
+            encoder.encodeHeaders(buf, headers, NEVER_SENSITIVE);
+            Http2Headers decoded = new DefaultHttp2Headers(false);
+            decoder.decode(buf, decoded);
+            assertFalse(decoder.endHeaderBlock());
+            assertEquals(headers, decoded);
+            assertEquals(encoder.getMaxHeaderTableSize(), decoder.getMaxHeaderTableSize());
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testInteroperability() throws Exception {
+        Random random = new Random();
+        HpackEncoder encoder = new HpackEncoder(4096);
+        Encoder referenceEncoder = new Encoder(4096);
+        HpackDecoder decoder = new HpackDecoder(Integer.MAX_VALUE, 4096);
+        Decoder referenceDecoder = new Decoder(Integer.MAX_VALUE, 4096);
+        for (int i = 0; i < 100; i++) {
+            Http2Headers headers = randomHeaders(random);
+
+            // Encoded by us and decoded by the reference implementation.
+            ByteBuf buf = Unpooled.buffer();
+            encoder.encodeHeaders(buf, headers, NEVER_SENSITIVE);
+            final Http2Headers decoded = new DefaultHttp2Headers(false);
+            referenceDecoder.decode(new ByteBufInputStream(buf), new HeaderListener() {
+                @Override
+                public void addHeader(byte[] name, byte[] value, boolean sensitive) {
+                    decoded.add(new ByteString(name, false), new ByteString(value, false));
+                }
+            });
+            assertFalse(referenceDecoder.endHeaderBlock());
+            assertEquals(headers, decoded);
+            buf.release();
+
+            // Encoded by the reference implementation and decoded by us.
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (Entry<ByteString, ByteString> header : headers) {
+                referenceEncoder.encodeHeader(out, header.getKey().toByteArray(), header.getValue().toByteArray(),
+                        random.nextBoolean());
+            }
+            Http2Headers decoded2 = new DefaultHttp2Headers(false);
+            decoder.decode(Unpooled.wrappedBuffer(out.toByteArray()), decoded2);
+            assertFalse(decoder.endHeaderBlock());
+            assertEquals(headers, decoded2);
+        }
+    }
+
+    @Test
+    public void testSensitiveHeadersAreNeverIndexed() throws Exception {
+        HpackEncoder encoder = new HpackEncoder(4096);
+        ByteBuf buf = Unpooled.buffer();
+        Http2Headers headers = new DefaultHttp2Headers().add(new AsciiString("secret"), new AsciiString("value"));
+        encoder.encodeHeaders(buf, headers, new Http2HeadersEncoder.SensitivityDetector() {
+            @Override
+            public boolean isSensitive(ByteString name, ByteString value) {
+                return true;
+            }
+        });
+        assertEquals(0x10, buf.getByte(0));
+        assertEquals(0, encoder.length());
+        buf.release();
+    }
+
+    @Test
+    public void testMaxHeaderSizeExceeded() throws Exception {
+        HpackDecoder decoder = new HpackDecoder(10, 4096);
+        Http2Headers headers = new DefaultHttp2Headers(false);
+        // custom-key: custom-value with incremental indexing, followed by an indexed :method GET.
+        decoder.decode(Unpooled.wrappedBuffer(hexToBytes(
+                "400a637573746f6d2d6b65790c637573746f6d2d76616c756582")), headers);
+        assertTrue(decoder.endHeaderBlock());
+        assertTrue(headers.isEmpty());
+
+        // The dynamic table must still be in sync.
+        headers = decode(decoder, "be");
+        assertEquals(0, headers.size());
+        assertTrue(decoder.endHeaderBlock());
+    }
+
+    @Test
+    public void testTableSizeUpdateRequired() throws Exception {
+        HpackDecoder decoder = new HpackDecoder(8192, 4096);
+        decoder.setMaxHeaderTableSize(100);
+        try {
+            decode(decoder, "82");
+            fail();
+        } catch (Http2Exception expected) {
+            // expected
+        }
+
+        decoder = new HpackDecoder(8192, 4096);
+        decoder.setMaxHeaderTableSize(100);
+        // Dynamic table size update to 100 followed by :method GET.
+        assertHeaders(decode(decoder, "3f4582"), ":method", "GET");
+        assertEquals(100, decoder.getMaxHeaderTableSize());
+    }
+
+    @Test(expected = Http2Exception.class)
+    public void testIllegalIndex() throws Exception {
+        decode(new HpackDecoder(8192, 4096), "be");
+    }
+
+    @Test(expected = Http2Exception.class)
+    public void testIntegerOverflow() throws Exception {
+        decode(new HpackDecoder(8192, 4096), "ffffffffff0f");
+    }
+
+    @Test(expected = Http2Exception.class)
+    public void testIncompleteHeaderBlock() throws Exception {
+        decode(new HpackDecoder(8192, 4096), "400a637573746f6d");
+    }
+
+    private static Http2Headers randomHeaders(Random random) {
+        String[] names = { ":method", ":path", "content-type", "user-agent", "x-custom", "cookie" };
+        Http2Headers headers = new DefaultHttp2Headers(false);
+        int count = random.nextInt(10) + 1;
+        for (int i = 0; i < count; i++) {
+            String name = names[random.nextInt(names.length)];
+            byte[] value = new byte[random.nextInt(8)];
+            for (int j = 0; j < value.length; j++) {
+                // Use a small alphabet so values are repeated and found in the dynamic table.
+                value[j] = (byte) ('a' + random.nextInt(3));
+            }
+            headers.add(new AsciiString(name), new AsciiString(value, false));
+        }
+        return headers;
+    }
+
+    private static Http2Headers decode(HpackDecoder decoder, String hex) throws Http2Exception {
+        Http2Headers headers = new DefaultHttp2Headers(false);
+        decoder.decode(Unpooled.wrappedBuffer(hexToBytes(hex)), headers);
+        return headers;
+    }
+
+    private static String encode(HpackEncoder encoder, String... nameValues) {
+        Http2Headers headers = new DefaultHttp2Headers(false);
+        for (int i = 0; i < nameValues.length; i += 2) {
+            headers.add(new AsciiString(nameValues[i]), new AsciiString(nameValues[i + 1]));
+        }
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            encoder.encodeHeaders(buf, headers, NEVER_SENSITIVE);
+            return ByteBufUtil.hexDump(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static void assertHeaders(Http2Headers headers, String... nameValues) {
+        List<ByteString> actual = new ArrayList<ByteString>();
+        for (Iterator<Entry<ByteString, ByteString>> i = headers.iterator(); i.hasNext();) {
+            Entry<ByteString, ByteString> header = i.next();
+            // The decoder must produce AsciiStrings, which are compared byte by byte below.
+            assertTrue(header.getKey() instanceof AsciiString);
+            assertTrue(header.getValue() instanceof AsciiString);
+            actual.add(header.getKey());
+            actual.add(header.getValue());
+        }
+        List<ByteString> expected = new ArrayList<ByteString>();
+        for (String nameValue : nameValues) {
+            expected.add(new AsciiString(nameValue));
+        }
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Tells if the <a href="https://github.com/hyperxpro/Brotli4j">Brotli4j</a> library, which is used by
+ * {@link BrotliEncoder} and {@link BrotliDecoder}, and its native library are available.
+ * <p>
+ * The library is an optional dependency, so it is looked up via reflection and nothing fails until a
+ * {@link BrotliEncoder} or a {@link BrotliDecoder} is created while it is not available.
+ */
+public final class Brotli {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(Brotli.class);
+
+    /**
+     * The default quality of {@link BrotliEncoder}, which is a good tradeoff for dynamic content.
+     */
+    public static final int DEFAULT_QUALITY = 4;
+    public static final int MIN_QUALITY = 0;
+    public static final int MAX_QUALITY = 11;
+
+    /**
+     * The default base two logarithm of the window size.
+     */
+    public static final int DEFAULT_WINDOW_BITS = 22;
+    public static final int MIN_WINDOW_BITS = 10;
+    public static final int MAX_WINDOW_BITS = 24;
+
+    private static final String PACKAGE = "com.aayushatharva.brotli4j.";
+
+    private static final Throwable UNAVAILABILITY_CAUSE;
+    private static final Constructor<?> PARAMETERS;
+    private static final Method SET_QUALITY;
+    private static final Method SET_WINDOW;
+    private static final Constructor<?> OUTPUT_STREAM;
+    private static final Constructor<?> DECODER;
+    private static final Method DECODER_GET_INPUT_BUFFER;
+    private static final Method DECODER_PUSH;
+    private static final Method DECODER_GET_STATUS;
+    private static final Method DECODER_HAS_OUTPUT;
+    private static final Method DECODER_PULL;
+    private static final Method DECODER_DESTROY;
+
+    static {
+        Throwable cause = null;
+        Constructor<?> parameters = null;
+        Method setQuality = null;
+        Method setWindow = null;
+        Constructor<?> outputStream = null;
+        Constructor<?> decoder = null;
+        Method getInputBuffer = null;
+        Method push = null;
+        Method getStatus = null;
+        Method hasOutput = null;
+        Method pull = null;
+        Method destroy = null;
+        try {
+            ClassLoader loader = PlatformDependent.getClassLoader(Brotli.class);
+            Class.forName(PACKAGE + "Brotli4jLoader", true, loader).getMethod("ensureAvailability").invoke(null);
+
+            Class<?> parametersClass = Class.forName(PACKAGE + "encoder.Encoder$Parameters", true, loader);
+            parameters = parametersClass.getConstructor();
+            setQuality = parametersClass.getMethod("setQuality", int.class);
+            setWindow = parametersClass.getMethod("setWindow", int.class);
+            outputStream = Class.forName(PACKAGE + "encoder.BrotliOutputStream", true, loader)
+                                .getConstructor(OutputStream.class, parametersClass);
+
+            Class<?> decoderClass = Class.forName(PACKAGE + "decoder.DecoderJNI$Wrapper", true, loader);
+            decoder = decoderClass.getConstructor(int.class);
+            getInputBuffer = decoderClass.getMethod("getInputBuffer");
+            push = decoderClass.getMethod("push", int.class);
+            getStatus = decoderClass.getMethod("getStatus");
+            hasOutput = decoderClass.getMethod("hasOutput");
+            pull = decoderClass.getMethod("pull");
+            destroy = decoderClass.getMethod("destroy");
+        } catch (Throwable t) {
+            cause = t instanceof InvocationTargetException ? t.getCause() : t;
+            logger.debug("Brotli4j is not available; BrotliEncoder and BrotliDecoder cannot be used.", cause);
+        }
+
+        UNAVAILABILITY_CAUSE = cause;
+        PARAMETERS = parameters;
+        SET_QUALITY = setQuality;
+        SET_WINDOW = setWindow;
+        OUTPUT_STREAM = outputStream;
+        DECODER = decoder;
+        DECODER_GET_INPUT_BUFFER = getInputBuffer;
+        DECODER_PUSH = push;
+        DECODER_GET_STATUS = getStatus;
+        DECODER_HAS_OUTPUT = hasOutput;
+        DECODER_PULL = pull;
+        DECODER_DESTROY = destroy;
+    }
+
+    /**
+     * Returns {@code true} if and only if Brotli4j and its native library are available.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Ensures that Brotli4j and its native library are available.
+     *
+     * @throws UnsatisfiedLinkError if unavailable
+     */
+    public static void ensureAvailability() {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw (Error) new UnsatisfiedLinkError(
+                    "failed to load Brotli4j").initCause(UNAVAILABILITY_CAUSE);
+        }
+    }
+
+    /**
+     * Returns the cause of unavailability of Brotli4j.
+     *
+     * @return the cause if unavailable. {@code null} if available.
+     */
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    /**
+     * Creates a new compressing {@link OutputStream} which writes a brotli stream to the specified sink.
+     */
+    static OutputStream newOutputStream(OutputStream sink, int quality, int windowBits) {
+        ensureAvailability();
+        Object parameters = newInstance(PARAMETERS);
+        invoke(SET_QUALITY, parameters, quality);
+        invoke(SET_WINDOW, parameters, windowBits);
+        return (OutputStream) newInstance(OUTPUT_STREAM, sink, parameters);
+    }
+
+    /**
+     * The state of a native brotli decoder.
+     */
+    enum DecoderStatus {
+        NEEDS_MORE_INPUT,
+        NEEDS_MORE_OUTPUT,
+        OK,
+        DONE,
+        ERROR
+    }
+
+    /**
+     * Creates a new native brotli decoder whose input buffer has the specified capacity.
+     */
+    static Object newDecoder(int inputBufferSize) {
+        ensureAvailability();
+        return newInstance(DECODER, inputBufferSize);
+    }
+
+    static ByteBuffer decoderInputBuffer(Object decoder) {
+        return (ByteBuffer) invoke(DECODER_GET_INPUT_BUFFER, decoder);
+    }
+
+    static void decoderPush(Object decoder, int length) {
+        invoke(DECODER_PUSH, decoder, length);
+    }
+
+    static DecoderStatus decoderStatus(Object decoder) {
+        return DecoderStatus.valueOf(((Enum<?>) invoke(DECODER_GET_STATUS, decoder)).name());
+    }
+
+    static boolean decoderHasOutput(Object decoder) {
+        return (Boolean) invoke(DECODER_HAS_OUTPUT, decoder);
+    }
+
+    static ByteBuffer decoderPull(Object decoder) {
+        return (ByteBuffer) invoke(DECODER_PULL, decoder);
+    }
+
+    static void decoderDestroy(Object decoder) {
+        invoke(DECODER_DESTROY, decoder);
+    }
+
+    private static Object newInstance(Constructor<?> constructor, Object... args) {
+        try {
+            return constructor.newInstance(args);
+        } catch (InvocationTargetException e) {
+            throw new CompressionException(e.getCause());
+        } catch (Exception e) {
+            throw new CompressionException(e);
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw new CompressionException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new CompressionException(e);
+        }
+    }
+
+    private Brotli() { }
+}
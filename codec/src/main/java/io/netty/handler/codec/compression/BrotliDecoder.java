@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Decompresses a {@link ByteBuf} encoded with the <a href="https://tools.ietf.org/html/rfc7932">Brotli</a> format.
+ * The decompressed data is produced as soon as it is received, so the stream does not need to be received
+ * completely. Any data after the end of the stream is discarded.
+ * <p>
+ * This decoder requires the <a href="https://github.com/hyperxpro/Brotli4j">Brotli4j</a> library; see
+ * {@link Brotli#isAvailable()}.
+ */
+public class BrotliDecoder extends ByteToMessageDecoder {
+
+    private static final int DEFAULT_INPUT_BUFFER_SIZE = 8192;
+
+    private final int inputBufferSize;
+    private Object decoder;
+    private boolean finished;
+
+    /**
+     * Creates a new decoder.
+     */
+    public BrotliDecoder() {
+        this(DEFAULT_INPUT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param inputBufferSize the size of the native buffer the compressed data is copied to
+     */
+    public BrotliDecoder(int inputBufferSize) {
+        if (inputBufferSize <= 0) {
+            throw new IllegalArgumentException("inputBufferSize: " + inputBufferSize + " (expected: > 0)");
+        }
+        Brotli.ensureAvailability();
+        this.inputBufferSize = inputBufferSize;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (finished) {
+            // Skip data received after finished.
+            in.skipBytes(in.readableBytes());
+            return;
+        }
+        if (decoder == null) {
+            decoder = Brotli.newDecoder(inputBufferSize);
+        }
+
+        for (;;) {
+            switch (Brotli.decoderStatus(decoder)) {
+                case DONE:
+                    if (Brotli.decoderHasOutput(decoder)) {
+                        out.add(pull(ctx));
+                    }
+                    finished = true;
+                    destroy();
+                    in.skipBytes(in.readableBytes());
+                    return;
+                case OK:
+                    Brotli.decoderPush(decoder, 0);
+                    break;
+                case NEEDS_MORE_INPUT:
+                    if (Brotli.decoderHasOutput(decoder)) {
+                        out.add(pull(ctx));
+                    }
+                    if (!in.isReadable()) {
+                        return;
+                    }
+                    ByteBuffer input = Brotli.decoderInputBuffer(decoder);
+                    input.clear();
+                    int length = Math.min(in.readableBytes(), input.remaining());
+                    input.limit(length);
+                    in.readBytes(input);
+                    Brotli.decoderPush(decoder, length);
+                    break;
+                case NEEDS_MORE_OUTPUT:
+                    out.add(pull(ctx));
+                    break;
+                default:
+                    finished = true;
+                    destroy();
+                    in.skipBytes(in.readableBytes());
+                    throw new DecompressionException("Brotli stream corrupted");
+            }
+        }
+    }
+
+    private ByteBuf pull(ChannelHandlerContext ctx) {
+        ByteBuffer output = Brotli.decoderPull(decoder);
+        ByteBuf decompressed = ctx.alloc().heapBuffer(output.remaining());
+        decompressed.writeBytes(output);
+        return decompressed;
+    }
+
+    private void destroy() {
+        if (decoder != null) {
+            Brotli.decoderDestroy(decoder);
+            decoder = null;
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        super.handlerRemoved0(ctx);
+        destroy();
+    }
+}
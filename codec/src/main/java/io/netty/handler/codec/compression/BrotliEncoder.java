@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.OutputStream;
+
+/**
+ * Compresses a {@link ByteBuf} using the <a href="https://tools.ietf.org/html/rfc7932">Brotli</a> format.
+ * All written data is part of a single stream, which is finished when this encoder is closed. Every written
+ * {@link ByteBuf} is flushed, so it can be decompressed as soon as it is received.
+ * <p>
+ * This encoder requires the <a href="https://github.com/hyperxpro/Brotli4j">Brotli4j</a> library; see
+ * {@link Brotli#isAvailable()}.
+ */
+public class BrotliEncoder extends OutputStreamCompressionEncoder {
+
+    private final int quality;
+    private final int windowBits;
+
+    /**
+     * Creates a new encoder with the {@linkplain Brotli#DEFAULT_QUALITY default quality} and the
+     * {@linkplain Brotli#DEFAULT_WINDOW_BITS default window size}.
+     */
+    public BrotliEncoder() {
+        this(Brotli.DEFAULT_QUALITY);
+    }
+
+    /**
+     * Creates a new encoder with the specified quality and the {@linkplain Brotli#DEFAULT_WINDOW_BITS default
+     * window size}.
+     *
+     * @param quality
+     *        {@code 0} yields the fastest compression and {@code 11} yields the best compression.
+     */
+    public BrotliEncoder(int quality) {
+        this(quality, Brotli.DEFAULT_WINDOW_BITS);
+    }
+
+    /**
+     * Creates a new encoder with the specified quality and window size.
+     *
+     * @param quality
+     *        {@code 0} yields the fastest compression and {@code 11} yields the best compression.
+     * @param windowBits
+     *        the base two logarithm of the window size, between {@value Brotli#MIN_WINDOW_BITS} and
+     *        {@value Brotli#MAX_WINDOW_BITS}. A larger window improves the compression of large content at the
+     *        expense of the memory used by both the encoder and the decoder.
+     */
+    public BrotliEncoder(int quality, int windowBits) {
+        if (quality < Brotli.MIN_QUALITY || quality > Brotli.MAX_QUALITY) {
+            throw new IllegalArgumentException(
+                    "quality: " + quality + " (expected: " + Brotli.MIN_QUALITY + '-' + Brotli.MAX_QUALITY + ')');
+        }
+        if (windowBits < Brotli.MIN_WINDOW_BITS || windowBits > Brotli.MAX_WINDOW_BITS) {
+            throw new IllegalArgumentException(
+                    "windowBits: " + windowBits +
+                    " (expected: " + Brotli.MIN_WINDOW_BITS + '-' + Brotli.MAX_WINDOW_BITS + ')');
+        }
+        Brotli.ensureAvailability();
+        this.quality = quality;
+        this.windowBits = windowBits;
+    }
+
+    @Override
+    protected OutputStream newStream(OutputStream sink) {
+        return Brotli.newOutputStream(sink, quality, windowBits);
+    }
+}
@@ -26,6 +26,9 @@ import java.util.zip.Inflater;
 
 /**
  * Decompress a {@link ByteBuf} using the inflate algorithm.
+ * <p>
+ * If enabled with {@code -Dio.netty.jdkZlibDirectBuffers=true}, direct buffers are decompressed in place into
+ * direct buffers on Java 11 and later, so no data is copied to or from a {@code byte[]}.
  */
 public class JdkZlibDecoder extends ZlibDecoder {
     private static final int FHCRC = 0x02;
@@ -36,6 +39,9 @@ public class JdkZlibDecoder extends ZlibDecoder {
 
     private Inflater inflater;
     private final byte[] dictionary;
+    private final JdkZlibPool pool;
+    // Whether the inflater decodes the raw deflate format, to return it to the right queue of the pool.
+    private final boolean nowrap;
 
     // GZIP related
     private final CRC32 crc;
@@ -63,7 +69,7 @@ public class JdkZlibDecoder extends ZlibDecoder {
      * Creates a new instance with the default wrapper ({@link ZlibWrapper#ZLIB}).
      */
     public JdkZlibDecoder() {
-        this(ZlibWrapper.ZLIB, null);
+        this(ZlibWrapper.ZLIB, (byte[]) null);
     }
 
     /**
@@ -81,13 +87,51 @@ public class JdkZlibDecoder extends ZlibDecoder {
      * supported atm.
      */
     public JdkZlibDecoder(ZlibWrapper wrapper) {
-        this(wrapper, null);
+        this(wrapper, (byte[]) null);
+    }
+
+    /**
+     * Creates a new instance with the specified wrapper which borrows its {@link Inflater} from the specified
+     * {@link JdkZlibPool}, and uses the preset dictionary of the pool. The {@link Inflater} is returned to the pool
+     * once this decoder is removed from the pipeline.
+     * Be aware that only {@link ZlibWrapper#GZIP}, {@link ZlibWrapper#ZLIB} and {@link ZlibWrapper#NONE} are
+     * supported.
+     */
+    public JdkZlibDecoder(ZlibWrapper wrapper, JdkZlibPool pool) {
+        if (wrapper == null) {
+            throw new NullPointerException("wrapper");
+        }
+        if (pool == null) {
+            throw new NullPointerException("pool");
+        }
+        switch (wrapper) {
+            case GZIP:
+                if (pool.hasDictionary()) {
+                    throw new IllegalArgumentException(
+                            "wrapper '" + ZlibWrapper.GZIP + "' does not support the preset dictionary of " + pool);
+                }
+                crc = new CRC32();
+                break;
+            case NONE:
+            case ZLIB:
+                crc = null;
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Only GZIP, ZLIB or NONE is supported with a pool, but you used " + wrapper);
+        }
+        this.pool = pool;
+        dictionary = pool.dictionary();
+        nowrap = wrapper != ZlibWrapper.ZLIB;
+        inflater = pool.acquireInflater(nowrap);
     }
 
     private JdkZlibDecoder(ZlibWrapper wrapper, byte[] dictionary) {
         if (wrapper == null) {
             throw new NullPointerException("wrapper");
         }
+        pool = null;
+        nowrap = wrapper != ZlibWrapper.ZLIB;
         switch (wrapper) {
             case GZIP:
                 inflater = new Inflater(true);
@@ -159,7 +203,11 @@ public class JdkZlibDecoder extends ZlibDecoder {
             readableBytes = in.readableBytes();
         }
 
-        if (in.hasArray()) {
+        final boolean direct = JdkZlibDirectBuffers.canUse(in);
+        if (direct) {
+            // The inflater reads the memory of the direct buffer, so no copy is needed.
+            JdkZlibDirectBuffers.setInput(inflater, in.nioBuffer(in.readerIndex(), readableBytes));
+        } else if (in.hasArray()) {
             inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), readableBytes);
         } else {
             byte[] array = new byte[readableBytes];
@@ -168,29 +216,38 @@ public class JdkZlibDecoder extends ZlibDecoder {
         }
 
         int maxOutputLength = inflater.getRemaining() << 1;
-        ByteBuf decompressed = ctx.alloc().heapBuffer(maxOutputLength);
+        ByteBuf decompressed = newBuffer(ctx, direct, maxOutputLength);
         try {
             boolean readFooter = false;
-            byte[] outArray = decompressed.array();
             while (!inflater.needsInput()) {
                 int writerIndex = decompressed.writerIndex();
-                int outIndex = decompressed.arrayOffset() + writerIndex;
                 int length = decompressed.writableBytes();
 
                 if (length == 0) {
                     // completely filled the buffer allocate a new one and start to fill it
                     out.add(decompressed);
-                    decompressed = ctx.alloc().heapBuffer(maxOutputLength);
-                    outArray = decompressed.array();
+                    decompressed = newBuffer(ctx, direct, maxOutputLength);
                     continue;
                 }
 
-                int outputLength = inflater.inflate(outArray, outIndex, length);
-                if (outputLength > 0) {
-                    decompressed.writerIndex(writerIndex + outputLength);
-                    if (crc != null) {
+                int outputLength;
+                if (decompressed.hasArray()) {
+                    byte[] outArray = decompressed.array();
+                    int outIndex = decompressed.arrayOffset() + writerIndex;
+                    outputLength = inflater.inflate(outArray, outIndex, length);
+                    if (outputLength > 0 && crc != null) {
                         crc.update(outArray, outIndex, outputLength);
                     }
+                } else {
+                    outputLength = JdkZlibDirectBuffers.inflate(
+                            inflater, decompressed.internalNioBuffer(writerIndex, length));
+                    if (outputLength > 0 && crc != null) {
+                        JdkZlibDirectBuffers.update(crc, decompressed.nioBuffer(writerIndex, outputLength));
+                    }
+                }
+
+                if (outputLength > 0) {
+                    decompressed.writerIndex(writerIndex + outputLength);
                 } else {
                     if (inflater.needsDictionary()) {
                         if (dictionary == null) {
@@ -231,11 +288,27 @@ public class JdkZlibDecoder extends ZlibDecoder {
         }
     }
 
+    /**
+     * Allocates a direct buffer if the input was a direct buffer which the inflater reads without a copy, so the
+     * decompressed data stays off-heap as well, or a heap buffer otherwise.
+     */
+    private static ByteBuf newBuffer(ChannelHandlerContext ctx, boolean direct, int initialCapacity) {
+        if (direct) {
+            return ctx.alloc().directBuffer(initialCapacity);
+        }
+        return ctx.alloc().heapBuffer(initialCapacity);
+    }
+
     @Override
     protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
         super.handlerRemoved0(ctx);
         if (inflater != null) {
-            inflater.end();
+            if (pool != null) {
+                pool.releaseInflater(inflater, nowrap);
+            } else {
+                inflater.end();
+            }
+            inflater = null;
         }
     }
 
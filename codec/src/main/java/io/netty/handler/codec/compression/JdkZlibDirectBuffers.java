@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Gives access to the {@link ByteBuffer} methods of {@link Deflater}, {@link Inflater} and {@link CRC32}, which
+ * operate on the memory of a direct {@link ByteBuffer} without copying it to or from a {@code byte[]}. They are only
+ * available since Java 11 (and Java 8 for {@link CRC32}), so they are looked up via reflection. They are only used
+ * if enabled with {@code -Dio.netty.jdkZlibDirectBuffers=true}.
+ */
+final class JdkZlibDirectBuffers {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(JdkZlibDirectBuffers.class);
+
+    private static final Method DEFLATER_SET_INPUT;
+    private static final Method DEFLATER_DEFLATE;
+    private static final Method INFLATER_SET_INPUT;
+    private static final Method INFLATER_INFLATE;
+    private static final Method CRC32_UPDATE;
+
+    static {
+        Method deflaterSetInput = null;
+        Method deflaterDeflate = null;
+        Method inflaterSetInput = null;
+        Method inflaterInflate = null;
+        Method crc32Update = null;
+        if (SystemPropertyUtil.getBoolean("io.netty.jdkZlibDirectBuffers", false)) {
+            try {
+                deflaterSetInput = Deflater.class.getMethod("setInput", ByteBuffer.class);
+                deflaterDeflate = Deflater.class.getMethod("deflate", ByteBuffer.class, int.class);
+                inflaterSetInput = Inflater.class.getMethod("setInput", ByteBuffer.class);
+                inflaterInflate = Inflater.class.getMethod("inflate", ByteBuffer.class);
+                crc32Update = CRC32.class.getMethod("update", ByteBuffer.class);
+            } catch (Exception e) {
+                logger.debug("Deflater and Inflater do not support ByteBuffers; direct buffers will be copied", e);
+                deflaterSetInput = null;
+            }
+        }
+
+        if (deflaterSetInput != null) {
+            DEFLATER_SET_INPUT = deflaterSetInput;
+            DEFLATER_DEFLATE = deflaterDeflate;
+            INFLATER_SET_INPUT = inflaterSetInput;
+            INFLATER_INFLATE = inflaterInflate;
+            CRC32_UPDATE = crc32Update;
+        } else {
+            DEFLATER_SET_INPUT = null;
+            DEFLATER_DEFLATE = null;
+            INFLATER_SET_INPUT = null;
+            INFLATER_INFLATE = null;
+            CRC32_UPDATE = null;
+        }
+        logger.debug("-Dio.netty.jdkZlibDirectBuffers: {}", isAvailable());
+    }
+
+    /**
+     * Returns {@code true} if direct buffers can be compressed and decompressed without copying them.
+     */
+    static boolean isAvailable() {
+        return DEFLATER_SET_INPUT != null;
+    }
+
+    /**
+     * Returns {@code true} if the readable bytes of the specified {@link ByteBuf} can be passed as a single direct
+     * {@link ByteBuffer}.
+     */
+    static boolean canUse(ByteBuf buf) {
+        return isAvailable() && !buf.hasArray() && buf.nioBufferCount() == 1;
+    }
+
+    static void setInput(Deflater deflater, ByteBuffer input) {
+        invoke(DEFLATER_SET_INPUT, deflater, input);
+    }
+
+    static int deflate(Deflater deflater, ByteBuffer output, int flush) {
+        return (Integer) invoke(DEFLATER_DEFLATE, deflater, output, flush);
+    }
+
+    static void setInput(Inflater inflater, ByteBuffer input) {
+        invoke(INFLATER_SET_INPUT, inflater, input);
+    }
+
+    static int inflate(Inflater inflater, ByteBuffer output) throws DataFormatException {
+        try {
+            return (Integer) INFLATER_INFLATE.invoke(inflater, output);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof DataFormatException) {
+                throw (DataFormatException) e.getCause();
+            }
+            throw rethrow(e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void update(CRC32 crc, ByteBuffer buffer) {
+        invoke(CRC32_UPDATE, crc, buffer);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw rethrow(e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RuntimeException rethrow(InvocationTargetException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new CompressionException(cause);
+    }
+
+    private JdkZlibDirectBuffers() { }
+}
@@ -23,17 +23,23 @@ import io.netty.channel.ChannelPromise;
 import io.netty.channel.ChannelPromiseNotifier;
 import io.netty.util.concurrent.EventExecutor;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 
 /**
  * Compresses a {@link ByteBuf} using the deflate algorithm.
+ * <p>
+ * If enabled with {@code -Dio.netty.jdkZlibDirectBuffers=true}, direct buffers are compressed in place and the
+ * compressed data is written into direct buffers on Java 11 and later, so no data is copied to or from a
+ * {@code byte[]}.
  */
 public class JdkZlibEncoder extends ZlibEncoder {
 
     private final ZlibWrapper wrapper;
     private final Deflater deflater;
+    private final JdkZlibPool pool;
     private volatile boolean finished;
     private volatile ChannelHandlerContext ctx;
 
@@ -106,6 +112,7 @@ public class JdkZlibEncoder extends ZlibEncoder {
 
         this.wrapper = wrapper;
         deflater = new Deflater(compressionLevel, wrapper != ZlibWrapper.ZLIB);
+        pool = null;
     }
 
     /**
@@ -148,6 +155,38 @@ public class JdkZlibEncoder extends ZlibEncoder {
         wrapper = ZlibWrapper.ZLIB;
         deflater = new Deflater(compressionLevel);
         deflater.setDictionary(dictionary);
+        pool = null;
+    }
+
+    /**
+     * Creates a new zlib encoder with the specified wrapper which borrows its {@link Deflater} from the specified
+     * {@link JdkZlibPool}. The compression level and the preset dictionary are the ones of the pool. The
+     * {@link Deflater} is returned to the pool once the stream is finished or this encoder is removed from the
+     * pipeline.
+     *
+     * @throws IllegalArgumentException if the pool has a preset dictionary and the wrapper is
+     *                                  {@link ZlibWrapper#GZIP}, which does not support preset dictionaries
+     */
+    public JdkZlibEncoder(ZlibWrapper wrapper, JdkZlibPool pool) {
+        if (wrapper == null) {
+            throw new NullPointerException("wrapper");
+        }
+        if (pool == null) {
+            throw new NullPointerException("pool");
+        }
+        if (wrapper == ZlibWrapper.ZLIB_OR_NONE) {
+            throw new IllegalArgumentException(
+                    "wrapper '" + ZlibWrapper.ZLIB_OR_NONE + "' is not " +
+                    "allowed for compression.");
+        }
+        if (wrapper == ZlibWrapper.GZIP && pool.hasDictionary()) {
+            throw new IllegalArgumentException(
+                    "wrapper '" + ZlibWrapper.GZIP + "' does not support the preset dictionary of " + pool);
+        }
+
+        this.wrapper = wrapper;
+        this.pool = pool;
+        deflater = pool.acquireDeflater(wrapper != ZlibWrapper.ZLIB);
     }
 
     @Override
@@ -199,20 +238,6 @@ public class JdkZlibEncoder extends ZlibEncoder {
             return;
         }
 
-        int offset;
-        byte[] inAry;
-        if (uncompressed.hasArray()) {
-            // if it is backed by an array we not need to to do a copy at all
-            inAry = uncompressed.array();
-            offset = uncompressed.arrayOffset() + uncompressed.readerIndex();
-            // skip all bytes as we will consume all of them
-            uncompressed.skipBytes(len);
-        } else {
-            inAry = new byte[len];
-            uncompressed.readBytes(inAry);
-            offset = 0;
-        }
-
         if (writeHeader) {
             writeHeader = false;
             if (wrapper == ZlibWrapper.GZIP) {
@@ -220,11 +245,37 @@ public class JdkZlibEncoder extends ZlibEncoder {
             }
         }
 
-        if (wrapper == ZlibWrapper.GZIP) {
-            crc.update(inAry, offset, len);
+        if (JdkZlibDirectBuffers.canUse(uncompressed)) {
+            // The deflater reads the memory of the direct buffer, so no copy is needed.
+            ByteBuffer in = uncompressed.nioBuffer(uncompressed.readerIndex(), len);
+            if (wrapper == ZlibWrapper.GZIP) {
+                JdkZlibDirectBuffers.update(crc, in.duplicate());
+            }
+            JdkZlibDirectBuffers.setInput(deflater, in);
+            // skip all bytes as we will consume all of them
+            uncompressed.skipBytes(len);
+        } else {
+            int offset;
+            byte[] inAry;
+            if (uncompressed.hasArray()) {
+                // if it is backed by an array we not need to to do a copy at all
+                inAry = uncompressed.array();
+                offset = uncompressed.arrayOffset() + uncompressed.readerIndex();
+                // skip all bytes as we will consume all of them
+                uncompressed.skipBytes(len);
+            } else {
+                inAry = new byte[len];
+                uncompressed.readBytes(inAry);
+                offset = 0;
+            }
+
+            if (wrapper == ZlibWrapper.GZIP) {
+                crc.update(inAry, offset, len);
+            }
+
+            deflater.setInput(inAry, offset, len);
         }
 
-        deflater.setInput(inAry, offset, len);
         while (!deflater.needsInput()) {
             deflate(out);
         }
@@ -244,7 +295,27 @@ public class JdkZlibEncoder extends ZlibEncoder {
                     break;
             }
         }
-        return ctx.alloc().heapBuffer(sizeEstimate);
+        return newBuffer(ctx, sizeEstimate);
+    }
+
+    /**
+     * Allocates a direct buffer if the deflater can write into it without a copy, or a heap buffer otherwise.
+     */
+    private static ByteBuf newBuffer(ChannelHandlerContext ctx, int initialCapacity) {
+        if (JdkZlibDirectBuffers.isAvailable()) {
+            return ctx.alloc().directBuffer(initialCapacity);
+        }
+        return ctx.alloc().heapBuffer(initialCapacity);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (pool != null && !finished) {
+            // The stream will never be finished, so let the pool reuse the deflater.
+            finished = true;
+            releaseDeflater();
+        }
+        super.handlerRemoved(ctx);
     }
 
     @Override
@@ -275,7 +346,7 @@ public class JdkZlibEncoder extends ZlibEncoder {
         }
 
         finished = true;
-        ByteBuf footer = ctx.alloc().heapBuffer();
+        ByteBuf footer = newBuffer(ctx, 256);
         if (writeHeader && wrapper == ZlibWrapper.GZIP) {
             // Write the GZIP header first if not written yet. (i.e. user wrote nothing.)
             writeHeader = false;
@@ -289,7 +360,7 @@ public class JdkZlibEncoder extends ZlibEncoder {
             if (!footer.isWritable()) {
                 // no more space so write it to the channel and continue
                 ctx.write(footer);
-                footer = ctx.alloc().heapBuffer();
+                footer = newBuffer(ctx, 256);
             }
         }
         if (wrapper == ZlibWrapper.GZIP) {
@@ -304,11 +375,24 @@ public class JdkZlibEncoder extends ZlibEncoder {
             footer.writeByte(uncBytes >>> 16);
             footer.writeByte(uncBytes >>> 24);
         }
-        deflater.end();
+        releaseDeflater();
         return ctx.writeAndFlush(footer, promise);
     }
 
+    private void releaseDeflater() {
+        if (pool != null) {
+            pool.releaseDeflater(deflater, wrapper != ZlibWrapper.ZLIB);
+        } else {
+            deflater.end();
+        }
+    }
+
     private void deflate(ByteBuf out) {
+        if (!out.hasArray()) {
+            deflateDirect(out);
+            return;
+        }
+
         int numBytes;
         do {
             int writerIndex = out.writerIndex();
@@ -318,6 +402,16 @@ public class JdkZlibEncoder extends ZlibEncoder {
         } while (numBytes > 0);
     }
 
+    private void deflateDirect(ByteBuf out) {
+        int numBytes;
+        do {
+            int writerIndex = out.writerIndex();
+            numBytes = JdkZlibDirectBuffers.deflate(
+                    deflater, out.internalNioBuffer(writerIndex, out.writableBytes()), Deflater.SYNC_FLUSH);
+            out.writerIndex(writerIndex + numBytes);
+        } while (numBytes > 0);
+    }
+
     @Override
     public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
         this.ctx = ctx;
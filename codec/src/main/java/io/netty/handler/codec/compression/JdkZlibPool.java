@@ -0,0 +1,259 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A pool of {@link Deflater}s and {@link Inflater}s which can be shared by the {@link JdkZlibEncoder}s and
+ * {@link JdkZlibDecoder}s of many channels. A {@link Deflater} or an {@link Inflater} allocates a few hundred
+ * kilobytes of native memory, so creating one per HTTP response or per WebSocket message is expensive. An encoder or
+ * a decoder which was created with a pool borrows its {@link Deflater} or {@link Inflater} from the pool and returns
+ * it once the stream is finished or the handler is removed, so it can be reused by another channel.
+ * <p>
+ * A returned instance is {@linkplain Deflater#reset() reset}, so the data of one stream is never used to compress or
+ * decompress another one. This is what makes pooling compatible with disabled context takeover.
+ * <p>
+ * A pool may have a preset dictionary, which is set on every {@link Deflater} and {@link Inflater} it hands out.
+ * Both peers must use the same dictionary. The {@link ZlibWrapper#GZIP} format does not support preset dictionaries.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class JdkZlibPool {
+
+    /**
+     * The default max number of idle {@link Deflater}s and the default max number of idle {@link Inflater}s.
+     */
+    public static final int DEFAULT_MAX_POOLED = 128;
+
+    private final int compressionLevel;
+    private final byte[] dictionary;
+    private final int maxPooled;
+
+    // Instances with a zlib header, and raw ones (nowrap) which are used for GZIP and NONE.
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<Deflater>();
+    private final Queue<Deflater> rawDeflaters = new ConcurrentLinkedQueue<Deflater>();
+    private final AtomicInteger pooledDeflaters = new AtomicInteger();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<Inflater>();
+    private final Queue<Inflater> rawInflaters = new ConcurrentLinkedQueue<Inflater>();
+    private final AtomicInteger pooledInflaters = new AtomicInteger();
+
+    /**
+     * Creates a new pool with the specified {@code compressionLevel}, no preset dictionary and
+     * {@link #DEFAULT_MAX_POOLED}.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.  The default
+     *        compression level is {@code 6}.
+     */
+    public JdkZlibPool(int compressionLevel) {
+        this(compressionLevel, null);
+    }
+
+    /**
+     * Creates a new pool with the specified {@code compressionLevel}, the specified preset dictionary and
+     * {@link #DEFAULT_MAX_POOLED}.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.  The default
+     *        compression level is {@code 6}.
+     * @param dictionary  the preset dictionary, or {@code null} if none
+     */
+    public JdkZlibPool(int compressionLevel, byte[] dictionary) {
+        this(compressionLevel, dictionary, DEFAULT_MAX_POOLED);
+    }
+
+    /**
+     * Creates a new pool.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.  The default
+     *        compression level is {@code 6}.
+     * @param dictionary  the preset dictionary, or {@code null} if none
+     * @param maxPooled   the max number of idle {@link Deflater}s and the max number of idle {@link Inflater}s which
+     *                    are kept. Instances which are returned to a full pool are released immediately.
+     */
+    public JdkZlibPool(int compressionLevel, byte[] dictionary, int maxPooled) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException(
+                    "compressionLevel: " + compressionLevel + " (expected: 0-9)");
+        }
+        if (maxPooled < 0) {
+            throw new IllegalArgumentException("maxPooled: " + maxPooled + " (expected: >= 0)");
+        }
+        this.compressionLevel = compressionLevel;
+        this.dictionary = dictionary != null ? dictionary.clone() : null;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Returns the compression level of the {@link Deflater}s of this pool.
+     */
+    public int compressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Returns {@code true} if this pool has a preset dictionary.
+     */
+    public boolean hasDictionary() {
+        return dictionary != null;
+    }
+
+    /**
+     * Returns the max number of idle {@link Deflater}s and the max number of idle {@link Inflater}s of this pool.
+     */
+    public int maxPooled() {
+        return maxPooled;
+    }
+
+    /**
+     * Returns the number of idle {@link Deflater}s in this pool.
+     */
+    public int pooledDeflaters() {
+        return pooledDeflaters.get();
+    }
+
+    /**
+     * Returns the number of idle {@link Inflater}s in this pool.
+     */
+    public int pooledInflaters() {
+        return pooledInflaters.get();
+    }
+
+    /**
+     * Releases all idle {@link Deflater}s and {@link Inflater}s of this pool. Instances which are in use are
+     * released or pooled again when they are returned.
+     */
+    public void clear() {
+        for (;;) {
+            Deflater deflater = pollDeflater(true);
+            if (deflater == null) {
+                deflater = pollDeflater(false);
+            }
+            if (deflater == null) {
+                break;
+            }
+            deflater.end();
+        }
+        for (;;) {
+            Inflater inflater = pollInflater(true);
+            if (inflater == null) {
+                inflater = pollInflater(false);
+            }
+            if (inflater == null) {
+                break;
+            }
+            inflater.end();
+        }
+    }
+
+    byte[] dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns an idle or a new {@link Deflater} with the preset dictionary of this pool.
+     *
+     * @param nowrap {@code true} for the raw deflate format, which is used by {@link ZlibWrapper#GZIP} and
+     *               {@link ZlibWrapper#NONE}
+     */
+    Deflater acquireDeflater(boolean nowrap) {
+        Deflater deflater = pollDeflater(nowrap);
+        if (deflater == null) {
+            deflater = new Deflater(compressionLevel, nowrap);
+        }
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        return deflater;
+    }
+
+    /**
+     * Resets the specified {@link Deflater} and pools it, or releases it if this pool is full.
+     */
+    void releaseDeflater(Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        if (pooledDeflaters.incrementAndGet() <= maxPooled) {
+            (nowrap ? rawDeflaters : deflaters).add(deflater);
+        } else {
+            pooledDeflaters.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns an idle or a new {@link Inflater}. An {@link Inflater} for the raw deflate format gets the preset
+     * dictionary of this pool right away, because the raw format does not tell if a dictionary is needed. Any other
+     * {@link Inflater} asks for it once it read the zlib header.
+     *
+     * @param nowrap {@code true} for the raw deflate format, which is used by {@link ZlibWrapper#GZIP} and
+     *               {@link ZlibWrapper#NONE}
+     */
+    Inflater acquireInflater(boolean nowrap) {
+        Inflater inflater = pollInflater(nowrap);
+        if (inflater == null) {
+            inflater = new Inflater(nowrap);
+        }
+        if (nowrap && dictionary != null) {
+            inflater.setDictionary(dictionary);
+        }
+        return inflater;
+    }
+
+    /**
+     * Resets the specified {@link Inflater} and pools it, or releases it if this pool is full.
+     */
+    void releaseInflater(Inflater inflater, boolean nowrap) {
+        inflater.reset();
+        if (pooledInflaters.incrementAndGet() <= maxPooled) {
+            (nowrap ? rawInflaters : inflaters).add(inflater);
+        } else {
+            pooledInflaters.decrementAndGet();
+            inflater.end();
+        }
+    }
+
+    private Deflater pollDeflater(boolean nowrap) {
+        Deflater deflater = (nowrap ? rawDeflaters : deflaters).poll();
+        if (deflater != null) {
+            pooledDeflaters.decrementAndGet();
+        }
+        return deflater;
+    }
+
+    private Inflater pollInflater(boolean nowrap) {
+        Inflater inflater = (nowrap ? rawInflaters : inflaters).poll();
+        if (inflater != null) {
+            pooledInflaters.decrementAndGet();
+        }
+        return inflater;
+    }
+
+    @Override
+    public String toString() {
+        return "JdkZlibPool(compressionLevel: " + compressionLevel + ", dictionary: " + (dictionary != null) +
+               ", maxPooled: " + maxPooled + ", pooledDeflaters: " + pooledDeflaters() +
+               ", pooledInflaters: " + pooledInflaters() + ')';
+    }
+}
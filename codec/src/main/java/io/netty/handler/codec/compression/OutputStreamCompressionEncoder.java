@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ChannelPromiseNotifier;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses a {@link ByteBuf} with a compressing {@link OutputStream} of a compression library. Every written
+ * {@link ByteBuf} is flushed through the stream, so its compressed data can be written right away, and the stream is
+ * finished when this encoder is closed.
+ */
+abstract class OutputStreamCompressionEncoder extends MessageToByteEncoder<ByteBuf> {
+
+    private final ByteBufSink sink = new ByteBufSink();
+    private OutputStream stream;
+    private volatile boolean finished;
+    private volatile ChannelHandlerContext ctx;
+
+    /**
+     * Creates the compressing {@link OutputStream} which writes to the specified sink.
+     */
+    protected abstract OutputStream newStream(OutputStream sink);
+
+    private OutputStream stream() {
+        OutputStream stream = this.stream;
+        if (stream == null) {
+            this.stream = stream = newStream(sink);
+        }
+        return stream;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        if (finished) {
+            out.writeBytes(in);
+            return;
+        }
+
+        sink.buf = out;
+        try {
+            OutputStream stream = stream();
+            in.readBytes(stream, in.readableBytes());
+            stream.flush();
+        } catch (IOException e) {
+            throw new CompressionException(e);
+        } finally {
+            sink.buf = null;
+        }
+    }
+
+    private ChannelFuture finishEncode(final ChannelHandlerContext ctx, ChannelPromise promise) {
+        if (finished) {
+            promise.setSuccess();
+            return promise;
+        }
+        finished = true;
+
+        final ByteBuf footer = ctx.alloc().heapBuffer();
+        sink.buf = footer;
+        try {
+            stream().close();
+        } catch (IOException e) {
+            footer.release();
+            promise.setFailure(new CompressionException(e));
+            return promise;
+        } finally {
+            sink.buf = null;
+            stream = null;
+        }
+        return ctx.writeAndFlush(footer, promise);
+    }
+
+    /**
+     * Returns {@code true} if and only if the compressed stream has been finished.
+     */
+    public boolean isClosed() {
+        return finished;
+    }
+
+    /**
+     * Close this encoder and so finish the encoding.
+     *
+     * The returned {@link ChannelFuture} will be notified once the operation completes.
+     */
+    public ChannelFuture close() {
+        return close(ctx().newPromise());
+    }
+
+    /**
+     * Close this encoder and so finish the encoding.
+     * The given {@link ChannelFuture} will be notified once the operation
+     * completes and will also be returned.
+     */
+    public ChannelFuture close(final ChannelPromise promise) {
+        ChannelHandlerContext ctx = ctx();
+        EventExecutor executor = ctx.executor();
+        if (executor.inEventLoop()) {
+            return finishEncode(ctx, promise);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ChannelFuture f = finishEncode(ctx(), promise);
+                    f.addListener(new ChannelPromiseNotifier(promise));
+                }
+            });
+            return promise;
+        }
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelPromise promise) throws Exception {
+        ChannelFuture f = finishEncode(ctx, ctx.newPromise());
+        f.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                ctx.close(promise);
+            }
+        });
+
+        if (!f.isDone()) {
+            // Ensure the channel is closed even if the write operation completes in time.
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ctx.close(promise);
+                }
+            }, 10, TimeUnit.SECONDS); // FIXME: Magic number
+        }
+    }
+
+    private ChannelHandlerContext ctx() {
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            throw new IllegalStateException("not added to a pipeline");
+        }
+        return ctx;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (!finished && stream != null) {
+            // Release the native state of the stream. Nothing is written anymore, so its output is discarded.
+            finished = true;
+            try {
+                stream.close();
+            } catch (IOException ignore) {
+                // Nothing to do.
+            }
+            stream = null;
+        }
+        super.handlerRemoved(ctx);
+    }
+
+    /**
+     * Writes the output of the compressing stream to the current {@link ByteBuf}, or discards it if there is none.
+     */
+    private static final class ByteBufSink extends OutputStream {
+        ByteBuf buf;
+
+        @Override
+        public void write(int b) {
+            if (buf != null) {
+                buf.writeByte(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (buf != null) {
+                buf.writeBytes(b, off, len);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Tells if the <a href="https://github.com/luben/zstd-jni">zstd-jni</a> library, which is used by
+ * {@link ZstdEncoder} and {@link ZstdDecoder}, and its native library are available.
+ * <p>
+ * The library is an optional dependency, so it is looked up via reflection and nothing fails until a
+ * {@link ZstdEncoder} or a {@link ZstdDecoder} is created while it is not available.
+ */
+public final class Zstd {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(Zstd.class);
+
+    /**
+     * The default compression level of {@link ZstdEncoder}.
+     */
+    public static final int DEFAULT_COMPRESSION_LEVEL = 3;
+    public static final int MIN_COMPRESSION_LEVEL = 1;
+    public static final int MAX_COMPRESSION_LEVEL = 22;
+
+    /**
+     * The base two logarithm of the min window size. A window log of {@code 0} lets the compression level decide.
+     */
+    public static final int MIN_WINDOW_LOG = 10;
+
+    /**
+     * The base two logarithm of the max window size, which is the largest one decoders accept by default.
+     */
+    public static final int MAX_WINDOW_LOG = 27;
+
+    private static final Throwable UNAVAILABILITY_CAUSE;
+    private static final Constructor<?> OUTPUT_STREAM;
+    private static final Method SET_WINDOW_LOG;
+    private static final Constructor<?> INPUT_STREAM;
+    private static final Method SET_CONTINUOUS;
+
+    static {
+        Throwable cause = null;
+        Constructor<?> outputStream = null;
+        Method setWindowLog = null;
+        Constructor<?> inputStream = null;
+        Method setContinuous = null;
+        try {
+            ClassLoader loader = PlatformDependent.getClassLoader(Zstd.class);
+            // Loading the classes loads the native library.
+            Class<?> outputStreamClass = Class.forName("com.github.luben.zstd.ZstdOutputStream", true, loader);
+            Class<?> inputStreamClass = Class.forName("com.github.luben.zstd.ZstdInputStream", true, loader);
+            outputStream = outputStreamClass.getConstructor(OutputStream.class, int.class);
+            inputStream = inputStreamClass.getConstructor(InputStream.class);
+            setContinuous = inputStreamClass.getMethod("setContinuous", boolean.class);
+            try {
+                setWindowLog = outputStreamClass.getMethod("setWindowLog", int.class);
+            } catch (NoSuchMethodException ignore) {
+                // Older versions; the window size is decided by the compression level.
+            }
+        } catch (Throwable t) {
+            cause = t;
+            logger.debug("zstd-jni is not available; ZstdEncoder and ZstdDecoder cannot be used.", t);
+        }
+
+        UNAVAILABILITY_CAUSE = cause;
+        OUTPUT_STREAM = cause == null ? outputStream : null;
+        SET_WINDOW_LOG = cause == null ? setWindowLog : null;
+        INPUT_STREAM = cause == null ? inputStream : null;
+        SET_CONTINUOUS = cause == null ? setContinuous : null;
+    }
+
+    /**
+     * Returns {@code true} if and only if zstd-jni and its native library are available.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Ensures that zstd-jni and its native library are available.
+     *
+     * @throws UnsatisfiedLinkError if unavailable
+     */
+    public static void ensureAvailability() {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw (Error) new UnsatisfiedLinkError(
+                    "failed to load zstd-jni").initCause(UNAVAILABILITY_CAUSE);
+        }
+    }
+
+    /**
+     * Returns the cause of unavailability of zstd-jni.
+     *
+     * @return the cause if unavailable. {@code null} if available.
+     */
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    /**
+     * Creates a new compressing {@link OutputStream} which writes a zstd frame to the specified sink.
+     *
+     * @param windowLog the base two logarithm of the window size, or {@code 0} to let the level decide
+     */
+    static OutputStream newOutputStream(OutputStream sink, int compressionLevel, int windowLog) {
+        ensureAvailability();
+        if (windowLog != 0 && SET_WINDOW_LOG == null) {
+            throw new UnsupportedOperationException("this version of zstd-jni does not support setting windowLog");
+        }
+        OutputStream out = (OutputStream) newInstance(OUTPUT_STREAM, sink, compressionLevel);
+        if (windowLog != 0) {
+            invoke(SET_WINDOW_LOG, out, windowLog);
+        }
+        return out;
+    }
+
+    /**
+     * Creates a new decompressing {@link InputStream} which reads zstd frames from the specified source. It does
+     * not fail when the source ends in the middle of a frame, so the remainder can be read once the source has more
+     * data.
+     */
+    static InputStream newInputStream(InputStream source) {
+        ensureAvailability();
+        InputStream in = (InputStream) newInstance(INPUT_STREAM, source);
+        invoke(SET_CONTINUOUS, in, true);
+        return in;
+    }
+
+    private static Object newInstance(Constructor<?> constructor, Object... args) {
+        try {
+            return constructor.newInstance(args);
+        } catch (InvocationTargetException e) {
+            throw new CompressionException(e.getCause());
+        } catch (Exception e) {
+            throw new CompressionException(e);
+        }
+    }
+
+    private static void invoke(Method method, Object target, Object... args) {
+        try {
+            method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw new CompressionException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new CompressionException(e);
+        }
+    }
+
+    private Zstd() { }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Decompresses a {@link ByteBuf} encoded with the <a href="https://tools.ietf.org/html/rfc8478">Zstandard</a>
+ * format. A stream of several frames is decompressed as the concatenation of their content. The data of a frame is
+ * produced as soon as it is received, so a frame does not need to be received completely.
+ * <p>
+ * This decoder requires the <a href="https://github.com/luben/zstd-jni">zstd-jni</a> library; see
+ * {@link Zstd#isAvailable()}.
+ */
+public class ZstdDecoder extends ByteToMessageDecoder {
+
+    private static final int DEFAULT_OUTPUT_BUFFER_SIZE = 8192;
+
+    private final ByteBufSource source = new ByteBufSource();
+    private final int outputBufferSize;
+    private InputStream stream;
+
+    /**
+     * Creates a new decoder.
+     */
+    public ZstdDecoder() {
+        this(DEFAULT_OUTPUT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param outputBufferSize the capacity of the decompressed {@link ByteBuf}s
+     */
+    public ZstdDecoder(int outputBufferSize) {
+        if (outputBufferSize <= 0) {
+            throw new IllegalArgumentException("outputBufferSize: " + outputBufferSize + " (expected: > 0)");
+        }
+        Zstd.ensureAvailability();
+        this.outputBufferSize = outputBufferSize;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (stream == null) {
+            stream = Zstd.newInputStream(source);
+        }
+
+        source.buf = in;
+        ByteBuf decompressed = null;
+        try {
+            for (;;) {
+                if (decompressed == null) {
+                    decompressed = ctx.alloc().heapBuffer(outputBufferSize, outputBufferSize);
+                }
+                // The stream consumes the input as it needs it, and returns -1 once all of it was decompressed.
+                if (decompressed.writeBytes(stream, decompressed.writableBytes()) <= 0) {
+                    break;
+                }
+                if (!decompressed.isWritable()) {
+                    out.add(decompressed);
+                    decompressed = null;
+                }
+            }
+        } catch (IOException e) {
+            throw new DecompressionException("decompression failure", e);
+        } finally {
+            source.buf = null;
+            if (decompressed != null) {
+                if (decompressed.isReadable()) {
+                    out.add(decompressed);
+                } else {
+                    decompressed.release();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        super.handlerRemoved0(ctx);
+        if (stream != null) {
+            // Release the native state of the stream.
+            stream.close();
+            stream = null;
+        }
+    }
+
+    /**
+     * Reads the current {@link ByteBuf}, and tells that the input ended once it is not readable anymore.
+     */
+    private static final class ByteBufSource extends InputStream {
+        ByteBuf buf;
+
+        @Override
+        public int read() {
+            if (buf == null || !buf.isReadable()) {
+                return -1;
+            }
+            return buf.readUnsignedByte();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (buf == null || !buf.isReadable()) {
+                return -1;
+            }
+            len = Math.min(len, buf.readableBytes());
+            buf.readBytes(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buf == null ? 0 : buf.readableBytes();
+        }
+    }
+}
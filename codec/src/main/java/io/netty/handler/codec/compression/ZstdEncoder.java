@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.OutputStream;
+
+/**
+ * Compresses a {@link ByteBuf} using the <a href="https://tools.ietf.org/html/rfc8478">Zstandard</a> format.
+ * All written data is part of a single frame, which is finished when this encoder is closed. Every written
+ * {@link ByteBuf} is flushed, so it can be decompressed as soon as it is received.
+ * <p>
+ * This encoder requires the <a href="https://github.com/luben/zstd-jni">zstd-jni</a> library; see
+ * {@link Zstd#isAvailable()}.
+ */
+public class ZstdEncoder extends OutputStreamCompressionEncoder {
+
+    private final int compressionLevel;
+    private final int windowLog;
+
+    /**
+     * Creates a new encoder with the {@linkplain Zstd#DEFAULT_COMPRESSION_LEVEL default compression level}.
+     */
+    public ZstdEncoder() {
+        this(Zstd.DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Creates a new encoder with the specified compression level and the window size of that level.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 22} yields the best compression.
+     */
+    public ZstdEncoder(int compressionLevel) {
+        this(compressionLevel, 0);
+    }
+
+    /**
+     * Creates a new encoder with the specified compression level and window size.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 22} yields the best compression.
+     * @param windowLog
+     *        the base two logarithm of the window size, between {@value Zstd#MIN_WINDOW_LOG} and
+     *        {@value Zstd#MAX_WINDOW_LOG}, or {@code 0} to use the window size of the compression level.
+     *        A larger window improves the compression of large content at the expense of the memory used by both
+     *        the encoder and the decoder.
+     */
+    public ZstdEncoder(int compressionLevel, int windowLog) {
+        if (compressionLevel < Zstd.MIN_COMPRESSION_LEVEL || compressionLevel > Zstd.MAX_COMPRESSION_LEVEL) {
+            throw new IllegalArgumentException(
+                    "compressionLevel: " + compressionLevel +
+                    " (expected: " + Zstd.MIN_COMPRESSION_LEVEL + '-' + Zstd.MAX_COMPRESSION_LEVEL + ')');
+        }
+        if (windowLog != 0 && (windowLog < Zstd.MIN_WINDOW_LOG || windowLog > Zstd.MAX_WINDOW_LOG)) {
+            throw new IllegalArgumentException(
+                    "windowLog: " + windowLog +
+                    " (expected: 0 or " + Zstd.MIN_WINDOW_LOG + '-' + Zstd.MAX_WINDOW_LOG + ')');
+        }
+        Zstd.ensureAvailability();
+        this.compressionLevel = compressionLevel;
+        this.windowLog = windowLog;
+    }
+
+    @Override
+    protected OutputStream newStream(OutputStream sink) {
+        return Zstd.newOutputStream(sink, compressionLevel, windowLog);
+    }
+}
@@ -168,4 +168,46 @@ public abstract class AbstractIntegrationTest {
         decompressed.release();
         in.release();
     }
+
+    /**
+     * Writes several messages to an encoder which flushes every message, and decodes the output of each of them
+     * in small slices before the frame is complete.
+     */
+    protected void testIdentityOfFlushedMessages() {
+        for (int i = 0; i < 4; i++) {
+            final byte[] data = new byte[1024 + rand.nextInt(4096)];
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte) rand.nextInt(16);
+            }
+            assertTrue(encoder.writeOutbound(Unpooled.wrappedBuffer(data)));
+
+            final CompositeByteBuf compressed = Unpooled.compositeBuffer();
+            ByteBuf msg;
+            while ((msg = encoder.readOutbound()) != null) {
+                compressed.addComponent(msg);
+                compressed.writerIndex(compressed.writerIndex() + msg.readableBytes());
+            }
+            assertTrue(compressed.isReadable());
+            while (compressed.isReadable()) {
+                decoder.writeInbound(compressed.readSlice(Math.min(7, compressed.readableBytes())).retain());
+            }
+            compressed.release();
+
+            final CompositeByteBuf decompressed = Unpooled.compositeBuffer();
+            while ((msg = decoder.readInbound()) != null) {
+                decompressed.addComponent(msg);
+                decompressed.writerIndex(decompressed.writerIndex() + msg.readableBytes());
+            }
+            assertEquals(Unpooled.wrappedBuffer(data), decompressed);
+            decompressed.release();
+        }
+
+        // The end of the frame does not contain any data anymore.
+        assertTrue(encoder.finish());
+        ByteBuf msg;
+        while ((msg = encoder.readOutbound()) != null) {
+            decoder.writeInbound(msg);
+        }
+        assertNull(decoder.readInbound());
+    }
 }
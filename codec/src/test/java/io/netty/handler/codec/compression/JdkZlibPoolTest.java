@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.*;
+
+public class JdkZlibPoolTest {
+
+    private static final byte[] DICTIONARY = "\"type\":\"message\",\"payload\":".getBytes(CharsetUtil.US_ASCII);
+    private static final byte[] DATA =
+            "{\"type\":\"message\",\"payload\":\"Netty is an asynchronous event-driven network application framework\"}"
+            .getBytes(CharsetUtil.US_ASCII);
+
+    @Test
+    public void testRoundTrip() {
+        JdkZlibPool pool = new JdkZlibPool(6);
+        for (ZlibWrapper wrapper: new ZlibWrapper[] { ZlibWrapper.ZLIB, ZlibWrapper.NONE, ZlibWrapper.GZIP }) {
+            for (int i = 0; i < 3; i++) {
+                assertArrayEquals(DATA, decompress(pool, wrapper, compress(pool, wrapper, DATA)));
+            }
+        }
+        // Every stream returned its deflater and inflater, so only one of each kind was ever created.
+        assertEquals(2, pool.pooledDeflaters());
+        assertEquals(2, pool.pooledInflaters());
+    }
+
+    @Test
+    public void testDictionary() {
+        JdkZlibPool pool = new JdkZlibPool(6, DICTIONARY);
+        JdkZlibPool noDictionaryPool = new JdkZlibPool(6);
+        for (ZlibWrapper wrapper: new ZlibWrapper[] { ZlibWrapper.ZLIB, ZlibWrapper.NONE }) {
+            byte[] compressed = compress(pool, wrapper, DATA);
+            assertTrue(compressed.length < compress(noDictionaryPool, wrapper, DATA).length);
+            for (int i = 0; i < 3; i++) {
+                // A reset inflater must get the dictionary again.
+                assertArrayEquals(DATA, decompress(pool, wrapper, compressed));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGzipEncoderWithDictionary() {
+        new JdkZlibEncoder(ZlibWrapper.GZIP, new JdkZlibPool(6, DICTIONARY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGzipDecoderWithDictionary() {
+        new JdkZlibDecoder(ZlibWrapper.GZIP, new JdkZlibPool(6, DICTIONARY));
+    }
+
+    @Test
+    public void testReleaseOnRemoval() {
+        JdkZlibPool pool = new JdkZlibPool(6);
+        EmbeddedChannel ch = new EmbeddedChannel(new JdkZlibEncoder(ZlibWrapper.NONE, pool));
+        assertEquals(0, pool.pooledDeflaters());
+        ch.pipeline().removeFirst();
+        assertEquals(1, pool.pooledDeflaters());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testMaxPooled() {
+        JdkZlibPool pool = new JdkZlibPool(6, null, 1);
+        Deflater a = pool.acquireDeflater(true);
+        Deflater b = pool.acquireDeflater(true);
+        assertNotSame(a, b);
+        pool.releaseDeflater(a, true);
+        pool.releaseDeflater(b, true);
+        assertEquals(1, pool.pooledDeflaters());
+        assertSame(a, pool.acquireDeflater(true));
+        pool.releaseDeflater(a, true);
+
+        pool.clear();
+        assertEquals(0, pool.pooledDeflaters());
+        assertEquals(0, pool.pooledInflaters());
+    }
+
+    private static byte[] compress(JdkZlibPool pool, ZlibWrapper wrapper, byte[] data) {
+        EmbeddedChannel ch = new EmbeddedChannel(new JdkZlibEncoder(wrapper, pool));
+        assertTrue(ch.writeOutbound(Unpooled.wrappedBuffer(data)));
+        assertTrue(ch.finish());
+        return readAll(ch, false);
+    }
+
+    private static byte[] decompress(JdkZlibPool pool, ZlibWrapper wrapper, byte[] data) {
+        EmbeddedChannel ch = new EmbeddedChannel(new JdkZlibDecoder(wrapper, pool));
+        assertTrue(ch.writeInbound(Unpooled.wrappedBuffer(data)));
+        assertTrue(ch.finish());
+        return readAll(ch, true);
+    }
+
+    private static byte[] readAll(EmbeddedChannel ch, boolean inbound) {
+        ByteBuf all = Unpooled.buffer();
+        for (;;) {
+            ByteBuf buf = inbound ? (ByteBuf) ch.readInbound() : (ByteBuf) ch.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            all.writeBytes(buf);
+            buf.release();
+        }
+        byte[] bytes = new byte[all.readableBytes()];
+        all.readBytes(bytes);
+        all.release();
+        return bytes;
+    }
+}
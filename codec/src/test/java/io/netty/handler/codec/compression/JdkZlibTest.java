@@ -15,8 +15,14 @@
  */
 package io.netty.handler.codec.compression;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.internal.ThreadLocalRandom;
 import org.junit.Test;
 
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
 
 public class JdkZlibTest extends ZlibTest {
 
@@ -35,4 +41,44 @@ public class JdkZlibTest extends ZlibTest {
     public void testZLIB_OR_NONE3() throws Exception {
         super.testZLIB_OR_NONE3();
     }
+
+    @Test
+    public void testDirectBuffersStayOffHeap() throws Exception {
+        assumeTrue(JdkZlibDirectBuffers.isAvailable());
+
+        byte[] data = new byte[64 * 1024];
+        ThreadLocalRandom.current().nextBytes(data);
+        // Make the data compressible.
+        System.arraycopy(data, 0, data, data.length / 2, data.length / 2);
+
+        for (ZlibWrapper wrapper: new ZlibWrapper[] { ZlibWrapper.ZLIB, ZlibWrapper.NONE, ZlibWrapper.GZIP }) {
+            EmbeddedChannel chEncoder = new EmbeddedChannel(createEncoder(wrapper));
+            EmbeddedChannel chDecoder = new EmbeddedChannel(createDecoder(wrapper));
+
+            assertTrue(chEncoder.writeOutbound(Unpooled.directBuffer(data.length).writeBytes(data)));
+            assertTrue(chEncoder.finish());
+            for (;;) {
+                ByteBuf compressed = chEncoder.readOutbound();
+                if (compressed == null) {
+                    break;
+                }
+                assertTrue(compressed.isDirect());
+                chDecoder.writeInbound(compressed);
+            }
+            assertTrue(chDecoder.finish());
+
+            ByteBuf decompressed = Unpooled.buffer(data.length);
+            for (;;) {
+                ByteBuf buf = chDecoder.readInbound();
+                if (buf == null) {
+                    break;
+                }
+                assertTrue(buf.isDirect());
+                decompressed.writeBytes(buf);
+                buf.release();
+            }
+            assertEquals(Unpooled.wrappedBuffer(data), decompressed);
+            decompressed.release();
+        }
+    }
 }
@@ -15,6 +15,7 @@
  */
 package io.netty.util;
 
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.MpscLinkedQueueNode;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
@@ -55,6 +56,17 @@ import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
  * (i.e. the size of the wheel) is 512.  You could specify a larger value
  * if you are going to schedule a lot of timeouts.
  *
+ * <h3>Levels</h3>
+ *
+ * By default {@link HashedWheelTimer} uses a single wheel, so a timeout which is
+ * further away than one rotation of the wheel stays in its bucket for multiple
+ * rounds and is visited on every rotation.  If many long timeouts are used (for
+ * example by idle or connection timeouts) you can specify more than one level.
+ * Each additional level is a wheel whose buckets span a whole rotation of the
+ * wheel below it.  Timeouts are stored in the wheel that matches their deadline
+ * and are moved down to the lower wheel once they come close, so each timeout
+ * is only visited a few times before it expires.
+ *
  * <h3>Do not create many instances.</h3>
  *
  * {@link HashedWheelTimer} creates a new thread whenever it is instantiated and
@@ -102,11 +114,15 @@ public class HashedWheelTimer implements Timer {
     private volatile int workerState = WORKER_STATE_INIT; // 0 - init, 1 - started, 2 - shut down
 
     private final long tickDuration;
+    // wheels[0] is the wheel from which the timeouts are expired, all the others are overflow wheels.
+    private final HashedWheelBucket[][] wheels;
     private final HashedWheelBucket[] wheel;
+    private final int wheelShift;
     private final int mask;
     private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
     private final Queue<HashedWheelTimeout> timeouts = PlatformDependent.newMpscQueue();
     private final Queue<Runnable> cancelledTimeouts = PlatformDependent.newMpscQueue();
+    private final LongCounter pendingTimeouts = PlatformDependent.newLongCounter();
 
     private volatile long startTime;
 
@@ -191,6 +207,29 @@ public class HashedWheelTimer implements Timer {
     public HashedWheelTimer(
             ThreadFactory threadFactory,
             long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(threadFactory, tickDuration, unit, ticksPerWheel, 1);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates a
+     *                       background {@link Thread} which is dedicated to
+     *                       {@link TimerTask} execution.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @param ticksPerWheel  the size of each wheel
+     * @param levels         the number of wheels. {@code 1} uses a single wheel
+     *                       in which timeouts that are further away than one
+     *                       rotation stay for multiple rounds.
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration}, {@code ticksPerWheel} and
+     *                                  {@code levels} is <= 0 or if the wheels would span more than
+     *                                  {@code 2^62} ticks
+     */
+    public HashedWheelTimer(
+            ThreadFactory threadFactory,
+            long tickDuration, TimeUnit unit, int ticksPerWheel, int levels) {
 
         if (threadFactory == null) {
             throw new NullPointerException("threadFactory");
@@ -204,10 +243,25 @@ public class HashedWheelTimer implements Timer {
         if (ticksPerWheel <= 0) {
             throw new IllegalArgumentException("ticksPerWheel must be greater than 0: " + ticksPerWheel);
         }
+        if (levels <= 0) {
+            throw new IllegalArgumentException("levels must be greater than 0: " + levels);
+        }
 
-        // Normalize ticksPerWheel to power of two and initialize the wheel.
-        wheel = createWheel(ticksPerWheel);
+        // Normalize ticksPerWheel to power of two and initialize the wheels.
+        wheels = new HashedWheelBucket[levels][];
+        for (int i = 0; i < levels; i ++) {
+            wheels[i] = createWheel(ticksPerWheel);
+        }
+        wheel = wheels[0];
         mask = wheel.length - 1;
+        wheelShift = Integer.numberOfTrailingZeros(wheel.length);
+
+        // Prevent overflow of the ticks covered by all the wheels.
+        if (levels > 1 && (long) wheelShift * levels > 62) {
+            throw new IllegalArgumentException(String.format(
+                    "levels: %d (expected: 0 < levels <= %d for %d ticksPerWheel)",
+                    levels, 62 / Math.max(1, wheelShift), wheel.length));
+        }
 
         // Convert tickDuration to nanos.
         this.tickDuration = unit.toNanos(tickDuration);
@@ -321,6 +375,13 @@ public class HashedWheelTimer implements Timer {
         return worker.unprocessedTimeouts();
     }
 
+    /**
+     * Returns the number of timeouts which were scheduled and neither expired nor cancelled yet.
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.value();
+    }
+
     @Override
     public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
         if (task == null) {
@@ -335,6 +396,7 @@ public class HashedWheelTimer implements Timer {
         // During processing all the queued HashedWheelTimeouts will be added to the correct HashedWheelBucket.
         long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
         HashedWheelTimeout timeout = new HashedWheelTimeout(this, task, deadline);
+        pendingTimeouts.increment();
         timeouts.add(timeout);
         return timeout;
     }
@@ -364,14 +426,22 @@ public class HashedWheelTimer implements Timer {
                     HashedWheelBucket bucket =
                             wheel[idx];
                     transferTimeoutsToBuckets();
-                    bucket.expireTimeouts(deadline);
+                    if (wheels.length > 1) {
+                        cascadeTimeouts();
+                        // All the timeouts in the bucket are due now, so expire them at once.
+                        bucket.expireAllTimeouts();
+                    } else {
+                        bucket.expireTimeouts(deadline);
+                    }
                     tick++;
                 }
             } while (WORKER_STATE_UPDATER.get(HashedWheelTimer.this) == WORKER_STATE_STARTED);
 
             // Fill the unprocessedTimeouts so we can return them from stop() method.
-            for (HashedWheelBucket bucket: wheel) {
-                bucket.clearTimeouts(unprocessedTimeouts);
+            for (HashedWheelBucket[] wheel: wheels) {
+                for (HashedWheelBucket bucket: wheel) {
+                    bucket.clearTimeouts(unprocessedTimeouts);
+                }
             }
             for (;;) {
                 HashedWheelTimeout timeout = timeouts.poll();
@@ -399,14 +469,46 @@ public class HashedWheelTimer implements Timer {
                     continue;
                 }
 
-                long calculated = timeout.deadline / tickDuration;
-                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                addTimeout(timeout);
+            }
+        }
 
-                final long ticks = Math.max(calculated, tick); // Ensure we don't schedule for past.
-                int stopIndex = (int) (ticks & mask);
+        /**
+         * Add the {@link HashedWheelTimeout} to the lowest wheel whose range covers its deadline. If the deadline
+         * is out of the range of the highest wheel it is added to the highest wheel with the number of rotations it
+         * needs to stay there.
+         */
+        void addTimeout(HashedWheelTimeout timeout) {
+            long calculated = timeout.deadline / tickDuration;
+            final long ticks = Math.max(calculated, tick); // Ensure we don't schedule for past.
+            final long delta = ticks - tick;
+
+            int level = 0;
+            while (level < wheels.length - 1 && delta >= 1L << (wheelShift * (level + 1))) {
+                level ++;
+            }
+
+            // The bucket of the wheel is processed on the first tick of its range, which is the tick at which the
+            // timeout needs to be moved to a lower wheel or expired.
+            final int shift = wheelShift * level;
+            final long slot = ticks >>> shift;
+            timeout.remainingRounds = ((slot << shift) - tick) >>> (shift + wheelShift);
+
+            HashedWheelBucket bucket = wheels[level][(int) (slot & mask)];
+            bucket.addTimeout(timeout);
+        }
 
-                HashedWheelBucket bucket = wheel[stopIndex];
-                bucket.addTimeout(timeout);
+        /**
+         * Move the {@link HashedWheelTimeout}s of the overflow wheels whose range starts with the current tick down
+         * to the lower wheels. This is done from the highest to the lowest wheel, so timeouts can move down more
+         * than one level on the same tick.
+         */
+        private void cascadeTimeouts() {
+            for (int level = wheels.length - 1; level > 0; level --) {
+                final int shift = wheelShift * level;
+                if ((tick & ((1L << shift) - 1)) == 0) {
+                    wheels[level][(int) ((tick >>> shift) & mask)].cascadeTimeouts(this);
+                }
             }
         }
 
@@ -530,6 +632,7 @@ public class HashedWheelTimer implements Timer {
             if (!compareAndSetState(ST_INIT, ST_CANCELLED)) {
                 return false;
             }
+            timer.pendingTimeouts.decrement();
             // If a task should be canceled we create a new Runnable for this to another queue which will
             // be processed on each tick. So this means that we will have a GC latency of max. 1 tick duration
             // which is good enough. This way we can make again use of our MpscLinkedQueue and so minimize the
@@ -576,6 +679,7 @@ public class HashedWheelTimer implements Timer {
             if (!compareAndSetState(ST_INIT, ST_EXPIRED)) {
                 return;
             }
+            timer.pendingTimeouts.decrement();
 
             try {
                 task.run(this);
@@ -673,6 +777,46 @@ public class HashedWheelTimer implements Timer {
             }
         }
 
+        /**
+         * Expire all {@link HashedWheelTimeout}s of this bucket. Only used if there is more than one wheel, as
+         * then all the {@link HashedWheelTimeout}s of the bucket of the current tick are due.
+         */
+        public void expireAllTimeouts() {
+            HashedWheelTimeout timeout = head;
+            head = tail = null;
+
+            while (timeout != null) {
+                HashedWheelTimeout next = timeout.next;
+                // null out prev, next and bucket to allow for GC.
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.bucket = null;
+                timeout.expire();
+                timeout = next;
+            }
+        }
+
+        /**
+         * Move all {@link HashedWheelTimeout}s which are due in the range of this bucket to the lower wheels
+         * and remove the ones that were cancelled.
+         */
+        public void cascadeTimeouts(Worker worker) {
+            HashedWheelTimeout timeout = head;
+            while (timeout != null) {
+                // store reference to next as we null out timeout.next when removing it.
+                HashedWheelTimeout next = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds --;
+                } else {
+                    remove(timeout);
+                    worker.addTimeout(timeout);
+                }
+                timeout = next;
+            }
+        }
+
         public void remove(HashedWheelTimeout timeout) {
             HashedWheelTimeout next = timeout.next;
             // remove timeout that was either processed or cancelled by updating the linked-list
@@ -18,9 +18,9 @@ package io.netty.util.concurrent;
 import io.netty.util.internal.CallableEventExecutorAdapter;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.OneTimeTask;
+import io.netty.util.internal.PriorityQueue;
 import io.netty.util.internal.RunnableEventExecutorAdapter;
 
-import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
@@ -31,7 +31,8 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
 
-    Queue<ScheduledFutureTask<?>> scheduledTaskQueue;
+    // The ScheduledFutureTasks store their index in the queue, so removing a cancelled task is O(log n).
+    PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue;
 
     protected AbstractScheduledEventExecutor() {
     }
@@ -44,7 +45,7 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         return ScheduledFutureTask.nanoTime();
     }
 
-    Queue<ScheduledFutureTask<?>> scheduledTaskQueue() {
+    PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue() {
         if (scheduledTaskQueue == null) {
             scheduledTaskQueue = new PriorityQueue<ScheduledFutureTask<?>>();
         }
@@ -18,6 +18,7 @@ package io.netty.util.concurrent;
 
 import io.netty.util.internal.CallableEventExecutorAdapter;
 import io.netty.util.internal.OneTimeTask;
+import io.netty.util.internal.PriorityQueueNode;
 
 import java.util.Queue;
 import java.util.concurrent.Callable;
@@ -26,7 +27,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 @SuppressWarnings("ComparableImplementedButEqualsNotOverridden")
-final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFuture<V> {
+final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFuture<V>, PriorityQueueNode {
     private static final AtomicLong nextTaskId = new AtomicLong();
     private static final long START_TIME = System.nanoTime();
 
@@ -43,6 +44,8 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
     /* 0 - no repeat, >0 - repeat at fixed rate, <0 - repeat with fixed delay */
     private final long periodNanos;
 
+    private int queueIndex = INDEX_NOT_IN_QUEUE;
+
     ScheduledFutureTask(EventExecutor executor,
                         Callable<V> callable, long nanoTime, long period) {
         super(executor.unwrap(), callable);
@@ -73,6 +76,16 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
         return Math.max(0, deadlineNanos() - (currentTimeNanos - START_TIME));
     }
 
+    @Override
+    public int priorityQueueIndex() {
+        return queueIndex;
+    }
+
+    @Override
+    public void priorityQueueIndex(int i) {
+        queueIndex = i;
+    }
+
     @Override
     public long getDelay(TimeUnit unit) {
         return unit.convert(delayNanos(), TimeUnit.NANOSECONDS);
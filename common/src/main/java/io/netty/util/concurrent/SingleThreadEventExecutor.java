@@ -127,11 +127,14 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 updateLastExecutionTime();
             }
 
+            ThreadExecutorMap.setCurrentExecutor(SingleThreadEventExecutor.this);
             try {
                 SingleThreadEventExecutor.this.run();
             } catch (Throwable t) {
                 logger.warn("Unexpected exception from an event executor: ", t);
                 cleanupAndTerminate(false);
+            } finally {
+                ThreadExecutorMap.setCurrentExecutor(null);
             }
         }
     };
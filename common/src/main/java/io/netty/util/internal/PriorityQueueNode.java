@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+/**
+ * An element of a {@link PriorityQueue} which stores its own index in the queue, so it can be found and removed
+ * without searching the whole queue.
+ */
+public interface PriorityQueueNode {
+    /**
+     * The index of a node which is not contained in any {@link PriorityQueue}. Must be used as initial value of the
+     * index.
+     */
+    int INDEX_NOT_IN_QUEUE = -1;
+
+    /**
+     * Returns the index which was last set via {@link #priorityQueueIndex(int)}.
+     */
+    int priorityQueueIndex();
+
+    /**
+     * Sets the index of this node in the {@link PriorityQueue}. Must only be called by {@link PriorityQueue}.
+     */
+    void priorityQueueIndex(int i);
+}
@@ -154,4 +154,68 @@ public class HashedWheelTimerTest {
 
         timer.stop();
     }
+
+    @Test
+    public void testHierarchicalWheelExecutionOnTime() throws InterruptedException {
+        // 4 ticks per wheel and 3 levels cover 64 ticks, so the longer timeouts also need to stay in the highest
+        // wheel for multiple rotations.
+        final int tickDuration = 10;
+        final HashedWheelTimer timer = new HashedWheelTimer(
+                Executors.defaultThreadFactory(), tickDuration, TimeUnit.MILLISECONDS, 4, 3);
+        final BlockingQueue<Long> queue = new LinkedBlockingQueue<Long>();
+
+        final int scheduledTasks = 200;
+        final int[] timeouts = new int[scheduledTasks];
+        for (int i = 0; i < scheduledTasks; i++) {
+            final int index = i;
+            final long start = System.nanoTime();
+            timeouts[i] = i * 7;
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(final Timeout timeout) throws Exception {
+                    long delay = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    queue.add(delay - timeouts[index]);
+                }
+            }, timeouts[i], TimeUnit.MILLISECONDS);
+        }
+
+        for (int i = 0; i < scheduledTasks; i++) {
+            long late = queue.take();
+            assertTrue("timeout expired " + late + " ms too late", late >= 0 && late < 4 * tickDuration + 200);
+        }
+        assertEquals(0, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    @Test
+    public void testPendingTimeouts() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer(
+                Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 8, 2);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final TimerTask noop = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                fail("This should not have run");
+            }
+        };
+        Timeout t1 = timer.newTimeout(noop, 10, TimeUnit.SECONDS);
+        Timeout t2 = timer.newTimeout(noop, 10, TimeUnit.MINUTES);
+        timer.newTimeout(noop, 1, TimeUnit.HOURS);
+        timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                latch.countDown();
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        assertEquals(4, timer.pendingTimeouts());
+
+        assertTrue(t1.cancel());
+        assertTrue(t2.cancel());
+        assertFalse(t2.cancel());
+        assertEquals(2, timer.pendingTimeouts());
+
+        assertTrue(latch.await(3, TimeUnit.SECONDS));
+        assertEquals(1, timer.pendingTimeouts());
+        assertEquals(1, timer.stop().size());
+    }
 }
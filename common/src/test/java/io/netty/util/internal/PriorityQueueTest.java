@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PriorityQueueTest {
+
+    @Test
+    public void testPoll() {
+        PriorityQueue<TestElement> queue = new PriorityQueue<TestElement>(0);
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+
+        TestElement a = new TestElement(5);
+        TestElement b = new TestElement(10);
+        TestElement c = new TestElement(2);
+        TestElement d = new TestElement(7);
+        TestElement e = new TestElement(6);
+        assertOffer(queue, a);
+        assertOffer(queue, b);
+        assertOffer(queue, c);
+        assertOffer(queue, d);
+        assertOffer(queue, e);
+
+        assertSame(c, queue.peek());
+        assertSame(c, queue.poll());
+        assertEquals(PriorityQueueNode.INDEX_NOT_IN_QUEUE, c.priorityQueueIndex());
+        assertFalse(queue.contains(c));
+        assertSame(a, queue.poll());
+        assertSame(e, queue.poll());
+        assertSame(d, queue.poll());
+        assertSame(b, queue.poll());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testRemove() {
+        PriorityQueue<TestElement> queue = new PriorityQueue<TestElement>(4);
+        TestElement a = new TestElement(5);
+        TestElement b = new TestElement(10);
+        TestElement c = new TestElement(2);
+        TestElement d = new TestElement(6);
+        TestElement notInQueue = new TestElement(1);
+        assertOffer(queue, a);
+        assertOffer(queue, b);
+        assertOffer(queue, c);
+        assertOffer(queue, d);
+
+        assertFalse(queue.remove(notInQueue));
+        assertFalse(queue.remove("not a node"));
+
+        assertTrue(queue.remove(a));
+        assertFalse(queue.contains(a));
+        assertFalse(queue.remove(a));
+        assertEquals(3, queue.size());
+
+        assertTrue(queue.remove(c));
+        assertSame(d, queue.peek());
+        assertTrue(queue.remove(b));
+        assertTrue(queue.remove(d));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfferTwice() {
+        PriorityQueue<TestElement> queue = new PriorityQueue<TestElement>();
+        TestElement a = new TestElement(1);
+        queue.offer(a);
+        queue.offer(a);
+    }
+
+    @Test
+    public void testClear() {
+        PriorityQueue<TestElement> queue = new PriorityQueue<TestElement>();
+        TestElement a = new TestElement(1);
+        TestElement b = new TestElement(2);
+        assertOffer(queue, a);
+        assertOffer(queue, b);
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.contains(a));
+        assertEquals(PriorityQueueNode.INDEX_NOT_IN_QUEUE, a.priorityQueueIndex());
+        assertEquals(PriorityQueueNode.INDEX_NOT_IN_QUEUE, b.priorityQueueIndex());
+
+        // The elements can be added again after the queue was cleared.
+        assertOffer(queue, b);
+        assertSame(b, queue.peek());
+    }
+
+    @Test
+    public void testRandomRemoveAndPoll() {
+        Random random = new Random(42);
+        PriorityQueue<TestElement> queue = new PriorityQueue<TestElement>();
+        List<TestElement> expected = new ArrayList<TestElement>();
+        for (int i = 0; i < 1000; i++) {
+            TestElement element = new TestElement(random.nextInt(100));
+            expected.add(element);
+            assertOffer(queue, element);
+        }
+
+        // Remove every third element at a random position.
+        Collections.shuffle(expected, random);
+        for (int i = expected.size() - 1; i >= 0; i -= 3) {
+            assertTrue(queue.remove(expected.remove(i)));
+        }
+        assertEquals(expected.size(), queue.size());
+
+        Collections.sort(expected);
+        for (TestElement element: expected) {
+            TestElement polled = queue.poll();
+            assertEquals(element.value, polled.value);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    private static void assertOffer(PriorityQueue<TestElement> queue, TestElement element) {
+        assertTrue(queue.offer(element));
+        assertTrue(queue.contains(element));
+    }
+
+    private static final class TestElement implements Comparable<TestElement>, PriorityQueueNode {
+        final int value;
+        private int priorityQueueIndex = INDEX_NOT_IN_QUEUE;
+
+        TestElement(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(TestElement o) {
+            return value < o.value ? -1 : value == o.value ? 0 : 1;
+        }
+
+        @Override
+        public int priorityQueueIndex() {
+            return priorityQueueIndex;
+        }
+
+        @Override
+        public void priorityQueueIndex(int i) {
+            priorityQueueIndex = i;
+        }
+    }
+}
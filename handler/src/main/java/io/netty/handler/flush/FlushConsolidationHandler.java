@@ -0,0 +1,242 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.flush;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChannelHandler} which consolidates {@link Channel#flush()} / {@link ChannelHandlerContext#flush()}
+ * operations, so multiple messages which are written and flushed one by one end up in a single gathering write
+ * to the socket.
+ * <p>
+ * Flush operations are consolidated as follows:
+ * <ul>
+ *     <li>While a read loop is in progress, flushes are delayed until
+ *     {@link #channelReadComplete(ChannelHandlerContext)} is triggered. This covers request/response protocols
+ *     where each response is written via {@link Channel#writeAndFlush(Object)} from
+ *     {@link #channelRead(ChannelHandlerContext, Object)}.</li>
+ *     <li>If {@code consolidateWhenNoReadInProgress} is {@code true}, flushes which are triggered outside of a read
+ *     loop (for example by another {@link Thread} or an application task) are delayed until the end of the current
+ *     run of the {@link io.netty.channel.EventLoop}, or at most {@code maxDelay} if it is greater than {@code 0}.
+ *     </li>
+ *     <li>In any case the flush is issued once {@code explicitFlushAfterFlushes} flushes were delayed, which bounds
+ *     the number of messages sitting in the {@link ChannelOutboundBuffer}.</li>
+ * </ul>
+ * Flushes which are still pending are issued before the {@link Channel} is closed or disconnected, when an exception
+ * is caught, when the {@link Channel} becomes unwritable and when the handler is removed.
+ * <p>
+ * This handler should be placed as close to the head of the {@link io.netty.channel.ChannelPipeline} as possible,
+ * so the flushes of all other handlers are consolidated.
+ */
+public class FlushConsolidationHandler extends ChannelHandlerAdapter {
+
+    /**
+     * The default number of flushes after which a flush will be forwarded to downstream handlers.
+     */
+    public static final int DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES = 256;
+
+    private final int explicitFlushAfterFlushes;
+    private final boolean consolidateWhenNoReadInProgress;
+    private final long maxDelayNanos;
+    private final Runnable flushTask;
+    private int flushPendingCount;
+    private boolean readInProgress;
+    private ChannelHandlerContext ctx;
+    private Future<?> nextScheduledFlush;
+
+    /**
+     * Creates a new instance which only consolidates flushes while a read loop is in progress and issues them after
+     * at most {@link #DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES} flushes.
+     */
+    public FlushConsolidationHandler() {
+        this(DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, false);
+    }
+
+    /**
+     * Creates a new instance which only consolidates flushes while a read loop is in progress.
+     *
+     * @param explicitFlushAfterFlushes the number of flushes after which an explicit flush will be done.
+     */
+    public FlushConsolidationHandler(int explicitFlushAfterFlushes) {
+        this(explicitFlushAfterFlushes, false);
+    }
+
+    /**
+     * Creates a new instance which issues flushes that are triggered outside of a read loop at the end of the
+     * current run of the {@link io.netty.channel.EventLoop}.
+     *
+     * @param explicitFlushAfterFlushes         the number of flushes after which an explicit flush will be done.
+     * @param consolidateWhenNoReadInProgress   whether to consolidate flushes even when no read loop is currently
+     *                                          ongoing.
+     */
+    public FlushConsolidationHandler(int explicitFlushAfterFlushes, boolean consolidateWhenNoReadInProgress) {
+        this(explicitFlushAfterFlushes, consolidateWhenNoReadInProgress, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param explicitFlushAfterFlushes         the number of flushes after which an explicit flush will be done.
+     * @param consolidateWhenNoReadInProgress   whether to consolidate flushes even when no read loop is currently
+     *                                          ongoing.
+     * @param maxDelay                          the maximal time a flush which is triggered outside of a read loop
+     *                                          is delayed. {@code 0} flushes at the end of the current run of
+     *                                          the {@link io.netty.channel.EventLoop}.
+     * @param unit                              the {@link TimeUnit} of {@code maxDelay}
+     */
+    public FlushConsolidationHandler(int explicitFlushAfterFlushes, boolean consolidateWhenNoReadInProgress,
+                                     long maxDelay, TimeUnit unit) {
+        if (explicitFlushAfterFlushes <= 0) {
+            throw new IllegalArgumentException("explicitFlushAfterFlushes: "
+                    + explicitFlushAfterFlushes + " (expected: > 0)");
+        }
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("maxDelay: " + maxDelay + " (expected: >= 0)");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+        this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
+        maxDelayNanos = unit.toNanos(maxDelay);
+        flushTask = consolidateWhenNoReadInProgress ? new Runnable() {
+            @Override
+            public void run() {
+                if (flushPendingCount > 0 && !readInProgress) {
+                    flushPendingCount = 0;
+                    nextScheduledFlush = null;
+                    ctx.flush();
+                }
+                // Otherwise the flush will be done by channelReadComplete(...) or was done already.
+            }
+        } : null;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (readInProgress) {
+            // If there is still a read in progress we are sure we will see a channelReadComplete(...) call. Thus
+            // we only need to flush if we reach the explicitFlushAfterFlushes limit.
+            if (++flushPendingCount == explicitFlushAfterFlushes) {
+                flushNow(ctx);
+            }
+        } else if (consolidateWhenNoReadInProgress) {
+            // Flush immediately if we reached the threshold, otherwise schedule
+            if (++flushPendingCount == explicitFlushAfterFlushes) {
+                flushNow(ctx);
+            } else {
+                scheduleFlush(ctx);
+            }
+        } else {
+            // Always flush directly
+            flushNow(ctx);
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        // This may be the last event in the read loop, so flush now!
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        // To ensure we not miss to flush anything, do it now.
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        // Try to flush one last time if flushes are pending before disconnect the channel.
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        // Try to flush one last time if flushes are pending before close the channel.
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (!ctx.channel().isWritable()) {
+            // The writability of the channel changed to false, so flush all consolidated flushes now to free up
+            // memory.
+            flushIfNeeded(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushIfNeeded(ctx);
+    }
+
+    private void resetReadAndFlushIfNeeded(ChannelHandlerContext ctx) {
+        readInProgress = false;
+        flushIfNeeded(ctx);
+    }
+
+    private void flushIfNeeded(ChannelHandlerContext ctx) {
+        if (flushPendingCount > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        cancelScheduledFlush();
+        flushPendingCount = 0;
+        ctx.flush();
+    }
+
+    private void scheduleFlush(final ChannelHandlerContext ctx) {
+        if (nextScheduledFlush == null) {
+            // Run as soon as possible, but still after the current run of the EventLoop.
+            nextScheduledFlush = maxDelayNanos == 0 ? ctx.channel().eventLoop().submit(flushTask) :
+                    ctx.channel().eventLoop().schedule(flushTask, maxDelayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void cancelScheduledFlush() {
+        if (nextScheduledFlush != null) {
+            nextScheduledFlush.cancel(false);
+            nextScheduledFlush = null;
+        }
+    }
+}
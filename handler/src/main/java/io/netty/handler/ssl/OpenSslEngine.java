@@ -83,7 +83,7 @@ public final class OpenSslEngine extends SSLEngine {
         DESTROYED_UPDATER = destroyedUpdater;
     }
 
-    private static final int MAX_PLAINTEXT_LENGTH = 16 * 1024; // 2^14
+    static final int MAX_PLAINTEXT_LENGTH = 16 * 1024; // 2^14
     private static final int MAX_COMPRESSED_LENGTH = MAX_PLAINTEXT_LENGTH + 1024;
     private static final int MAX_CIPHERTEXT_LENGTH = MAX_COMPRESSED_LENGTH + 1024;
 
@@ -259,6 +259,53 @@ public final class OpenSslEngine extends SSLEngine {
         SSL.clearError();
     }
 
+    /**
+     * Write plaintext data to the OpenSSL internal BIO. If {@code srcs[offset]} is smaller than a record, the
+     * following buffers are gathered into the same record, so a single record is produced instead of one per buffer.
+     *
+     * Calling this function with srcs[offset].remaining == 0 is undefined.
+     */
+    private int writePlaintextData(final ByteBuffer[] srcs, final int offset, final int endOffset) {
+        final ByteBuffer first = srcs[offset];
+        int len = first.remaining();
+        int last = offset;
+        while (len < MAX_PLAINTEXT_LENGTH && last + 1 < endOffset) {
+            len += srcs[++ last].remaining();
+        }
+        if (last == offset || len == first.remaining()) {
+            return writePlaintextData(first);
+        }
+        len = Math.min(len, MAX_PLAINTEXT_LENGTH);
+
+        final int sslWrote;
+        ByteBuf buf = alloc.directBuffer(len);
+        try {
+            for (int i = offset; buf.isWritable(); ++ i) {
+                final ByteBuffer src = srcs[i];
+                final int pos = src.position();
+                final int limit = src.limit();
+                src.limit(pos + Math.min(src.remaining(), buf.writableBytes()));
+                buf.writeBytes(src);
+                src.limit(limit);
+                src.position(pos);
+            }
+
+            sslWrote = SSL.writeToSSL(ssl, memoryAddress(buf), len);
+            if (sslWrote > 0) {
+                int remaining = sslWrote;
+                for (int i = offset; remaining > 0; ++ i) {
+                    final ByteBuffer src = srcs[i];
+                    final int consumed = Math.min(src.remaining(), remaining);
+                    src.position(src.position() + consumed);
+                    remaining -= consumed;
+                }
+            }
+        } finally {
+            buf.release();
+        }
+        return sslWrote;
+    }
+
     /**
      * Write plaintext data to the OpenSSL internal BIO
      *
@@ -493,14 +540,16 @@ public final class OpenSslEngine extends SSLEngine {
         int bytesConsumed = 0;
         int endOffset = offset + length;
         for (int i = offset; i < endOffset; ++ i) {
-            final ByteBuffer src = srcs[i];
-            if (src == null) {
+            if (srcs[i] == null) {
                 throw new IllegalArgumentException("srcs[" + i + "] is null");
             }
+        }
+        for (int i = offset; i < endOffset; ++ i) {
+            final ByteBuffer src = srcs[i];
             while (src.hasRemaining()) {
 
                 // Write plaintext application data to the SSL engine
-                int result = writePlaintextData(src);
+                int result = writePlaintextData(srcs, i, endOffset);
                 if (result > 0) {
                     bytesConsumed += result;
                 } else {
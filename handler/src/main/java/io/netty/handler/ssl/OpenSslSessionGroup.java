@@ -0,0 +1,360 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A group of {@link OpenSslServerContext}s which share their session ticket keys and session cache settings,
+ * for example all the contexts of a {@link SniHandler}, or the contexts which replace each other when the
+ * certificates are reloaded. A session which was established via one member of the group can be resumed via any
+ * other member, as long as the ticket key which encrypted its ticket is still known.
+ * <p>
+ * The ticket keys can be rotated on a schedule via
+ * {@link #scheduleTicketKeyRotation(ScheduledExecutorService, long, long, TimeUnit)}. A new key is used to encrypt
+ * new tickets right away, while the previous keys are kept for the overlap window, so tickets which were issued
+ * before the rotation can still be decrypted.
+ * <p>
+ * The stats of the group, for example {@link #hits()} and {@link #misses()}, are the sums of the
+ * {@link OpenSslSessionStats} of all the contexts which are or were members of the group.
+ * <p>
+ * The group keeps a strong reference to each of its members, so their native {@code SSL_CTX} is not freed by
+ * {@link OpenSslContext#finalize()} while the group still uses it. Contexts which are not used anymore must be
+ * {@linkplain #remove(OpenSslServerContext) removed} to be collected.
+ * <pre>
+ * {@link OpenSslSessionGroup} group = new {@link OpenSslSessionGroup}();
+ * group.setSessionCacheSize(20480);
+ * group.scheduleTicketKeyRotation(executor, 1, 12, {@link TimeUnit#HOURS});
+ * ...
+ * // For each new or reloaded context:
+ * group.add((OpenSslServerContext) sslContext);
+ * </pre>
+ */
+public final class OpenSslSessionGroup {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(OpenSslSessionGroup.class);
+
+    /**
+     * The default number of ticket keys which are kept: the current key and the previous one.
+     */
+    public static final int DEFAULT_MAX_TICKET_KEYS = 2;
+
+    private final SecureRandom random = new SecureRandom();
+    private final List<OpenSslServerContext> members = new ArrayList<OpenSslServerContext>();
+    private final List<OpenSslSessionTicketKey> ticketKeys = new ArrayList<OpenSslSessionTicketKey>();
+    private int maxTicketKeys = DEFAULT_MAX_TICKET_KEYS;
+    private int sessionCacheSize = -1;
+    private int sessionTimeout = -1;
+    private byte[] sessionIdContext;
+    private ScheduledFuture<?> rotationFuture;
+
+    // The stats of the contexts which were removed from the group already.
+    private long removedAccept;
+    private long removedAcceptGood;
+    private long removedHits;
+    private long removedMisses;
+    private long removedTimeouts;
+    private long removedCacheFull;
+
+    /**
+     * Adds the given context to the group and applies the ticket keys and session cache settings of the group to
+     * it.
+     */
+    public synchronized void add(OpenSslServerContext sslContext) {
+        checkNotNull(sslContext, "sslContext");
+        if (members.contains(sslContext)) {
+            return;
+        }
+        OpenSslServerSessionContext context = sslContext.sessionContext();
+        if (!ticketKeys.isEmpty()) {
+            context.setTicketKeys(ticketKeys.toArray(new OpenSslSessionTicketKey[ticketKeys.size()]));
+        }
+        if (sessionCacheSize >= 0) {
+            context.setSessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeout >= 0) {
+            context.setSessionTimeout(sessionTimeout);
+        }
+        if (sessionIdContext != null) {
+            context.setSessionIdContext(sessionIdContext);
+        }
+        members.add(sslContext);
+    }
+
+    /**
+     * Removes the given context from the group. It keeps the ticket keys it got from the group, but they are not
+     * rotated anymore. Its stats are still counted by the group.
+     *
+     * @return {@code true} if the context was a member of the group
+     */
+    public synchronized boolean remove(OpenSslServerContext sslContext) {
+        if (!members.remove(sslContext)) {
+            return false;
+        }
+        OpenSslSessionStats stats = sslContext.sessionContext().stats();
+        removedAccept += stats.accept();
+        removedAcceptGood += stats.acceptGood();
+        removedHits += stats.hits();
+        removedMisses += stats.misses();
+        removedTimeouts += stats.timeouts();
+        removedCacheFull += stats.cacheFull();
+        return true;
+    }
+
+    /**
+     * Returns the number of contexts in the group.
+     */
+    public synchronized int size() {
+        return members.size();
+    }
+
+    /**
+     * Sets the size of the session cache of every member, so the total number of cached sessions is bounded by the
+     * number of members times the given size.
+     */
+    public synchronized void setSessionCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size: " + size + " (expected: >= 0)");
+        }
+        sessionCacheSize = size;
+        for (OpenSslServerContext context: members) {
+            context.sessionContext().setSessionCacheSize(size);
+        }
+    }
+
+    /**
+     * Sets the timeout in seconds of the cached sessions of every member.
+     */
+    public synchronized void setSessionTimeout(int seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("seconds: " + seconds + " (expected: >= 0)");
+        }
+        sessionTimeout = seconds;
+        for (OpenSslServerContext context: members) {
+            context.sessionContext().setSessionTimeout(seconds);
+        }
+    }
+
+    /**
+     * Sets the context within which sessions are reused of every member, see
+     * {@link OpenSslServerSessionContext#setSessionIdContext(byte[])}. Members must share it, otherwise the sessions
+     * of one member can not be resumed by another one.
+     */
+    public synchronized void setSessionIdContext(byte[] sidCtx) {
+        checkNotNull(sidCtx, "sidCtx");
+        sessionIdContext = sidCtx.clone();
+        for (OpenSslServerContext context: members) {
+            context.sessionContext().setSessionIdContext(sessionIdContext);
+        }
+    }
+
+    /**
+     * Returns the ticket keys of the group. The first one is used to encrypt new tickets, all of them are used to
+     * decrypt tickets.
+     */
+    public synchronized OpenSslSessionTicketKey[] ticketKeys() {
+        return ticketKeys.toArray(new OpenSslSessionTicketKey[ticketKeys.size()]);
+    }
+
+    /**
+     * Sets the number of ticket keys which are kept. Tickets can be decrypted until their key is older than
+     * {@code maxTicketKeys - 1} rotations.
+     */
+    public synchronized void setMaxTicketKeys(int maxTicketKeys) {
+        if (maxTicketKeys < 1) {
+            throw new IllegalArgumentException("maxTicketKeys: " + maxTicketKeys + " (expected: >= 1)");
+        }
+        this.maxTicketKeys = maxTicketKeys;
+        if (trimTicketKeys()) {
+            applyTicketKeys();
+        }
+    }
+
+    /**
+     * Returns the number of ticket keys which are kept.
+     */
+    public synchronized int maxTicketKeys() {
+        return maxTicketKeys;
+    }
+
+    /**
+     * Generates a new ticket key which is used to encrypt new tickets from now on. The oldest key is dropped if the
+     * group has {@link #maxTicketKeys()} keys already.
+     */
+    public synchronized void rotateTicketKeys() {
+        byte[] name = new byte[OpenSslSessionTicketKey.NAME_SIZE];
+        byte[] hmacKey = new byte[OpenSslSessionTicketKey.HMAC_KEY_SIZE];
+        byte[] aesKey = new byte[OpenSslSessionTicketKey.AES_KEY_SIZE];
+        random.nextBytes(name);
+        random.nextBytes(hmacKey);
+        random.nextBytes(aesKey);
+        ticketKeys.add(0, new OpenSslSessionTicketKey(name, hmacKey, aesKey));
+        trimTicketKeys();
+        applyTicketKeys();
+    }
+
+    private boolean trimTicketKeys() {
+        boolean trimmed = false;
+        while (ticketKeys.size() > maxTicketKeys) {
+            ticketKeys.remove(ticketKeys.size() - 1);
+            trimmed = true;
+        }
+        return trimmed;
+    }
+
+    private void applyTicketKeys() {
+        if (members.isEmpty()) {
+            return;
+        }
+        OpenSslSessionTicketKey[] keys = ticketKeys.toArray(new OpenSslSessionTicketKey[ticketKeys.size()]);
+        for (OpenSslServerContext context: members) {
+            context.sessionContext().setTicketKeys(keys);
+        }
+    }
+
+    /**
+     * Rotates the ticket keys now and then every {@code rotationInterval}, while the previous keys are kept for the
+     * given overlap window. A previously scheduled rotation is cancelled.
+     *
+     * @param executor          the executor which runs the rotation
+     * @param rotationInterval  the time after which a new key is used to encrypt new tickets
+     * @param overlap           the time for which a key is still used to decrypt tickets after it was replaced
+     * @param unit              the unit of {@code rotationInterval} and {@code overlap}
+     * @return the {@link ScheduledFuture} of the rotation, which may be cancelled to stop it
+     */
+    public synchronized ScheduledFuture<?> scheduleTicketKeyRotation(
+            ScheduledExecutorService executor, long rotationInterval, long overlap, TimeUnit unit) {
+        checkNotNull(executor, "executor");
+        checkNotNull(unit, "unit");
+        if (rotationInterval <= 0) {
+            throw new IllegalArgumentException("rotationInterval: " + rotationInterval + " (expected: > 0)");
+        }
+        if (overlap < 0) {
+            throw new IllegalArgumentException("overlap: " + overlap + " (expected: >= 0)");
+        }
+        long keys = 1 + (overlap + rotationInterval - 1) / rotationInterval;
+        setMaxTicketKeys((int) Math.min(keys, Integer.MAX_VALUE));
+        if (rotationFuture != null) {
+            rotationFuture.cancel(false);
+        }
+        rotateTicketKeys();
+        rotationFuture = executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    rotateTicketKeys();
+                } catch (Throwable t) {
+                    // Keep the schedule, the current keys are still valid.
+                    logger.warn("Failed to rotate the session ticket keys.", t);
+                }
+            }
+        }, rotationInterval, rotationInterval, unit);
+        return rotationFuture;
+    }
+
+    /**
+     * Returns the current number of sessions in the session caches of the members.
+     */
+    public synchronized long number() {
+        long number = 0;
+        for (OpenSslServerContext context: members) {
+            number += context.sessionContext().stats().number();
+        }
+        return number;
+    }
+
+    /**
+     * Returns the number of started SSL/TLS handshakes.
+     */
+    public synchronized long accept() {
+        long accept = removedAccept;
+        for (OpenSslServerContext context: members) {
+            accept += context.sessionContext().stats().accept();
+        }
+        return accept;
+    }
+
+    /**
+     * Returns the number of successfully established SSL/TLS sessions.
+     */
+    public synchronized long acceptGood() {
+        long acceptGood = removedAcceptGood;
+        for (OpenSslServerContext context: members) {
+            acceptGood += context.sessionContext().stats().acceptGood();
+        }
+        return acceptGood;
+    }
+
+    /**
+     * Returns the number of successfully reused sessions.
+     */
+    public synchronized long hits() {
+        long hits = removedHits;
+        for (OpenSslServerContext context: members) {
+            hits += context.sessionContext().stats().hits();
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the number of sessions proposed by clients that were not found in the session caches.
+     */
+    public synchronized long misses() {
+        long misses = removedMisses;
+        for (OpenSslServerContext context: members) {
+            misses += context.sessionContext().stats().misses();
+        }
+        return misses;
+    }
+
+    /**
+     * Returns the number of sessions proposed by clients that were found in the session caches but had timed out.
+     */
+    public synchronized long timeouts() {
+        long timeouts = removedTimeouts;
+        for (OpenSslServerContext context: members) {
+            timeouts += context.sessionContext().stats().timeouts();
+        }
+        return timeouts;
+    }
+
+    /**
+     * Returns the number of sessions that were removed because the maximum session cache size was exceeded.
+     */
+    public synchronized long cacheFull() {
+        long cacheFull = removedCacheFull;
+        for (OpenSslServerContext context: members) {
+            cacheFull += context.sessionContext().stats().cacheFull();
+        }
+        return cacheFull;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "OpenSslSessionGroup(contexts: " + members.size() + ", ticketKeys: " + ticketKeys.size() +
+               ", maxTicketKeys: " + maxTicketKeys + ')';
+    }
+}
@@ -30,13 +30,14 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.ChannelPromiseNotifier;
-import io.netty.channel.PendingWriteQueue;
+import io.netty.channel.CoalescingBufferQueue;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.UnsupportedMessageTypeException;
 import io.netty.util.concurrent.DefaultPromise;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ImmediateExecutor;
 import io.netty.util.concurrent.Promise;
 import io.netty.util.internal.EmptyArrays;
 import io.netty.util.internal.OneTimeTask;
@@ -56,6 +57,8 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SocketChannel;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
@@ -184,6 +187,7 @@ public class SslHandler extends ByteToMessageDecoder {
     private volatile ChannelHandlerContext ctx;
     private final SSLEngine engine;
     private final int maxPacketBufferSize;
+    private final Executor delegatedTaskExecutor;
 
     /**
      * Used if {@link SSLEngine#wrap(ByteBuffer[], ByteBuffer)} and {@link SSLEngine#unwrap(ByteBuffer, ByteBuffer[])}
@@ -219,7 +223,7 @@ public class SslHandler extends ByteToMessageDecoder {
     private boolean sentFirstMessage;
     private boolean flushedBeforeHandshake;
     private boolean readDuringHandshake;
-    private PendingWriteQueue pendingUnencryptedWrites;
+    private CoalescingBufferQueue pendingUnencryptedWrites;
 
     private Promise<Channel> handshakePromise = new LazyChannelPromise();
     private final LazyChannelPromise sslCloseFuture = new LazyChannelPromise();
@@ -234,6 +238,18 @@ public class SslHandler extends ByteToMessageDecoder {
 
     private int packetLength;
 
+    /**
+     * {@code true} while the delegated tasks of the {@link SSLEngine} are run by the {@link #delegatedTaskExecutor}.
+     * No data is wrapped or unwrapped in the meantime.
+     */
+    private boolean processTask;
+    private boolean flushedWhileProcessingTask;
+    /**
+     * The number of bytes which were passed to {@link #unwrap(ChannelHandlerContext, ByteBuf, int, int)} but were not
+     * unwrapped because it was suspended to run the delegated tasks.
+     */
+    private int suspendedUnwrapBytes;
+
     /**
      * This flag is used to determine if we need to call {@link ChannelHandlerContext#read()} to consume more data
      * when {@link ChannelConfig#isAutoRead()} is {@code false}.
@@ -260,11 +276,42 @@ public class SslHandler extends ByteToMessageDecoder {
      *                  encrypted by the {@link SSLEngine}
      */
     public SslHandler(SSLEngine engine, boolean startTls) {
+        this(engine, startTls, ImmediateExecutor.INSTANCE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param engine  the {@link SSLEngine} this handler will use
+     * @param delegatedTaskExecutor the {@link Executor} which will run the delegated tasks of the {@link SSLEngine},
+     *                              for example the expensive cryptographic operations of a full handshake
+     */
+    public SslHandler(SSLEngine engine, Executor delegatedTaskExecutor) {
+        this(engine, false, delegatedTaskExecutor);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param engine    the {@link SSLEngine} this handler will use
+     * @param startTls  {@code true} if the first write request shouldn't be
+     *                  encrypted by the {@link SSLEngine}
+     * @param delegatedTaskExecutor the {@link Executor} which will run the delegated tasks of the {@link SSLEngine},
+     *                              for example the expensive cryptographic operations of a full handshake. If it is
+     *                              not {@link ImmediateExecutor#INSTANCE}, the tasks do not block the
+     *                              {@link io.netty.channel.EventLoop} and wrapping and unwrapping is resumed on it
+     *                              once they are done.
+     */
+    public SslHandler(SSLEngine engine, boolean startTls, Executor delegatedTaskExecutor) {
         if (engine == null) {
             throw new NullPointerException("engine");
         }
+        if (delegatedTaskExecutor == null) {
+            throw new NullPointerException("delegatedTaskExecutor");
+        }
         this.engine = engine;
         this.startTls = startTls;
+        this.delegatedTaskExecutor = delegatedTaskExecutor;
         maxPacketBufferSize = engine.getSession().getPacketBufferSize();
 
         boolean opensslEngine = engine instanceof OpenSslEngine;
@@ -400,7 +447,7 @@ public class SslHandler extends ByteToMessageDecoder {
     public void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
         if (!pendingUnencryptedWrites.isEmpty()) {
             // Check if queue is not empty first because create a new ChannelException is expensive
-            pendingUnencryptedWrites.removeAndFailAll(new ChannelException("Pending write on removal of SslHandler"));
+            pendingUnencryptedWrites.releaseAndFailAll(new ChannelException("Pending write on removal of SslHandler"));
         }
     }
 
@@ -431,7 +478,7 @@ public class SslHandler extends ByteToMessageDecoder {
             promise.setFailure(new UnsupportedMessageTypeException(msg, ByteBuf.class));
             return;
         }
-        pendingUnencryptedWrites.add(msg, promise);
+        pendingUnencryptedWrites.add((ByteBuf) msg, promise);
     }
 
     @Override
@@ -440,10 +487,16 @@ public class SslHandler extends ByteToMessageDecoder {
         // created with startTLS flag turned on.
         if (startTls && !sentFirstMessage) {
             sentFirstMessage = true;
-            pendingUnencryptedWrites.removeAndWriteAll();
+            ChannelPromise promise = ctx.newPromise();
+            ctx.write(pendingUnencryptedWrites.remove(pendingUnencryptedWrites.readableBytes(), promise), promise);
             ctx.flush();
             return;
         }
+        if (processTask) {
+            // The flush will be done once the delegated tasks are done.
+            flushedWhileProcessingTask = true;
+            return;
+        }
         if (pendingUnencryptedWrites.isEmpty()) {
             // It's important to NOT use a voidPromise here as the user
             // may want to add a ChannelFutureListener to the ChannelPromise later.
@@ -463,33 +516,42 @@ public class SslHandler extends ByteToMessageDecoder {
         ChannelPromise promise = null;
         ByteBufAllocator alloc = ctx.alloc();
         try {
-            for (;;) {
-                Object msg = pendingUnencryptedWrites.current();
-                if (msg == null) {
-                    break;
-                }
-
-                ByteBuf buf = (ByteBuf) msg;
-                if (out == null) {
-                    out = allocateOutNetBuf(ctx, buf.readableBytes());
-                }
-
-                SSLEngineResult result = wrap(alloc, engine, buf, out);
-                if (!buf.isReadable()) {
-                    promise = pendingUnencryptedWrites.remove();
-                } else {
-                    promise = null;
+            while (!pendingUnencryptedWrites.isEmpty()) {
+                // Coalesce the pending writes up to the max plaintext size of a record, so many small writes are
+                // encrypted into one record instead of one record each.
+                ChannelPromise bufPromise = ctx.newPromise();
+                ByteBuf buf = pendingUnencryptedWrites.remove(OpenSslEngine.MAX_PLAINTEXT_LENGTH, bufPromise);
+                SSLEngineResult result;
+                try {
+                    if (out == null) {
+                        out = allocateOutNetBuf(ctx, buf.readableBytes());
+                    }
+                    result = wrap(alloc, engine, buf, out);
+                } finally {
+                    if (buf.isReadable()) {
+                        // Give back what was not consumed, so it is either wrapped later or failed together with
+                        // the other pending writes.
+                        pendingUnencryptedWrites.addFirst(buf, bufPromise);
+                        bufPromise = null;
+                    } else {
+                        buf.release();
+                    }
                 }
+                promise = bufPromise;
 
                 if (result.getStatus() == Status.CLOSED) {
                     // SSLEngine has been closed already.
                     // Any further write attempts should be denied.
-                    pendingUnencryptedWrites.removeAndFailAll(SSLENGINE_CLOSED);
+                    pendingUnencryptedWrites.releaseAndFailAll(SSLENGINE_CLOSED);
                     return;
                 } else {
                     switch (result.getHandshakeStatus()) {
                         case NEED_TASK:
-                            runDelegatedTasks();
+                            if (!runDelegatedTasks()) {
+                                // Continue once the tasks are done, wrapping what is still pending.
+                                flushedWhileProcessingTask = true;
+                                return;
+                            }
                             break;
                         case FINISHED:
                             setHandshakeSuccess();
@@ -560,7 +622,10 @@ public class SslHandler extends ByteToMessageDecoder {
                         setHandshakeSuccess();
                         break;
                     case NEED_TASK:
-                        runDelegatedTasks();
+                        if (!runDelegatedTasks()) {
+                            // Continue once the tasks are done.
+                            return;
+                        }
                         break;
                     case NEED_UNWRAP:
                         if (!inUnwrap) {
@@ -846,6 +911,10 @@ public class SslHandler extends ByteToMessageDecoder {
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws SSLException {
+        if (processTask) {
+            // Keep the data in the cumulation until the delegated tasks are done.
+            return;
+        }
         final int startOffset = in.readerIndex();
         final int endOffset = in.writerIndex();
         int offset = startOffset;
@@ -925,6 +994,13 @@ public class SslHandler extends ByteToMessageDecoder {
                 decoded = unwrap(ctx, in, startOffset, totalLength);
             }
 
+            if (suspendedUnwrapBytes > 0) {
+                // Give back the SSL records which were not unwrapped yet, as unwrap(...) was suspended to run the
+                // delegated tasks. They will be decoded again once the tasks are done.
+                in.readerIndex(in.readerIndex() - suspendedUnwrapBytes);
+                suspendedUnwrapBytes = 0;
+            }
+
             if (!firedChannelRead) {
                 // Check first if firedChannelRead is not set yet as it may have been set in a
                 // previous decode(...) call.
@@ -981,7 +1057,7 @@ public class SslHandler extends ByteToMessageDecoder {
         boolean notifyClosure = false;
         ByteBuf decodeOut = allocate(ctx, length);
         try {
-            for (;;) {
+            unwrapLoop: for (;;) {
                 final SSLEngineResult result = unwrap(engine, packet, offset, length, decodeOut);
                 final Status status = result.getStatus();
                 final HandshakeStatus handshakeStatus = result.getHandshakeStatus();
@@ -1021,7 +1097,11 @@ public class SslHandler extends ByteToMessageDecoder {
                         wrapNonAppData(ctx, true);
                         break;
                     case NEED_TASK:
-                        runDelegatedTasks();
+                        if (!runDelegatedTasks()) {
+                            // Unwrap the rest once the tasks are done.
+                            suspendedUnwrapBytes = length;
+                            break unwrapLoop;
+                        }
                         break;
                     case FINISHED:
                         setHandshakeSuccess();
@@ -1105,19 +1185,98 @@ public class SslHandler extends ByteToMessageDecoder {
     }
 
     /**
-     * Fetches all delegated tasks from the {@link SSLEngine} and runs them by invoking them directly.
+     * Fetches all delegated tasks from the {@link SSLEngine} and runs them via the {@link #delegatedTaskExecutor}.
+     *
+     * @return {@code true} if all tasks were run already, {@code false} if they are run asynchronously and the
+     *         wrapping and unwrapping will be resumed by {@link #resumeAfterDelegatedTasks(Throwable)}.
      */
-    private void runDelegatedTasks() {
+    private boolean runDelegatedTasks() {
+        if (processTask) {
+            return false;
+        }
         for (;;) {
             Runnable task = engine.getDelegatedTask();
             if (task == null) {
-                break;
+                return true;
             }
 
+            if (delegatedTaskExecutor != ImmediateExecutor.INSTANCE) {
+                processTask = true;
+                try {
+                    delegatedTaskExecutor.execute(new DelegatedTaskRunner(task));
+                    return false;
+                } catch (RejectedExecutionException e) {
+                    processTask = false;
+                    logger.debug("{} Delegated task rejected, running it directly.", ctx.channel(), e);
+                }
+            }
             task.run();
         }
     }
 
+    /**
+     * Continues the work which was suspended while the delegated tasks were run. Must be called from the
+     * {@link EventExecutor} of the {@link ChannelHandlerContext}.
+     */
+    private void resumeAfterDelegatedTasks(Throwable cause) {
+        processTask = false;
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx.isRemoved()) {
+            return;
+        }
+        try {
+            if (cause != null) {
+                throw cause;
+            }
+            // Produce the handshake messages which are ready now.
+            wrapNonAppData(ctx, false);
+            if (flushedWhileProcessingTask) {
+                flushedWhileProcessingTask = false;
+                flush(ctx);
+            } else {
+                ctx.flush();
+            }
+            // Decode the data which was received in the meantime.
+            channelRead(ctx, Unpooled.EMPTY_BUFFER);
+            channelReadComplete(ctx);
+        } catch (Throwable t) {
+            setHandshakeFailure(ctx, t);
+            ctx.fireExceptionCaught(t);
+        }
+    }
+
+    private final class DelegatedTaskRunner implements Runnable {
+        private final Runnable task;
+
+        DelegatedTaskRunner(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            Throwable cause = null;
+            try {
+                for (Runnable t = task; t != null; t = engine.getDelegatedTask()) {
+                    t.run();
+                }
+            } catch (Throwable t) {
+                cause = t;
+            }
+
+            final Throwable error = cause;
+            try {
+                ctx.executor().execute(new OneTimeTask() {
+                    @Override
+                    public void run() {
+                        resumeAfterDelegatedTasks(error);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.debug("{} Failed to resume after running delegated tasks.", ctx.channel(), e);
+            }
+        }
+    }
+
     /**
      * Works around some Android {@link SSLEngine} implementations that skip {@link HandshakeStatus#FINISHED} and
      * go straight into {@link HandshakeStatus#NOT_HANDSHAKING} when handshake is finished.
@@ -1186,7 +1345,7 @@ public class SslHandler extends ByteToMessageDecoder {
             }
         }
         notifyHandshakeFailure(cause);
-        pendingUnencryptedWrites.removeAndFailAll(cause);
+        pendingUnencryptedWrites.releaseAndFailAll(cause);
     }
 
     private void notifyHandshakeFailure(Throwable cause) {
@@ -1219,7 +1378,7 @@ public class SslHandler extends ByteToMessageDecoder {
     @Override
     public void handlerAdded(final ChannelHandlerContext ctx) throws Exception {
         this.ctx = ctx;
-        pendingUnencryptedWrites = new PendingWriteQueue(ctx);
+        pendingUnencryptedWrites = new CoalescingBufferQueue(ctx.channel(), true);
 
         if (ctx.channel().isActive() && engine.getUseClientMode()) {
             // Begin the initial handshake.
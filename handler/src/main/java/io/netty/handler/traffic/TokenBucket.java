@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.traffic;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket which limits the bandwidth of one traffic class, used by the
+ * {@link TokenBucketTrafficShapingHandler}.
+ * <p>
+ * Buckets can be organized as a hierarchy, for example global &rarr; tenant &rarr; channel, by passing the parent
+ * bucket to the constructor. Every reservation is charged to the bucket and all its ancestors, and has to wait until
+ * all of them have enough tokens. A bucket with a rate of {@code 0} does not limit the traffic itself but still
+ * forwards all reservations to its parent.
+ * <p>
+ * The bucket does not need any background task to refill its tokens. It keeps track of the time at which all tokens
+ * that were reserved so far are paid off, so the time to wait can be computed exactly for every reservation. All
+ * methods are thread-safe, so a bucket may be shared by {@link io.netty.channel.Channel}s of different
+ * {@link io.netty.channel.EventLoop}s.
+ */
+public final class TokenBucket {
+
+    /**
+     * The default burst size of a bucket, expressed as the number of milliseconds of traffic at its rate: 100ms
+     */
+    public static final long DEFAULT_BURST_MILLIS = 100;
+
+    private static final long SECOND_IN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final TokenBucket parent;
+    private long rate;
+    private long burst;
+    // The time at which all reserved tokens are paid off, see the Generic Cell Rate Algorithm.
+    private long theoreticalArrivalTime = Long.MIN_VALUE;
+
+    /**
+     * Creates a new root bucket with a burst size of {@link #DEFAULT_BURST_MILLIS} at the given rate.
+     *
+     * @param rate  {@code 0} or a limit in bytes/s
+     */
+    public TokenBucket(long rate) {
+        this(null, rate);
+    }
+
+    /**
+     * Creates a new root bucket.
+     *
+     * @param rate  {@code 0} or a limit in bytes/s
+     * @param burst the number of bytes which may be sent at once after the bucket was idle
+     */
+    public TokenBucket(long rate, long burst) {
+        this(null, rate, burst);
+    }
+
+    /**
+     * Creates a new bucket with a burst size of {@link #DEFAULT_BURST_MILLIS} at the given rate.
+     *
+     * @param parent    the parent bucket or {@code null}
+     * @param rate      {@code 0} or a limit in bytes/s
+     */
+    public TokenBucket(TokenBucket parent, long rate) {
+        this(parent, rate, defaultBurst(rate));
+    }
+
+    /**
+     * Creates a new bucket.
+     *
+     * @param parent    the parent bucket or {@code null}
+     * @param rate      {@code 0} or a limit in bytes/s
+     * @param burst     the number of bytes which may be sent at once after the bucket was idle
+     */
+    public TokenBucket(TokenBucket parent, long rate, long burst) {
+        this.parent = parent;
+        configure(rate, burst);
+    }
+
+    private static long defaultBurst(long rate) {
+        return Math.max(1, rate * DEFAULT_BURST_MILLIS / 1000);
+    }
+
+    /**
+     * Changes the rate of this bucket and uses a burst size of {@link #DEFAULT_BURST_MILLIS} at this rate.
+     *
+     * @param rate  {@code 0} or a limit in bytes/s
+     */
+    public void configure(long rate) {
+        configure(rate, defaultBurst(rate));
+    }
+
+    /**
+     * Changes the rate and the burst size of this bucket.
+     *
+     * @param rate  {@code 0} or a limit in bytes/s
+     * @param burst the number of bytes which may be sent at once after the bucket was idle
+     */
+    public synchronized void configure(long rate, long burst) {
+        if (rate < 0) {
+            throw new IllegalArgumentException("rate: " + rate + " (expected: >= 0)");
+        }
+        if (burst < 0) {
+            throw new IllegalArgumentException("burst: " + burst + " (expected: >= 0)");
+        }
+        this.rate = rate;
+        this.burst = burst;
+    }
+
+    /**
+     * Returns the parent bucket or {@code null} if this is a root bucket.
+     */
+    public TokenBucket parent() {
+        return parent;
+    }
+
+    /**
+     * Returns the limit in bytes/s, or {@code 0} if this bucket does not limit the traffic itself.
+     */
+    public synchronized long rate() {
+        return rate;
+    }
+
+    /**
+     * Returns the number of bytes which may be sent at once after the bucket was idle.
+     */
+    public synchronized long burst() {
+        return burst;
+    }
+
+    /**
+     * Reserves the given number of bytes in this bucket and all its ancestors.
+     *
+     * @return the number of nanoseconds to wait before the bytes may be sent, {@code 0} if they may be sent now.
+     */
+    public long reserve(long bytes) {
+        return reserve(bytes, System.nanoTime());
+    }
+
+    long reserve(long bytes, long now) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("bytes: " + bytes + " (expected: >= 0)");
+        }
+        long wait = 0;
+        for (TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+            wait = Math.max(wait, bucket.reserve0(bytes, now));
+        }
+        return wait;
+    }
+
+    private synchronized long reserve0(long bytes, long now) {
+        if (rate == 0) {
+            return 0;
+        }
+        long tolerance = nanos(burst, rate);
+        // An idle bucket can not save up more than its burst size.
+        long arrivalTime = theoreticalArrivalTime;
+        if (arrivalTime == Long.MIN_VALUE || arrivalTime - now < 0) {
+            arrivalTime = now;
+        }
+        arrivalTime += nanos(bytes, rate);
+        theoreticalArrivalTime = arrivalTime;
+        return Math.max(0, arrivalTime - now - tolerance);
+    }
+
+    private static long nanos(long bytes, long rate) {
+        if (bytes <= Long.MAX_VALUE / SECOND_IN_NANOS) {
+            return bytes * SECOND_IN_NANOS / rate;
+        }
+        return (long) ((double) bytes * SECOND_IN_NANOS / rate);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TokenBucket(rate: " + rate + ", burst: " + burst + ", parent: " + parent + ')';
+    }
+}
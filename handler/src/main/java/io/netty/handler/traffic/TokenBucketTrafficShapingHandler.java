@@ -0,0 +1,323 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.traffic;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traffic shaping handler which limits the bandwidth of a single {@link io.netty.channel.Channel} via a hierarchy of
+ * {@link TokenBucket}s, for example global &rarr; tenant &rarr; channel:
+ * <pre>
+ * {@link TokenBucket} global = new {@link TokenBucket}(10 * 1024 * 1024);
+ * {@link TokenBucket} tenant = new {@link TokenBucket}(global, 1024 * 1024);
+ * ...
+ * // For each new channel of the tenant:
+ * pipeline.addLast(new {@link TokenBucketTrafficShapingHandler}(new {@link TokenBucket}(tenant, 64 * 1024), null));
+ * </pre>
+ * Unlike the {@link AbstractTrafficShapingHandler} implementations, which compute delays from periodic
+ * {@link TrafficCounter} snapshots, the time to wait is computed exactly for every message, and the delayed messages
+ * are written by a task which is scheduled on the {@link io.netty.channel.EventLoop} for the time at which the
+ * first one may be sent. No monitoring task is needed.
+ * <p>
+ * Delayed writes are queued in this handler. If the queue exceeds the max queue size, the
+ * {@linkplain ChannelOutboundBuffer#setUserDefinedWritability(int, boolean) user-defined writability flag} at index
+ * {@code 4} is set to {@code false} until the queue is empty again. Reads are shaped by disabling
+ * {@link ChannelConfig#setAutoRead(boolean) auto read} as long as the read bucket is in debt, if the debt is at least
+ * 10ms.
+ * <p>
+ * A new instance must be created for each {@link io.netty.channel.Channel}, while the parent {@link TokenBucket}s are
+ * shared.
+ */
+public class TokenBucketTrafficShapingHandler extends ChannelHandlerAdapter {
+
+    /**
+     * Default max size of the queue of delayed writes before the channel becomes unwritable: 4MB
+     */
+    public static final long DEFAULT_MAX_QUEUE_SIZE = AbstractTrafficShapingHandler.DEFAULT_MAX_SIZE;
+
+    static final int USER_DEFINED_WRITABILITY_INDEX = 4;
+
+    private static final long MINIMAL_READ_WAIT =
+            TimeUnit.MILLISECONDS.toNanos(AbstractTrafficShapingHandler.MINIMAL_WAIT);
+
+    private final TokenBucket writeBucket;
+    private final TokenBucket readBucket;
+    private final long maxQueueSize;
+    private final ArrayDeque<ToSend> messagesQueue = new ArrayDeque<ToSend>();
+    private long queueSize;
+    private boolean readSuspended;
+    private ChannelHandlerContext ctx;
+    private ScheduledFuture<?> writeTimeout;
+    private ScheduledFuture<?> readTimeout;
+
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            writeTimeout = null;
+            sendAllValid(System.nanoTime());
+        }
+    };
+
+    private final Runnable reopenReadTask = new Runnable() {
+        @Override
+        public void run() {
+            readTimeout = null;
+            // Check again, as messages which were read after the suspension may have put the bucket in more debt.
+            long wait = readBucket.reserve(0);
+            if (wait >= MINIMAL_READ_WAIT) {
+                readTimeout = ctx.executor().schedule(this, wait, TimeUnit.NANOSECONDS);
+                return;
+            }
+            releaseReadSuspended();
+        }
+    };
+
+    /**
+     * Creates a new instance with a max queue size of {@link #DEFAULT_MAX_QUEUE_SIZE}.
+     *
+     * @param writeBucket   the {@link TokenBucket} which shapes the outbound traffic, or {@code null}
+     * @param readBucket    the {@link TokenBucket} which shapes the inbound traffic, or {@code null}
+     */
+    public TokenBucketTrafficShapingHandler(TokenBucket writeBucket, TokenBucket readBucket) {
+        this(writeBucket, readBucket, DEFAULT_MAX_QUEUE_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param writeBucket   the {@link TokenBucket} which shapes the outbound traffic, or {@code null}
+     * @param readBucket    the {@link TokenBucket} which shapes the inbound traffic, or {@code null}
+     * @param maxQueueSize  the number of delayed bytes after which the channel becomes unwritable
+     */
+    public TokenBucketTrafficShapingHandler(TokenBucket writeBucket, TokenBucket readBucket, long maxQueueSize) {
+        if (maxQueueSize <= 0) {
+            throw new IllegalArgumentException("maxQueueSize: " + maxQueueSize + " (expected: > 0)");
+        }
+        this.writeBucket = writeBucket;
+        this.readBucket = readBucket;
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    /**
+     * Returns the {@link TokenBucket} which shapes the outbound traffic, or {@code null}.
+     */
+    public TokenBucket writeBucket() {
+        return writeBucket;
+    }
+
+    /**
+     * Returns the {@link TokenBucket} which shapes the inbound traffic, or {@code null}.
+     */
+    public TokenBucket readBucket() {
+        return readBucket;
+    }
+
+    /**
+     * Returns the number of bytes which are currently delayed by this handler.
+     */
+    public long queueSize() {
+        return queueSize;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (writeTimeout != null) {
+            writeTimeout.cancel(false);
+            writeTimeout = null;
+        }
+        if (readTimeout != null) {
+            readTimeout.cancel(false);
+            readTimeout = null;
+        }
+        // Write everything which is delayed. If the channel is closed already the messages are released and the
+        // promises are failed.
+        boolean flush = !messagesQueue.isEmpty();
+        for (;;) {
+            ToSend toSend = messagesQueue.pollFirst();
+            if (toSend == null) {
+                break;
+            }
+            ctx.write(toSend.msg, toSend.promise);
+        }
+        queueSize = 0;
+        if (flush) {
+            ctx.flush();
+        }
+        setUserDefinedWritability(true);
+        if (readSuspended) {
+            releaseReadSuspended();
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        long size = calculateSize(msg);
+        long now = System.nanoTime();
+        long wait = size > 0 && writeBucket != null ? writeBucket.reserve(size, now) : 0;
+        if (wait == 0 && messagesQueue.isEmpty()) {
+            ctx.write(msg, promise);
+            return;
+        }
+
+        long sendTime = now + wait;
+        ToSend last = messagesQueue.peekLast();
+        if (last != null && last.sendTime - sendTime > 0) {
+            // Keep the order of the writes.
+            sendTime = last.sendTime;
+        }
+        messagesQueue.addLast(new ToSend(msg, promise, size, sendTime));
+        if (size > 0) {
+            queueSize += size;
+            if (queueSize > maxQueueSize) {
+                setUserDefinedWritability(false);
+            }
+        }
+        if (writeTimeout == null) {
+            writeTimeout = ctx.executor().schedule(writeTask, sendTime - now, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void sendAllValid(long now) {
+        for (;;) {
+            ToSend toSend = messagesQueue.peekFirst();
+            if (toSend == null) {
+                break;
+            }
+            if (toSend.sendTime - now > 0) {
+                writeTimeout = ctx.executor().schedule(writeTask, toSend.sendTime - now, TimeUnit.NANOSECONDS);
+                break;
+            }
+            messagesQueue.pollFirst();
+            if (toSend.size > 0) {
+                queueSize -= toSend.size;
+            }
+            ctx.write(toSend.msg, toSend.promise);
+        }
+        if (messagesQueue.isEmpty()) {
+            setUserDefinedWritability(true);
+        }
+        ctx.flush();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (readBucket != null) {
+            long size = calculateSize(msg);
+            if (size > 0) {
+                long wait = readBucket.reserve(size);
+                if (wait >= MINIMAL_READ_WAIT) {
+                    suspendRead(ctx, wait);
+                }
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private void suspendRead(ChannelHandlerContext ctx, long wait) {
+        ChannelConfig config = ctx.channel().config();
+        if (readSuspended || !config.isAutoRead()) {
+            // Either suspended already or the user takes care of reading.
+            return;
+        }
+        readSuspended = true;
+        config.setAutoRead(false);
+        readTimeout = ctx.executor().schedule(reopenReadTask, wait, TimeUnit.NANOSECONDS);
+    }
+
+    private void releaseReadSuspended() {
+        readSuspended = false;
+        ChannelConfig config = ctx.channel().config();
+        if (config.isAutoRead()) {
+            // The user enabled auto read again while we were suspended, so the read may have been dropped.
+            ctx.read();
+        } else {
+            config.setAutoRead(true);
+        }
+    }
+
+    @Override
+    public void read(ChannelHandlerContext ctx) throws Exception {
+        if (!readSuspended) {
+            ctx.read();
+        }
+    }
+
+    private void setUserDefinedWritability(boolean writable) {
+        ChannelOutboundBuffer cob = ctx.channel().unsafe().outboundBuffer();
+        if (cob != null) {
+            cob.setUserDefinedWritability(USER_DEFINED_WRITABILITY_INDEX, writable);
+        }
+    }
+
+    /**
+     * Calculate the size of the given {@link Object}.
+     *
+     * This implementation supports {@link ByteBuf}, {@link ByteBufHolder} and {@link FileRegion}. Sub-classes may
+     * override this.
+     *
+     * @param msg
+     *            the msg for which the size should be calculated.
+     * @return size the size of the msg or {@code -1} if unknown.
+     */
+    protected long calculateSize(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        if (msg instanceof FileRegion) {
+            return ((FileRegion) msg).count();
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucketTrafficShaping with Write Bucket: " + writeBucket + " Read Bucket: " + readBucket +
+               " maxQueueSize: " + maxQueueSize + " queueSize: " + queueSize;
+    }
+
+    private static final class ToSend {
+        final Object msg;
+        final ChannelPromise promise;
+        final long size;
+        final long sendTime;
+
+        ToSend(Object msg, ChannelPromise promise, long size, long sendTime) {
+            this.msg = msg;
+            this.promise = promise;
+            this.size = size;
+            this.sendTime = sendTime;
+        }
+    }
+}
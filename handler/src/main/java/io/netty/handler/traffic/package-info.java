@@ -32,6 +32,11 @@
  * implementations: see {@link io.netty.handler.traffic.ChannelTrafficShapingHandler} and
  * {@link io.netty.handler.traffic.GlobalTrafficShapingHandler} respectively for per-channel traffic shaping and
  * global traffic shaping.</li>
+ *
+ * <li> <tt>{@link io.netty.handler.traffic.TokenBucketTrafficShapingHandler}</tt>: this handler shapes the traffic
+ * of a channel via a hierarchy of {@link io.netty.handler.traffic.TokenBucket}s (for instance global, tenant and
+ * channel). It computes the time to wait exactly for each message instead of relying on periodic statistics, and
+ * does not provide any statistics itself.</li>
  * </ul></p>
  *
  * <p>Both inbound and outbound traffic can be shaped independently.  This is done by either passing in
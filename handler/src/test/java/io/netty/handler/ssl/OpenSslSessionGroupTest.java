@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class OpenSslSessionGroupTest {
+
+    @Test
+    public void testRotateTicketKeys() {
+        OpenSslSessionGroup group = new OpenSslSessionGroup();
+        assertEquals(0, group.ticketKeys().length);
+
+        group.rotateTicketKeys();
+        OpenSslSessionTicketKey first = group.ticketKeys()[0];
+        assertEquals(OpenSslSessionTicketKey.NAME_SIZE, first.name().length);
+
+        group.rotateTicketKeys();
+        OpenSslSessionTicketKey[] keys = group.ticketKeys();
+        assertEquals(2, keys.length);
+        // The new key encrypts new tickets, the previous one is kept to decrypt old tickets.
+        assertSame(first, keys[1]);
+        assertFalse(Arrays.equals(keys[0].name(), keys[1].name()));
+
+        group.rotateTicketKeys();
+        keys = group.ticketKeys();
+        assertEquals(OpenSslSessionGroup.DEFAULT_MAX_TICKET_KEYS, keys.length);
+        assertNotSame(first, keys[1]);
+
+        group.setMaxTicketKeys(1);
+        assertEquals(1, group.ticketKeys().length);
+        assertSame(keys[0], group.ticketKeys()[0]);
+    }
+
+    @Test
+    public void testScheduleTicketKeyRotation() throws Exception {
+        OpenSslSessionGroup group = new OpenSslSessionGroup();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ScheduledFuture<?> future = group.scheduleTicketKeyRotation(executor, 1, 25, TimeUnit.HOURS);
+            // The keys are rotated right away and 25 hours of overlap need 26 keys of 1 hour each.
+            assertEquals(26, group.maxTicketKeys());
+            assertEquals(1, group.ticketKeys().length);
+            future.cancel(false);
+
+            future = group.scheduleTicketKeyRotation(executor, 10, 10, TimeUnit.MILLISECONDS);
+            assertEquals(2, group.maxTicketKeys());
+            OpenSslSessionTicketKey key = group.ticketKeys()[0];
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (group.ticketKeys()[0] == key && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNotSame(key, group.ticketKeys()[0]);
+            assertEquals(2, group.ticketKeys().length);
+            future.cancel(false);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAppliesSettingsToMembers() throws Exception {
+        assumeTrue(OpenSsl.isAvailable());
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        try {
+            OpenSslServerContext context1 = new OpenSslServerContext(cert.certificate(), cert.privateKey());
+            OpenSslServerContext context2 = new OpenSslServerContext(cert.certificate(), cert.privateKey());
+            OpenSslSessionGroup group = new OpenSslSessionGroup();
+            group.setSessionCacheSize(128);
+            group.add(context1);
+            group.rotateTicketKeys();
+            group.add(context2);
+            group.setSessionTimeout(60);
+            assertEquals(2, group.size());
+            assertEquals(128, context1.sessionContext().getSessionCacheSize());
+            assertEquals(128, context2.sessionContext().getSessionCacheSize());
+            assertEquals(60, context1.sessionContext().getSessionTimeout());
+            assertEquals(60, context2.sessionContext().getSessionTimeout());
+            assertEquals(0, group.hits());
+
+            assertTrue(group.remove(context1));
+            assertFalse(group.remove(context1));
+            assertEquals(1, group.size());
+        } finally {
+            cert.delete();
+        }
+    }
+
+    @Test
+    public void testRetainsMembers() throws Exception {
+        assumeTrue(OpenSsl.isAvailable());
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        try {
+            OpenSslSessionGroup group = new OpenSslSessionGroup();
+            WeakReference<OpenSslServerContext> ref = addNewContext(group, cert);
+
+            // The member must not be finalized while the group still uses its native context.
+            for (int i = 0; i < 5; i++) {
+                System.gc();
+                System.runFinalization();
+            }
+            OpenSslServerContext context = ref.get();
+            assertNotNull(context);
+            group.rotateTicketKeys();
+            assertEquals(0, group.hits());
+
+            assertTrue(group.remove(context));
+            context = null;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (ref.get() != null && System.nanoTime() < deadline) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertNull(ref.get());
+            group.rotateTicketKeys();
+            assertEquals(0, group.size());
+        } finally {
+            cert.delete();
+        }
+    }
+
+    private static WeakReference<OpenSslServerContext> addNewContext(
+            OpenSslSessionGroup group, SelfSignedCertificate cert) throws Exception {
+        OpenSslServerContext context = new OpenSslServerContext(cert.certificate(), cert.privateKey());
+        group.add(context);
+        return new WeakReference<OpenSslServerContext>(context);
+    }
+}
@@ -16,15 +16,30 @@
 
 package io.netty.handler.ssl;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.UnsupportedMessageTypeException;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
 import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLEngineResult.Status;
+import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLProtocolException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
@@ -63,4 +78,298 @@ public class SslHandlerTest {
 
         ch.writeOutbound(new Object());
     }
+
+    @Test
+    public void testDelegatedTasksRunByExecutor() throws Exception {
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        try {
+            SslContext serverContext = SslContextBuilder.forServer(cert.key(), cert.cert())
+                    .sslProvider(SslProvider.JDK).build();
+            SslContext clientContext = SslContextBuilder.forClient()
+                    .trustManager(InsecureTrustManagerFactory.INSTANCE).sslProvider(SslProvider.JDK).build();
+
+            // Collect the tasks, so they only run when the test decides to.
+            final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+            Executor executor = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    tasks.add(command);
+                }
+            };
+            SslHandler serverHandler = new SslHandler(serverContext.newEngine(ByteBufAllocator.DEFAULT), executor);
+            SslHandler clientHandler = new SslHandler(clientContext.newEngine(ByteBufAllocator.DEFAULT), executor);
+            EmbeddedChannel server = new EmbeddedChannel(serverHandler);
+            EmbeddedChannel client = new EmbeddedChannel(clientHandler);
+
+            int executed = 0;
+            for (int i = 0; i < 100 && !(serverHandler.handshakeFuture().isDone() &&
+                    clientHandler.handshakeFuture().isDone()); i++) {
+                transfer(client, server);
+                transfer(server, client);
+                for (;;) {
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    task.run();
+                    executed++;
+                }
+                // Resume the handlers on their event loops.
+                server.runPendingTasks();
+                client.runPendingTasks();
+            }
+            assertTrue(executed > 0);
+            assertTrue(serverHandler.handshakeFuture().isSuccess());
+            assertTrue(clientHandler.handshakeFuture().isSuccess());
+
+            client.writeOutbound(Unpooled.copiedBuffer("ping", CharsetUtil.US_ASCII));
+            transfer(client, server);
+            ByteBuf received = server.readInbound();
+            assertEquals("ping", received.toString(CharsetUtil.US_ASCII));
+            received.release();
+
+            finish(server);
+            finish(client);
+        } finally {
+            cert.delete();
+        }
+    }
+
+    @Test
+    public void testWriteResumedAfterDelegatedTasksOfWrap() throws Exception {
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        try {
+            SslContext serverContext = SslContextBuilder.forServer(cert.key(), cert.cert())
+                    .sslProvider(SslProvider.JDK).build();
+            SslContext clientContext = SslContextBuilder.forClient()
+                    .trustManager(InsecureTrustManagerFactory.INSTANCE).sslProvider(SslProvider.JDK).build();
+
+            final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+            Executor executor = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    tasks.add(command);
+                }
+            };
+            TaskOnWrapSslEngine clientEngine =
+                    new TaskOnWrapSslEngine(clientContext.newEngine(ByteBufAllocator.DEFAULT));
+            SslHandler clientHandler = new SslHandler(clientEngine, executor);
+            EmbeddedChannel server = new EmbeddedChannel(
+                    new SslHandler(serverContext.newEngine(ByteBufAllocator.DEFAULT)));
+            EmbeddedChannel client = new EmbeddedChannel(clientHandler);
+            for (int i = 0; i < 10 && !clientHandler.handshakeFuture().isDone(); i++) {
+                transfer(client, server);
+                transfer(server, client);
+                runTasks(tasks);
+                client.runPendingTasks();
+            }
+            assertTrue(clientHandler.handshakeFuture().isSuccess());
+            transfer(client, server);
+
+            // The engine requests a delegated task while wrapping the application data of a normal flush.
+            clientEngine.needTaskOnWrap = true;
+            ChannelPromise promise = client.newPromise();
+            client.writeAndFlush(Unpooled.copiedBuffer("ping", CharsetUtil.US_ASCII), promise);
+            assertEquals(1, tasks.size());
+            assertFalse(promise.isDone());
+
+            // Once the task is done the pending write must be wrapped and flushed.
+            runTasks(tasks);
+            client.runPendingTasks();
+            assertTrue(promise.isSuccess());
+            transfer(client, server);
+            ByteBuf received = server.readInbound();
+            assertEquals("ping", received.toString(CharsetUtil.US_ASCII));
+            received.release();
+
+            finish(server);
+            finish(client);
+        } finally {
+            cert.delete();
+        }
+    }
+
+    @Test
+    public void testNoInboundDataUnwrappedWhileRunningDelegatedTasks() throws Exception {
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        try {
+            SslContext serverContext = SslContextBuilder.forServer(cert.key(), cert.cert())
+                    .sslProvider(SslProvider.JDK).build();
+            SslContext clientContext = SslContextBuilder.forClient()
+                    .trustManager(InsecureTrustManagerFactory.INSTANCE).sslProvider(SslProvider.JDK).build();
+
+            final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+            Executor executor = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    tasks.add(command);
+                }
+            };
+            SslHandler serverHandler = new SslHandler(serverContext.newEngine(ByteBufAllocator.DEFAULT), executor);
+            EmbeddedChannel server = new EmbeddedChannel(serverHandler);
+            EmbeddedChannel client = new EmbeddedChannel(
+                    new SslHandler(clientContext.newEngine(ByteBufAllocator.DEFAULT)));
+
+            // The ClientHello makes the server engine request delegated tasks.
+            transfer(client, server);
+            assertFalse(tasks.isEmpty());
+            assertNull(server.readOutbound());
+
+            // Nothing is sent until the tasks are done.
+            server.flush();
+            assertNull(server.readOutbound());
+
+            tasks.poll().run();
+            assertTrue(tasks.isEmpty());
+            server.runPendingTasks();
+            // The ServerHello is sent once the tasks are done.
+            assertNotNull(server.readOutbound());
+
+            finish(server);
+            finish(client);
+        } finally {
+            cert.delete();
+        }
+    }
+
+    @Test
+    public void testCoalescePendingWritesIntoOneRecord() throws Exception {
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        try {
+            SslContext serverContext = SslContextBuilder.forServer(cert.key(), cert.cert())
+                    .sslProvider(SslProvider.JDK).build();
+            SslContext clientContext = SslContextBuilder.forClient()
+                    .trustManager(InsecureTrustManagerFactory.INSTANCE).sslProvider(SslProvider.JDK).build();
+            SslHandler serverHandler = new SslHandler(serverContext.newEngine(ByteBufAllocator.DEFAULT));
+            SslHandler clientHandler = new SslHandler(clientContext.newEngine(ByteBufAllocator.DEFAULT));
+            EmbeddedChannel server = new EmbeddedChannel(serverHandler);
+            EmbeddedChannel client = new EmbeddedChannel(clientHandler);
+            for (int i = 0; i < 10 && !clientHandler.handshakeFuture().isDone(); i++) {
+                transfer(client, server);
+                transfer(server, client);
+            }
+            assertTrue(clientHandler.handshakeFuture().isSuccess());
+
+            ChannelPromise first = client.newPromise();
+            ChannelPromise last = client.newPromise();
+            client.write(Unpooled.copiedBuffer("ping", CharsetUtil.US_ASCII), first);
+            for (int i = 0; i < 8; i++) {
+                client.write(Unpooled.copiedBuffer("ping", CharsetUtil.US_ASCII));
+            }
+            client.write(Unpooled.copiedBuffer("ping", CharsetUtil.US_ASCII), last);
+            assertFalse(first.isDone());
+            client.flush();
+            assertTrue(first.isSuccess());
+            assertTrue(last.isSuccess());
+
+            // All writes were encrypted into a single application data record.
+            ByteBuf record = readNonEmptyOutbound(client);
+            assertEquals(23, record.getUnsignedByte(0));
+            assertEquals(record.readableBytes() - 5, record.getUnsignedShort(3));
+            assertNull(readNonEmptyOutbound(client));
+
+            server.writeInbound(record);
+            StringBuilder received = new StringBuilder();
+            for (;;) {
+                ByteBuf buf = server.readInbound();
+                if (buf == null) {
+                    break;
+                }
+                received.append(buf.toString(CharsetUtil.US_ASCII));
+                buf.release();
+            }
+            assertEquals(40, received.length());
+
+            finish(server);
+            finish(client);
+        } finally {
+            cert.delete();
+        }
+    }
+
+    private static void runTasks(Queue<Runnable> tasks) {
+        for (;;) {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                break;
+            }
+            task.run();
+        }
+    }
+
+    private static ByteBuf readNonEmptyOutbound(EmbeddedChannel ch) {
+        for (;;) {
+            ByteBuf buf = ch.readOutbound();
+            if (buf == null || buf.isReadable()) {
+                return buf;
+            }
+            buf.release();
+        }
+    }
+
+    private static void transfer(EmbeddedChannel from, EmbeddedChannel to) {
+        for (;;) {
+            ByteBuf buf = from.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            to.writeInbound(buf);
+        }
+    }
+
+    private static void finish(EmbeddedChannel ch) {
+        ch.finish();
+        for (;;) {
+            Object msg = ch.readInbound();
+            if (msg == null) {
+                break;
+            }
+            ReferenceCountUtil.release(msg);
+        }
+        for (;;) {
+            Object msg = ch.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    /**
+     * Requests a delegated task when asked to wrap application data, as {@link SSLEngine}s may do during a
+     * renegotiation or to produce post-handshake messages.
+     */
+    private static final class TaskOnWrapSslEngine extends JdkSslEngine {
+        boolean needTaskOnWrap;
+        private Runnable task;
+
+        TaskOnWrapSslEngine(SSLEngine engine) {
+            super(engine);
+        }
+
+        @Override
+        public SSLEngineResult wrap(ByteBuffer[] srcs, ByteBuffer dst) throws SSLException {
+            if (needTaskOnWrap && srcs.length > 0 && srcs[0].hasRemaining()) {
+                needTaskOnWrap = false;
+                task = new Runnable() {
+                    @Override
+                    public void run() {
+                        // NOOP
+                    }
+                };
+                return new SSLEngineResult(Status.OK, HandshakeStatus.NEED_TASK, 0, 0);
+            }
+            return super.wrap(srcs, dst);
+        }
+
+        @Override
+        public Runnable getDelegatedTask() {
+            Runnable task = this.task;
+            if (task != null) {
+                this.task = null;
+                return task;
+            }
+            return super.getDelegatedTask();
+        }
+    }
 }
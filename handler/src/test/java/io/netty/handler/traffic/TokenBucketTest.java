@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.traffic;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testBurstThenRate() {
+        // 1000 bytes/s with a burst of 100 bytes.
+        TokenBucket bucket = new TokenBucket(1000);
+        assertEquals(100, bucket.burst());
+        long now = 0;
+        assertEquals(0, bucket.reserve(100, now));
+        // Every further byte costs 1ms.
+        assertEquals(10 * MS, bucket.reserve(10, now));
+        assertEquals(20 * MS, bucket.reserve(10, now));
+        // Waiting pays off the debt.
+        assertEquals(0, bucket.reserve(0, now + 20 * MS));
+        assertEquals(10 * MS, bucket.reserve(10, now + 20 * MS));
+    }
+
+    @Test
+    public void testIdleBucketDoesNotSaveUpMoreThanBurst() {
+        TokenBucket bucket = new TokenBucket(1000, 100);
+        long now = TimeUnit.HOURS.toNanos(1);
+        assertEquals(0, bucket.reserve(100, now));
+        now += TimeUnit.HOURS.toNanos(1);
+        assertEquals(0, bucket.reserve(100, now));
+        assertEquals(MS, bucket.reserve(1, now));
+    }
+
+    @Test
+    public void testUnlimited() {
+        TokenBucket bucket = new TokenBucket(0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, bucket.reserve(Integer.MAX_VALUE, 0));
+        }
+    }
+
+    @Test
+    public void testHierarchy() {
+        TokenBucket global = new TokenBucket(1000, 0);
+        TokenBucket tenant1 = new TokenBucket(global, 500, 0);
+        TokenBucket tenant2 = new TokenBucket(global, 0);
+        TokenBucket channel = new TokenBucket(tenant1, 0);
+
+        // The tenant is the bottleneck.
+        assertEquals(20 * MS, channel.reserve(10, 0));
+        // The other tenant has no limit of its own, but shares the global bucket which is in debt already.
+        assertEquals(20 * MS, tenant2.reserve(10, 0));
+        assertEquals(30 * MS, global.reserve(10, 0));
+    }
+
+    @Test
+    public void testShapesWrites() {
+        TokenBucket bucket = new TokenBucket(1000, 0);
+        TokenBucketTrafficShapingHandler handler = new TokenBucketTrafficShapingHandler(bucket, null);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        channel.writeAndFlush(buffer(20));
+        channel.writeAndFlush(buffer(20));
+        assertNull(channel.readOutbound());
+        assertEquals(40, handler.queueSize());
+
+        // Wait until both writes are due.
+        long waitUntil = System.nanoTime() + 50 * MS;
+        while (handler.queueSize() > 0 && System.nanoTime() - waitUntil < 0) {
+            channel.runPendingTasks();
+            channel.runScheduledPendingTasks();
+        }
+        assertEquals(0, handler.queueSize());
+        assertBuffer(20, channel.readOutbound());
+        assertBuffer(20, channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testRemovalWritesQueuedMessages() {
+        TokenBucket bucket = new TokenBucket(1, 0);
+        TokenBucketTrafficShapingHandler handler = new TokenBucketTrafficShapingHandler(bucket, null, 10);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        channel.writeAndFlush(buffer(20));
+        assertFalse(channel.isWritable());
+        channel.pipeline().remove(handler);
+        assertTrue(channel.isWritable());
+        assertBuffer(20, channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testSuspendsReads() {
+        TokenBucket bucket = new TokenBucket(1000, 0);
+        EmbeddedChannel channel = new EmbeddedChannel(new TokenBucketTrafficShapingHandler(null, bucket));
+
+        assertTrue(channel.writeInbound(buffer(100)));
+        assertFalse(channel.config().isAutoRead());
+        assertBuffer(100, channel.readInbound());
+
+        long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!channel.config().isAutoRead() && System.nanoTime() - waitUntil < 0) {
+            channel.runPendingTasks();
+            channel.runScheduledPendingTasks();
+        }
+        assertTrue(channel.config().isAutoRead());
+        assertFalse(channel.finish());
+    }
+
+    private static ByteBuf buffer(int size) {
+        return Unpooled.buffer(size).writerIndex(size);
+    }
+
+    private static void assertBuffer(int size, Object msg) {
+        ByteBuf buf = (ByteBuf) msg;
+        assertEquals(size, buf.readableBytes());
+        buf.release();
+    }
+}
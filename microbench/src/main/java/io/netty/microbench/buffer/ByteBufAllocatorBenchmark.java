@@ -24,6 +24,8 @@ import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
 
 import java.util.Random;
 
@@ -36,6 +38,11 @@ public class ByteBufAllocatorBenchmark extends AbstractMicrobenchmark {
     private static final ByteBufAllocator unpooledAllocator = new UnpooledByteBufAllocator(true);
     private static final ByteBufAllocator pooledAllocator =
             new PooledByteBufAllocator(true, 4, 4, 8192, 11, 0, 0, 0); // Disable thread-local cache
+    // Only use one arena and disable the thread-local cache so all threads contend on the same arena. Run with
+    // -Dio.netty.allocator.numStripes=1 to compare against a single lock per arena.
+    private static final ByteBufAllocator contendedAllocator =
+            new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, 0);
+    private static final int CONTENDED_THREADS = 8;
 
     private static final int MAX_LIVE_BUFFERS = 8192;
     private static final Random rand = new Random();
@@ -108,4 +115,45 @@ public class ByteBufAllocatorBenchmark extends AbstractMicrobenchmark {
         }
         defaultPooledDirectBuffers[idx] = PooledByteBufAllocator.DEFAULT.directBuffer(size);
     }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public void contendedPooledHeapAllocAndFree(ThreadBuffers buffers) {
+        buffers.allocAndFree(contendedAllocator.heapBuffer(size));
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public void contendedPooledDirectAllocAndFree(ThreadBuffers buffers) {
+        buffers.allocAndFree(contendedAllocator.directBuffer(size));
+    }
+
+    /**
+     * The buffers which are kept alive by one thread of the contended benchmarks.
+     */
+    @State(Scope.Thread)
+    public static class ThreadBuffers {
+        private final Random rand = new Random();
+        private final ByteBuf[] buffers = new ByteBuf[MAX_LIVE_BUFFERS / CONTENDED_THREADS];
+
+        void allocAndFree(ByteBuf newBuf) {
+            int idx = rand.nextInt(buffers.length);
+            ByteBuf oldBuf = buffers[idx];
+            if (oldBuf != null) {
+                oldBuf.release();
+            }
+            buffers[idx] = newBuf;
+        }
+
+        @TearDown
+        public void releaseBuffers() {
+            for (int i = 0; i < buffers.length; i ++) {
+                ByteBuf buf = buffers[i];
+                if (buf != null) {
+                    buf.release();
+                    buffers[i] = null;
+                }
+            }
+        }
+    }
 }
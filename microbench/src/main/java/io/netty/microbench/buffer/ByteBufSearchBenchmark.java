@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ByteProcessor;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the word-at-a-time {@link ByteBuf#indexOf(int, int, byte)} and {@link ByteBufUtil#indexOf(ByteBuf, ByteBuf)}
+ * against walking the buffer byte by byte with a {@link ByteProcessor}, as the line and delimiter based decoders did
+ * before.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ByteBufSearchBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "16", "256", "4096" })
+    public int size;
+
+    @Param({ "true", "false" })
+    public boolean direct;
+
+    private ByteBuf haystack;
+    private ByteBuf shortNeedle;
+    private ByteBuf longNeedle;
+
+    @Setup
+    public void setup() {
+        StringBuilder longNeedleString = new StringBuilder();
+        for (int i = 0; i < 32; i++) {
+            longNeedleString.append((char) ('a' + i % 26));
+        }
+        longNeedle = Unpooled.copiedBuffer(longNeedleString, CharsetUtil.US_ASCII);
+        shortNeedle = Unpooled.copiedBuffer("\r\n", CharsetUtil.US_ASCII);
+
+        // Fill with bytes which are never matched but let the long needle partially match on its last byte, and
+        // append both needles at the end so every search has to look at the whole buffer.
+        int capacity = size + longNeedle.readableBytes();
+        haystack = direct ? PooledByteBufAllocator.DEFAULT.directBuffer(capacity)
+                          : PooledByteBufAllocator.DEFAULT.heapBuffer(capacity);
+        for (int i = 0; i < size - shortNeedle.readableBytes(); i++) {
+            haystack.writeByte(i % 2 == 0 ? 'x' : 'f');
+        }
+        haystack.writeBytes(shortNeedle, shortNeedle.readerIndex(), shortNeedle.readableBytes());
+        haystack.writeBytes(longNeedle, longNeedle.readerIndex(), longNeedle.readableBytes());
+    }
+
+    @TearDown
+    public void tearDown() {
+        haystack.release();
+        shortNeedle.release();
+        longNeedle.release();
+    }
+
+    @Benchmark
+    public int indexOfByteProcessor() {
+        return haystack.forEachByte(ByteProcessor.FIND_LF);
+    }
+
+    @Benchmark
+    public int indexOfByte() {
+        return haystack.indexOf(haystack.readerIndex(), haystack.writerIndex(), (byte) '\n');
+    }
+
+    @Benchmark
+    public int indexOfShortNeedleNaive() {
+        return naiveIndexOf(shortNeedle, haystack);
+    }
+
+    @Benchmark
+    public int indexOfShortNeedle() {
+        return ByteBufUtil.indexOf(shortNeedle, haystack);
+    }
+
+    @Benchmark
+    public int indexOfLongNeedleNaive() {
+        return naiveIndexOf(longNeedle, haystack);
+    }
+
+    @Benchmark
+    public int indexOfLongNeedle() {
+        return ByteBufUtil.indexOf(longNeedle, haystack);
+    }
+
+    private static int naiveIndexOf(ByteBuf needle, ByteBuf haystack) {
+        final int needleLength = needle.readableBytes();
+        final int last = haystack.writerIndex() - needleLength;
+        for (int i = haystack.readerIndex(); i <= last; i++) {
+            int j = 0;
+            while (j < needleLength && haystack.getByte(i + j) == needle.getByte(needle.readerIndex() + j)) {
+                j++;
+            }
+            if (j == needleLength) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
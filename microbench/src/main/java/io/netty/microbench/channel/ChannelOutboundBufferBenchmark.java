@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flushes many small pooled messages through a {@link ChannelOutboundBuffer} and gathers them via
+ * {@link ChannelOutboundBuffer#nioBuffers()}, like the NIO transport does for a gathering write. Run with
+ * {@code -prof gc} to see the allocations per flush.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ChannelOutboundBufferBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "1", "16", "64" })
+    public int messages;
+
+    @Param({ "32", "256" })
+    public int messageSize;
+
+    @Param({ "true", "false" })
+    public boolean direct;
+
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private EmbeddedChannel channel;
+    private ChannelOutboundBuffer buffer;
+    private ChannelPromise promise;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel();
+        buffer = channel.unsafe().outboundBuffer();
+        promise = channel.voidPromise();
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finish();
+    }
+
+    @Benchmark
+    public int flushAndGather() {
+        for (int i = 0; i < messages; i++) {
+            ByteBuf buf = direct ? allocator.directBuffer(messageSize) : allocator.heapBuffer(messageSize);
+            buf.writerIndex(messageSize);
+            buffer.addMessage(buf, messageSize, promise);
+        }
+        buffer.addFlush();
+
+        ByteBuffer[] nioBuffers = buffer.nioBuffers();
+        int count = buffer.nioBufferCount();
+        long size = buffer.nioBufferSize();
+        for (int i = 0; i < count; i++) {
+            // Simulate the write which advances the position of the gathered buffers.
+            nioBuffers[i].position(nioBuffers[i].limit());
+        }
+        // Releases all the buffers so they are returned to the pool for the next invocation.
+        buffer.removeBytes(size);
+        return count;
+    }
+}
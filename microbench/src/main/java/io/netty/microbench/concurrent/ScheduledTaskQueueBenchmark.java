@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.concurrent;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the churn of scheduling and cancelling tasks on an {@link EventExecutor} which already has
+ * a large number of scheduled tasks pending, like it is the case when every request has a timeout.
+ */
+@State(Scope.Benchmark)
+public class ScheduledTaskQueueBenchmark extends AbstractMicrobenchmark {
+
+    private static final int CHURN_PER_INVOCATION = 1000;
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    @Param({ "1000", "100000" })
+    public int pending;
+
+    private EventExecutor executor;
+    private ScheduledFuture<?>[] futures;
+    private final Random random = new Random();
+
+    // Cancel random pending tasks and replace them by new ones so the number of pending tasks stays the same.
+    private final Runnable churnTask = new Runnable() {
+        @Override
+        public void run() {
+            for (int i = 0; i < CHURN_PER_INVOCATION; i ++) {
+                int idx = random.nextInt(futures.length);
+                futures[idx].cancel(false);
+                futures[idx] = schedule();
+            }
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        executor = new DefaultEventExecutor();
+        futures = new ScheduledFuture<?>[pending];
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < futures.length; i ++) {
+                    futures[i] = schedule();
+                }
+            }
+        }).sync();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+
+    private ScheduledFuture<?> schedule() {
+        // Use long delays so none of the tasks will be executed while the benchmark runs.
+        return executor.schedule(NOOP, 1 + random.nextInt(3600), TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void scheduleAndCancel() throws Exception {
+        executor.submit(churnTask).sync();
+    }
+}
@@ -41,6 +41,9 @@ public class HttpRequestDecoderBenchmark extends AbstractMicrobenchmark {
     @Param({ "2", "4", "8", "16", "32" })
     public int step;
 
+    @Param({ "false", "true" })
+    public boolean asciiHeaders;
+
     private static byte[] createContent(String... lineDelimiters) {
         String lineDelimiter;
         String lineDelimiter2;
@@ -83,11 +86,13 @@ public class HttpRequestDecoderBenchmark extends AbstractMicrobenchmark {
 
     @Benchmark
     public void testDecodeWholeRequestInMultipleStepsMixedDelimiters() {
-        testDecodeWholeRequestInMultipleSteps(CONTENT_MIXED_DELIMITERS, step);
+        testDecodeWholeRequestInMultipleSteps(CONTENT_MIXED_DELIMITERS, step, asciiHeaders);
     }
 
-    private static void testDecodeWholeRequestInMultipleSteps(byte[] content, int fragmentSize) {
-        final EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
+    private static void testDecodeWholeRequestInMultipleSteps(byte[] content, int fragmentSize,
+                                                              boolean asciiHeaders) {
+        final EmbeddedChannel channel = new EmbeddedChannel(
+                new HttpRequestDecoder(4096, 8192, 8192, true, asciiHeaders));
 
         final int headerLength = content.length - CONTENT_LENGTH;
 
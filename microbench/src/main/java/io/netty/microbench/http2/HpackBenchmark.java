@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.http2;
+
+import com.twitter.hpack.Decoder;
+import com.twitter.hpack.Encoder;
+import com.twitter.hpack.HeaderListener;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersDecoder;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersEncoder;
+import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2HeadersEncoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.AsciiString;
+import io.netty.util.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map.Entry;
+
+/**
+ * Compares the HPACK implementation of codec-http2 with the com.twitter.hpack library it replaced. Every invocation
+ * uses fresh encoders and decoders, so both the literal and the indexed representations are exercised.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class HpackBenchmark extends AbstractMicrobenchmark {
+    private static final int MAX_HEADER_SIZE = 16384;
+    private static final int MAX_HEADER_TABLE_SIZE = 4096;
+
+    @Param({ "4", "16", "64" })
+    public int headerCount;
+
+    private Http2Headers headers;
+    private ByteBuf encoded;
+
+    @Setup(Level.Trial)
+    public void setup() throws Http2Exception {
+        headers = new DefaultHttp2Headers(false);
+        headers.method(new AsciiString("GET"));
+        headers.scheme(new AsciiString("https"));
+        headers.authority(new AsciiString("www.example.com"));
+        headers.path(new AsciiString("/some/path?foo=bar&wibble=eek"));
+        for (int i = 4; i < headerCount; i++) {
+            headers.add(new AsciiString("x-custom-header-" + i), new AsciiString("some value " + i));
+        }
+        encoded = Unpooled.buffer();
+        // Encode the headers twice, so the second block refers to the dynamic table.
+        Http2HeadersEncoder encoder = new DefaultHttp2HeadersEncoder();
+        encoder.encodeHeaders(headers, encoded);
+        encoder.encodeHeaders(headers, encoded);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encoded.release();
+    }
+
+    @Benchmark
+    public void encodeNetty(Blackhole bh) throws Http2Exception {
+        ByteBuf out = Unpooled.buffer(encoded.readableBytes());
+        Http2HeadersEncoder encoder = new DefaultHttp2HeadersEncoder();
+        encoder.encodeHeaders(headers, out);
+        encoder.encodeHeaders(headers, out);
+        bh.consume(out);
+    }
+
+    @Benchmark
+    public void encodeTwitter(Blackhole bh) throws IOException {
+        ByteBuf out = Unpooled.buffer(encoded.readableBytes());
+        OutputStream stream = new ByteBufOutputStream(out);
+        Encoder encoder = new Encoder(MAX_HEADER_TABLE_SIZE);
+        for (int i = 0; i < 2; i++) {
+            for (Entry<ByteString, ByteString> header : headers) {
+                encoder.encodeHeader(stream, header.getKey().toByteArray(), header.getValue().toByteArray(), false);
+            }
+        }
+        bh.consume(out);
+    }
+
+    @Benchmark
+    public void decodeNetty(Blackhole bh) throws Http2Exception {
+        DefaultHttp2HeadersDecoder decoder = new DefaultHttp2HeadersDecoder(MAX_HEADER_SIZE, MAX_HEADER_TABLE_SIZE,
+                false);
+        ByteBuf in = encoded.duplicate();
+        bh.consume(decoder.decodeHeaders(in));
+    }
+
+    @Benchmark
+    public void decodeTwitter(Blackhole bh) throws IOException {
+        Decoder decoder = new Decoder(MAX_HEADER_SIZE, MAX_HEADER_TABLE_SIZE);
+        final Http2Headers decoded = new DefaultHttp2Headers(false);
+        decoder.decode(new ByteBufInputStream(encoded.duplicate()), new HeaderListener() {
+            @Override
+            public void addHeader(byte[] name, byte[] value, boolean sensitive) {
+                decoded.add(new ByteString(name, false), new ByteString(value, false));
+            }
+        });
+        decoder.endHeaderBlock();
+        bh.consume(decoded);
+    }
+}
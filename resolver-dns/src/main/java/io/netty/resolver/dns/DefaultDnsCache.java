@@ -0,0 +1,535 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * The default {@link DnsCache}, which keeps the entries of at most {@code maxEntries} hostnames and evicts a hostname
+ * which was not looked up recently when it is full.
+ * <p>
+ * Every hostname has its own lock, so the lookups and updates of different hostnames do not contend with each other.
+ * The eviction order approximates the least recently used order: the hostnames are queued in the order in which they
+ * were cached, and a hostname which was looked up since it was queued is queued again instead of being evicted.
+ * <p>
+ * Every entry keeps the time at which it expires, so no task needs to be scheduled per entry. Expired entries are
+ * removed when they are accessed, or evicted like any other entry.
+ * <p>
+ * If prefetching is enabled, the entries of a hostname which was looked up at least {@code prefetchHits} times are
+ * resolved again once less than {@code prefetchRatio} of their TTL is left, so frequently used hostnames do not
+ * expire. A failure of such a refresh does not replace the entries which did not expire yet, and the refresh is tried
+ * again after {@code prefetchHits} more lookups.
+ */
+public class DefaultDnsCache implements DnsCache {
+
+    /**
+     * The default max number of hostnames in the cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 65536;
+
+    private final int maxEntries;
+    private final int prefetchHits;
+    private final double prefetchRatio;
+    private final ConcurrentMap<String, Entries> entries = PlatformDependent.newConcurrentHashMap();
+    // The hostnames in the order in which they are considered for eviction.
+    private final Queue<Entries> evictionQueue = new ConcurrentLinkedQueue<Entries>();
+    private final AtomicInteger size = new AtomicInteger();
+    // The number of hostnames which were removed from the cache but may still be in the eviction queue.
+    private final AtomicInteger staleQueued = new AtomicInteger();
+
+    private final LongCounter hits = PlatformDependent.newLongCounter();
+    private final LongCounter misses = PlatformDependent.newLongCounter();
+    private final LongCounter evictions = PlatformDependent.newLongCounter();
+    private final LongCounter expirations = PlatformDependent.newLongCounter();
+    private final LongCounter prefetches = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new instance which keeps {@link #DEFAULT_MAX_ENTRIES} hostnames and does not prefetch.
+     */
+    public DefaultDnsCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a new instance which does not prefetch.
+     *
+     * @param maxEntries the max number of hostnames in the cache
+     */
+    public DefaultDnsCache(int maxEntries) {
+        this(maxEntries, 0, 0);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxEntries    the max number of hostnames in the cache
+     * @param prefetchHits  the number of lookups after which the entries of a hostname are refreshed before they
+     *                      expire, or {@code 0} to disable prefetching
+     * @param prefetchRatio the part of the TTL which must be left when the entries are refreshed, which must be
+     *                      greater than {@code 0} and less than {@code 1}, for example {@code 0.1} to refresh the
+     *                      entries during the last 10% of their TTL
+     */
+    public DefaultDnsCache(int maxEntries, int prefetchHits, double prefetchRatio) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries: " + maxEntries + " (expected: > 0)");
+        }
+        if (prefetchHits < 0) {
+            throw new IllegalArgumentException("prefetchHits: " + prefetchHits + " (expected: >= 0)");
+        }
+        if (prefetchHits > 0 && (prefetchRatio <= 0 || prefetchRatio >= 1)) {
+            throw new IllegalArgumentException("prefetchRatio: " + prefetchRatio + " (expected: 0 < ratio < 1)");
+        }
+        this.maxEntries = maxEntries;
+        this.prefetchHits = prefetchHits;
+        this.prefetchRatio = prefetchRatio;
+    }
+
+    /**
+     * Returns the max number of hostnames in the cache.
+     */
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public List<DnsCacheEntry> get(String hostname) {
+        checkNotNull(hostname, "hostname");
+        List<DnsCacheEntry> result = null;
+        Entries e = entries.get(hostname);
+        if (e != null) {
+            boolean removed = false;
+            synchronized (e) {
+                if (!e.removed) {
+                    boolean empty = e.isEmpty();
+                    result = e.get(nanoTime());
+                    if (result != null) {
+                        e.hits++;
+                        e.referenced = true;
+                    } else if (remove(e)) {
+                        removed = true;
+                        if (!empty) {
+                            expirations.increment();
+                        }
+                    }
+                }
+            }
+            if (removed) {
+                removedQueued();
+            }
+        }
+        if (result == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return result;
+    }
+
+    @Override
+    public void cache(String hostname, InetAddress address, long ttl) {
+        checkNotNull(hostname, "hostname");
+        checkNotNull(address, "address");
+        DnsCacheEntry entry = new DnsCacheEntry(hostname, address);
+        for (;;) {
+            Entries e = entries(hostname);
+            synchronized (e) {
+                if (e.removed) {
+                    // Removed concurrently, try again with new entries.
+                    continue;
+                }
+                if (e.isFailure()) {
+                    e.reset();
+                }
+                e.add(entry, toNanos(ttl), nanoTime());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void cache(String hostname, Throwable cause, long ttl) {
+        checkNotNull(hostname, "hostname");
+        checkNotNull(cause, "cause");
+        if (ttl == 0) {
+            // The failure is not cached, but it ends a refresh so it can be tried again.
+            Entries e = entries.get(hostname);
+            if (e != null) {
+                synchronized (e) {
+                    if (e.prefetching) {
+                        e.prefetched();
+                    }
+                }
+            }
+            return;
+        }
+        DnsCacheEntry entry = new DnsCacheEntry(hostname, cause);
+        for (;;) {
+            Entries e = entries(hostname);
+            synchronized (e) {
+                if (e.removed) {
+                    // Removed concurrently, try again with new entries.
+                    continue;
+                }
+                long now = nanoTime();
+                if (e.prefetching && !e.isFailure() && e.get(now) != null) {
+                    // A refresh failed, keep serving the addresses until they expire.
+                    e.prefetched();
+                    return;
+                }
+                e.reset();
+                e.add(entry, toNanos(ttl), now);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean prefetch(String hostname) {
+        if (prefetchHits == 0) {
+            return false;
+        }
+        Entries e = entries.get(hostname);
+        if (e == null) {
+            return false;
+        }
+        synchronized (e) {
+            if (e.removed || e.prefetching || e.hits < prefetchHits || e.isEmpty() || e.isFailure()) {
+                return false;
+            }
+            long now = nanoTime();
+            if (e.isExpired(now) || e.expirationNanos - now > e.ttlNanos * prefetchRatio) {
+                return false;
+            }
+            e.prefetching = true;
+        }
+        prefetches.increment();
+        return true;
+    }
+
+    @Override
+    public boolean clear(String hostname) {
+        Entries e = entries.get(hostname);
+        if (e == null) {
+            return false;
+        }
+        synchronized (e) {
+            if (!remove(e)) {
+                return false;
+            }
+        }
+        removedQueued();
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (Entries e: entries.values()) {
+            boolean removed;
+            synchronized (e) {
+                removed = remove(e);
+            }
+            if (removed) {
+                removedQueued();
+            }
+        }
+    }
+
+    /**
+     * Returns the entries of the given hostname, which are created if the hostname is not cached yet.
+     */
+    private Entries entries(String hostname) {
+        Entries e = entries.get(hostname);
+        if (e == null) {
+            Entries newEntries = new Entries(hostname);
+            e = entries.putIfAbsent(hostname, newEntries);
+            if (e == null) {
+                e = newEntries;
+                evictionQueue.offer(e);
+                if (size.incrementAndGet() > maxEntries) {
+                    evict();
+                }
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Removes the given entries from the cache. The caller must hold the lock of the entries.
+     *
+     * @return {@code true} if the entries were removed by this call
+     */
+    private boolean remove(Entries e) {
+        assert Thread.holdsLock(e);
+        if (e.removed || !entries.remove(e.hostname, e)) {
+            return false;
+        }
+        e.removed = true;
+        size.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Must be called when entries were removed without being taken from the eviction queue, so the removed entries
+     * are purged from the queue once there are as many of them as the cache has hostnames at most.
+     */
+    private void removedQueued() {
+        if (staleQueued.incrementAndGet() < maxEntries) {
+            return;
+        }
+        staleQueued.set(0);
+        for (Iterator<Entries> i = evictionQueue.iterator(); i.hasNext();) {
+            if (i.next().removed) {
+                i.remove();
+            }
+        }
+    }
+
+    private void evict() {
+        for (;;) {
+            Entries e = evictionQueue.poll();
+            if (e == null) {
+                return;
+            }
+            if (e.removed) {
+                continue;
+            }
+            if (e.referenced) {
+                // Looked up since it was queued, give it a second chance.
+                e.referenced = false;
+                evictionQueue.offer(e);
+                continue;
+            }
+            synchronized (e) {
+                if (remove(e)) {
+                    if (e.isExpired(nanoTime())) {
+                        expirations.increment();
+                    } else {
+                        evictions.increment();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of hostnames in the cache, including the ones which expired but were not removed yet.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns the number of lookups which found entries.
+     */
+    public long hits() {
+        return hits.value();
+    }
+
+    /**
+     * Returns the number of lookups which did not find any entries.
+     */
+    public long misses() {
+        return misses.value();
+    }
+
+    /**
+     * Returns the number of hostnames which were evicted before they expired, because the cache was full.
+     */
+    public long evictions() {
+        return evictions.value();
+    }
+
+    /**
+     * Returns the number of hostnames which were removed because all their entries expired.
+     */
+    public long expirations() {
+        return expirations.value();
+    }
+
+    /**
+     * Returns the number of times the entries of a hostname were refreshed ahead of time.
+     */
+    public long prefetches() {
+        return prefetches.value();
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private static long toNanos(long ttl) {
+        return TimeUnit.SECONDS.toNanos(ttl);
+    }
+
+    @Override
+    public String toString() {
+        return "DefaultDnsCache(size: " + size() + ", maxEntries: " + maxEntries + ", hits: " + hits() +
+               ", misses: " + misses() + ", evictions: " + evictions() + ", expirations: " + expirations() +
+               ", prefetches: " + prefetches() + ')';
+    }
+
+    /**
+     * The entries of a single hostname. All the fields except {@link #removed} and {@link #referenced} are guarded
+     * by the lock of the instance.
+     */
+    private static final class Entries {
+        final String hostname;
+        private final List<Record> records = new ArrayList<Record>(2);
+        private List<DnsCacheEntry> snapshot;
+        // The expiration and the TTL of the record which expires first.
+        long expirationNanos;
+        long ttlNanos;
+        int hits;
+        boolean prefetching;
+        // Set once the instance was removed from the cache, after which it must not be updated anymore.
+        volatile boolean removed;
+        // Set by every lookup and cleared by the eviction.
+        volatile boolean referenced;
+
+        Entries(String hostname) {
+            this.hostname = hostname;
+        }
+
+        void add(DnsCacheEntry e, long ttlNanos, long now) {
+            Record record = null;
+            if (e.address() != null) {
+                for (int i = 0; i < records.size(); i++) {
+                    Record r = records.get(i);
+                    if (e.address().equals(r.entry.address())) {
+                        record = r;
+                        break;
+                    }
+                }
+            }
+            if (record == null) {
+                records.add(new Record(e, now + ttlNanos, ttlNanos));
+                snapshot = null;
+            } else {
+                // Refreshed.
+                record.expirationNanos = now + ttlNanos;
+                record.ttlNanos = ttlNanos;
+            }
+            if (prefetching) {
+                prefetched();
+            }
+            updateExpiration();
+        }
+
+        /**
+         * Ends a refresh, the next one is started after enough hits again.
+         */
+        void prefetched() {
+            prefetching = false;
+            hits = 0;
+        }
+
+        /**
+         * Removes all records, for example to replace them with a failure.
+         */
+        void reset() {
+            records.clear();
+            snapshot = null;
+            hits = 0;
+            prefetching = false;
+        }
+
+        private void updateExpiration() {
+            Record first = records.get(0);
+            for (int i = 1; i < records.size(); i++) {
+                Record r = records.get(i);
+                if (r.expirationNanos - first.expirationNanos < 0) {
+                    first = r;
+                }
+            }
+            expirationNanos = first.expirationNanos;
+            ttlNanos = first.ttlNanos;
+        }
+
+        boolean isEmpty() {
+            return records.isEmpty();
+        }
+
+        boolean isFailure() {
+            return !records.isEmpty() && records.get(0).entry.cause() != null;
+        }
+
+        boolean isExpired(long now) {
+            for (int i = 0; i < records.size(); i++) {
+                if (records.get(i).expirationNanos - now > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the entries which did not expire yet or {@code null} if all of them expired.
+         */
+        List<DnsCacheEntry> get(long now) {
+            if (records.isEmpty()) {
+                return null;
+            }
+            if (expirationNanos - now <= 0) {
+                // Remove the expired records.
+                for (int i = records.size() - 1; i >= 0; i--) {
+                    if (records.get(i).expirationNanos - now <= 0) {
+                        records.remove(i);
+                        snapshot = null;
+                    }
+                }
+                if (records.isEmpty()) {
+                    return null;
+                }
+                updateExpiration();
+            }
+            if (snapshot == null) {
+                List<DnsCacheEntry> list = new ArrayList<DnsCacheEntry>(records.size());
+                for (int i = 0; i < records.size(); i++) {
+                    list.add(records.get(i).entry);
+                }
+                snapshot = Collections.unmodifiableList(list);
+            }
+            return snapshot;
+        }
+    }
+
+    private static final class Record {
+        final DnsCacheEntry entry;
+        long expirationNanos;
+        long ttlNanos;
+
+        Record(DnsCacheEntry entry, long expirationNanos, long ttlNanos) {
+            this.entry = entry;
+            this.expirationNanos = expirationNanos;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+}
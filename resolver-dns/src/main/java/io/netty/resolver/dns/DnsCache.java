@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import java.net.InetAddress;
+import java.util.List;
+
+/**
+ * A cache for the results of the resolutions of a {@link DnsNameResolver}. Implementations must be thread-safe, as a
+ * cache may be shared by the resolvers of different {@link io.netty.channel.EventLoop}s.
+ *
+ * @see DefaultDnsCache
+ */
+public interface DnsCache {
+
+    /**
+     * Returns the cached entries of the given hostname, or {@code null} if there are no entries which did not
+     * expire yet. The entries are either resolved addresses or a single failure.
+     */
+    List<DnsCacheEntry> get(String hostname);
+
+    /**
+     * Caches a resolved address of the given hostname. Addresses which are cached already are refreshed.
+     *
+     * @param ttl the number of seconds for which the address is valid
+     */
+    void cache(String hostname, InetAddress address, long ttl);
+
+    /**
+     * Caches the failed resolution of the given hostname, which replaces all the cached addresses of it. If the
+     * failure is the result of a refresh requested by {@link #prefetch(String)}, the cache may keep the addresses
+     * which did not expire yet instead.
+     *
+     * @param ttl the number of seconds for which the failure is valid, or {@code 0} if it must not be cached, in
+     *            which case the cached addresses are kept and only a pending refresh is ended
+     */
+    void cache(String hostname, Throwable cause, long ttl);
+
+    /**
+     * Returns {@code true} if the entries of the given hostname are about to expire and should be resolved again
+     * ahead of time, so they are refreshed before they expire. Returns {@code true} at most once until the entries
+     * were refreshed.
+     */
+    boolean prefetch(String hostname);
+
+    /**
+     * Removes the entries of the given hostname.
+     *
+     * @return {@code true} if there were entries for the given hostname
+     */
+    boolean clear(String hostname);
+
+    /**
+     * Removes all entries.
+     */
+    void clear();
+}
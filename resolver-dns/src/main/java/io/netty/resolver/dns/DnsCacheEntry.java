@@ -13,58 +13,45 @@
  * License for the specific language governing permissions and limitations
  * under the License.
  */
-
 package io.netty.resolver.dns;
 
-import io.netty.channel.EventLoop;
-import io.netty.util.concurrent.ScheduledFuture;
-
 import java.net.InetAddress;
-import java.util.concurrent.TimeUnit;
 
-final class DnsCacheEntry {
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Entry in a {@link DnsCache}: either a resolved address or the cause of a failed resolution.
+ */
+public final class DnsCacheEntry {
 
     private final String hostname;
     private final InetAddress address;
     private final Throwable cause;
-    private volatile ScheduledFuture<?> expirationFuture;
 
-    DnsCacheEntry(String hostname, InetAddress address) {
-        this.hostname = hostname;
-        this.address = address;
+    public DnsCacheEntry(String hostname, InetAddress address) {
+        this.hostname = checkNotNull(hostname, "hostname");
+        this.address = checkNotNull(address, "address");
         cause = null;
     }
 
-    DnsCacheEntry(String hostname, Throwable cause) {
-        this.hostname = hostname;
-        this.cause = cause;
+    public DnsCacheEntry(String hostname, Throwable cause) {
+        this.hostname = checkNotNull(hostname, "hostname");
+        this.cause = checkNotNull(cause, "cause");
         address = null;
     }
 
-    String hostname() {
+    public String hostname() {
         return hostname;
     }
 
-    InetAddress address() {
+    public InetAddress address() {
         return address;
     }
 
-    Throwable cause() {
+    public Throwable cause() {
         return cause;
     }
 
-    void scheduleExpiration(EventLoop loop, Runnable task, long delay, TimeUnit unit) {
-        assert expirationFuture == null: "expiration task scheduled already";
-        expirationFuture = loop.schedule(task, delay, unit);
-    }
-
-    void cancelExpiration() {
-        ScheduledFuture<?> expirationFuture = this.expirationFuture;
-        if (expirationFuture != null) {
-            expirationFuture.cancel(false);
-        }
-    }
-
     @Override
     public String toString() {
         if (cause != null) {
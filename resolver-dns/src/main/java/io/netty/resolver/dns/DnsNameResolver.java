@@ -15,33 +15,25 @@
  */
 package io.netty.resolver.dns;
 
-import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.AddressedEnvelope;
 import io.netty.channel.ChannelFactory;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
-import io.netty.channel.ChannelHandlerAdapter;
-import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.ChannelInitializer;
 import io.netty.channel.EventLoop;
 import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.ReflectiveChannelFactory;
 import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.InternetProtocolFamily;
-import io.netty.handler.codec.dns.DatagramDnsQueryEncoder;
-import io.netty.handler.codec.dns.DatagramDnsResponse;
-import io.netty.handler.codec.dns.DatagramDnsResponseDecoder;
+import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.dns.DnsQuestion;
 import io.netty.handler.codec.dns.DnsResponse;
 import io.netty.resolver.NameResolver;
 import io.netty.resolver.SimpleNameResolver;
 import io.netty.util.NetUtil;
-import io.netty.util.ReferenceCountUtil;
-import io.netty.util.collection.IntObjectHashMap;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
 import io.netty.util.concurrent.Promise;
-import io.netty.util.internal.OneTimeTask;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
@@ -54,12 +46,9 @@ import java.net.SocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.netty.util.internal.ObjectUtil.*;
 
@@ -87,24 +76,31 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
         }
     }
 
-    private static final DatagramDnsResponseDecoder DECODER = new DatagramDnsResponseDecoder();
-    private static final DatagramDnsQueryEncoder ENCODER = new DatagramDnsQueryEncoder();
-
     final DnsServerAddresses nameServerAddresses;
-    final ChannelFuture bindFuture;
-    final DatagramChannel ch;
 
     /**
-     * An array whose index is the ID of a DNS query and whose value is the promise of the corresponsing response. We
-     * don't use {@link IntObjectHashMap} or map-like data structure here because 64k elements are fairly small, which
-     * is only about 512KB.
+     * The channels over which the queries are spread. Each of them has its own space of query IDs.
+     */
+    private final DnsQueryChannel[] channels;
+    private final AtomicInteger channelIndex = new AtomicInteger();
+
+    /**
+     * The persistent TCP connections to the DNS servers, which are used when a response over UDP was truncated.
      */
-    final AtomicReferenceArray<DnsQueryContext> promises = new AtomicReferenceArray<DnsQueryContext>(65536);
+    private final ConcurrentMap<InetSocketAddress, DnsQueryChannel> streamChannels =
+            PlatformDependent.newConcurrentHashMap();
+    private volatile ChannelFactory<? extends SocketChannel> socketChannelFactory;
+
+    /**
+     * The resolutions in progress, so that concurrent resolutions of the same hostname share their queries.
+     */
+    private final ConcurrentMap<String, Promise<List<InetAddress>>> resolvesInProgress =
+            PlatformDependent.newConcurrentHashMap();
 
     /**
      * Cache for {@link #doResolve(InetSocketAddress, Promise)} and {@link #doResolveAll(InetSocketAddress, Promise)}.
      */
-    final ConcurrentMap<String, List<DnsCacheEntry>> resolveCache = PlatformDependent.newConcurrentHashMap();
+    private volatile DnsCache resolveCache = new DefaultDnsCache();
 
     private final FastThreadLocal<DnsServerAddressStream> nameServerAddrStream =
             new FastThreadLocal<DnsServerAddressStream>() {
@@ -114,8 +110,6 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
                 }
             };
 
-    private final DnsResponseHandler responseHandler = new DnsResponseHandler();
-
     private volatile long queryTimeoutMillis = 5000;
 
     // The default TTL values here respect the TTL returned by the DNS server and do not cache the negative response.
@@ -190,42 +184,69 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
     public DnsNameResolver(
             EventLoop eventLoop, ChannelFactory<? extends DatagramChannel> channelFactory,
             InetSocketAddress localAddress, DnsServerAddresses nameServerAddresses) {
+        this(eventLoop, channelFactory, localAddress, nameServerAddresses, 1);
+    }
+
+    /**
+     * Creates a new DNS-based name resolver that communicates with the specified list of DNS servers and spreads its
+     * queries over the specified number of {@link DatagramChannel}s. Each {@link DatagramChannel} has its own space of
+     * query IDs, so using more than one channel raises the number of queries which may be in flight at the same time
+     * and the throughput of a busy resolver.
+     *
+     * @param eventLoop the {@link EventLoop} which will perform the communication with the DNS servers
+     * @param channelFactory the {@link ChannelFactory} that will create the {@link DatagramChannel}s
+     * @param localAddress the local address of the {@link DatagramChannel}s. Its port must be {@code 0} if more
+     *                     than one channel is used.
+     * @param nameServerAddresses the addresses of the DNS server. For each DNS query, a new stream is created from
+     *                            this to determine which DNS server should be contacted for the next retry in case
+     *                            of failure.
+     * @param numChannels the number of {@link DatagramChannel}s to create
+     */
+    public DnsNameResolver(
+            EventLoop eventLoop, ChannelFactory<? extends DatagramChannel> channelFactory,
+            InetSocketAddress localAddress, DnsServerAddresses nameServerAddresses, int numChannels) {
 
         super(eventLoop);
 
         checkNotNull(channelFactory, "channelFactory");
         checkNotNull(nameServerAddresses, "nameServerAddresses");
         checkNotNull(localAddress, "localAddress");
+        if (numChannels <= 0) {
+            throw new IllegalArgumentException("numChannels: " + numChannels + " (expected: > 0)");
+        }
+        if (numChannels > 1 && localAddress.getPort() != 0) {
+            throw new IllegalArgumentException(
+                    "localAddress: " + localAddress + " (expected: port 0 when numChannels > 1)");
+        }
 
         this.nameServerAddresses = nameServerAddresses;
-        bindFuture = newChannel(channelFactory, localAddress);
-        ch = (DatagramChannel) bindFuture.channel();
+        channels = new DnsQueryChannel[numChannels];
+        for (int i = 0; i < numChannels; i ++) {
+            channels[i] = newChannel(channelFactory, localAddress);
+        }
 
         setMaxPayloadSize(4096);
     }
 
-    private ChannelFuture newChannel(
+    private DnsQueryChannel newChannel(
             ChannelFactory<? extends DatagramChannel> channelFactory, InetSocketAddress localAddress) {
 
-        Bootstrap b = new Bootstrap();
-        b.group(executor());
-        b.channelFactory(channelFactory);
-        b.handler(new ChannelInitializer<DatagramChannel>() {
-            @Override
-            protected void initChannel(DatagramChannel ch) throws Exception {
-                ch.pipeline().addLast(DECODER, ENCODER, responseHandler);
-            }
-        });
-
-        ChannelFuture bindFuture = b.bind(localAddress);
-        bindFuture.channel().closeFuture().addListener(new ChannelFutureListener() {
+        DnsQueryChannel channel = DnsQueryChannel.newDatagramChannel(executor(), channelFactory, localAddress);
+        channel.ch.closeFuture().addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(ChannelFuture future) throws Exception {
                 clearCache();
             }
         });
 
-        return bindFuture;
+        return channel;
+    }
+
+    /**
+     * Returns the number of {@link DatagramChannel}s over which this resolver spreads its queries.
+     */
+    public int numChannels() {
+        return channels.length;
     }
 
     /**
@@ -305,6 +326,102 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
         return this;
     }
 
+    /**
+     * Returns the {@link DnsCache} of this resolver. The default is a {@link DefaultDnsCache} which keeps the
+     * addresses of {@link DefaultDnsCache#DEFAULT_MAX_ENTRIES} hostnames and does not prefetch.
+     *
+     * @see #setResolveCache(DnsCache)
+     */
+    public DnsCache resolveCache() {
+        return resolveCache;
+    }
+
+    /**
+     * Sets the {@link DnsCache} of this resolver. The new cache may be shared with other resolvers, for example to
+     * share the resolved addresses between the resolvers of a {@link DnsNameResolverGroup}.
+     *
+     * @return {@code this}
+     *
+     * @see #resolveCache()
+     */
+    public DnsNameResolver setResolveCache(DnsCache resolveCache) {
+        this.resolveCache = checkNotNull(resolveCache, "resolveCache");
+        return this;
+    }
+
+    /**
+     * Returns the {@link ChannelFactory} of the {@link SocketChannel}s which are used to query a DNS server again over
+     * TCP when its response over UDP was truncated, or {@code null} if truncated responses are not retried over TCP.
+     * The default value is {@code null}.
+     *
+     * @see #setSocketChannelFactory(ChannelFactory)
+     */
+    public ChannelFactory<? extends SocketChannel> socketChannelFactory() {
+        return socketChannelFactory;
+    }
+
+    /**
+     * Sets the type of the {@link SocketChannel}s which are used to query a DNS server again over TCP when its
+     * response over UDP was truncated.
+     *
+     * @return {@code this}
+     *
+     * @see #setSocketChannelFactory(ChannelFactory)
+     */
+    public DnsNameResolver setSocketChannelType(Class<? extends SocketChannel> socketChannelType) {
+        checkNotNull(socketChannelType, "socketChannelType");
+        return setSocketChannelFactory(new ReflectiveChannelFactory<SocketChannel>(socketChannelType));
+    }
+
+    /**
+     * Sets the {@link ChannelFactory} of the {@link SocketChannel}s which are used to query a DNS server again over
+     * TCP when its response over UDP was truncated. A single connection is kept open to each DNS server and all the
+     * queries to the same DNS server are pipelined over it, so that a burst of large responses does not pay for a
+     * TCP handshake per query. Specify {@code null} to use the truncated responses as they are.
+     *
+     * @return {@code this}
+     *
+     * @see #socketChannelFactory()
+     */
+    public DnsNameResolver setSocketChannelFactory(ChannelFactory<? extends SocketChannel> socketChannelFactory) {
+        this.socketChannelFactory = socketChannelFactory;
+        return this;
+    }
+
+    /**
+     * Returns the {@link DnsQueryChannel} which is connected to the specified DNS server over TCP, or {@code null} if
+     * truncated responses are not retried over TCP.
+     */
+    DnsQueryChannel streamChannel(final InetSocketAddress nameServerAddr) {
+        final ChannelFactory<? extends SocketChannel> socketChannelFactory = this.socketChannelFactory;
+        if (socketChannelFactory == null) {
+            return null;
+        }
+
+        DnsQueryChannel channel = streamChannels.get(nameServerAddr);
+        if (channel != null) {
+            return channel;
+        }
+
+        final DnsQueryChannel newChannel =
+                DnsQueryChannel.newStreamChannel(executor(), socketChannelFactory, nameServerAddr);
+        channel = streamChannels.putIfAbsent(nameServerAddr, newChannel);
+        if (channel != null) {
+            newChannel.ch.close();
+            return channel;
+        }
+
+        // Connect again on demand once the connection was closed, for example by an idle DNS server.
+        newChannel.ch.closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                streamChannels.remove(nameServerAddr, newChannel);
+            }
+        });
+
+        return newChannel;
+    }
+
     /**
      * Returns the timeout of each DNS query performed by this resolver (in milliseconds).
      * The default value is 5 seconds.
@@ -516,7 +633,9 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
         }
 
         this.maxPayloadSize = maxPayloadSize;
-        ch.config().setRecvByteBufAllocator(new FixedRecvByteBufAllocator(maxPayloadSize));
+        for (DnsQueryChannel channel: channels) {
+            channel.ch.config().setRecvByteBufAllocator(new FixedRecvByteBufAllocator(maxPayloadSize));
+        }
 
         return this;
     }
@@ -547,11 +666,7 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
      * @see #clearCache(String)
      */
     public DnsNameResolver clearCache() {
-        for (Iterator<Entry<String, List<DnsCacheEntry>>> i = resolveCache.entrySet().iterator(); i.hasNext();) {
-            final Entry<String, List<DnsCacheEntry>> e = i.next();
-            i.remove();
-            cancelExpiration(e);
-        }
+        resolveCache.clear();
         return this;
     }
 
@@ -562,24 +677,7 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
      *         it has been removed by this method
      */
     public boolean clearCache(String hostname) {
-        boolean removed = false;
-        for (Iterator<Entry<String, List<DnsCacheEntry>>> i = resolveCache.entrySet().iterator(); i.hasNext();) {
-            final Entry<String, List<DnsCacheEntry>> e = i.next();
-            if (e.getKey().equals(hostname)) {
-                i.remove();
-                cancelExpiration(e);
-                removed = true;
-            }
-        }
-        return removed;
-    }
-
-    private static void cancelExpiration(Entry<String, List<DnsCacheEntry>> e) {
-        final List<DnsCacheEntry> entries = e.getValue();
-        final int numEntries = entries.size();
-        for (int i = 0; i < numEntries; i++) {
-            entries.get(i).cancelExpiration();
-        }
+        return resolveCache.clear(hostname);
     }
 
     /**
@@ -589,7 +687,12 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
      */
     @Override
     public void close() {
-        ch.close();
+        for (DnsQueryChannel channel: channels) {
+            channel.ch.close();
+        }
+        for (DnsQueryChannel channel: streamChannels.values()) {
+            channel.ch.close();
+        }
     }
 
     @Override
@@ -620,32 +723,30 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
     }
 
     private boolean doResolveCached(String hostname, int port, Promise<InetSocketAddress> promise) {
+        final DnsCache resolveCache = this.resolveCache;
         final List<DnsCacheEntry> cachedEntries = resolveCache.get(hostname);
-        if (cachedEntries == null) {
+        if (cachedEntries == null || cachedEntries.isEmpty()) {
             return false;
         }
 
         InetAddress address = null;
         Throwable cause = null;
-        synchronized (cachedEntries) {
-            final int numEntries = cachedEntries.size();
-            assert numEntries > 0;
-
-            if (cachedEntries.get(0).cause() != null) {
-                cause = cachedEntries.get(0).cause();
-            } else {
-                // Find the first entry with the preferred address type.
-                for (InternetProtocolFamily f : resolveAddressTypes) {
-                    for (int i = 0; i < numEntries; i++) {
-                        final DnsCacheEntry e = cachedEntries.get(i);
-                        if (f.addressType().isInstance(e.address())) {
-                            address = e.address();
-                            break;
-                        }
+        final int numEntries = cachedEntries.size();
+        if (cachedEntries.get(0).cause() != null) {
+            cause = cachedEntries.get(0).cause();
+        } else {
+            // Find the first entry with the preferred address type.
+            for (InternetProtocolFamily f : resolveAddressTypes) {
+                for (int i = 0; i < numEntries; i++) {
+                    final DnsCacheEntry e = cachedEntries.get(i);
+                    if (f.addressType().isInstance(e.address())) {
+                        address = e.address();
+                        break;
                     }
                 }
             }
         }
+        prefetchIfNeeded(resolveCache, hostname);
 
         if (address != null) {
             setSuccess(promise, new InetSocketAddress(address, port));
@@ -666,26 +767,17 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
         }
     }
 
-    private void doResolveUncached(String hostname, final int port, Promise<InetSocketAddress> promise) {
-        final DnsNameResolverContext<InetSocketAddress> ctx =
-                new DnsNameResolverContext<InetSocketAddress>(this, hostname, promise) {
-                    @Override
-                    protected boolean finishResolve(
-                            Class<? extends InetAddress> addressType, List<DnsCacheEntry> resolvedEntries) {
-
-                        final int numEntries = resolvedEntries.size();
-                        for (int i = 0; i < numEntries; i++) {
-                            final InetAddress a = resolvedEntries.get(i).address();
-                            if (addressType.isInstance(a)) {
-                                setSuccess(promise(), new InetSocketAddress(a, port));
-                                return true;
-                            }
-                        }
-                        return false;
-                    }
-                };
-
-        ctx.resolve();
+    private void doResolveUncached(String hostname, final int port, final Promise<InetSocketAddress> promise) {
+        resolveCoalesced(hostname).addListener(new FutureListener<List<InetAddress>>() {
+            @Override
+            public void operationComplete(Future<List<InetAddress>> future) throws Exception {
+                if (future.isSuccess()) {
+                    setSuccess(promise, new InetSocketAddress(future.getNow().get(0), port));
+                } else {
+                    promise.tryFailure(future.cause());
+                }
+            }
+        });
     }
 
     @Override
@@ -709,33 +801,31 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
     }
 
     private boolean doResolveAllCached(String hostname, int port, Promise<List<InetSocketAddress>> promise) {
+        final DnsCache resolveCache = this.resolveCache;
         final List<DnsCacheEntry> cachedEntries = resolveCache.get(hostname);
-        if (cachedEntries == null) {
+        if (cachedEntries == null || cachedEntries.isEmpty()) {
             return false;
         }
 
         List<InetSocketAddress> result = null;
         Throwable cause = null;
-        synchronized (cachedEntries) {
-            final int numEntries = cachedEntries.size();
-            assert numEntries > 0;
-
-            if (cachedEntries.get(0).cause() != null) {
-                cause = cachedEntries.get(0).cause();
-            } else {
-                for (InternetProtocolFamily f : resolveAddressTypes) {
-                    for (int i = 0; i < numEntries; i++) {
-                        final DnsCacheEntry e = cachedEntries.get(i);
-                        if (f.addressType().isInstance(e.address())) {
-                            if (result == null) {
-                                result = new ArrayList<InetSocketAddress>(numEntries);
-                            }
-                            result.add(new InetSocketAddress(e.address(), port));
+        final int numEntries = cachedEntries.size();
+        if (cachedEntries.get(0).cause() != null) {
+            cause = cachedEntries.get(0).cause();
+        } else {
+            for (InternetProtocolFamily f : resolveAddressTypes) {
+                for (int i = 0; i < numEntries; i++) {
+                    final DnsCacheEntry e = cachedEntries.get(i);
+                    if (f.addressType().isInstance(e.address())) {
+                        if (result == null) {
+                            result = new ArrayList<InetSocketAddress>(numEntries);
                         }
+                        result.add(new InetSocketAddress(e.address(), port));
                     }
                 }
             }
         }
+        prefetchIfNeeded(resolveCache, hostname);
 
         if (result != null) {
             promise.trySuccess(result);
@@ -748,23 +838,66 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
         return true;
     }
 
-    private void doResolveAllUncached(final String hostname, final int port,
+    private void doResolveAllUncached(String hostname, final int port,
                                       final Promise<List<InetSocketAddress>> promise) {
-        final DnsNameResolverContext<List<InetSocketAddress>> ctx =
-                new DnsNameResolverContext<List<InetSocketAddress>>(this, hostname, promise) {
+        resolveCoalesced(hostname).addListener(new FutureListener<List<InetAddress>>() {
+            @Override
+            public void operationComplete(Future<List<InetAddress>> future) throws Exception {
+                if (future.isSuccess()) {
+                    final List<InetAddress> addresses = future.getNow();
+                    final int numAddresses = addresses.size();
+                    final List<InetSocketAddress> result = new ArrayList<InetSocketAddress>(numAddresses);
+                    for (int i = 0; i < numAddresses; i++) {
+                        result.add(new InetSocketAddress(addresses.get(i), port));
+                    }
+                    promise.trySuccess(result);
+                } else {
+                    promise.tryFailure(future.cause());
+                }
+            }
+        });
+    }
+
+    /**
+     * Resolves the addresses of the preferred protocol family of the given hostname. If the same hostname is being
+     * resolved already, the future of the resolution in progress is returned instead of sending the same queries
+     * again, so that a burst of resolutions of the same hostname results in a single set of queries.
+     */
+    private Future<List<InetAddress>> resolveCoalesced(final String hostname) {
+        Promise<List<InetAddress>> promise = resolvesInProgress.get(hostname);
+        if (promise != null) {
+            return promise;
+        }
+
+        final Promise<List<InetAddress>> newPromise = executor().newPromise();
+        promise = resolvesInProgress.putIfAbsent(hostname, newPromise);
+        if (promise != null) {
+            return promise;
+        }
+
+        // Added before any other listener, so that the resolution is not shared anymore once it is notified.
+        newPromise.addListener(new FutureListener<List<InetAddress>>() {
+            @Override
+            public void operationComplete(Future<List<InetAddress>> future) throws Exception {
+                resolvesInProgress.remove(hostname, newPromise);
+            }
+        });
+
+        final DnsNameResolverContext<List<InetAddress>> ctx =
+                new DnsNameResolverContext<List<InetAddress>>(this, hostname, newPromise) {
                     @Override
                     protected boolean finishResolve(
                             Class<? extends InetAddress> addressType, List<DnsCacheEntry> resolvedEntries) {
 
-                        List<InetSocketAddress> result = null;
+                        List<InetAddress> result = null;
                         final int numEntries = resolvedEntries.size();
                         for (int i = 0; i < numEntries; i++) {
                             final InetAddress a = resolvedEntries.get(i).address();
                             if (addressType.isInstance(a)) {
                                 if (result == null) {
-                                    result = new ArrayList<InetSocketAddress>(numEntries);
+                                    result = new ArrayList<InetAddress>(numEntries);
                                 }
-                                result.add(new InetSocketAddress(a, port));
+                                result.add(a);
                             }
                         }
 
@@ -777,6 +910,17 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
                 };
 
         ctx.resolve();
+        return newPromise;
+    }
+
+    /**
+     * Resolves the given hostname again in the background if the {@link DnsCache} wants to refresh its entries
+     * before they expire. The result is only used to update the cache.
+     */
+    private void prefetchIfNeeded(DnsCache resolveCache, String hostname) {
+        if (resolveCache.prefetch(hostname)) {
+            resolveCoalesced(hostname);
+        }
     }
 
     private static String hostname(InetSocketAddress addr) {
@@ -798,72 +942,12 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
         }
 
         final int ttl = Math.max(minTtl(), (int) Math.min(maxTtl, originalTtl));
-        final List<DnsCacheEntry> entries = cachedEntries(hostname);
-        final DnsCacheEntry e = new DnsCacheEntry(hostname, address);
-
-        synchronized (entries) {
-            if (!entries.isEmpty()) {
-                final DnsCacheEntry firstEntry = entries.get(0);
-                if (firstEntry.cause() != null) {
-                    assert entries.size() == 1;
-                    firstEntry.cancelExpiration();
-                    entries.clear();
-                }
-            }
-            entries.add(e);
-        }
-
-        scheduleCacheExpiration(entries, e, ttl);
+        resolveCache.cache(hostname, address, ttl);
     }
 
     void cache(String hostname, Throwable cause) {
-        final int negativeTtl = negativeTtl();
-        if (negativeTtl == 0) {
-            return;
-        }
-
-        final List<DnsCacheEntry> entries = cachedEntries(hostname);
-        final DnsCacheEntry e = new DnsCacheEntry(hostname, cause);
-
-        synchronized (entries) {
-            final int numEntries = entries.size();
-            for (int i = 0; i < numEntries; i ++) {
-                entries.get(i).cancelExpiration();
-            }
-            entries.clear();
-            entries.add(e);
-        }
-
-        scheduleCacheExpiration(entries, e, negativeTtl);
-    }
-
-    private List<DnsCacheEntry> cachedEntries(String hostname) {
-        List<DnsCacheEntry> oldEntries = resolveCache.get(hostname);
-        final List<DnsCacheEntry> entries;
-        if (oldEntries == null) {
-            List<DnsCacheEntry> newEntries = new ArrayList<DnsCacheEntry>();
-            oldEntries = resolveCache.putIfAbsent(hostname, newEntries);
-            entries = oldEntries != null? oldEntries : newEntries;
-        } else {
-            entries = oldEntries;
-        }
-        return entries;
-    }
-
-    private void scheduleCacheExpiration(final List<DnsCacheEntry> entries, final DnsCacheEntry e, int ttl) {
-        e.scheduleExpiration(
-                ch.eventLoop(),
-                new OneTimeTask() {
-                    @Override
-                    public void run() {
-                        synchronized (entries) {
-                            entries.remove(e);
-                            if (entries.isEmpty()) {
-                                resolveCache.remove(e.hostname());
-                            }
-                        }
-                    }
-                }, ttl, TimeUnit.SECONDS);
+        // Also called if negative caching is disabled, so the cache learns that a refresh ahead of time failed.
+        resolveCache.cache(hostname, cause, negativeTtl());
     }
 
     /**
@@ -893,7 +977,7 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
 
         return query0(checkNotNull(nameServerAddr, "nameServerAddr"),
                       checkNotNull(question, "question"),
-                      ch.eventLoop().<AddressedEnvelope<? extends DnsResponse, InetSocketAddress>>newPromise());
+                      executor().<AddressedEnvelope<? extends DnsResponse, InetSocketAddress>>newPromise());
     }
 
     /**
@@ -914,46 +998,23 @@ public class DnsNameResolver extends SimpleNameResolver<InetSocketAddress> {
 
         final Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> castPromise = cast(promise);
         try {
-            new DnsQueryContext(this, nameServerAddr, question, castPromise).query();
+            new DnsQueryContext(this, nextChannel(), nameServerAddr, question, castPromise).query();
             return castPromise;
         } catch (Exception e) {
             return castPromise.setFailure(e);
         }
     }
 
+    private DnsQueryChannel nextChannel() {
+        final DnsQueryChannel[] channels = this.channels;
+        if (channels.length == 1) {
+            return channels[0];
+        }
+        return channels[Math.abs(channelIndex.getAndIncrement() % channels.length)];
+    }
+
     @SuppressWarnings("unchecked")
     private static Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> cast(Promise<?> promise) {
         return (Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>>) promise;
     }
-
-    private final class DnsResponseHandler extends ChannelHandlerAdapter {
-        @Override
-        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-            try {
-                final DatagramDnsResponse res = (DatagramDnsResponse) msg;
-                final int queryId = res.id();
-
-                if (logger.isDebugEnabled()) {
-                    logger.debug("{} RECEIVED: [{}: {}], {}", ch, queryId, res.sender(), res);
-                }
-
-                final DnsQueryContext qCtx = promises.get(queryId);
-                if (qCtx == null) {
-                    if (logger.isWarnEnabled()) {
-                        logger.warn("{} Received a DNS response with an unknown ID: {}", ch, queryId);
-                    }
-                    return;
-                }
-
-                qCtx.finish(res);
-            } finally {
-                ReferenceCountUtil.safeRelease(msg);
-            }
-        }
-
-        @Override
-        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-            logger.warn("{} Unexpected exception: ", ch, cause);
-        }
-    }
 }
@@ -37,6 +37,7 @@ public final class DnsNameResolverGroup extends NameResolverGroup<InetSocketAddr
     private final ChannelFactory<? extends DatagramChannel> channelFactory;
     private final InetSocketAddress localAddress;
     private final DnsServerAddresses nameServerAddresses;
+    private final int numChannels;
 
     public DnsNameResolverGroup(
             Class<? extends DatagramChannel> channelType, DnsServerAddresses nameServerAddresses) {
@@ -57,9 +58,25 @@ public final class DnsNameResolverGroup extends NameResolverGroup<InetSocketAddr
     public DnsNameResolverGroup(
             ChannelFactory<? extends DatagramChannel> channelFactory,
             InetSocketAddress localAddress, DnsServerAddresses nameServerAddresses) {
+        this(channelFactory, localAddress, nameServerAddresses, 1);
+    }
+
+    /**
+     * Creates a new group whose {@link DnsNameResolver}s spread their queries over the specified number of
+     * {@link DatagramChannel}s each.
+     *
+     * @see DnsNameResolver#DnsNameResolver(EventLoop, ChannelFactory, InetSocketAddress, DnsServerAddresses, int)
+     */
+    public DnsNameResolverGroup(
+            ChannelFactory<? extends DatagramChannel> channelFactory,
+            InetSocketAddress localAddress, DnsServerAddresses nameServerAddresses, int numChannels) {
+        if (numChannels <= 0) {
+            throw new IllegalArgumentException("numChannels: " + numChannels + " (expected: > 0)");
+        }
         this.channelFactory = channelFactory;
         this.localAddress = localAddress;
         this.nameServerAddresses = nameServerAddresses;
+        this.numChannels = numChannels;
     }
 
     @Override
@@ -70,6 +87,7 @@ public final class DnsNameResolverGroup extends NameResolverGroup<InetSocketAddr
                     " (expected: " + StringUtil.simpleClassName(EventLoop.class));
         }
 
-        return new DnsNameResolver((EventLoop) executor, channelFactory, localAddress, nameServerAddresses);
+        return new DnsNameResolver(
+                (EventLoop) executor, channelFactory, localAddress, nameServerAddresses, numChannels);
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFactory;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.dns.DatagramDnsQueryEncoder;
+import io.netty.handler.codec.dns.DatagramDnsResponseDecoder;
+import io.netty.handler.codec.dns.DnsResponse;
+import io.netty.handler.codec.dns.TcpDnsQueryEncoder;
+import io.netty.handler.codec.dns.TcpDnsResponseDecoder;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link Channel} of a {@link DnsNameResolver} with its own space of query IDs. It is either a
+ * {@link DatagramChannel} which sends queries to any DNS server, or a {@link SocketChannel} which is connected to a
+ * single DNS server and pipelines the queries to it.
+ */
+final class DnsQueryChannel {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(DnsQueryChannel.class);
+
+    private static final DatagramDnsResponseDecoder DECODER = new DatagramDnsResponseDecoder();
+    private static final DatagramDnsQueryEncoder ENCODER = new DatagramDnsQueryEncoder();
+    private static final TcpDnsQueryEncoder TCP_ENCODER = new TcpDnsQueryEncoder();
+
+    /**
+     * Completes when the channel is bound or connected, so that queries can be written to it.
+     */
+    final ChannelFuture openFuture;
+    final Channel ch;
+    final boolean stream;
+
+    /**
+     * An array whose index is the ID of a DNS query and whose value is the promise of the corresponsing response. We
+     * don't use {@link IntObjectHashMap} or map-like data structure here because 64k elements are fairly small, which
+     * is only about 512KB.
+     */
+    final AtomicReferenceArray<DnsQueryContext> queries = new AtomicReferenceArray<DnsQueryContext>(65536);
+
+    /**
+     * Creates a new {@link DatagramChannel} which is bound to the specified local address.
+     */
+    static DnsQueryChannel newDatagramChannel(
+            EventLoop eventLoop, ChannelFactory<? extends DatagramChannel> channelFactory,
+            InetSocketAddress localAddress) {
+        return new DnsQueryChannel(eventLoop, channelFactory, localAddress, false);
+    }
+
+    /**
+     * Creates a new {@link SocketChannel} which is connected to the specified DNS server.
+     */
+    static DnsQueryChannel newStreamChannel(
+            EventLoop eventLoop, ChannelFactory<? extends SocketChannel> channelFactory,
+            InetSocketAddress nameServerAddr) {
+        return new DnsQueryChannel(eventLoop, channelFactory, nameServerAddr, true);
+    }
+
+    private DnsQueryChannel(EventLoop eventLoop, ChannelFactory<? extends Channel> channelFactory,
+                            InetSocketAddress address, final boolean stream) {
+        this.stream = stream;
+
+        Bootstrap b = new Bootstrap();
+        b.group(eventLoop);
+        b.channelFactory(channelFactory);
+        b.handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                if (stream) {
+                    ch.pipeline().addLast(new TcpDnsResponseDecoder(), TCP_ENCODER, new DnsResponseHandler());
+                } else {
+                    ch.pipeline().addLast(DECODER, ENCODER, new DnsResponseHandler());
+                }
+            }
+        });
+
+        openFuture = stream ? b.connect(address) : b.bind(address);
+        ch = openFuture.channel();
+    }
+
+    private final class DnsResponseHandler extends ChannelHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            try {
+                final DnsResponse res = (DnsResponse) msg;
+                final int queryId = res.id();
+                final AddressedEnvelope<DnsResponse, InetSocketAddress> envelope = envelope(res);
+
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{} RECEIVED: [{}: {}], {}", ch, queryId, envelope.sender(), res);
+                }
+
+                final DnsQueryContext qCtx = queries.get(queryId);
+                if (qCtx == null) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("{} Received a DNS response with an unknown ID: {}", ch, queryId);
+                    }
+                    return;
+                }
+
+                qCtx.finish(envelope);
+            } finally {
+                ReferenceCountUtil.safeRelease(msg);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private AddressedEnvelope<DnsResponse, InetSocketAddress> envelope(DnsResponse res) {
+            if (res instanceof AddressedEnvelope) {
+                return (AddressedEnvelope<DnsResponse, InetSocketAddress>) res;
+            }
+
+            // Received over a stream, so the sender is the remote peer.
+            return new DefaultAddressedEnvelope<DnsResponse, InetSocketAddress>(
+                    res, (InetSocketAddress) ch.localAddress(), (InetSocketAddress) ch.remoteAddress());
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (stream) {
+                // No response will be received anymore for the queries in progress.
+                ClosedChannelException cause = null;
+                for (int i = 0; i < queries.length(); i ++) {
+                    final DnsQueryContext qCtx = queries.get(i);
+                    if (qCtx != null) {
+                        if (cause == null) {
+                            cause = new ClosedChannelException();
+                        }
+                        qCtx.setFailure("connection closed", cause);
+                    }
+                }
+            }
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            logger.warn("{} Unexpected exception: ", ch, cause);
+            if (stream) {
+                // The stream may be corrupted, so do not wait for the responses of the other queries.
+                ctx.close();
+            }
+        }
+    }
+}
@@ -43,6 +43,7 @@ final class DnsQueryContext {
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(DnsQueryContext.class);
 
     private final DnsNameResolver parent;
+    private final DnsQueryChannel channel;
     private final Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> promise;
     private final int id;
     private final DnsQuestion question;
@@ -52,11 +53,12 @@ final class DnsQueryContext {
     private final boolean recursionDesired;
     private volatile ScheduledFuture<?> timeoutFuture;
 
-    DnsQueryContext(DnsNameResolver parent,
+    DnsQueryContext(DnsNameResolver parent, DnsQueryChannel channel,
                     InetSocketAddress nameServerAddr,
                     DnsQuestion question, Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> promise) {
 
         this.parent = parent;
+        this.channel = channel;
         this.nameServerAddr = nameServerAddr;
         this.question = question;
         this.promise = promise;
@@ -72,11 +74,11 @@ final class DnsQueryContext {
     }
 
     private int allocateId() {
-        int id = ThreadLocalRandom.current().nextInt(parent.promises.length());
-        final int maxTries = parent.promises.length() << 1;
+        int id = ThreadLocalRandom.current().nextInt(channel.queries.length());
+        final int maxTries = channel.queries.length() << 1;
         int tries = 0;
         for (;;) {
-            if (parent.promises.compareAndSet(id, null, this)) {
+            if (channel.queries.compareAndSet(id, null, this)) {
                 return id;
             }
 
@@ -98,17 +100,17 @@ final class DnsQueryContext {
         }
 
         if (logger.isDebugEnabled()) {
-            logger.debug("{} WRITE: [{}: {}], {}", parent.ch, id, nameServerAddr, question);
+            logger.debug("{} WRITE: [{}: {}], {}", channel.ch, id, nameServerAddr, question);
         }
 
         sendQuery(query);
     }
 
     private void sendQuery(final DnsQuery query) {
-        if (parent.bindFuture.isDone()) {
+        if (channel.openFuture.isDone()) {
             writeQuery(query);
         } else {
-            parent.bindFuture.addListener(new ChannelFutureListener() {
+            channel.openFuture.addListener(new ChannelFutureListener() {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
                     if (future.isSuccess()) {
@@ -122,7 +124,7 @@ final class DnsQueryContext {
     }
 
     private void writeQuery(final DnsQuery query) {
-        final ChannelFuture writeFuture = parent.ch.writeAndFlush(query);
+        final ChannelFuture writeFuture = channel.ch.writeAndFlush(query);
         if (writeFuture.isDone()) {
             onQueryWriteCompletion(writeFuture);
         } else {
@@ -144,7 +146,7 @@ final class DnsQueryContext {
         // Schedule a query timeout task if necessary.
         final long queryTimeoutMillis = parent.queryTimeoutMillis();
         if (queryTimeoutMillis > 0) {
-            timeoutFuture = parent.ch.eventLoop().schedule(new OneTimeTask() {
+            timeoutFuture = channel.ch.eventLoop().schedule(new OneTimeTask() {
                 @Override
                 public void run() {
                     if (promise.isDone()) {
@@ -170,17 +172,35 @@ final class DnsQueryContext {
             return;
         }
 
+        if (res.isTruncated() && !channel.stream) {
+            final DnsQueryChannel streamChannel = parent.streamChannel(nameServerAddr);
+            if (streamChannel != null) {
+                // Ask the same server again over TCP, which is not limited by the size of a datagram.
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{} Received a truncated response, retrying over TCP: {}", channel.ch, envelope);
+                }
+                queryOverStream(streamChannel);
+                return;
+            }
+        }
+
         setSuccess(envelope);
     }
 
-    private void setSuccess(AddressedEnvelope<? extends DnsResponse, InetSocketAddress> envelope) {
-        parent.promises.set(id, null);
+    private void queryOverStream(DnsQueryChannel streamChannel) {
+        channel.queries.set(id, null);
+        cancelTimeout();
 
-        // Cancel the timeout task.
-        final ScheduledFuture<?> timeoutFuture = this.timeoutFuture;
-        if (timeoutFuture != null) {
-            timeoutFuture.cancel(false);
+        try {
+            new DnsQueryContext(parent, streamChannel, nameServerAddr, question, promise).query();
+        } catch (Exception e) {
+            promise.tryFailure(e);
         }
+    }
+
+    private void setSuccess(AddressedEnvelope<? extends DnsResponse, InetSocketAddress> envelope) {
+        channel.queries.set(id, null);
+        cancelTimeout();
 
         Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> promise = this.promise;
         if (promise.setUncancellable()) {
@@ -191,8 +211,15 @@ final class DnsQueryContext {
         }
     }
 
-    private void setFailure(String message, Throwable cause) {
-        parent.promises.set(id, null);
+    private void cancelTimeout() {
+        final ScheduledFuture<?> timeoutFuture = this.timeoutFuture;
+        if (timeoutFuture != null) {
+            timeoutFuture.cancel(false);
+        }
+    }
+
+    void setFailure(String message, Throwable cause) {
+        channel.queries.set(id, null);
 
         final StringBuilder buf = new StringBuilder(message.length() + 64);
         buf.append('[')
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DefaultDnsCacheTest {
+
+    private static final InetAddress ADDR1 = address(1);
+    private static final InetAddress ADDR2 = address(2);
+
+    private static InetAddress address(int last) {
+        try {
+            return InetAddress.getByAddress(new byte[] { 10, 0, 0, (byte) last });
+        } catch (UnknownHostException e) {
+            throw new Error(e);
+        }
+    }
+
+    private static final class TestDnsCache extends DefaultDnsCache {
+        long now;
+
+        TestDnsCache(int maxEntries, int prefetchHits, double prefetchRatio) {
+            super(maxEntries, prefetchHits, prefetchRatio);
+        }
+
+        void advance(long seconds) {
+            now += TimeUnit.SECONDS.toNanos(seconds);
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+    }
+
+    @Test
+    public void testExpiration() {
+        TestDnsCache cache = new TestDnsCache(16, 0, 0);
+        cache.cache("netty.io", ADDR1, 10);
+        cache.cache("netty.io", ADDR2, 20);
+        assertEquals(2, cache.get("netty.io").size());
+
+        cache.advance(10);
+        List<DnsCacheEntry> entries = cache.get("netty.io");
+        assertEquals(1, entries.size());
+        assertEquals(ADDR2, entries.get(0).address());
+
+        cache.advance(10);
+        assertNull(cache.get("netty.io"));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.expirations());
+    }
+
+    @Test
+    public void testRefreshDoesNotDuplicate() {
+        TestDnsCache cache = new TestDnsCache(16, 0, 0);
+        cache.cache("netty.io", ADDR1, 10);
+        cache.advance(5);
+        cache.cache("netty.io", ADDR1, 10);
+        cache.advance(8);
+        List<DnsCacheEntry> entries = cache.get("netty.io");
+        assertEquals(1, entries.size());
+        assertEquals(ADDR1, entries.get(0).address());
+    }
+
+    @Test
+    public void testNegativeCaching() {
+        TestDnsCache cache = new TestDnsCache(16, 0, 0);
+        Exception cause = new UnknownHostException("netty.io");
+        cache.cache("netty.io", ADDR1, 10);
+        cache.cache("netty.io", cause, 5);
+        List<DnsCacheEntry> entries = cache.get("netty.io");
+        assertEquals(1, entries.size());
+        assertSame(cause, entries.get(0).cause());
+
+        // A resolved address replaces the failure.
+        cache.cache("netty.io", ADDR2, 10);
+        entries = cache.get("netty.io");
+        assertEquals(1, entries.size());
+        assertEquals(ADDR2, entries.get(0).address());
+    }
+
+    @Test
+    public void testLruEviction() {
+        TestDnsCache cache = new TestDnsCache(2, 0, 0);
+        cache.cache("a.netty.io", ADDR1, 10);
+        cache.cache("b.netty.io", ADDR1, 10);
+        // Access a, so b is the least recently used one.
+        assertNotNull(cache.get("a.netty.io"));
+        cache.cache("c.netty.io", ADDR1, 10);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        assertNull(cache.get("b.netty.io"));
+        assertNotNull(cache.get("a.netty.io"));
+        assertNotNull(cache.get("c.netty.io"));
+    }
+
+    @Test
+    public void testPrefetch() {
+        TestDnsCache cache = new TestDnsCache(16, 2, 0.2);
+        cache.cache("netty.io", ADDR1, 100);
+        assertNotNull(cache.get("netty.io"));
+        cache.advance(90);
+        // Not hot enough yet.
+        assertFalse(cache.prefetch("netty.io"));
+        assertNotNull(cache.get("netty.io"));
+        assertTrue(cache.prefetch("netty.io"));
+        // Only once until refreshed.
+        assertFalse(cache.prefetch("netty.io"));
+        assertEquals(1, cache.prefetches());
+
+        cache.cache("netty.io", ADDR1, 100);
+        cache.advance(50);
+        assertNotNull(cache.get("netty.io"));
+        assertNotNull(cache.get("netty.io"));
+        assertFalse(cache.prefetch("netty.io"));
+    }
+
+    @Test
+    public void testPrefetchFailureKeepsEntries() {
+        TestDnsCache cache = new TestDnsCache(16, 1, 0.5);
+        cache.cache("netty.io", ADDR1, 10);
+        assertNotNull(cache.get("netty.io"));
+        cache.advance(6);
+        assertTrue(cache.prefetch("netty.io"));
+
+        cache.cache("netty.io", new UnknownHostException("netty.io"), 10);
+        List<DnsCacheEntry> entries = cache.get("netty.io");
+        assertEquals(ADDR1, entries.get(0).address());
+
+        // A failure which is not the result of a refresh replaces the entries.
+        cache.cache("netty.io", new UnknownHostException("netty.io"), 10);
+        assertNotNull(cache.get("netty.io").get(0).cause());
+    }
+
+    @Test
+    public void testPrefetchFailureWithoutNegativeCaching() {
+        TestDnsCache cache = new TestDnsCache(16, 1, 0.5);
+        cache.cache("netty.io", ADDR1, 10);
+        assertNotNull(cache.get("netty.io"));
+        cache.advance(6);
+        assertTrue(cache.prefetch("netty.io"));
+
+        // The failure is not cached, but the refresh is tried again after enough hits.
+        cache.cache("netty.io", new UnknownHostException("netty.io"), 0);
+        assertFalse(cache.prefetch("netty.io"));
+        assertEquals(ADDR1, cache.get("netty.io").get(0).address());
+        assertTrue(cache.prefetch("netty.io"));
+        assertEquals(2, cache.prefetches());
+
+        // A failure which is not the result of a refresh does not replace the entries either.
+        cache.cache("netty.io", new UnknownHostException("netty.io"), 0);
+        cache.cache("netty.io", new UnknownHostException("netty.io"), 0);
+        assertEquals(ADDR1, cache.get("netty.io").get(0).address());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final DefaultDnsCache cache = new DefaultDnsCache(64, 1, 0.5);
+        final int hostnames = 1000;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < hostnames; j++) {
+                        String hostname = "host" + j % 100 + ".netty.io";
+                        cache.cache(hostname, ADDR1, 10);
+                        cache.get(hostname);
+                        if (j % 10 == 0) {
+                            cache.clear(hostname);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread t: threads) {
+            t.join();
+        }
+        assertTrue(cache.size() <= cache.maxEntries());
+        assertEquals(threads.length * hostnames, cache.hits() + cache.misses());
+        assertTrue(cache.evictions() > 0);
+    }
+
+    @Test
+    public void testClear() {
+        DefaultDnsCache cache = new DefaultDnsCache();
+        cache.cache("a.netty.io", ADDR1, 10);
+        cache.cache("b.netty.io", ADDR1, 10);
+        assertTrue(cache.clear("a.netty.io"));
+        assertFalse(cache.clear("a.netty.io"));
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
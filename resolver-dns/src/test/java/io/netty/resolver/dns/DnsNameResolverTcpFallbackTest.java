@@ -0,0 +1,203 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.socket.InternetProtocolFamily;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.Future;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class DnsNameResolverTcpFallbackTest {
+
+    /**
+     * More A records than fit into a 512 bytes datagram.
+     */
+    private static final int NUM_ADDRESSES = 100;
+
+    private static final EventLoopGroup group = new NioEventLoopGroup(1);
+    private static final AtomicInteger tcpConnections = new AtomicInteger();
+    private static final AtomicInteger tcpQueries = new AtomicInteger();
+    private static Channel udpServer;
+    private static Channel tcpServer;
+
+    private DnsNameResolver resolver;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        udpServer = new Bootstrap().group(group)
+                                   .channel(NioDatagramChannel.class)
+                                   .handler(new UdpServerHandler())
+                                   .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+
+        tcpServer = new ServerBootstrap().group(group)
+                                         .channel(NioServerSocketChannel.class)
+                                         .childHandler(new ChannelInitializer<SocketChannel>() {
+                                             @Override
+                                             protected void initChannel(SocketChannel ch) throws Exception {
+                                                 tcpConnections.incrementAndGet();
+                                                 ch.pipeline().addLast(
+                                                         new LengthFieldBasedFrameDecoder(65537, 0, 2, 0, 2),
+                                                         new TcpServerHandler());
+                                             }
+                                         })
+                                         .bind(serverAddress()).sync().channel();
+    }
+
+    @AfterClass
+    public static void destroy() {
+        udpServer.close();
+        tcpServer.close();
+        group.shutdownGracefully();
+    }
+
+    private static InetSocketAddress serverAddress() {
+        return (InetSocketAddress) udpServer.localAddress();
+    }
+
+    @Before
+    public void newResolver() {
+        tcpConnections.set(0);
+        tcpQueries.set(0);
+        resolver = new DnsNameResolver(group.next(), NioDatagramChannel.class,
+                                       DnsServerAddresses.singleton(serverAddress()));
+        resolver.setMaxQueriesPerResolve(1);
+        resolver.setResolveAddressTypes(InternetProtocolFamily.IPv4);
+    }
+
+    @After
+    public void closeResolver() {
+        resolver.close();
+    }
+
+    @Test
+    public void testTruncatedResponseWithoutFallback() throws Exception {
+        Future<List<InetSocketAddress>> f = resolver.resolveAll("netty.io", 80).await();
+        assertThat(f.cause(), is(instanceOf(UnknownHostException.class)));
+        assertThat(tcpConnections.get(), is(0));
+    }
+
+    @Test
+    public void testTruncatedResponseRetriedOverTcp() throws Exception {
+        resolver.setSocketChannelType(NioSocketChannel.class);
+
+        List<InetSocketAddress> addresses = resolver.resolveAll("netty.io", 80).sync().getNow();
+        assertThat(addresses, hasSize(NUM_ADDRESSES));
+        for (InetSocketAddress a: addresses) {
+            assertThat(a.getPort(), is(80));
+        }
+        assertThat(tcpQueries.get(), is(1));
+    }
+
+    @Test
+    public void testQueriesPipelinedOverSingleConnection() throws Exception {
+        resolver.setSocketChannelType(NioSocketChannel.class);
+
+        List<Future<List<InetSocketAddress>>> futures = new ArrayList<Future<List<InetSocketAddress>>>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(resolver.resolveAll("host" + i + ".netty.io", 80));
+        }
+        for (Future<List<InetSocketAddress>> f: futures) {
+            assertThat(f.sync().getNow(), hasSize(NUM_ADDRESSES));
+        }
+
+        // Resolve again once the connection is established.
+        resolver.clearCache();
+        assertThat(resolver.resolveAll("host0.netty.io", 80).sync().getNow(), hasSize(NUM_ADDRESSES));
+
+        assertThat(tcpQueries.get(), is(21));
+        assertThat(tcpConnections.get(), is(1));
+    }
+
+    /**
+     * Builds a response to the specified query, with {@code numAddresses} A records if the query is for A records.
+     */
+    private static void writeResponse(ByteBuf query, ByteBuf out, boolean truncated, int numAddresses) {
+        // Find the end of the question, which is copied into the response.
+        int questionEnd = 12;
+        while (query.getUnsignedByte(questionEnd) != 0) {
+            questionEnd += query.getUnsignedByte(questionEnd) + 1;
+        }
+        questionEnd += 5;
+        final boolean typeA = query.getUnsignedShort(questionEnd - 4) == 1;
+        final int answers = typeA ? numAddresses : 0;
+
+        out.writeShort(query.getUnsignedShort(0));
+        // QR, RD and RA, plus TC if truncated.
+        out.writeShort(truncated ? 0x8380 : 0x8180);
+        out.writeShort(1);
+        out.writeShort(answers);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeBytes(query, 12, questionEnd - 12);
+        for (int i = 0; i < answers; i++) {
+            out.writeShort(0xC00C); // Pointer to the name in the question.
+            out.writeShort(1); // A
+            out.writeShort(1); // IN
+            out.writeInt(60);
+            out.writeShort(4);
+            out.writeInt(0x0A000000 | i);
+        }
+    }
+
+    private static final class UdpServerHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+        @Override
+        protected void messageReceived(ChannelHandlerContext ctx, DatagramPacket packet) throws Exception {
+            ByteBuf response = ctx.alloc().buffer();
+            writeResponse(packet.content(), response, true, 0);
+            ctx.writeAndFlush(new DatagramPacket(response, packet.sender()));
+        }
+    }
+
+    private static final class TcpServerHandler extends SimpleChannelInboundHandler<ByteBuf> {
+        @Override
+        protected void messageReceived(ChannelHandlerContext ctx, ByteBuf query) throws Exception {
+            tcpQueries.incrementAndGet();
+            ByteBuf response = ctx.alloc().buffer();
+            response.writeShort(0);
+            writeResponse(query, response, false, NUM_ADDRESSES);
+            response.setShort(0, response.readableBytes() - 2);
+            ctx.writeAndFlush(response);
+        }
+    }
+}
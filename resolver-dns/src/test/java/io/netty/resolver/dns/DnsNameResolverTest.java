@@ -19,7 +19,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufHolder;
 import io.netty.channel.AddressedEnvelope;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ReflectiveChannelFactory;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.InternetProtocolFamily;
 import io.netty.channel.socket.nio.NioDatagramChannel;
 import io.netty.handler.codec.dns.DefaultDnsQuestion;
@@ -77,11 +79,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
@@ -263,6 +269,12 @@ public class DnsNameResolverTest {
                 StringUtil.EMPTY_STRING);
     }
 
+    /**
+     * The number of questions received by the {@link TestDnsServer}, per domain name.
+     */
+    private static final ConcurrentMap<String, AtomicInteger> QUERY_COUNTS =
+            new ConcurrentHashMap<String, AtomicInteger>();
+
     private static final TestDnsServer dnsServer = new TestDnsServer();
     private static final EventLoopGroup group = new NioEventLoopGroup(1);
     private static DnsNameResolver resolver;
@@ -486,6 +498,55 @@ public class DnsNameResolverTest {
         }
     }
 
+    @Test
+    public void testResolveWithMultipleChannels() throws Exception {
+        DnsNameResolver resolver = new DnsNameResolver(
+                group.next(), new ReflectiveChannelFactory<DatagramChannel>(NioDatagramChannel.class),
+                DnsNameResolver.ANY_LOCAL_ADDR, DnsServerAddresses.singleton(dnsServer.localAddress()), 4);
+        try {
+            assertThat(resolver.numChannels(), is(4));
+            resolver.setMaxQueriesPerResolve(1);
+            resolver.setOptResourceEnabled(false);
+            resolver.setResolveAddressTypes(InternetProtocolFamily.IPv4);
+
+            final List<Future<InetSocketAddress>> futures = new ArrayList<Future<InetSocketAddress>>();
+            for (String name : DOMAINS) {
+                if (EXCLUSIONS_RESOLVE_A.contains(name)) {
+                    continue;
+                }
+                futures.add(resolver.resolve(name, 80));
+            }
+
+            for (Future<InetSocketAddress> f : futures) {
+                InetSocketAddress resolved = f.sync().getNow();
+                assertThat(resolved.isUnresolved(), is(false));
+                assertThat(resolved.getPort(), is(80));
+            }
+        } finally {
+            resolver.close();
+        }
+    }
+
+    @Test
+    public void testCoalesceResolves() throws Exception {
+        final String hostname = "google.com";
+        QUERY_COUNTS.remove(hostname);
+
+        final List<Future<InetSocketAddress>> futures = new ArrayList<Future<InetSocketAddress>>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(resolver.resolve(hostname, i));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            InetSocketAddress resolved = futures.get(i).sync().getNow();
+            assertThat(resolved.isUnresolved(), is(false));
+            assertThat(resolved.getPort(), is(i));
+        }
+
+        // At most a single A and AAAA query, instead of one of each per resolution.
+        assertThat(QUERY_COUNTS.get(hostname).get(), is(lessThanOrEqualTo(2)));
+    }
+
     @Test
     public void testResolveIp() {
         InetSocketAddress unresolved =
@@ -646,6 +707,15 @@ public class DnsNameResolverTest {
             @Override
             public Set<ResourceRecord> getRecords(QuestionRecord questionRecord) {
                 String name = questionRecord.getDomainName();
+                AtomicInteger count = QUERY_COUNTS.get(name);
+                if (count == null) {
+                    AtomicInteger newCount = new AtomicInteger();
+                    count = QUERY_COUNTS.putIfAbsent(name, newCount);
+                    if (count == null) {
+                        count = newCount;
+                    }
+                }
+                count.incrementAndGet();
                 if (DOMAINS.contains(name)) {
                     ResourceRecordModifier rm = new ResourceRecordModifier();
                     rm.setDnsClass(RecordClass.IN);
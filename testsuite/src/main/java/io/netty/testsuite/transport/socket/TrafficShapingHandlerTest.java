@@ -17,6 +17,7 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -24,6 +25,8 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.traffic.AbstractTrafficShapingHandler;
 import io.netty.handler.traffic.ChannelTrafficShapingHandler;
 import io.netty.handler.traffic.GlobalTrafficShapingHandler;
+import io.netty.handler.traffic.TokenBucket;
+import io.netty.handler.traffic.TokenBucketTrafficShapingHandler;
 import io.netty.handler.traffic.TrafficCounter;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import io.netty.util.concurrent.EventExecutorGroup;
@@ -138,7 +141,7 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
         int[] autoRead = null;
         int[] multipleMessage = { 1, 2, 1 };
         long[] minimalWaitBetween = null;
-        testTrafficShapping0(sb, cb, false, false, false, false, autoRead, minimalWaitBetween, multipleMessage);
+        testTrafficShapping0(sb, cb, false, false, false, false, false, autoRead, minimalWaitBetween, multipleMessage);
     }
 
     @Test(timeout = 10000)
@@ -152,7 +155,7 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
         int[] autoRead = null;
         int[] multipleMessage = { 1, 2, 1, 1 };
         long[] minimalWaitBetween = computeWaitWrite(multipleMessage);
-        testTrafficShapping0(sb, cb, false, false, true, false, autoRead, minimalWaitBetween, multipleMessage);
+        testTrafficShapping0(sb, cb, false, false, false, true, false, autoRead, minimalWaitBetween, multipleMessage);
     }
 
     @Test(timeout = 10000)
@@ -166,7 +169,7 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
         int[] autoRead = null;
         int[] multipleMessage = { 1, 2, 1, 1 };
         long[] minimalWaitBetween = computeWaitRead(multipleMessage);
-        testTrafficShapping0(sb, cb, false, true, false, false, autoRead, minimalWaitBetween, multipleMessage);
+        testTrafficShapping0(sb, cb, false, false, true, false, false, autoRead, minimalWaitBetween, multipleMessage);
     }
 
     @Test(timeout = 10000)
@@ -180,7 +183,7 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
         int[] autoRead = null;
         int[] multipleMessage = { 1, 1, 1 };
         long[] minimalWaitBetween = computeWaitWrite(multipleMessage);
-        testTrafficShapping0(sb, cb, false, false, true, false, autoRead, minimalWaitBetween, multipleMessage);
+        testTrafficShapping0(sb, cb, false, false, false, true, false, autoRead, minimalWaitBetween, multipleMessage);
     }
 
     @Test(timeout = 10000)
@@ -194,7 +197,7 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
         int[] autoRead = null;
         int[] multipleMessage = { 1, 1, 1 };
         long[] minimalWaitBetween = computeWaitRead(multipleMessage);
-        testTrafficShapping0(sb, cb, false, true, false, false, autoRead, minimalWaitBetween, multipleMessage);
+        testTrafficShapping0(sb, cb, false, false, true, false, false, autoRead, minimalWaitBetween, multipleMessage);
     }
 
     @Test(timeout = 10000)
@@ -208,7 +211,7 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
         int[] autoRead = null;
         int[] multipleMessage = { 1, 2, 1, 1 };
         long[] minimalWaitBetween = computeWaitWrite(multipleMessage);
-        testTrafficShapping0(sb, cb, false, false, true, true, autoRead, minimalWaitBetween, multipleMessage);
+        testTrafficShapping0(sb, cb, false, false, false, true, true, autoRead, minimalWaitBetween, multipleMessage);
     }
 
     @Test(timeout = 10000)
@@ -222,7 +225,7 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
         int[] autoRead = null;
         int[] multipleMessage = { 1, 2, 1, 1 };
         long[] minimalWaitBetween = computeWaitRead(multipleMessage);
-        testTrafficShapping0(sb, cb, false, true, false, true, autoRead, minimalWaitBetween, multipleMessage);
+        testTrafficShapping0(sb, cb, false, false, true, false, true, autoRead, minimalWaitBetween, multipleMessage);
     }
 
     @Test(timeout = 10000)
@@ -237,7 +240,7 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
         int[] multipleMessage = new int[autoRead.length];
         Arrays.fill(multipleMessage, 1);
         long[] minimalWaitBetween = computeWaitAutoRead(autoRead);
-        testTrafficShapping0(sb, cb, false, true, false, false, autoRead, minimalWaitBetween, multipleMessage);
+        testTrafficShapping0(sb, cb, false, false, true, false, false, autoRead, minimalWaitBetween, multipleMessage);
     }
 
     @Test(timeout = 10000)
@@ -252,19 +255,93 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
         int[] multipleMessage = new int[autoRead.length];
         Arrays.fill(multipleMessage, 1);
         long[] minimalWaitBetween = computeWaitAutoRead(autoRead);
-        testTrafficShapping0(sb, cb, false, true, false, true, autoRead, minimalWaitBetween, multipleMessage);
+        testTrafficShapping0(sb, cb, false, false, true, false, true, autoRead, minimalWaitBetween, multipleMessage);
+    }
+
+    @Test(timeout = 10000)
+    public void testWriteTokenBucketTrafficShapping() throws Throwable {
+        currentTestName = "TEST TOKEN BUCKET WRITE";
+        currentTestRun = 0;
+        run();
+    }
+
+    public void testWriteTokenBucketTrafficShapping(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        int[] autoRead = null;
+        int[] multipleMessage = { 1, 2, 1, 1 };
+        long[] minimalWaitBetween = computeWaitWrite(multipleMessage);
+        testTrafficShapping0(sb, cb, false, true, false, true, false, autoRead, minimalWaitBetween, multipleMessage);
+    }
+
+    @Test(timeout = 10000)
+    public void testReadTokenBucketTrafficShapping() throws Throwable {
+        currentTestName = "TEST TOKEN BUCKET READ";
+        currentTestRun = 0;
+        run();
+    }
+
+    public void testReadTokenBucketTrafficShapping(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        int[] autoRead = null;
+        int[] multipleMessage = { 1, 2, 1, 1 };
+        long[] minimalWaitBetween = computeWaitRead(multipleMessage);
+        testTrafficShapping0(sb, cb, false, true, true, false, false, autoRead, minimalWaitBetween, multipleMessage);
+    }
+
+    @Test(timeout = 10000)
+    public void testWriteGlobalTokenBucketTrafficShapping() throws Throwable {
+        currentTestName = "TEST TOKEN BUCKET GLOBAL WRITE";
+        currentTestRun = 0;
+        run();
+    }
+
+    public void testWriteGlobalTokenBucketTrafficShapping(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        int[] autoRead = null;
+        int[] multipleMessage = { 1, 2, 1, 1 };
+        long[] minimalWaitBetween = computeWaitWrite(multipleMessage);
+        testTrafficShapping0(sb, cb, false, true, false, true, true, autoRead, minimalWaitBetween, multipleMessage);
+    }
+
+    @Test(timeout = 10000)
+    public void testReadGlobalTokenBucketTrafficShapping() throws Throwable {
+        currentTestName = "TEST TOKEN BUCKET GLOBAL READ";
+        currentTestRun = 0;
+        run();
+    }
+
+    public void testReadGlobalTokenBucketTrafficShapping(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        int[] autoRead = null;
+        int[] multipleMessage = { 1, 2, 1, 1 };
+        long[] minimalWaitBetween = computeWaitRead(multipleMessage);
+        testTrafficShapping0(sb, cb, false, true, true, false, true, autoRead, minimalWaitBetween, multipleMessage);
+    }
+
+    @Test(timeout = 10000)
+    public void testAutoReadTokenBucketTrafficShapping() throws Throwable {
+        currentTestName = "TEST TOKEN BUCKET AUTO READ";
+        currentTestRun = 0;
+        run();
+    }
+
+    public void testAutoReadTokenBucketTrafficShapping(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        int[] autoRead = { 1, -1, -1, 1, -2, 0, 1, 0, -3, 0, 1, 2, 0 };
+        int[] multipleMessage = new int[autoRead.length];
+        Arrays.fill(multipleMessage, 1);
+        long[] minimalWaitBetween = computeWaitAutoRead(autoRead);
+        testTrafficShapping0(sb, cb, false, true, true, false, false, autoRead, minimalWaitBetween, multipleMessage);
     }
 
     /**
      *
      * @param additionalExecutor
      *            shall the pipeline add the handler using an additionnal executor
+     * @param tokenBucket
+     *            True to use the TokenBucketTrafficShapingHandler instead of the TrafficCounter based ones
      * @param limitRead
      *            True to set Read Limit on Server side
      * @param limitWrite
      *            True to set Write Limit on Client side
      * @param globalLimit
-     *            True to change Channel to Global TrafficShapping
+     *            True to change Channel to Global TrafficShapping (for the TokenBucketTrafficShapingHandler: to
+     *            limit a shared parent bucket instead of the bucket of the channel)
      * @param minimalWaitBetween
      *            time in ms that should be waited before getting the final result (note: for READ the values are
      *            right shifted once, the first value being 0)
@@ -274,21 +351,27 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
      * @throws Throwable
      */
     private static void testTrafficShapping0(
-            ServerBootstrap sb, Bootstrap cb, final boolean additionalExecutor,
+            ServerBootstrap sb, Bootstrap cb, final boolean additionalExecutor, final boolean tokenBucket,
             final boolean limitRead, final boolean limitWrite, final boolean globalLimit, int[] autoRead,
             long[] minimalWaitBetween, int[] multipleMessage) throws Throwable {
 
         currentTestRun++;
         logger.info("TEST: " + currentTestName + " RUN: " + currentTestRun +
-                    " Exec: " + additionalExecutor + " Read: " + limitRead + " Write: " + limitWrite + " Global: "
-                    + globalLimit);
+                    " Exec: " + additionalExecutor + " TokenBucket: " + tokenBucket + " Read: " + limitRead +
+                    " Write: " + limitWrite + " Global: " + globalLimit);
         final ServerHandler sh = new ServerHandler(autoRead, multipleMessage);
         Promise<Boolean> promise = group.next().newPromise();
         final ClientHandler ch = new ClientHandler(promise, minimalWaitBetween, multipleMessage,
                                                    autoRead);
 
+        // The parent bucket which is shared by all channels, or the limited bucket of the channel. It does not allow
+        // any burst, as the expected timings assume that every message is delayed.
+        final TokenBucket bucket = tokenBucket && (limitRead || limitWrite) ?
+                new TokenBucket(bandwidthFactor * messageSize, 0) : null;
         final AbstractTrafficShapingHandler handler;
-        if (limitRead) {
+        if (tokenBucket) {
+            handler = null;
+        } else if (limitRead) {
             if (globalLimit) {
                 handler = new GlobalTrafficShapingHandler(groupForGlobal, 0, bandwidthFactor * messageSize, check);
             } else {
@@ -308,7 +391,7 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
             @Override
             protected void initChannel(SocketChannel c) throws Exception {
                 if (limitRead) {
-                    c.pipeline().addLast(TRAFFIC, handler);
+                    c.pipeline().addLast(TRAFFIC, newHandler(handler, bucket, globalLimit, false));
                 }
                 c.pipeline().addLast(sh);
             }
@@ -317,7 +400,7 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
             @Override
             protected void initChannel(SocketChannel c) throws Exception {
                 if (limitWrite) {
-                    c.pipeline().addLast(TRAFFIC, handler);
+                    c.pipeline().addLast(TRAFFIC, newHandler(handler, bucket, globalLimit, true));
                 }
                 c.pipeline().addLast(ch);
             }
@@ -381,6 +464,18 @@ public class TrafficShapingHandlerTest extends AbstractSocketTest {
         }
     }
 
+    private static ChannelHandler newHandler(AbstractTrafficShapingHandler handler, TokenBucket bucket,
+                                             boolean globalLimit, boolean write) {
+        if (bucket == null) {
+            return handler;
+        }
+        // Each channel needs its own handler, but the limited bucket is shared by design. With a global limit every
+        // channel gets an unlimited child bucket of it, otherwise the limited bucket is used as is.
+        TokenBucket channelBucket = globalLimit ? new TokenBucket(bucket, 0) : bucket;
+        return write ? new TokenBucketTrafficShapingHandler(channelBucket, null) :
+                new TokenBucketTrafficShapingHandler(null, channelBucket);
+    }
+
     private static class ClientHandler extends SimpleChannelInboundHandler<ByteBuf> {
         volatile Channel channel;
         final AtomicReference<Throwable> exception = new AtomicReference<Throwable>();
@@ -20,6 +20,7 @@
 #include <errno.h>
 #include <sys/epoll.h>
 #include <sys/eventfd.h>
+#include <sys/timerfd.h>
 #include <sys/sendfile.h>
 #include <sys/un.h>
 #include <linux/tcp.h> // TCP_NOTSENT_LOWAT is a linux specific define
@@ -73,6 +74,7 @@ extern int pipe2(int pipefd[2], int flags) __attribute__((weak));
 
 #ifdef IO_NETTY_SENDMMSG_NOT_FOUND
 extern int sendmmsg(int sockfd, struct mmsghdr* msgvec, unsigned int vlen, unsigned int flags) __attribute__((weak));
+extern int recvmmsg(int sockfd, struct mmsghdr* msgvec, unsigned int vlen, int flags, struct timespec* timeout) __attribute__((weak));
 
 #ifndef __USE_GNU
 struct mmsghdr {
@@ -98,6 +100,9 @@ jfieldID packetScopeIdFieldId = NULL;
 jfieldID packetPortFieldId = NULL;
 jfieldID packetMemoryAddressFieldId = NULL;
 jfieldID packetCountFieldId = NULL;
+jfieldID packetSenderAddrFieldId = NULL;
+jfieldID packetSenderAddrLenFieldId = NULL;
+jfieldID packetReceivedAmountFieldId = NULL;
 
 jmethodID inetSocketAddrMethodId = NULL;
 jmethodID datagramSocketAddrMethodId = NULL;
@@ -654,6 +659,24 @@ jint JNI_OnLoad(JavaVM* vm, void* reserved) {
             return JNI_ERR;
         }
 
+        packetSenderAddrFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "senderAddr", "[B");
+        if (packetSenderAddrFieldId == NULL) {
+            throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.senderAddr");
+            return JNI_ERR;
+        }
+
+        packetSenderAddrLenFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "senderAddrLen", "I");
+        if (packetSenderAddrLenFieldId == NULL) {
+            throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.senderAddrLen");
+            return JNI_ERR;
+        }
+
+        packetReceivedAmountFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "receivedAmount", "I");
+        if (packetReceivedAmountFieldId == NULL) {
+            throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.receivedAmount");
+            return JNI_ERR;
+        }
+
         return JNI_VERSION_1_6;
     }
 }
@@ -717,6 +740,16 @@ JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_eventFdRead(JNIEnv* en
     }
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_timerFd(JNIEnv* env, jclass clazz) {
+    jint timerFD = timerfd_create(CLOCK_MONOTONIC, TFD_CLOEXEC | TFD_NONBLOCK);
+
+    if (timerFD < 0) {
+        int err = errno;
+        throwChannelExceptionErrorNo(env, "timerfd_create() failed: ", err);
+    }
+    return timerFD;
+}
+
 JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_epollCreate(JNIEnv* env, jclass clazz) {
     jint efd;
     if (epoll_create1) {
@@ -766,6 +799,42 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_epollWait0(JNIEnv* env
     return ready;
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_epollWaitTimerFd0(JNIEnv* env, jclass clazz, jint efd, jlong address, jint len, jint timerFd, jint timeoutSec, jint timeoutNsec) {
+    struct epoll_event *ev = (struct epoll_event*) address;
+    int ready;
+    int err;
+    int timeout;
+
+    if (timeoutSec == 0 && timeoutNsec == 0) {
+        // Nothing to wait for, just return what is ready now.
+        timeout = 0;
+    } else {
+        // Arm the timerfd with the exact deadline and block until either an event is ready or the timerfd fires.
+        // This allows us to wait with nanosecond precision which is not possible with epoll_wait(...) itself.
+        struct itimerspec ts;
+        memset(&ts, 0, sizeof(struct itimerspec));
+        ts.it_value.tv_sec = timeoutSec;
+        ts.it_value.tv_nsec = timeoutNsec;
+        if (timerfd_settime(timerFd, 0, &ts, NULL) < 0) {
+            // Report the failure on its own as it would otherwise look like epoll_wait(...) failed.
+            err = errno;
+            throwIOExceptionErrorNo(env, "timerfd_settime() failed: ", err);
+            return -1;
+        }
+        timeout = -1;
+    }
+
+    do {
+       ready = epoll_wait(efd, ev, len, timeout);
+       // was interrupted try again.
+    } while (ready == -1 && ((err = errno) == EINTR));
+
+    if (ready < 0) {
+         return -err;
+    }
+    return ready;
+}
+
 JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_epollCtlAdd0(JNIEnv* env, jclass clazz, jint efd, jint fd, jint flags) {
     int res = epollCtl(env, efd, EPOLL_CTL_ADD, fd, flags);
     if (res < 0) {
@@ -915,6 +984,54 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_sendmmsg0(JNIEnv* env,
     return (jint) res;
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct mmsghdr msg[len];
+    struct sockaddr_storage addr[len];
+    int i;
+
+    memset(msg, 0, sizeof(msg));
+
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+
+        msg[i].msg_hdr.msg_name = &addr[i];
+        msg[i].msg_hdr.msg_namelen = sizeof(struct sockaddr_storage);
+
+        msg[i].msg_hdr.msg_iov = (struct iovec*) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);
+
+        // Release the local reference now, as len may exceed the capacity of the local reference table.
+        (*env)->DeleteLocalRef(env, packet);
+    }
+
+    ssize_t res;
+    int err;
+    do {
+       res = recvmmsg(fd, msg, len, 0, NULL);
+       // Keep on reading if we was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+
+    // Store the sender address and the number of received bytes directly in the packets so we not need to create
+    // any extra objects here.
+    for (i = 0; i < res; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        jbyteArray senderAddr = (jbyteArray) (*env)->GetObjectField(env, packet, packetSenderAddrFieldId);
+        int addrLen = addressLength(&addr[i]);
+
+        initInetSocketAddressArray(env, &addr[i], senderAddr, 0, addrLen);
+        (*env)->SetIntField(env, packet, packetSenderAddrLenFieldId, addrLen);
+        (*env)->SetIntField(env, packet, packetReceivedAmountFieldId, (jint) msg[i].msg_len);
+
+        (*env)->DeleteLocalRef(env, senderAddr);
+        (*env)->DeleteLocalRef(env, packet);
+    }
+    return (jint) res;
+}
+
 static inline jobject recvFrom0(JNIEnv* env, jint fd, void* buffer, jint pos, jint limit) {
     struct sockaddr_storage addr;
     socklen_t addrlen = sizeof(addr);
@@ -1316,7 +1433,7 @@ JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setIpFreeBind(JNIEnv*
     setOption(env, fd, IPPROTO_IP, IP_FREEBIND, &optval, sizeof(optval));
 }
 
-JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isReuseAddresss(JNIEnv* env, jclass clazz, jint fd) {
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isReuseAddress(JNIEnv* env, jclass clazz, jint fd) {
     int optval;
     if (getOption(env, fd, SOL_SOCKET, SO_REUSEADDR, &optval, sizeof(optval)) == -1) {
         return -1;
@@ -1324,6 +1441,14 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isReuseAddresss(JNIEnv
     return optval;
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isKeepAlive(JNIEnv* env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, SOL_SOCKET, SO_KEEPALIVE, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
 JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isReusePort(JNIEnv* env, jclass clazz, jint fd) {
     int optval;
     if (getOption(env, fd, SOL_SOCKET, SO_REUSEPORT, &optval, sizeof(optval)) == -1) {
@@ -1517,6 +1642,13 @@ JNIEXPORT jboolean JNICALL Java_io_netty_channel_epoll_Native_isSupportingSendmm
     return JNI_FALSE;
 }
 
+JNIEXPORT jboolean JNICALL Java_io_netty_channel_epoll_Native_isSupportingRecvmmsg(JNIEnv* env, jclass clazz) {
+    if (recvmmsg) {
+        return JNI_TRUE;
+    }
+    return JNI_FALSE;
+}
+
 JNIEXPORT jboolean JNICALL Java_io_netty_channel_epoll_Native_isSupportingTcpFastopen(JNIEnv* env, jclass clazz) {
     int fastopen = 0;
     getSysctlValue("/proc/sys/net/ipv4/tcp_fastopen", &fastopen);
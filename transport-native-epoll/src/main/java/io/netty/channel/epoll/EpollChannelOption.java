@@ -35,6 +35,7 @@ public final class EpollChannelOption {
     public static final ChannelOption<Map<InetAddress, byte[]>> TCP_MD5SIG = ChannelOption.valueOf(T, "TCP_MD5SIG");
     public static final ChannelOption<Boolean> IP_FREEBIND = ChannelOption.valueOf(T, "IP_FREEBIND");
     public static final ChannelOption<Integer> TCP_FASTOPEN = ChannelOption.valueOf(T, "TCP_FASTOPEN");
+    public static final ChannelOption<Integer> RECVMMSG_BATCH_SIZE = ChannelOption.valueOf(T, "RECVMMSG_BATCH_SIZE");
 
     public static final ChannelOption<DomainSocketReadMode> DOMAIN_SOCKET_READ_MODE =
             ChannelOption.valueOf(T, "DOMAIN_SOCKET_READ_MODE");
@@ -511,6 +511,50 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             }
         }
 
+        /**
+         * Read up to {@code batchSize} datagrams via {@code recvmmsg(...)} and add them to {@link #readBuf}. Returns
+         * the number of read datagrams, {@code 0} if there was nothing left to read or {@code -1} if the buffers
+         * returned by the {@link RecvByteBufAllocator.Handle} can not be used for {@code recvmmsg(...)}.
+         */
+        private int scatteringRead(EpollRecvByteAllocatorHandle allocHandle, ByteBufAllocator allocator,
+                                   int batchSize) throws IOException {
+            NativeDatagramPacketArray array = NativeDatagramPacketArray.getRecvInstance();
+            int added = 0;
+            try {
+                int attemptedBytesRead = 0;
+                for (int i = 0; i < batchSize; i++) {
+                    ByteBuf data = allocHandle.allocate(allocator);
+                    int writable = data.writableBytes();
+                    if (!array.addWritable(data)) {
+                        data.release();
+                        break;
+                    }
+                    attemptedBytesRead += writable;
+                }
+                allocHandle.attemptedBytesRead(attemptedBytesRead);
+                int cnt = array.count();
+                if (cnt == 0) {
+                    return -1;
+                }
+                NativeDatagramPacketArray.NativeDatagramPacket[] packets = array.packets();
+                int received = Native.recvmmsg(fd().intValue(), packets, 0, cnt);
+                if (received > 0) {
+                    readPending = false;
+                    InetSocketAddress localAddress = (InetSocketAddress) localAddress();
+                    for (; added < received; added++) {
+                        NativeDatagramPacketArray.NativeDatagramPacket packet = packets[added];
+                        allocHandle.incMessagesRead(1);
+                        allocHandle.lastBytesRead(packet.receivedAmount());
+                        readBuf.add(new DatagramPacket(packet.content(), localAddress, packet.sender()));
+                    }
+                }
+                return received;
+            } finally {
+                // Release all buffers which were not handed over to the pipeline.
+                array.releaseReadBuffers(added);
+            }
+        }
+
         @Override
         protected EpollRecvByteAllocatorHandle newEpollHandle(RecvByteBufAllocator.Handle handle) {
             return new EpollRecvByteAllocatorMessageHandle(handle, isFlagSet(Native.EPOLLET));
@@ -532,12 +576,25 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             final ByteBufAllocator allocator = config.getAllocator();
             final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
             allocHandle.reset(config);
+            final int recvmmsgBatchSize = Native.IS_SUPPORTING_RECVMMSG ?
+                    EpollDatagramChannel.this.config.getRecvmmsgBatchSize() : 0;
 
             Throwable exception = null;
             try {
                 ByteBuf data = null;
                 try {
                     do {
+                        if (recvmmsgBatchSize > 1) {
+                            // Try to read multiple datagrams with one recvmmsg(...) syscall.
+                            int read = scatteringRead(allocHandle, allocator, recvmmsgBatchSize);
+                            if (read == 0) {
+                                break;
+                            }
+                            if (read > 0) {
+                                continue;
+                            }
+                            // The allocated buffers can not be used with recvmmsg(...), fallback to recvfrom(...)
+                        }
                         data = allocHandle.allocate(allocator);
                         allocHandle.attemptedBytesRead(data.writableBytes());
                         final DatagramSocketAddress remoteAddress;
@@ -30,6 +30,7 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
     private static final RecvByteBufAllocator DEFAULT_RCVBUF_ALLOCATOR = new FixedRecvByteBufAllocator(2048);
     private final EpollDatagramChannel datagramChannel;
     private boolean activeOnOpen;
+    private volatile int recvmmsgBatchSize;
 
     EpollDatagramChannelConfig(EpollDatagramChannel channel) {
         super(channel);
@@ -46,7 +47,7 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
                 ChannelOption.SO_REUSEADDR, ChannelOption.IP_MULTICAST_LOOP_DISABLED,
                 ChannelOption.IP_MULTICAST_ADDR, ChannelOption.IP_MULTICAST_IF, ChannelOption.IP_MULTICAST_TTL,
                 ChannelOption.IP_TOS, ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION,
-                EpollChannelOption.SO_REUSEPORT);
+                EpollChannelOption.SO_REUSEPORT, EpollChannelOption.RECVMMSG_BATCH_SIZE);
     }
 
     @SuppressWarnings({ "unchecked", "deprecation" })
@@ -85,6 +86,9 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
         if (option == EpollChannelOption.SO_REUSEPORT) {
             return (T) Boolean.valueOf(isReusePort());
         }
+        if (option == EpollChannelOption.RECVMMSG_BATCH_SIZE) {
+            return (T) Integer.valueOf(getRecvmmsgBatchSize());
+        }
         return super.getOption(option);
     }
 
@@ -115,6 +119,8 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
             setActiveOnOpen((Boolean) value);
         } else if (option == EpollChannelOption.SO_REUSEPORT) {
             setReusePort((Boolean) value);
+        } else if (option == EpollChannelOption.RECVMMSG_BATCH_SIZE) {
+            setRecvmmsgBatchSize((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -303,4 +309,31 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
         Native.setReusePort(datagramChannel.fd().intValue(), reusePort ? 1 : 0);
         return this;
     }
+
+    /**
+     * Returns the maximum number of datagrams that are read with one
+     * <a href="http://linux.die.net/man/2/recvmmsg">recvmmsg(...)</a> call. A value of {@code 0} or {@code 1}
+     * means every datagram is read with its own syscall.
+     */
+    public int getRecvmmsgBatchSize() {
+        return recvmmsgBatchSize;
+    }
+
+    /**
+     * Set the maximum number of datagrams that are read with one
+     * <a href="http://linux.die.net/man/2/recvmmsg">recvmmsg(...)</a> call. Each datagram is read into its own
+     * {@link io.netty.buffer.ByteBuf} allocated via the configured {@link RecvByteBufAllocator}, and all datagrams of
+     * one call are fired through the pipeline before the next call is made.
+     *
+     * This is only used if {@link Native#IS_SUPPORTING_RECVMMSG} is {@code true} and the allocated buffers have a
+     * memory address, otherwise datagrams are read one by one.
+     */
+    public EpollDatagramChannelConfig setRecvmmsgBatchSize(int recvmmsgBatchSize) {
+        if (recvmmsgBatchSize < 0 || recvmmsgBatchSize > NativeDatagramPacketArray.MAX_RECVMMSG_PACKETS) {
+            throw new IllegalArgumentException("recvmmsgBatchSize: " + recvmmsgBatchSize +
+                    " (expected: 0-" + NativeDatagramPacketArray.MAX_RECVMMSG_PACKETS + ')');
+        }
+        this.recvmmsgBatchSize = recvmmsgBatchSize;
+        return this;
+    }
 }
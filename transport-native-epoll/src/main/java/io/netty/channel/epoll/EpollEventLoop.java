@@ -51,6 +51,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
 
     private final int epollFd;
     private final int eventFd;
+    private final int timerFd;
     private final IntObjectMap<AbstractEpollChannel> channels = new IntObjectHashMap<AbstractEpollChannel>(4096);
     private final boolean allowGrowing;
     private final EpollEventArray events;
@@ -70,6 +71,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         boolean success = false;
         int epollFd = -1;
         int eventFd = -1;
+        int timerFd = -1;
         try {
             this.epollFd = epollFd = Native.epollCreate();
             this.eventFd = eventFd = Native.eventFd();
@@ -78,6 +80,14 @@ final class EpollEventLoop extends SingleThreadEventLoop {
             } catch (IOException e) {
                 throw new IllegalStateException("Unable to add eventFd filedescriptor to epoll", e);
             }
+            this.timerFd = timerFd = Native.timerFd();
+            try {
+                // Use edge-triggered mode so we are notified every time the timer expires without the need to
+                // read from the timerFd.
+                Native.epollCtlAdd(epollFd, timerFd, Native.EPOLLIN | Native.EPOLLET);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to add timerFd filedescriptor to epoll", e);
+            }
             success = true;
         } finally {
             if (!success) {
@@ -95,6 +105,13 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                         // ignore
                     }
                 }
+                if (timerFd != -1) {
+                    try {
+                        Native.close(timerFd);
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
             }
         }
     }
@@ -165,47 +182,28 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         this.ioRatio = ioRatio;
     }
 
-    private int epollWait(boolean oldWakenUp) throws IOException {
-        int selectCnt = 0;
-        long currentTimeNanos = System.nanoTime();
-        long selectDeadLineNanos = currentTimeNanos + delayNanos(currentTimeNanos);
-        for (;;) {
-            long timeoutMillis = (selectDeadLineNanos - currentTimeNanos + 500000L) / 1000000L;
-            if (timeoutMillis <= 0) {
-                if (selectCnt == 0) {
-                    int ready = Native.epollWait(epollFd, events, 0);
-                    if (ready > 0) {
-                        return ready;
-                    }
-                }
-                break;
-            }
-
-            int selectedKeys = Native.epollWait(epollFd, events, (int) timeoutMillis);
-            selectCnt ++;
-
-            if (selectedKeys != 0 || oldWakenUp || wakenUp == 1 || hasTasks() || hasScheduledTasks()) {
-                // - Selected something,
-                // - waken up by user, or
-                // - the task queue has a pending task.
-                // - a scheduled task is ready for processing
-                return selectedKeys;
-            }
-            currentTimeNanos = System.nanoTime();
+    private int epollWait() throws IOException {
+        // The timerFd is armed with the exact deadline of the next scheduled task, so we will be woken up exactly
+        // when it is due and not need to round to milliseconds and retry.
+        long delayNanos = Math.max(0, delayNanos(System.nanoTime()));
+        long delaySeconds = delayNanos / 1000000000L;
+        if (delaySeconds > Integer.MAX_VALUE) {
+            return Native.epollWait(epollFd, events, timerFd, Integer.MAX_VALUE, 0);
         }
-        return 0;
+        return Native.epollWait(epollFd, events, timerFd, (int) delaySeconds,
+                (int) (delayNanos - delaySeconds * 1000000000L));
     }
 
     @Override
     protected void run() {
-        boolean oldWakenUp = WAKEN_UP_UPDATER.getAndSet(this, 0) == 1;
+        WAKEN_UP_UPDATER.set(this, 0);
         try {
             int ready;
             if (hasTasks()) {
                 // Non blocking just return what is ready directly without block
                 ready = Native.epollWait(epollFd, events, 0);
             } else {
-                ready = epollWait(oldWakenUp);
+                ready = epollWait();
 
                 // 'wakenUp.compareAndSet(false, true)' is always evaluated
                 // before calling 'selector.wakeup()' to reduce the wake-up
@@ -305,6 +303,9 @@ final class EpollEventLoop extends SingleThreadEventLoop {
             if (fd == eventFd) {
                 // consume wakeup event
                 Native.eventFdRead(eventFd);
+            } else if (fd == timerFd) {
+                // Nothing to consume as the timerFd is registered in edge-triggered mode. The scheduled tasks that
+                // are due will be executed as part of runAllTasks(...).
             } else {
                 final long ev = events.events(i);
 
@@ -373,6 +374,11 @@ final class EpollEventLoop extends SingleThreadEventLoop {
             } catch (IOException e) {
                 logger.warn("Failed to close the event fd.", e);
             }
+            try {
+                Native.close(timerFd);
+            } catch (IOException e) {
+                logger.warn("Failed to close the timer fd.", e);
+            }
         } finally {
             // release native memory
             events.free();
@@ -92,6 +92,18 @@ final class IovArray implements MessageProcessor {
         return add(addr, offset, len);
     }
 
+    /**
+     * Try to add the writable bytes of the given {@link ByteBuf} so these can be filled by a scattering read.
+     * Returns {@code true} on success, {@code false} otherwise.
+     */
+    boolean addWritable(ByteBuf buf) {
+        if (count == Native.IOV_MAX) {
+            // No more room!
+            return false;
+        }
+        return add(buf.memoryAddress(), buf.writerIndex(), buf.writableBytes());
+    }
+
     private boolean add(long addr, int offset, int len) {
         if (len == 0) {
             // No need to add an empty buffer.
@@ -129,22 +141,60 @@ final class IovArray implements MessageProcessor {
      * {@code false} otherwise.
      */
     boolean add(CompositeByteBuf buf) {
-        ByteBuffer[] buffers = buf.nioBuffers();
-        if (count + buffers.length >= Native.IOV_MAX) {
-            // No more room!
-            return false;
+        int index = buf.readerIndex();
+        final int end = buf.writerIndex();
+        if (index == end) {
+            // No need to add an empty buffer.
+            return true;
+        }
+        // Walk the components directly instead of using nioBuffers() as this would allocate a ByteBuffer[] and
+        // ByteBuffer instances for every flush.
+        int cIndex = buf.toComponentIndex(index);
+        while (index < end) {
+            ByteBuf component = buf.internalComponent(cIndex);
+            int componentIndex = index - buf.toByteIndex(cIndex);
+            int len = Math.min(end - index, component.capacity() - componentIndex);
+            if (!add(component, componentIndex, len)) {
+                return false;
+            }
+            index += len;
+            cIndex++;
         }
-        for (int i = 0; i < buffers.length; i++) {
-            ByteBuffer nioBuffer = buffers[i];
-            int offset = nioBuffer.position();
-            int len = nioBuffer.limit() - nioBuffer.position();
-            if (len == 0) {
+        return true;
+    }
+
+    private boolean add(ByteBuf buf, int index, int len) {
+        if (len == 0) {
+            return true;
+        }
+        if (buf.hasMemoryAddress()) {
+            if (count == Native.IOV_MAX) {
+                // No more room!
+                return false;
+            }
+            return add(buf.memoryAddress(), index, len);
+        }
+        if (buf.nioBufferCount() == 1) {
+            if (count == Native.IOV_MAX) {
+                // No more room!
+                return false;
+            }
+            ByteBuffer nioBuffer = buf.internalNioBuffer(index, len);
+            return add(PlatformDependent.directBufferAddress(nioBuffer), nioBuffer.position(), len);
+        }
+        // Nested CompositeByteBuf or similar.
+        ByteBuffer[] buffers = buf.nioBuffers(index, len);
+        for (ByteBuffer nioBuffer: buffers) {
+            int remaining = nioBuffer.remaining();
+            if (remaining == 0) {
                 // No need to add an empty buffer so just continue
                 continue;
             }
-            long addr = PlatformDependent.directBufferAddress(nioBuffer);
-
-            if (!add(addr, offset, len)) {
+            if (count == Native.IOV_MAX) {
+                // No more room!
+                return false;
+            }
+            if (!add(PlatformDependent.directBufferAddress(nioBuffer), nioBuffer.position(), remaining)) {
                 return false;
             }
         }
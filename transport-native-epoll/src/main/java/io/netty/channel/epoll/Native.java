@@ -61,6 +61,7 @@ public final class Native {
     public static final int IOV_MAX = iovMax();
     public static final int UIO_MAX_IOV = uioMaxIov();
     public static final boolean IS_SUPPORTING_SENDMMSG = isSupportingSendmmsg();
+    public static final boolean IS_SUPPORTING_RECVMMSG = isSupportingRecvmmsg();
     public static final boolean IS_SUPPORTING_TCP_FASTOPEN = isSupportingTcpFastopen();
     public static final long SSIZE_MAX = ssizeMax();
     public static final int TCP_MD5SIG_MAXKEYLEN = tcpMd5SigMaxKeyLen();
@@ -96,6 +97,7 @@ public final class Native {
     private static final IOException CONNECTION_RESET_EXCEPTION_SENDTO;
     private static final IOException CONNECTION_RESET_EXCEPTION_SENDMSG;
     private static final IOException CONNECTION_RESET_EXCEPTION_SENDMMSG;
+    private static final IOException CONNECTION_RESET_EXCEPTION_RECVMMSG;
     private static final IOException CONNECTION_RESET_EXCEPTION_SPLICE;
 
     static {
@@ -118,6 +120,8 @@ public final class Native {
                 ERRNO_EPIPE_NEGATIVE);
         CONNECTION_RESET_EXCEPTION_SENDMMSG = newConnectionResetException("syscall:sendmmsg(...)",
                 ERRNO_EPIPE_NEGATIVE);
+        CONNECTION_RESET_EXCEPTION_RECVMMSG = newConnectionResetException("syscall:recvmmsg(...)",
+                ERRNO_ECONNRESET_NEGATIVE);
         CONNECTION_RESET_EXCEPTION_SPLICE = newConnectionResetException("syscall:splice(...)",
                 ERRNO_EPIPE_NEGATIVE);
         CLOSED_CHANNEL_EXCEPTION = new ClosedChannelException();
@@ -153,6 +157,7 @@ public final class Native {
     public static native int eventFd();
     public static native void eventFdWrite(int fd, long value);
     public static native void eventFdRead(int fd);
+    public static native int timerFd();
     public static native int epollCreate();
     public static int epollWait(int efd, EpollEventArray events, int timeout) throws IOException {
         int ready = epollWait0(efd, events.memoryAddress(), events.length(), timeout);
@@ -163,6 +168,23 @@ public final class Native {
     }
     private static native int epollWait0(int efd, long address, int len, int timeout);
 
+    /**
+     * Wait for events and use the given {@code timerFd} (which must be part of the epoll set) to wake up once the
+     * timeout expired. This allows to specify the timeout with nanosecond precision. If both {@code timeoutSec} and
+     * {@code timeoutNsec} are {@code 0} this will not block at all. If the {@code timerFd} can not be armed an
+     * {@link IOException} for {@code timerfd_settime} is thrown.
+     */
+    public static int epollWait(int efd, EpollEventArray events, int timerFd, int timeoutSec, int timeoutNsec)
+            throws IOException {
+        int ready = epollWaitTimerFd0(efd, events.memoryAddress(), events.length(), timerFd, timeoutSec, timeoutNsec);
+        if (ready < 0) {
+            throw newIOException("epoll_wait", ready);
+        }
+        return ready;
+    }
+    private static native int epollWaitTimerFd0(
+            int efd, long address, int len, int timerFd, int timeoutSec, int timeoutNsec);
+
     public static void epollCtlAdd(int efd, final int fd, final int flags) throws IOException {
         int res = epollCtlAdd0(efd, fd, flags);
         if (res < 0) {
@@ -400,7 +422,25 @@ public final class Native {
     private static native int sendmmsg0(
             int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
 
+    /**
+     * Receive up to {@code len} datagrams into the given {@link NativeDatagramPacketArray.NativeDatagramPacket}s
+     * starting at {@code offset} with one syscall. Returns the number of received datagrams or {@code 0} if
+     * nothing was left to read.
+     */
+    public static int recvmmsg(
+            int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len) throws IOException {
+        int res = recvmmsg0(fd, msgs, offset, len);
+        if (res >= 0) {
+            return res;
+        }
+        return ioResult("recvmmsg", res, CONNECTION_RESET_EXCEPTION_RECVMMSG);
+    }
+
+    private static native int recvmmsg0(
+            int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
+
     private static native boolean isSupportingSendmmsg();
+    private static native boolean isSupportingRecvmmsg();
     private static native boolean isSupportingTcpFastopen();
 
     // socket operations
@@ -25,7 +25,8 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 
 /**
- * Support <a href="http://linux.die.net/man/2/sendmmsg">sendmmsg(...)</a> on linux with GLIBC 2.14+
+ * Support <a href="http://linux.die.net/man/2/sendmmsg">sendmmsg(...)</a> on linux with GLIBC 2.14+ and
+ * <a href="http://linux.die.net/man/2/recvmmsg">recvmmsg(...)</a> on linux with GLIBC 2.12+
  */
 final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessageProcessor {
 
@@ -38,21 +39,47 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
 
                 @Override
                 protected void onRemoval(NativeDatagramPacketArray value) throws Exception {
-                    NativeDatagramPacket[] array = value.packets;
-                    // Release all packets
-                    for (int i = 0; i < array.length; i++) {
-                        array[i].release();
-                    }
+                    value.release();
                 }
             };
 
+    private static final FastThreadLocal<NativeDatagramPacketArray> RECV_ARRAY =
+            new FastThreadLocal<NativeDatagramPacketArray>() {
+                @Override
+                protected NativeDatagramPacketArray initialValue() throws Exception {
+                    return new NativeDatagramPacketArray(new IovArray());
+                }
+
+                @Override
+                protected void onRemoval(NativeDatagramPacketArray value) throws Exception {
+                    value.release();
+                }
+            };
+
+    /**
+     * The maximum number of datagrams which can be read with one {@code recvmmsg(...)} call.
+     */
+    static final int MAX_RECVMMSG_PACKETS = Math.min(Native.UIO_MAX_IOV, Native.IOV_MAX);
+
     // Use UIO_MAX_IOV as this is the maximum number we can write with one sendmmsg(...) call.
     private final NativeDatagramPacket[] packets = new NativeDatagramPacket[Native.UIO_MAX_IOV];
+
+    // Only used when reading via recvmmsg(...). As every packet only needs one iovec we share one IovArray between
+    // all packets and so keep the memory overhead small.
+    private final IovArray recvIovArray;
     private int count;
 
     private NativeDatagramPacketArray() {
+        recvIovArray = null;
+        for (int i = 0; i < packets.length; i++) {
+            packets[i] = new NativeDatagramPacket(new IovArray());
+        }
+    }
+
+    private NativeDatagramPacketArray(IovArray recvIovArray) {
+        this.recvIovArray = recvIovArray;
         for (int i = 0; i < packets.length; i++) {
-            packets[i] = new NativeDatagramPacket();
+            packets[i] = new NativeDatagramPacket(null);
         }
     }
 
@@ -79,6 +106,39 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         return true;
     }
 
+    /**
+     * Try to add the given {@link ByteBuf} as target for a {@code recvmmsg(...)} call. Returns {@code true} on
+     * success, {@code false} otherwise.
+     */
+    boolean addWritable(ByteBuf buf) {
+        assert recvIovArray != null;
+        if (count == MAX_RECVMMSG_PACKETS || !buf.hasMemoryAddress() || !buf.isWritable()) {
+            return false;
+        }
+        NativeDatagramPacket p = packets[count];
+        if (!p.initWritable(recvIovArray, buf)) {
+            return false;
+        }
+        count++;
+        return true;
+    }
+
+    /**
+     * Release all {@link ByteBuf}s that were added via {@link #addWritable(ByteBuf)}, starting from the given
+     * index, and reset this instance.
+     */
+    void releaseReadBuffers(int index) {
+        for (int i = index; i < count; i++) {
+            packets[i].releaseBuffer();
+        }
+        for (int i = 0; i < index; i++) {
+            // Ownership of these buffers was transferred, so just drop the reference.
+            packets[i].buffer = null;
+        }
+        count = 0;
+        recvIovArray.clear();
+    }
+
     @Override
     public boolean processMessage(Object msg) throws Exception {
         return msg instanceof DatagramPacket && add((DatagramPacket) msg);
@@ -109,15 +169,36 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         return array;
     }
 
+    /**
+     * Returns an empty {@link NativeDatagramPacketArray} which can be filled via {@link #addWritable(ByteBuf)} and
+     * then passed to {@link Native#recvmmsg(int, NativeDatagramPacket[], int, int)}.
+     */
+    static NativeDatagramPacketArray getRecvInstance() {
+        NativeDatagramPacketArray array = RECV_ARRAY.get();
+        assert array.count == 0;
+        array.recvIovArray.clear();
+        return array;
+    }
+
+    private void release() {
+        if (recvIovArray != null) {
+            recvIovArray.release();
+        }
+        // Release all packets
+        for (int i = 0; i < packets.length; i++) {
+            packets[i].release();
+        }
+    }
+
     /**
      * Used to pass needed data to JNI.
      */
     @SuppressWarnings("unused")
     static final class NativeDatagramPacket {
-        // Each NativeDatagramPackets holds a IovArray which is used for gathering writes.
-        // This is ok as NativeDatagramPacketArray is always obtained via a FastThreadLocal and
+        // Each NativeDatagramPackets that is used for sendmmsg(...) holds a IovArray which is used for gathering
+        // writes. This is ok as NativeDatagramPacketArray is always obtained via a FastThreadLocal and
         // so the memory needed is quite small anyway.
-        private final IovArray array = new IovArray();
+        private final IovArray array;
 
         // This is the actual struct iovec*
         private long memoryAddress;
@@ -127,8 +208,67 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         private int scopeId;
         private int port;
 
+        // Filled by recvmmsg(...) and encoded in the same way as Native.address(...) expects it.
+        private final byte[] senderAddr = new byte[24];
+        private int senderAddrLen;
+        private int receivedAmount;
+
+        // The buffer into which recvmmsg(...) will read.
+        private ByteBuf buffer;
+
+        NativeDatagramPacket(IovArray array) {
+            this.array = array;
+        }
+
         private void release() {
-            array.release();
+            if (array != null) {
+                array.release();
+            }
+            releaseBuffer();
+        }
+
+        private void releaseBuffer() {
+            if (buffer != null) {
+                buffer.release();
+                buffer = null;
+            }
+        }
+
+        /**
+         * Init this instance as target for {@code recvmmsg(...)} and return {@code true} if the init was successful.
+         */
+        private boolean initWritable(IovArray recvIovArray, ByteBuf buf) {
+            int index = recvIovArray.count();
+            if (!recvIovArray.addWritable(buf)) {
+                return false;
+            }
+            memoryAddress = recvIovArray.memoryAddress(index);
+            count = 1;
+            receivedAmount = 0;
+            buffer = buf;
+            return true;
+        }
+
+        /**
+         * Returns the {@link ByteBuf} which was filled by {@code recvmmsg(...)}, with its {@code writerIndex}
+         * adjusted to the number of received bytes.
+         */
+        ByteBuf content() {
+            return buffer.writerIndex(buffer.writerIndex() + receivedAmount);
+        }
+
+        /**
+         * Returns the number of bytes that were received by {@code recvmmsg(...)}.
+         */
+        int receivedAmount() {
+            return receivedAmount;
+        }
+
+        /**
+         * Returns the sender of the datagram that was received by {@code recvmmsg(...)}.
+         */
+        InetSocketAddress sender() {
+            return Native.address(senderAddr, 0, senderAddrLen);
         }
 
         /**
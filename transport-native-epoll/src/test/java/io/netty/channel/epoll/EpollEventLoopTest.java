@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.SystemPropertyUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EpollEventLoopTest {
+
+    private static final boolean TIMING_SENSITIVE =
+            SystemPropertyUtil.getBoolean("io.netty.testsuite.timingSensitive", false);
+
+    @Test(timeout = 10000)
+    public void testTimerFdWakesUpWithSubMillisecondTimeout() throws Exception {
+        int epollFd = Native.epollCreate();
+        int timerFd = Native.timerFd();
+        EpollEventArray events = new EpollEventArray(4);
+        try {
+            Native.epollCtlAdd(epollFd, timerFd, Native.EPOLLIN | Native.EPOLLET);
+
+            // A zero timeout must not arm the timerFd.
+            assertEquals(0, Native.epollWait(epollFd, events, timerFd, 0, 0));
+
+            // The only way to return is the timerFd firing after 200 microseconds, as epoll_wait(...) blocks
+            // without a timeout of its own.
+            assertEquals(1, Native.epollWait(epollFd, events, timerFd, 0, (int) TimeUnit.MICROSECONDS.toNanos(200)));
+            assertEquals(timerFd, events.fd(0));
+        } finally {
+            events.free();
+            Native.close(timerFd);
+            Native.close(epollFd);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduleSubMillisecondTask() throws Exception {
+        EventLoopGroup group = new EpollEventLoopGroup(1);
+        try {
+            final EventLoop loop = group.next();
+            long[] elapsed = new long[101];
+            for (int i = 0; i < elapsed.length; i++) {
+                final long start = System.nanoTime();
+                ScheduledFuture<Long> future = loop.schedule(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return System.nanoTime() - start;
+                    }
+                }, 200, TimeUnit.MICROSECONDS);
+                elapsed[i] = future.get();
+                assertTrue(elapsed[i] >= TimeUnit.MICROSECONDS.toNanos(200));
+            }
+
+            if (TIMING_SENSITIVE) {
+                // epoll_wait(...) alone can not wait for less than a millisecond, so the task must have run well
+                // before that. This depends on the load of the host, so it is only checked if enabled explicitly.
+                Arrays.sort(elapsed);
+                long median = elapsed[elapsed.length / 2];
+                assertTrue("median: " + median + "ns", median < TimeUnit.MICROSECONDS.toNanos(900));
+            }
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduledTaskWakesUpIdleLoop() throws Exception {
+        EventLoopGroup group = new EpollEventLoopGroup(1);
+        try {
+            final EventLoop loop = group.next();
+            // Let the loop block in epoll_wait(...) before scheduling.
+            loop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }).sync();
+            ScheduledFuture<?> future = loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }, 50, TimeUnit.MILLISECONDS);
+            assertTrue(future.await(5, TimeUnit.SECONDS));
+            assertTrue(future.isSuccess());
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+}
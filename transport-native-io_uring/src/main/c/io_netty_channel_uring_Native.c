@@ -0,0 +1,245 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#define _GNU_SOURCE
+#include <jni.h>
+#include <stdlib.h>
+#include <string.h>
+#include <errno.h>
+#include <poll.h>
+#include <stdint.h>
+#include <unistd.h>
+#include <sys/mman.h>
+#include <sys/socket.h>
+#include <sys/syscall.h>
+#include <linux/io_uring.h>
+#include "io_netty_channel_uring_Native.h"
+
+// io_uring_setup(...), io_uring_enter(...) and io_uring_register(...) are not wrapped by glibc so we need to use
+// syscall(...) directly. This also means we not depend on liburing at all.
+static int sys_io_uring_setup(unsigned int entries, struct io_uring_params* p) {
+    return (int) syscall(__NR_io_uring_setup, entries, p);
+}
+
+static int sys_io_uring_enter(int fd, unsigned int toSubmit, unsigned int minComplete, unsigned int flags) {
+    return (int) syscall(__NR_io_uring_enter, fd, toSubmit, minComplete, flags, NULL, 0);
+}
+
+static int sys_io_uring_register(int fd, unsigned int opcode, void* arg, unsigned int nrArgs) {
+    return (int) syscall(__NR_io_uring_register, fd, opcode, arg, nrArgs);
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioUringSetup0(JNIEnv* env, jclass clazz, jint entries, jlongArray ring) {
+    struct io_uring_params p;
+    memset(&p, 0, sizeof(p));
+
+    int fd = sys_io_uring_setup((unsigned int) entries, &p);
+    if (fd < 0) {
+        return -errno;
+    }
+
+    size_t sqRingSize = p.sq_off.array + p.sq_entries * sizeof(unsigned int);
+    size_t cqRingSize = p.cq_off.cqes + p.cq_entries * sizeof(struct io_uring_cqe);
+    if ((p.features & IORING_FEAT_SINGLE_MMAP) != 0) {
+        // Both rings are mapped with a single mmap(...) call so we need to make sure it is big enough for both.
+        if (cqRingSize > sqRingSize) {
+            sqRingSize = cqRingSize;
+        }
+        cqRingSize = sqRingSize;
+    }
+    void* sqRing = mmap(NULL, sqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_SQ_RING);
+    if (sqRing == MAP_FAILED) {
+        int err = errno;
+        close(fd);
+        return -err;
+    }
+    void* cqRing = sqRing;
+    if ((p.features & IORING_FEAT_SINGLE_MMAP) == 0) {
+        cqRing = mmap(NULL, cqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_CQ_RING);
+        if (cqRing == MAP_FAILED) {
+            int err = errno;
+            munmap(sqRing, sqRingSize);
+            close(fd);
+            return -err;
+        }
+    }
+    size_t sqesSize = p.sq_entries * sizeof(struct io_uring_sqe);
+    void* sqes = mmap(NULL, sqesSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_SQES);
+    if (sqes == MAP_FAILED) {
+        int err = errno;
+        if (cqRing != sqRing) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(fd);
+        return -err;
+    }
+
+    // We always use the sqe at the same index as the ring slot, so just setup the indirection array once.
+    unsigned int* sqArray = (unsigned int*) ((char*) sqRing + p.sq_off.array);
+    unsigned int i;
+    for (i = 0; i < p.sq_entries; i++) {
+        sqArray[i] = i;
+    }
+
+    jlong values[16];
+    values[0] = (jlong) sqRing;
+    values[1] = (jlong) sqRingSize;
+    values[2] = (jlong) cqRing;
+    values[3] = (jlong) cqRingSize;
+    values[4] = (jlong) sqes;
+    values[5] = (jlong) sqesSize;
+    values[6] = (jlong) ((char*) sqRing + p.sq_off.head);
+    values[7] = (jlong) ((char*) sqRing + p.sq_off.tail);
+    values[8] = (jlong) *((unsigned int*) ((char*) sqRing + p.sq_off.ring_mask));
+    values[9] = (jlong) p.sq_entries;
+    values[10] = (jlong) ((char*) cqRing + p.cq_off.head);
+    values[11] = (jlong) ((char*) cqRing + p.cq_off.tail);
+    values[12] = (jlong) *((unsigned int*) ((char*) cqRing + p.cq_off.ring_mask));
+    values[13] = (jlong) p.cq_entries;
+    values[14] = (jlong) ((char*) cqRing + p.cq_off.cqes);
+    values[15] = (jlong) p.features;
+    (*env)->SetLongArrayRegion(env, ring, 0, 16, values);
+    return fd;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioUringProbe0(JNIEnv* env, jclass clazz, jint ringFd, jintArray ops) {
+    size_t len = sizeof(struct io_uring_probe) + 256 * sizeof(struct io_uring_probe_op);
+    struct io_uring_probe* probe = calloc(1, len);
+    if (probe == NULL) {
+        return -ENOMEM;
+    }
+    if (sys_io_uring_register(ringFd, IORING_REGISTER_PROBE, probe, 256) < 0) {
+        int err = errno;
+        free(probe);
+        return -err;
+    }
+
+    jint opsLen = (*env)->GetArrayLength(env, ops);
+    jint* elements = (*env)->GetIntArrayElements(env, ops, NULL);
+    jint supported = 1;
+    jint i;
+    for (i = 0; i < opsLen; i++) {
+        int op = elements[i];
+        if (op > probe->last_op || (probe->ops[op].flags & IO_URING_OP_SUPPORTED) == 0) {
+            supported = 0;
+            break;
+        }
+    }
+    (*env)->ReleaseIntArrayElements(env, ops, elements, JNI_ABORT);
+    free(probe);
+    return supported;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioUringEnter(JNIEnv* env, jclass clazz, jint ringFd, jint toSubmit, jint minComplete, jint flags) {
+    int res = sys_io_uring_enter(ringFd, (unsigned int) toSubmit, (unsigned int) minComplete, (unsigned int) flags);
+    if (res < 0) {
+        return -errno;
+    }
+    return res;
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_ioUringExit(JNIEnv* env, jclass clazz, jint ringFd, jlong sqRingAddress, jint sqRingSize, jlong cqRingAddress, jint cqRingSize, jlong sqesAddress, jint sqesSize) {
+    munmap((void*) sqesAddress, (size_t) sqesSize);
+    if (cqRingAddress != sqRingAddress) {
+        munmap((void*) cqRingAddress, (size_t) cqRingSize);
+    }
+    munmap((void*) sqRingAddress, (size_t) sqRingSize);
+    close(ringFd);
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_loadAcquire(JNIEnv* env, jclass clazz, jlong address) {
+    return (jint) __atomic_load_n((unsigned int*) address, __ATOMIC_ACQUIRE);
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_storeRelease(JNIEnv* env, jclass clazz, jlong address, jint value) {
+    __atomic_store_n((unsigned int*) address, (unsigned int) value, __ATOMIC_RELEASE);
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioringOpPollAdd(JNIEnv* env, jclass clazz) {
+    return IORING_OP_POLL_ADD;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioringOpAccept(JNIEnv* env, jclass clazz) {
+    return IORING_OP_ACCEPT;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioringOpRecv(JNIEnv* env, jclass clazz) {
+    return IORING_OP_RECV;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioringOpWritev(JNIEnv* env, jclass clazz) {
+    return IORING_OP_WRITEV;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioringOpTimeout(JNIEnv* env, jclass clazz) {
+    return IORING_OP_TIMEOUT;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioringOpTimeoutRemove(JNIEnv* env, jclass clazz) {
+    return IORING_OP_TIMEOUT_REMOVE;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioringOpAsyncCancel(JNIEnv* env, jclass clazz) {
+    return IORING_OP_ASYNC_CANCEL;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioringEnterGetevents(JNIEnv* env, jclass clazz) {
+    return IORING_ENTER_GETEVENTS;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_sizeofIoUringSqe(JNIEnv* env, jclass clazz) {
+    return sizeof(struct io_uring_sqe);
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_sizeofIoUringCqe(JNIEnv* env, jclass clazz) {
+    return sizeof(struct io_uring_cqe);
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_pollin(JNIEnv* env, jclass clazz) {
+    return POLLIN;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_pollout(JNIEnv* env, jclass clazz) {
+    return POLLOUT;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_sockNonblock(JNIEnv* env, jclass clazz) {
+    return SOCK_NONBLOCK;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_sockCloexec(JNIEnv* env, jclass clazz) {
+    return SOCK_CLOEXEC;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_errnoEINTR(JNIEnv* env, jclass clazz) {
+    return EINTR;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_errnoEAGAIN(JNIEnv* env, jclass clazz) {
+    return EAGAIN;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_errnoEBUSY(JNIEnv* env, jclass clazz) {
+    return EBUSY;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_errnoECANCELED(JNIEnv* env, jclass clazz) {
+    return ECANCELED;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_errnoETIME(JNIEnv* env, jclass clazz) {
+    return ETIME;
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#include <jni.h>
+
+// The syscall numbers are the same on all architectures which use the generic syscall table, define them here so
+// we can compile against older headers.
+#ifndef __NR_io_uring_setup
+#define __NR_io_uring_setup 425
+#endif /* __NR_io_uring_setup */
+
+#ifndef __NR_io_uring_enter
+#define __NR_io_uring_enter 426
+#endif /* __NR_io_uring_enter */
+
+#ifndef __NR_io_uring_register
+#define __NR_io_uring_register 427
+#endif /* __NR_io_uring_register */
+
+jint Java_io_netty_channel_uring_Native_ioUringSetup0(JNIEnv* env, jclass clazz, jint entries, jlongArray ring);
+jint Java_io_netty_channel_uring_Native_ioUringProbe0(JNIEnv* env, jclass clazz, jint ringFd, jintArray ops);
+jint Java_io_netty_channel_uring_Native_ioUringEnter(JNIEnv* env, jclass clazz, jint ringFd, jint toSubmit, jint minComplete, jint flags);
+void Java_io_netty_channel_uring_Native_ioUringExit(JNIEnv* env, jclass clazz, jint ringFd, jlong sqRingAddress, jint sqRingSize, jlong cqRingAddress, jint cqRingSize, jlong sqesAddress, jint sqesSize);
+jint Java_io_netty_channel_uring_Native_loadAcquire(JNIEnv* env, jclass clazz, jlong address);
+void Java_io_netty_channel_uring_Native_storeRelease(JNIEnv* env, jclass clazz, jlong address, jint value);
+
+jint Java_io_netty_channel_uring_Native_ioringOpPollAdd(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_ioringOpAccept(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_ioringOpRecv(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_ioringOpWritev(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_ioringOpTimeout(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_ioringOpTimeoutRemove(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_ioringOpAsyncCancel(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_ioringEnterGetevents(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_sizeofIoUringSqe(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_sizeofIoUringCqe(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_pollin(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_pollout(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_sockNonblock(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_sockCloexec(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_errnoEINTR(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_errnoEAGAIN(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_errnoEBUSY(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_errnoECANCELED(JNIEnv* env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_errnoETIME(JNIEnv* env, jclass clazz);
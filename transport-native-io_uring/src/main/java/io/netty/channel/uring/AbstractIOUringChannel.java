@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.EventLoop;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.UnixChannel;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.UnresolvedAddressException;
+
+/**
+ * Base class for all the {@link Channel}s which use <a href="http://kernel.dk/io_uring.pdf">io_uring</a>.
+ *
+ * In contrast to epoll, io_uring is completion based: instead of waiting until a file descriptor is ready and then
+ * doing the syscall we hand the whole operation over to the kernel and are notified once it is done. This means
+ * every buffer which is part of an operation in flight must not be released until the operation completed.
+ */
+abstract class AbstractIOUringChannel extends AbstractChannel implements UnixChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+    private final FileDescriptor fileDescriptor;
+
+    // The id which is used to identify the channel in the user_data of the submitted operations.
+    // Only accessed from the EventLoop.
+    int id;
+
+    protected volatile boolean active;
+
+    AbstractIOUringChannel(Channel parent, FileDescriptor fd, boolean active) {
+        super(parent);
+        if (fd == null) {
+            throw new NullPointerException("fd");
+        }
+        this.active = active;
+        fileDescriptor = fd;
+    }
+
+    @Override
+    public final FileDescriptor fd() {
+        return fileDescriptor;
+    }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return fileDescriptor.isOpen();
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof IOUringEventLoop;
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        ((IOUringEventLoop) eventLoop().unwrap()).add(this);
+    }
+
+    @Override
+    protected void doDeregister() throws Exception {
+        ((IOUringEventLoop) eventLoop().unwrap()).remove(this);
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        boolean active = this.active;
+        this.active = false;
+        FileDescriptor fd = fileDescriptor;
+        try {
+            // cancel all operations in flight and shutdown the socket.
+            if (isRegistered()) {
+                doDeregister();
+            }
+            if (active) {
+                shutdown(fd.intValue());
+            }
+        } finally {
+            // Ensure the file descriptor is closed in all cases. Operations which are still in flight hold their
+            // own reference to the file so this is safe.
+            fd.close();
+        }
+    }
+
+    /**
+     * Called on {@link #doClose()} before the actual {@link FileDescriptor} is closed.
+     * This implementation does nothing.
+     */
+    protected void shutdown(int fd) throws IOException {
+        // NOOP
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    @Override
+    protected void doBeginRead() throws Exception {
+        // Channel.read() or ChannelHandlerContext.read() was called
+        AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+        unsafe.readPending = true;
+        unsafe.scheduleRead();
+    }
+
+    final IOUringEventLoop ioUringEventLoop() {
+        return (IOUringEventLoop) eventLoop().unwrap();
+    }
+
+    @Override
+    protected abstract AbstractIOUringUnsafe newUnsafe();
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the original one.
+     */
+    protected final ByteBuf newDirectBuffer(ByteBuf buf) {
+        final int readableBytes = buf.readableBytes();
+        if (readableBytes == 0) {
+            ReferenceCountUtil.safeRelease(buf);
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        final ByteBufAllocator alloc = alloc();
+        if (alloc.isDirectBufferPooled()) {
+            return newDirectBuffer0(buf, alloc, readableBytes);
+        }
+
+        final ByteBuf directBuf = ByteBufUtil.threadLocalDirectBuffer();
+        if (directBuf == null) {
+            return newDirectBuffer0(buf, alloc, readableBytes);
+        }
+
+        directBuf.writeBytes(buf, buf.readerIndex(), readableBytes);
+        ReferenceCountUtil.safeRelease(buf);
+        return directBuf;
+    }
+
+    private static ByteBuf newDirectBuffer0(ByteBuf buf, ByteBufAllocator alloc, int capacity) {
+        final ByteBuf directBuf = alloc.directBuffer(capacity);
+        directBuf.writeBytes(buf, buf.readerIndex(), capacity);
+        ReferenceCountUtil.safeRelease(buf);
+        return directBuf;
+    }
+
+    protected static void checkResolvable(InetSocketAddress addr) {
+        if (addr.isUnresolved()) {
+            throw new UnresolvedAddressException();
+        }
+    }
+
+    protected abstract class AbstractIOUringUnsafe extends AbstractUnsafe {
+        protected boolean readPending;
+
+        /**
+         * Submit the next read operation if none is in flight yet.
+         */
+        abstract void scheduleRead();
+
+        /**
+         * Called once an operation which was submitted for this channel completed.
+         *
+         * @param op    the opcode of the operation.
+         * @param res   the result of the operation, which is {@code -errno} on failure.
+         */
+        abstract void complete(int op, int res);
+
+        /**
+         * Returns {@code true} if there are still operations in flight which the kernel did not complete yet.
+         */
+        abstract boolean hasOperationsInFlight();
+
+        /**
+         * Cancel all the operations that are in flight.
+         */
+        abstract void cancelOperations() throws IOException;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * Tells if {@code netty-transport-native-io_uring} is supported. This requires a kernel which supports all the
+ * io_uring operations that are used by the transport (5.6+).
+ */
+public final class IOUring {
+
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static  {
+        Throwable cause = null;
+        long[] ring = new long[Native.RING_INFO_LENGTH];
+        int ringFd = -1;
+        try {
+            ringFd = Native.ioUringSetup(1, ring);
+            if (!Native.ioUringProbe(ringFd, Native.IORING_OP_POLL_ADD, Native.IORING_OP_ACCEPT,
+                    Native.IORING_OP_RECV, Native.IORING_OP_WRITEV, Native.IORING_OP_TIMEOUT,
+                    Native.IORING_OP_TIMEOUT_REMOVE, Native.IORING_OP_ASYNC_CANCEL)) {
+                cause = new UnsupportedOperationException("kernel does not support all required io_uring operations");
+            }
+        } catch (Throwable t) {
+            cause = t;
+        } finally {
+            if (ringFd != -1) {
+                Native.ioUringExit(ringFd, ring);
+            }
+        }
+
+        UNAVAILABILITY_CAUSE = cause;
+    }
+
+    /**
+     * Returns {@code true} if and only if {@code netty-transport-native-io_uring} is available.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Ensure that {@code netty-transport-native-io_uring} is available.
+     *
+     * @throws UnsatisfiedLinkError if unavailable
+     */
+    public static void ensureAvailability() {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw (Error) new UnsatisfiedLinkError(
+                    "failed to load the required native library").initCause(UNAVAILABILITY_CAUSE);
+        }
+    }
+
+    /**
+     * Returns the cause of unavailability of {@code netty-transport-native-io_uring}.
+     *
+     * @return the cause if unavailable. {@code null} if available.
+     */
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    private IOUring() { }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * The completion queue of an io_uring instance. The {@code io_uring_cqe} structs are read directly from the memory
+ * that is shared with the kernel.
+ *
+ * <pre>
+ * struct io_uring_cqe {
+ *   __u64 user_data;   // offset 0
+ *   __s32 res;         // offset 8
+ *   __u32 flags;       // offset 12
+ * };
+ * </pre>
+ *
+ * This class is not thread-safe and must only be used from the {@link IOUringEventLoop}.
+ */
+final class IOUringCompletionQueue {
+    private static final int CQE_USER_DATA_FIELD = 0;
+    private static final int CQE_RES_FIELD = 8;
+    private static final int CQE_FLAGS_FIELD = 12;
+
+    private final long headAddress;
+    private final long tailAddress;
+    private final long cqesAddress;
+    private final int mask;
+
+    private int head;
+
+    /**
+     * Will be notified for each completion by {@link #process(CompletionCallback)}.
+     */
+    interface CompletionCallback {
+        void handle(int res, int flags, long userData);
+    }
+
+    IOUringCompletionQueue(long[] ring) {
+        headAddress = ring[Native.RING_CQ_HEAD_ADDRESS];
+        tailAddress = ring[Native.RING_CQ_TAIL_ADDRESS];
+        cqesAddress = ring[Native.RING_CQES_ADDRESS];
+        mask = (int) ring[Native.RING_CQ_MASK];
+        head = PlatformDependent.getInt(headAddress);
+    }
+
+    /**
+     * Returns {@code true} if there are completions that were not processed yet.
+     */
+    boolean hasCompletions() {
+        return head != Native.loadAcquire(tailAddress);
+    }
+
+    /**
+     * Process all the completions which are ready and returns the number of processed completions.
+     */
+    int process(CompletionCallback callback) {
+        // Only process what is ready now, everything that completes while we are processing will be picked up in
+        // the next round of the event loop.
+        final int tail = Native.loadAcquire(tailAddress);
+        final int processed = tail - head;
+        while (head != tail) {
+            long cqe = cqesAddress + (long) (head & mask) * Native.SIZEOF_CQE;
+            long userData = PlatformDependent.getLong(cqe + CQE_USER_DATA_FIELD);
+            int res = PlatformDependent.getInt(cqe + CQE_RES_FIELD);
+            int flags = PlatformDependent.getInt(cqe + CQE_FLAGS_FIELD);
+            head++;
+
+            callback.handle(res, flags, userData);
+        }
+        if (processed != 0) {
+            // Hand all the slots back to the kernel at once.
+            Native.storeRelease(headAddress, head);
+        }
+        return processed;
+    }
+}
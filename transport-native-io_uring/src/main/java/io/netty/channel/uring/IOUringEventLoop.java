@@ -0,0 +1,360 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.uring.AbstractIOUringChannel.AbstractIOUringUnsafe;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A {@link SingleThreadEventLoop} implementation which uses <a href="http://kernel.dk/io_uring.pdf">io_uring</a>
+ * under the covers. This {@link EventLoop} works only on Linux systems!
+ *
+ * Each submitted operation carries the id of the {@link AbstractIOUringChannel} it belongs to and the opcode in its
+ * {@code user_data}, so completions can be dispatched without any allocation:
+ *
+ * <pre>
+ * +---------------------------+------------------+----------------+
+ * | channel id (32 bits)      | unused (24 bits) | opcode (8 bits)|
+ * +---------------------------+------------------+----------------+
+ * </pre>
+ *
+ * The channel id {@code 0} is reserved for the operations of the {@link EventLoop} itself.
+ */
+final class IOUringEventLoop extends SingleThreadEventLoop implements IOUringCompletionQueue.CompletionCallback {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringEventLoop.class);
+    private static final AtomicIntegerFieldUpdater<IOUringEventLoop> WAKEN_UP_UPDATER;
+    private static final int LOOP_ID = 0;
+    private static final int SIZEOF_KERNEL_TIMESPEC = 16;
+
+    static {
+        AtomicIntegerFieldUpdater<IOUringEventLoop> updater =
+                PlatformDependent.newAtomicIntegerFieldUpdater(IOUringEventLoop.class, "wakenUp");
+        if (updater == null) {
+            updater = AtomicIntegerFieldUpdater.newUpdater(IOUringEventLoop.class, "wakenUp");
+        }
+        WAKEN_UP_UPDATER = updater;
+    }
+
+    private final long[] ring = new long[Native.RING_INFO_LENGTH];
+    private final int ringFd;
+    private final int eventFd;
+    private final IOUringSubmissionQueue submissionQueue;
+    private final IOUringCompletionQueue completionQueue;
+    private final IntObjectMap<AbstractIOUringChannel> channels =
+            new IntObjectHashMap<AbstractIOUringChannel>(4096);
+    // Holds the struct __kernel_timespec that is used for IORING_OP_TIMEOUT.
+    private final long timeoutAddress;
+
+    private int nextChannelId = LOOP_ID + 1;
+    private boolean timeoutArmed;
+    private long timeoutDeadlineNanos;
+    // Encoded in the user_data of IORING_OP_TIMEOUT, so the completion of a removed timeout can be told apart from
+    // the one that replaced it.
+    private int timeoutGeneration;
+
+    private volatile int wakenUp;
+    private volatile int ioRatio = 50;
+
+    IOUringEventLoop(EventLoopGroup parent, Executor executor, int ringSize) {
+        super(parent, executor, false);
+        boolean success = false;
+        int ringFd = -1;
+        int eventFd = -1;
+        try {
+            this.ringFd = ringFd = Native.ioUringSetup(ringSize, ring);
+            this.eventFd = eventFd = io.netty.channel.epoll.Native.eventFd();
+            submissionQueue = new IOUringSubmissionQueue(ringFd, ring);
+            completionQueue = new IOUringCompletionQueue(ring);
+            try {
+                armEventFd();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to add eventFd filedescriptor to io_uring", e);
+            }
+            success = true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create io_uring instance", e);
+        } finally {
+            if (!success) {
+                if (ringFd != -1) {
+                    Native.ioUringExit(ringFd, ring);
+                }
+                if (eventFd != -1) {
+                    try {
+                        io.netty.channel.epoll.Native.close(eventFd);
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        timeoutAddress = PlatformDependent.allocateMemory(SIZEOF_KERNEL_TIMESPEC);
+    }
+
+    static long userData(int id, int op) {
+        return (long) id << 32 | op & 0xff;
+    }
+
+    /**
+     * Returns the user_data of the {@code IORING_OP_TIMEOUT} of the given generation, which is kept in the bits
+     * between the id and the op.
+     */
+    private static long timeoutUserData(int generation) {
+        return userData(LOOP_ID, Native.IORING_OP_TIMEOUT) | (long) (generation & 0xffffff) << 8;
+    }
+
+    @Override
+    protected void wakeup(boolean inEventLoop) {
+        if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
+            // write to the evfd which will then complete the pending poll and so wake-up io_uring_enter(...)
+            io.netty.channel.epoll.Native.eventFdWrite(eventFd, 1L);
+        }
+    }
+
+    /**
+     * Register the given channel with this {@link EventLoop}.
+     */
+    void add(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        int id = nextChannelId;
+        while (id == LOOP_ID || channels.containsKey(id)) {
+            id++;
+        }
+        nextChannelId = id + 1;
+        ch.id = id;
+        channels.put(id, ch);
+    }
+
+    /**
+     * Deregister the given channel from this {@link EventLoop}. All the operations that are still in flight are
+     * cancelled and the channel is only removed once the kernel is done with all of them, as otherwise we may
+     * release memory that is still used by the kernel.
+     */
+    void remove(AbstractIOUringChannel ch) throws IOException {
+        assert inEventLoop();
+        AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) ch.unsafe();
+        if (unsafe.hasOperationsInFlight()) {
+            unsafe.cancelOperations();
+            // The file descriptor is resolved when the kernel consumes the submission queue entry, so make sure all
+            // the entries of this channel were handed over before the caller closes the file descriptor. Otherwise
+            // the operations may end up on another file which reused the same file descriptor number.
+            submissionQueue.submit();
+        } else {
+            channels.remove(ch.id);
+        }
+    }
+
+    /**
+     * Submit a new operation for the given channel.
+     */
+    void submit(AbstractIOUringChannel ch, int op, long address, int len, int opFlags) throws IOException {
+        assert inEventLoop();
+        submissionQueue.enqueue(op, ch.fd().intValue(), address, len, 0, opFlags, userData(ch.id, op));
+    }
+
+    /**
+     * Cancel an operation of the given channel that was submitted before.
+     */
+    void cancel(AbstractIOUringChannel ch, int op) throws IOException {
+        assert inEventLoop();
+        submissionQueue.enqueue(Native.IORING_OP_ASYNC_CANCEL, -1, userData(ch.id, op), 0, 0, 0,
+                userData(ch.id, Native.IORING_OP_ASYNC_CANCEL));
+    }
+
+    private void armEventFd() throws IOException {
+        submissionQueue.enqueue(Native.IORING_OP_POLL_ADD, eventFd, 0, 0, 0, Native.POLLIN,
+                userData(LOOP_ID, Native.IORING_OP_POLL_ADD));
+    }
+
+    /**
+     * Make sure we are woken up once the next scheduled task is due, or after at most a second if there is none so
+     * that a pending shutdown is noticed. If there is already a timeout armed that fires before the deadline there
+     * is nothing to do.
+     */
+    private void armTimeout() throws IOException {
+        long currentTimeNanos = System.nanoTime();
+        long delayNanos = Math.max(0, delayNanos(currentTimeNanos));
+        long deadlineNanos = currentTimeNanos + delayNanos;
+        if (timeoutArmed) {
+            if (timeoutDeadlineNanos <= deadlineNanos) {
+                return;
+            }
+            submissionQueue.enqueue(Native.IORING_OP_TIMEOUT_REMOVE, -1, timeoutUserData(timeoutGeneration),
+                    0, 0, 0, userData(LOOP_ID, Native.IORING_OP_TIMEOUT_REMOVE));
+        }
+        long seconds = delayNanos / 1000000000L;
+        PlatformDependent.putLong(timeoutAddress, seconds);
+        PlatformDependent.putLong(timeoutAddress + 8, delayNanos - seconds * 1000000000L);
+        submissionQueue.enqueue(Native.IORING_OP_TIMEOUT, -1, timeoutAddress, 1, 0, 0,
+                timeoutUserData(++ timeoutGeneration));
+        timeoutArmed = true;
+        timeoutDeadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    protected Queue<Runnable> newTaskQueue() {
+        // This event loop never calls takeTask()
+        return PlatformDependent.newMpscQueue();
+    }
+
+    /**
+     * Returns the percentage of the desired amount of time spent for I/O in the event loop.
+     */
+    public int getIoRatio() {
+        return ioRatio;
+    }
+
+    /**
+     * Sets the percentage of the desired amount of time spent for I/O in the event loop.  The default value is
+     * {@code 50}, which means the event loop will try to spend the same amount of time for I/O as for non-I/O tasks.
+     */
+    public void setIoRatio(int ioRatio) {
+        if (ioRatio <= 0 || ioRatio > 100) {
+            throw new IllegalArgumentException("ioRatio: " + ioRatio + " (expected: 0 < ioRatio <= 100)");
+        }
+        this.ioRatio = ioRatio;
+    }
+
+    @Override
+    protected void run() {
+        WAKEN_UP_UPDATER.set(this, 0);
+        try {
+            if (hasTasks() || completionQueue.hasCompletions()) {
+                // Non blocking just submit what is pending and process what is ready directly.
+                submissionQueue.submit();
+            } else {
+                armTimeout();
+                submissionQueue.submitAndWait();
+
+                // See EpollEventLoop.run() for an explanation why we need to wake up again if wakenUp is set.
+                if (wakenUp == 1) {
+                    io.netty.channel.epoll.Native.eventFdWrite(eventFd, 1L);
+                }
+            }
+
+            final int ioRatio = this.ioRatio;
+            if (ioRatio == 100) {
+                completionQueue.process(this);
+                runAllTasks();
+            } else {
+                final long ioStartTime = System.nanoTime();
+
+                completionQueue.process(this);
+
+                final long ioTime = System.nanoTime() - ioStartTime;
+                runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+            }
+            if (isShuttingDown()) {
+                closeAll();
+                if (confirmShutdown()) {
+                    cleanupAndTerminate(true);
+                    return;
+                }
+            }
+        } catch (Throwable t) {
+            logger.warn("Unexpected exception in the io_uring loop.", t);
+
+            // Prevent possible consecutive immediate failures that lead to
+            // excessive CPU consumption.
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                // Ignore.
+            }
+        }
+
+        scheduleExecution();
+    }
+
+    private void closeAll() {
+        Collection<AbstractIOUringChannel> array = new ArrayList<AbstractIOUringChannel>(channels.size());
+
+        for (AbstractIOUringChannel channel: channels.values()) {
+            array.add(channel);
+        }
+
+        for (AbstractIOUringChannel ch: array) {
+            ch.unsafe().close(ch.unsafe().voidPromise());
+        }
+    }
+
+    @Override
+    public void handle(int res, int flags, long userData) {
+        final int id = (int) (userData >>> 32);
+        final int op = (int) userData & 0xff;
+        if (id == LOOP_ID) {
+            if (op == Native.IORING_OP_POLL_ADD) {
+                // consume wakeup event and wait for the next one.
+                io.netty.channel.epoll.Native.eventFdRead(eventFd);
+                try {
+                    armEventFd();
+                } catch (IOException e) {
+                    logger.warn("Failed to re-arm the eventFd.", e);
+                }
+            } else if (op == Native.IORING_OP_TIMEOUT && res == Native.ERRNO_ETIME_NEGATIVE &&
+                    (int) (userData >>> 8 & 0xffffff) == (timeoutGeneration & 0xffffff)) {
+                // The current timeout fired, the scheduled tasks that are due will be executed as part of
+                // runAllTasks(...). Timeouts that were removed complete with ECANCELED, and the ones that fired
+                // before they could be removed belong to an older generation, so both are ignored.
+                timeoutArmed = false;
+            }
+            return;
+        }
+        if (op == Native.IORING_OP_ASYNC_CANCEL) {
+            // The result of the operation that was cancelled is delivered by its own completion.
+            return;
+        }
+
+        AbstractIOUringChannel ch = channels.get(id);
+        if (ch != null) {
+            AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) ch.unsafe();
+            unsafe.complete(op, res);
+            if (!unsafe.hasOperationsInFlight() && (ch.id != id || !ch.isOpen() || !ch.isRegistered())) {
+                // The last pending operation of a closed or deregistered channel completed, so the kernel is
+                // done with it.
+                channels.remove(id);
+            }
+        }
+    }
+
+    @Override
+    protected void cleanup() {
+        try {
+            try {
+                io.netty.channel.epoll.Native.close(eventFd);
+            } catch (IOException e) {
+                logger.warn("Failed to close the event fd.", e);
+            }
+            Native.ioUringExit(ringFd, ring);
+        } finally {
+            // release native memory
+            PlatformDependent.freeMemory(timeoutAddress);
+        }
+    }
+}
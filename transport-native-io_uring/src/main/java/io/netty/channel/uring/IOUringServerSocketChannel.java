@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.unix.FileDescriptor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * {@link ServerSocketChannel} implementation that uses linux io_uring to accept new connections.
+ */
+public final class IOUringServerSocketChannel extends AbstractIOUringChannel implements ServerSocketChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+
+    private final IOUringServerSocketChannelConfig config;
+    private volatile InetSocketAddress local;
+
+    public IOUringServerSocketChannel() {
+        super(null, new FileDescriptor(io.netty.channel.epoll.Native.socketStreamFd()), false);
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    /**
+     * Creates a new {@link IOUringServerSocketChannel} from an existing {@link FileDescriptor}.
+     */
+    public IOUringServerSocketChannel(FileDescriptor fd) {
+        super(null, fd, io.netty.channel.epoll.Native.getSoError(fd.intValue()) == 0);
+        config = new IOUringServerSocketChannelConfig(this);
+
+        // As we create an IOUringServerSocketChannel from a FileDescriptor we should try to obtain the local
+        // address from it. This is needed as the FileDescriptor may be bound already.
+        local = io.netty.channel.epoll.Native.localAddress(fd.intValue());
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        InetSocketAddress addr = (InetSocketAddress) localAddress;
+        checkResolvable(addr);
+        int fd = fd().intValue();
+        io.netty.channel.epoll.Native.bind(fd, addr);
+        local = io.netty.channel.epoll.Native.localAddress(fd);
+        io.netty.channel.epoll.Native.listen(fd, config.getBacklog());
+        active = true;
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected InetSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected InetSocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    public IOUringServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringServerSocketUnsafe();
+    }
+
+    final class IOUringServerSocketUnsafe extends AbstractIOUringUnsafe {
+        private boolean acceptInFlight;
+        private boolean reading;
+
+        @Override
+        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
+            // Connect not supported by ServerChannel implementations
+            channelPromise.setFailure(new UnsupportedOperationException());
+        }
+
+        @Override
+        void scheduleRead() {
+            if (acceptInFlight || !isActive()) {
+                return;
+            }
+            if (!reading) {
+                recvBufAllocHandle().reset(config());
+                reading = true;
+            }
+            try {
+                ioUringEventLoop().submit(IOUringServerSocketChannel.this, Native.IORING_OP_ACCEPT,
+                        0, 0, Native.SOCK_NONBLOCK | Native.SOCK_CLOEXEC);
+                acceptInFlight = true;
+            } catch (IOException e) {
+                pipeline().fireExceptionCaught(e);
+                close(voidPromise());
+            }
+        }
+
+        @Override
+        void complete(int op, int res) {
+            assert op == Native.IORING_OP_ACCEPT;
+            acceptInFlight = false;
+            if (!isOpen()) {
+                if (res >= 0) {
+                    // We were closed in the meantime, so just close the accepted socket again.
+                    closeAccepted(res);
+                }
+                return;
+            }
+
+            final ChannelConfig config = config();
+            final ChannelPipeline pipeline = pipeline();
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            if (res >= 0) {
+                readPending = false;
+                allocHandle.incMessagesRead(1);
+                try {
+                    pipeline.fireChannelRead(new IOUringSocketChannel(
+                            IOUringServerSocketChannel.this, res, io.netty.channel.epoll.Native.remoteAddress(res)));
+                } catch (Throwable t) {
+                    closeAccepted(res);
+                    pipeline.fireExceptionCaught(t);
+                }
+                if (allocHandle.continueReading()) {
+                    scheduleRead();
+                    return;
+                }
+            } else if (res != Native.ERRNO_ECANCELED_NEGATIVE) {
+                pipeline.fireExceptionCaught(io.netty.channel.epoll.Native.newIOException("accept", res));
+            }
+
+            reading = false;
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+
+            if (readPending || config.isAutoRead()) {
+                scheduleRead();
+            }
+        }
+
+        private void closeAccepted(int fd) {
+            try {
+                io.netty.channel.epoll.Native.close(fd);
+            } catch (IOException ignore) {
+                // ignore
+            }
+        }
+
+        @Override
+        boolean hasOperationsInFlight() {
+            return acceptInFlight;
+        }
+
+        @Override
+        void cancelOperations() throws IOException {
+            if (acceptInFlight) {
+                ioUringEventLoop().cancel(IOUringServerSocketChannel.this, Native.IORING_OP_ACCEPT);
+            }
+        }
+    }
+}
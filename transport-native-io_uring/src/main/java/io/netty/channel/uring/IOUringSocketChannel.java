@@ -0,0 +1,695 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelOutboundBuffer.MessageProcessor;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.OneTimeTask;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SocketChannel} implementation that uses linux io_uring to read and write.
+ */
+public final class IOUringSocketChannel extends AbstractIOUringChannel implements SocketChannel {
+    private static final String EXPECTED_TYPES = " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+    private static final ClosedChannelException CLOSED_CHANNEL_EXCEPTION = new ClosedChannelException();
+
+    /** The size of an address which should be 8 for 64 bits and 4 for 32 bits. */
+    private static final int ADDRESS_SIZE = PlatformDependent.addressSize();
+
+    /** The size of a {@code struct iovec} in bytes. */
+    private static final int IOV_SIZE = 2 * ADDRESS_SIZE;
+    private static final int IOV_CAPACITY = io.netty.channel.epoll.Native.IOV_MAX * IOV_SIZE;
+
+    static {
+        CLOSED_CHANNEL_EXCEPTION.setStackTrace(EmptyArrays.EMPTY_STACK_TRACE);
+    }
+
+    private final IOUringSocketChannelConfig config;
+
+    private volatile InetSocketAddress local;
+    private volatile InetSocketAddress remote;
+    private volatile boolean inputShutdown;
+    private volatile boolean outputShutdown;
+
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+
+    IOUringSocketChannel(Channel parent, int fd, InetSocketAddress remote) {
+        super(parent, new FileDescriptor(fd), true);
+        config = new IOUringSocketChannelConfig(this);
+        // Directly cache the remote and local addresses
+        // See https://github.com/netty/netty/issues/2359
+        this.remote = remote;
+        local = io.netty.channel.epoll.Native.localAddress(fd);
+    }
+
+    public IOUringSocketChannel() {
+        super(null, new FileDescriptor(io.netty.channel.epoll.Native.socketStreamFd()), false);
+        config = new IOUringSocketChannelConfig(this);
+    }
+
+    /**
+     * Creates a new {@link IOUringSocketChannel} from an existing {@link FileDescriptor}.
+     */
+    public IOUringSocketChannel(FileDescriptor fd) {
+        super(null, fd, io.netty.channel.epoll.Native.getSoError(fd.intValue()) == 0);
+        config = new IOUringSocketChannelConfig(this);
+
+        // As we create an IOUringSocketChannel from a FileDescriptor we should try to obtain the remote and local
+        // address from it. This is needed as the FileDescriptor may be bound/connected already.
+        remote = io.netty.channel.epoll.Native.remoteAddress(fd.intValue());
+        local = io.netty.channel.epoll.Native.localAddress(fd.intValue());
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        if (remote == null) {
+            // Remote address not know, try to get it now.
+            InetSocketAddress address = io.netty.channel.epoll.Native.remoteAddress(fd().intValue());
+            if (address != null) {
+                remote = address;
+            }
+            return address;
+        }
+        return remote;
+    }
+
+    @Override
+    protected void doBind(SocketAddress local) throws Exception {
+        InetSocketAddress localAddress = (InetSocketAddress) local;
+        int fd = fd().intValue();
+        io.netty.channel.epoll.Native.bind(fd, localAddress);
+        this.local = io.netty.channel.epoll.Native.localAddress(fd);
+    }
+
+    @Override
+    public IOUringSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ServerSocketChannel parent() {
+        return (ServerSocketChannel) super.parent();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return inputShutdown;
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return outputShutdown || !isActive();
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            shutdownOutput0(promise);
+        } else {
+            loop.execute(new OneTimeTask() {
+                @Override
+                public void run() {
+                    shutdownOutput0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void shutdownOutput0(final ChannelPromise promise) {
+        try {
+            io.netty.channel.epoll.Native.shutdown(fd().intValue(), false, true);
+            outputShutdown = true;
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    @Override
+    protected void shutdown(int fd) throws IOException {
+        io.netty.channel.epoll.Native.shutdown(fd, true, true);
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        ChannelPromise promise = connectPromise;
+        if (promise != null) {
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(CLOSED_CHANNEL_EXCEPTION);
+            connectPromise = null;
+        }
+
+        ScheduledFuture<?> future = connectTimeoutFuture;
+        if (future != null) {
+            future.cancel(false);
+            connectTimeoutFuture = null;
+        }
+        try {
+            super.doClose();
+        } finally {
+            ((IOUringSocketUnsafe) unsafe()).freeIovIfPossible();
+        }
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        ((IOUringSocketUnsafe) unsafe()).writev(in);
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (!buf.isDirect()) {
+                // The kernel can only access off-heap memory, so we need to copy if a non direct is passed to write.
+                buf = newDirectBuffer(buf);
+            }
+            return buf;
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringSocketUnsafe();
+    }
+
+    private boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress != null) {
+            checkResolvable((InetSocketAddress) localAddress);
+        }
+        checkResolvable((InetSocketAddress) remoteAddress);
+        int fd = fd().intValue();
+        if (localAddress != null) {
+            io.netty.channel.epoll.Native.bind(fd, localAddress);
+        }
+
+        boolean success = false;
+        try {
+            boolean connected = io.netty.channel.epoll.Native.connect(fd, remoteAddress);
+            if (connected) {
+                remote = (InetSocketAddress) remoteAddress;
+            }
+            // We always need to set the localAddress even if not connected yet
+            //
+            // See https://github.com/netty/netty/issues/3463
+            local = io.netty.channel.epoll.Native.localAddress(fd);
+            success = true;
+            return connected;
+        } finally {
+            if (!success) {
+                doClose();
+            }
+        }
+    }
+
+    final class IOUringSocketUnsafe extends AbstractIOUringUnsafe implements MessageProcessor {
+        // The buffer into which the kernel reads while a IORING_OP_RECV is in flight.
+        private ByteBuf readBuffer;
+        private boolean reading;
+        private boolean readInFlight;
+        private boolean writeInFlight;
+        private boolean pollOutInFlight;
+        // The failure of the last write, which is propagated to the flushed messages by the next flush0().
+        private IOException writeFailure;
+
+        // Holds the struct iovec array of the IORING_OP_WRITEV in flight.
+        private long iovAddress;
+        private int iovCount;
+        private long iovSize;
+        private ByteBuf[] iovBuffers = new ByteBuf[16];
+        private int iovBufferCount;
+
+        @Override
+        public void connect(
+                final SocketAddress remoteAddress, final SocketAddress localAddress, final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            try {
+                if (connectPromise != null) {
+                    throw new IllegalStateException("connection attempt already made");
+                }
+
+                boolean wasActive = isActive();
+                if (doConnect(remoteAddress, localAddress)) {
+                    fulfillConnectPromise(promise, wasActive);
+                } else {
+                    connectPromise = promise;
+                    requestedRemoteAddress = remoteAddress;
+                    submitPollOut();
+
+                    // Schedule connect timeout.
+                    int connectTimeoutMillis = config().getConnectTimeoutMillis();
+                    if (connectTimeoutMillis > 0) {
+                        connectTimeoutFuture = eventLoop().schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                ChannelPromise connectPromise = IOUringSocketChannel.this.connectPromise;
+                                ConnectTimeoutException cause =
+                                        new ConnectTimeoutException("connection timed out: " + remoteAddress);
+                                if (connectPromise != null && connectPromise.tryFailure(cause)) {
+                                    close(voidPromise());
+                                }
+                            }
+                        }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                    }
+
+                    promise.addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            if (future.isCancelled()) {
+                                if (connectTimeoutFuture != null) {
+                                    connectTimeoutFuture.cancel(false);
+                                }
+                                connectPromise = null;
+                                close(voidPromise());
+                            }
+                        }
+                    });
+                }
+            } catch (Throwable t) {
+                closeIfClosed();
+                promise.tryFailure(annotateConnectException(t, remoteAddress));
+            }
+        }
+
+        private void submitPollOut() throws IOException {
+            ioUringEventLoop().submit(IOUringSocketChannel.this, Native.IORING_OP_POLL_ADD, 0, 0, Native.POLLOUT);
+            pollOutInFlight = true;
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, boolean wasActive) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+            active = true;
+
+            // trySuccess() will return false if a user cancelled the connection attempt.
+            boolean promiseSet = promise.trySuccess();
+
+            // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+            // because what happened is what happened.
+            if (!wasActive && isActive()) {
+                pipeline().fireChannelActive();
+            }
+
+            // If a user cancelled the connection attempt, close the channel, which is followed by channelInactive().
+            if (!promiseSet) {
+                close(voidPromise());
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, Throwable cause) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(cause);
+            closeIfClosed();
+        }
+
+        private void finishConnect() {
+            // Note this method is invoked by the event loop only if the connection attempt was
+            // neither cancelled nor timed out.
+
+            assert eventLoop().inEventLoop();
+
+            boolean connectStillInProgress = false;
+            try {
+                boolean wasActive = isActive();
+                if (!io.netty.channel.epoll.Native.finishConnect(fd().intValue())) {
+                    connectStillInProgress = true;
+                    submitPollOut();
+                    return;
+                }
+                fulfillConnectPromise(connectPromise, wasActive);
+            } catch (Throwable t) {
+                fulfillConnectPromise(connectPromise, annotateConnectException(t, requestedRemoteAddress));
+            } finally {
+                if (!connectStillInProgress) {
+                    // Check for null as the connectTimeoutFuture is only created if a connectTimeoutMillis > 0 is used
+                    // See https://github.com/netty/netty/issues/1770
+                    if (connectTimeoutFuture != null) {
+                        connectTimeoutFuture.cancel(false);
+                    }
+                    connectPromise = null;
+                }
+            }
+        }
+
+        @Override
+        void scheduleRead() {
+            if (readInFlight || !isActive() || inputShutdown) {
+                return;
+            }
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            if (!reading) {
+                allocHandle.reset(config());
+                reading = true;
+            }
+
+            // we use a direct buffer here as the kernel is only able to access off-heap memory.
+            ByteBuf byteBuf = allocHandle.allocate(config().getAllocator());
+            if (!byteBuf.isDirect()) {
+                ByteBuf directBuf = config().getAllocator().directBuffer(byteBuf.capacity());
+                byteBuf.release();
+                byteBuf = directBuf;
+            }
+            int writable = byteBuf.writableBytes();
+            allocHandle.attemptedBytesRead(writable);
+            try {
+                ioUringEventLoop().submit(IOUringSocketChannel.this, Native.IORING_OP_RECV,
+                        memoryAddress(byteBuf, byteBuf.writerIndex(), writable), writable, 0);
+            } catch (IOException e) {
+                byteBuf.release();
+                pipeline().fireExceptionCaught(e);
+                close(voidPromise());
+                return;
+            }
+            readBuffer = byteBuf;
+            readInFlight = true;
+        }
+
+        void writev(ChannelOutboundBuffer in) throws Exception {
+            if (writeInFlight) {
+                // We will continue once the write in flight completed.
+                return;
+            }
+            IOException writeFailure = this.writeFailure;
+            if (writeFailure != null) {
+                this.writeFailure = null;
+                throw writeFailure;
+            }
+            for (;;) {
+                Object msg = in.current();
+                if (msg == null) {
+                    // Wrote all messages.
+                    return;
+                }
+                if (((ByteBuf) msg).isReadable()) {
+                    break;
+                }
+                in.remove();
+            }
+
+            if (iovAddress == 0) {
+                iovAddress = PlatformDependent.allocateMemory(IOV_CAPACITY);
+            }
+            // We can not use ChannelOutboundBuffer.nioBuffers() here as it caches the ByteBuffers and expects them
+            // to be advanced by the write itself, which is not the case as the kernel does the write for us.
+            iovCount = 0;
+            iovSize = 0;
+            in.forEachFlushedMessage(this);
+            ioUringEventLoop().submit(IOUringSocketChannel.this, Native.IORING_OP_WRITEV, iovAddress, iovCount, 0);
+            writeInFlight = true;
+        }
+
+        @Override
+        public boolean processMessage(Object msg) throws Exception {
+            ByteBuf buf = (ByteBuf) msg;
+            int len = buf.readableBytes();
+            if (len == 0) {
+                return true;
+            }
+            int count = iovCount;
+            boolean added;
+            if (buf.hasMemoryAddress()) {
+                added = addIov(buf.memoryAddress() + buf.readerIndex(), len);
+            } else {
+                added = true;
+                for (ByteBuffer nioBuffer: buf.nioBuffers(buf.readerIndex(), len)) {
+                    if (!addIov(PlatformDependent.directBufferAddress(nioBuffer) + nioBuffer.position(),
+                            nioBuffer.remaining())) {
+                        added = false;
+                        break;
+                    }
+                }
+            }
+            if (iovCount != count) {
+                // Keep the buffer alive until the kernel is done with it, even if the channel is closed and the
+                // ChannelOutboundBuffer releases all its messages in the meantime.
+                if (iovBufferCount == iovBuffers.length) {
+                    iovBuffers = Arrays.copyOf(iovBuffers, iovBufferCount << 1);
+                }
+                iovBuffers[iovBufferCount++] = buf.retain();
+            }
+            return added;
+        }
+
+        private void releaseIovBuffers() {
+            for (int i = 0; i < iovBufferCount; i++) {
+                iovBuffers[i].release();
+                iovBuffers[i] = null;
+            }
+            iovBufferCount = 0;
+        }
+
+        private boolean addIov(long bufferAddress, int len) {
+            if (len == 0) {
+                return true;
+            }
+            if (iovCount == io.netty.channel.epoll.Native.IOV_MAX || Integer.MAX_VALUE - len < iovSize) {
+                // No more room, the rest is written once this write completed. A partially added buffer is fine as
+                // we only remove what was actually written.
+                return false;
+            }
+            long address = iovAddress + (long) iovCount * IOV_SIZE;
+            if (ADDRESS_SIZE == 8) {
+                PlatformDependent.putLong(address, bufferAddress);
+                PlatformDependent.putLong(address + ADDRESS_SIZE, len);
+            } else {
+                PlatformDependent.putInt(address, (int) bufferAddress);
+                PlatformDependent.putInt(address + ADDRESS_SIZE, len);
+            }
+            iovCount++;
+            iovSize += len;
+            return true;
+        }
+
+        void freeIovIfPossible() {
+            // Only free the memory once the kernel is done with it.
+            if (!writeInFlight && iovAddress != 0) {
+                PlatformDependent.freeMemory(iovAddress);
+                iovAddress = 0;
+            }
+        }
+
+        @Override
+        void complete(int op, int res) {
+            if (op == Native.IORING_OP_RECV) {
+                readComplete(res);
+            } else if (op == Native.IORING_OP_WRITEV) {
+                writeComplete(res);
+            } else if (op == Native.IORING_OP_POLL_ADD) {
+                pollOutInFlight = false;
+                if (isOpen() && connectPromise != null) {
+                    // pending connect which is now complete so handle it.
+                    finishConnect();
+                }
+            }
+        }
+
+        private void readComplete(int res) {
+            readInFlight = false;
+            ByteBuf byteBuf = readBuffer;
+            readBuffer = null;
+            if (!isOpen()) {
+                // The channel was closed while the read was in flight, the kernel is done with the buffer now so we
+                // can release it.
+                byteBuf.release();
+                return;
+            }
+
+            final ChannelConfig config = config();
+            final ChannelPipeline pipeline = pipeline();
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            boolean close = false;
+            if (res > 0) {
+                byteBuf.writerIndex(byteBuf.writerIndex() + res);
+                allocHandle.lastBytesRead(res);
+                allocHandle.incMessagesRead(1);
+                readPending = false;
+                pipeline.fireChannelRead(byteBuf);
+                if (allocHandle.continueReading()) {
+                    scheduleRead();
+                    return;
+                }
+            } else {
+                byteBuf.release();
+                if (res == 0) {
+                    // EOF
+                    allocHandle.lastBytesRead(-1);
+                    close = true;
+                } else if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                    // Cancelled because of a deregistration, nothing to do here.
+                    reading = false;
+                    return;
+                } else {
+                    reading = false;
+                    allocHandle.readComplete();
+                    pipeline.fireChannelReadComplete();
+                    pipeline.fireExceptionCaught(io.netty.channel.epoll.Native.newIOException("read", res));
+                    shutdownInput();
+                    return;
+                }
+            }
+
+            reading = false;
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+
+            if (close) {
+                shutdownInput();
+            } else if (readPending || config.isAutoRead()) {
+                scheduleRead();
+            }
+        }
+
+        private void writeComplete(int res) {
+            releaseIovBuffers();
+            ChannelOutboundBuffer in = outboundBuffer();
+            if (!isOpen() || in == null) {
+                // The channel was closed while the write was in flight, so all the messages were failed already.
+                writeInFlight = false;
+                freeIovIfPossible();
+                return;
+            }
+            if (res >= 0) {
+                // Keep writeInFlight set while removing the written bytes. Removing a message notifies its promise
+                // and a listener may flush again, which must not pick up the messages which were not updated yet.
+                in.removeBytes(res);
+                writeInFlight = false;
+                // Write the rest of the flushed messages, or the ones that were flushed in the meantime.
+                flush0();
+            } else {
+                writeInFlight = false;
+                if (res != Native.ERRNO_ECANCELED_NEGATIVE) {
+                    // Fail all the flushed messages with the cause and close the channel afterwards.
+                    writeFailure = io.netty.channel.epoll.Native.newIOException("writev", res);
+                    flush0();
+                    close(voidPromise());
+                }
+            }
+        }
+
+        /**
+         * Shutdown the input side of the channel.
+         */
+        void shutdownInput() {
+            if (!inputShutdown) { // Best effort check on volatile variable to prevent multiple shutdowns
+                inputShutdown = true;
+                if (isOpen()) {
+                    if (Boolean.TRUE.equals(config().getOption(ChannelOption.ALLOW_HALF_CLOSURE))) {
+                        try {
+                            io.netty.channel.epoll.Native.shutdown(fd().intValue(), true, false);
+                            pipeline().fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                        } catch (IOException e) {
+                            pipeline().fireExceptionCaught(e);
+                            close(voidPromise());
+                        }
+                    } else {
+                        close(voidPromise());
+                    }
+                }
+            }
+        }
+
+        @Override
+        boolean hasOperationsInFlight() {
+            return readInFlight || writeInFlight || pollOutInFlight;
+        }
+
+        @Override
+        void cancelOperations() throws IOException {
+            IOUringEventLoop loop = ioUringEventLoop();
+            if (readInFlight) {
+                loop.cancel(IOUringSocketChannel.this, Native.IORING_OP_RECV);
+            }
+            if (writeInFlight) {
+                loop.cancel(IOUringSocketChannel.this, Native.IORING_OP_WRITEV);
+            }
+            if (pollOutInFlight) {
+                loop.cancel(IOUringSocketChannel.this, Native.IORING_OP_POLL_ADD);
+            }
+        }
+    }
+
+    private static long memoryAddress(ByteBuf buf, int index, int length) {
+        if (buf.hasMemoryAddress()) {
+            return buf.memoryAddress() + index;
+        }
+        ByteBuffer nioBuffer = buf.internalNioBuffer(index, length);
+        return PlatformDependent.directBufferAddress(nioBuffer) + nioBuffer.position();
+    }
+}
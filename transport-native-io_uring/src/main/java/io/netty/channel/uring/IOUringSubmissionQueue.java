@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+
+/**
+ * The submission queue of an io_uring instance. The {@code io_uring_sqe} structs are written directly into the memory
+ * that is shared with the kernel and only handed over once {@link #submit()} or {@link #submitAndWait()} is called.
+ *
+ * <pre>
+ * struct io_uring_sqe {
+ *   __u8  opcode;      // offset 0
+ *   __u8  flags;       // offset 1
+ *   __u16 ioprio;      // offset 2
+ *   __s32 fd;          // offset 4
+ *   __u64 off;         // offset 8
+ *   __u64 addr;        // offset 16
+ *   __u32 len;         // offset 24
+ *   __u32 op_flags;    // offset 28
+ *   __u64 user_data;   // offset 32
+ *   ...                // padding up to 64 bytes
+ * };
+ * </pre>
+ *
+ * This class is not thread-safe and must only be used from the {@link IOUringEventLoop}.
+ */
+final class IOUringSubmissionQueue {
+    private static final int SQE_OP_CODE_FIELD = 0;
+    private static final int SQE_FD_FIELD = 4;
+    private static final int SQE_OFFSET_FIELD = 8;
+    private static final int SQE_ADDRESS_FIELD = 16;
+    private static final int SQE_LEN_FIELD = 24;
+    private static final int SQE_OP_FLAGS_FIELD = 28;
+    private static final int SQE_USER_DATA_FIELD = 32;
+
+    private final int ringFd;
+    private final long headAddress;
+    private final long tailAddress;
+    private final long sqesAddress;
+    private final int mask;
+    private final int entries;
+
+    private int head;
+    private int tail;
+
+    IOUringSubmissionQueue(int ringFd, long[] ring) {
+        this.ringFd = ringFd;
+        headAddress = ring[Native.RING_SQ_HEAD_ADDRESS];
+        tailAddress = ring[Native.RING_SQ_TAIL_ADDRESS];
+        sqesAddress = ring[Native.RING_SQES_ADDRESS];
+        mask = (int) ring[Native.RING_SQ_MASK];
+        entries = (int) ring[Native.RING_SQ_ENTRIES];
+        head = Native.loadAcquire(headAddress);
+        tail = PlatformDependent.getInt(tailAddress);
+    }
+
+    /**
+     * Adds a new {@code io_uring_sqe} to the queue. If the queue is full already all the pending entries are
+     * submitted first.
+     */
+    void enqueue(int op, int fd, long address, int len, long offset, int opFlags, long userData) throws IOException {
+        if (tail - head == entries) {
+            head = Native.loadAcquire(headAddress);
+            if (tail - head == entries) {
+                // The ring is full, submit what we have so we can reuse the slots.
+                submit();
+                head = Native.loadAcquire(headAddress);
+            }
+        }
+        long sqe = sqesAddress + (long) (tail & mask) * Native.SIZEOF_SQE;
+        tail++;
+
+        // Clear out all fields before we fill in the ones we need, the sqe may have been used before.
+        for (int i = 0; i < Native.SIZEOF_SQE; i += 8) {
+            PlatformDependent.putLong(sqe + i, 0);
+        }
+        PlatformDependent.putByte(sqe + SQE_OP_CODE_FIELD, (byte) op);
+        PlatformDependent.putInt(sqe + SQE_FD_FIELD, fd);
+        PlatformDependent.putLong(sqe + SQE_OFFSET_FIELD, offset);
+        PlatformDependent.putLong(sqe + SQE_ADDRESS_FIELD, address);
+        PlatformDependent.putInt(sqe + SQE_LEN_FIELD, len);
+        PlatformDependent.putInt(sqe + SQE_OP_FLAGS_FIELD, opFlags);
+        PlatformDependent.putLong(sqe + SQE_USER_DATA_FIELD, userData);
+    }
+
+    /**
+     * Returns the number of entries which were not submitted to the kernel yet.
+     */
+    int pending() {
+        return tail - Native.loadAcquire(headAddress);
+    }
+
+    /**
+     * Submit all pending entries without waiting for any completion.
+     */
+    int submit() throws IOException {
+        return submit(0, 0);
+    }
+
+    /**
+     * Submit all pending entries and block until at least one completion is ready.
+     */
+    int submitAndWait() throws IOException {
+        return submit(1, Native.IORING_ENTER_GETEVENTS);
+    }
+
+    private int submit(int minComplete, int flags) throws IOException {
+        Native.storeRelease(tailAddress, tail);
+        int toSubmit = pending();
+        if (toSubmit == 0 && minComplete == 0) {
+            return 0;
+        }
+        int res = Native.ioUringEnter(ringFd, toSubmit, minComplete, flags);
+        if (res < 0) {
+            if (res == Native.ERRNO_EINTR_NEGATIVE || res == Native.ERRNO_EAGAIN_NEGATIVE
+                    || res == Native.ERRNO_EBUSY_NEGATIVE) {
+                // Either interrupted or the completion queue needs to be drained first, just try again later.
+                return 0;
+            }
+            throw io.netty.channel.epoll.Native.newIOException("io_uring_enter", res);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.epoll.Epoll;
+import io.netty.util.internal.NativeLibraryLoader;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Native helper methods for <a href="http://kernel.dk/io_uring.pdf">io_uring</a>.
+ *
+ * All the socket operations like {@code socket(...)}, {@code bind(...)} or {@code setsockopt(...)} are shared with
+ * {@code netty-transport-native-epoll}, only the ring itself is handled by this class.
+ *
+ * <strong>Internal usage only!</strong>
+ */
+final class Native {
+
+    static {
+        String name = SystemPropertyUtil.get("os.name").toLowerCase(Locale.UK).trim();
+        if (!name.startsWith("linux")) {
+            throw new IllegalStateException("Only supported on Linux");
+        }
+        // We use the socket operations of the epoll transport, so make sure its native library is loaded first.
+        Epoll.ensureAvailability();
+        NativeLibraryLoader.load("netty-transport-native-io_uring", PlatformDependent.getClassLoader(Native.class));
+    }
+
+    static final int IORING_OP_POLL_ADD = ioringOpPollAdd();
+    static final int IORING_OP_ACCEPT = ioringOpAccept();
+    static final int IORING_OP_RECV = ioringOpRecv();
+    static final int IORING_OP_WRITEV = ioringOpWritev();
+    static final int IORING_OP_TIMEOUT = ioringOpTimeout();
+    static final int IORING_OP_TIMEOUT_REMOVE = ioringOpTimeoutRemove();
+    static final int IORING_OP_ASYNC_CANCEL = ioringOpAsyncCancel();
+    static final int IORING_ENTER_GETEVENTS = ioringEnterGetevents();
+
+    static final int SIZEOF_SQE = sizeofIoUringSqe();
+    static final int SIZEOF_CQE = sizeofIoUringCqe();
+
+    static final int POLLIN = pollin();
+    static final int POLLOUT = pollout();
+    static final int SOCK_NONBLOCK = sockNonblock();
+    static final int SOCK_CLOEXEC = sockCloexec();
+
+    // As all our JNI methods return -errno on error we need to compare with the negative errno codes.
+    static final int ERRNO_EINTR_NEGATIVE = -errnoEINTR();
+    static final int ERRNO_EAGAIN_NEGATIVE = -errnoEAGAIN();
+    static final int ERRNO_EBUSY_NEGATIVE = -errnoEBUSY();
+    static final int ERRNO_ECANCELED_NEGATIVE = -errnoECANCELED();
+    static final int ERRNO_ETIME_NEGATIVE = -errnoETIME();
+
+    // Indices into the array that is filled by ioUringSetup(...).
+    static final int RING_SQ_RING_ADDRESS = 0;
+    static final int RING_SQ_RING_SIZE = 1;
+    static final int RING_CQ_RING_ADDRESS = 2;
+    static final int RING_CQ_RING_SIZE = 3;
+    static final int RING_SQES_ADDRESS = 4;
+    static final int RING_SQES_SIZE = 5;
+    static final int RING_SQ_HEAD_ADDRESS = 6;
+    static final int RING_SQ_TAIL_ADDRESS = 7;
+    static final int RING_SQ_MASK = 8;
+    static final int RING_SQ_ENTRIES = 9;
+    static final int RING_CQ_HEAD_ADDRESS = 10;
+    static final int RING_CQ_TAIL_ADDRESS = 11;
+    static final int RING_CQ_MASK = 12;
+    static final int RING_CQ_ENTRIES = 13;
+    static final int RING_CQES_ADDRESS = 14;
+    static final int RING_FEATURES = 15;
+    static final int RING_INFO_LENGTH = 16;
+
+    /**
+     * Creates a new ring with the given number of submission queue entries and fill the given {@code ring} array
+     * with the addresses and sizes of the mapped memory. Returns the file descriptor of the ring.
+     */
+    static int ioUringSetup(int entries, long[] ring) throws IOException {
+        int res = ioUringSetup0(entries, ring);
+        if (res < 0) {
+            throw io.netty.channel.epoll.Native.newIOException("io_uring_setup", res);
+        }
+        return res;
+    }
+
+    /**
+     * Returns {@code true} if all the given opcodes are supported by the kernel.
+     */
+    static boolean ioUringProbe(int ringFd, int... ops) throws IOException {
+        int res = ioUringProbe0(ringFd, ops);
+        if (res < 0) {
+            throw io.netty.channel.epoll.Native.newIOException("io_uring_register", res);
+        }
+        return res == 1;
+    }
+
+    static void ioUringExit(int ringFd, long[] ring) {
+        ioUringExit(ringFd, ring[RING_SQ_RING_ADDRESS], (int) ring[RING_SQ_RING_SIZE],
+                ring[RING_CQ_RING_ADDRESS], (int) ring[RING_CQ_RING_SIZE],
+                ring[RING_SQES_ADDRESS], (int) ring[RING_SQES_SIZE]);
+    }
+
+    private static native int ioUringSetup0(int entries, long[] ring);
+    private static native int ioUringProbe0(int ringFd, int[] ops);
+    private static native void ioUringExit(int ringFd, long sqRingAddress, int sqRingSize,
+                                           long cqRingAddress, int cqRingSize, long sqesAddress, int sqesSize);
+
+    /**
+     * Calls {@code io_uring_enter(...)} and returns the result or {@code -errno} on failure.
+     */
+    static native int ioUringEnter(int ringFd, int toSubmit, int minComplete, int flags);
+
+    /**
+     * Reads an {@code unsigned int} that is shared with the kernel with acquire semantics.
+     */
+    static native int loadAcquire(long address);
+
+    /**
+     * Writes an {@code unsigned int} that is shared with the kernel with release semantics.
+     */
+    static native void storeRelease(long address, int value);
+
+    private static native int ioringOpPollAdd();
+    private static native int ioringOpAccept();
+    private static native int ioringOpRecv();
+    private static native int ioringOpWritev();
+    private static native int ioringOpTimeout();
+    private static native int ioringOpTimeoutRemove();
+    private static native int ioringOpAsyncCancel();
+    private static native int ioringEnterGetevents();
+    private static native int sizeofIoUringSqe();
+    private static native int sizeofIoUringCqe();
+    private static native int pollin();
+    private static native int pollout();
+    private static native int sockNonblock();
+    private static native int sockCloexec();
+    private static native int errnoEINTR();
+    private static native int errnoEAGAIN();
+    private static native int errnoEBUSY();
+    private static native int errnoECANCELED();
+    private static native int errnoETIME();
+
+    private Native() {
+        // utility
+    }
+}
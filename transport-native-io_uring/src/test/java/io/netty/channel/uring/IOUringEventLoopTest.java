@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class IOUringEventLoopTest {
+
+    @Test(timeout = 10000)
+    public void testScheduleSubMillisecondTask() throws Exception {
+        EventLoopGroup group = new IOUringEventLoopGroup(1);
+        try {
+            final EventLoop loop = group.next();
+            for (int i = 0; i < 100; i++) {
+                final long start = System.nanoTime();
+                ScheduledFuture<Long> future = loop.schedule(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return System.nanoTime() - start;
+                    }
+                }, 200, TimeUnit.MICROSECONDS);
+                assertTrue(future.get() >= TimeUnit.MICROSECONDS.toNanos(200));
+            }
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduledTaskWakesUpIdleLoop() throws Exception {
+        EventLoopGroup group = new IOUringEventLoopGroup(1);
+        try {
+            final EventLoop loop = group.next();
+            // Let the loop block in io_uring_enter(...) before scheduling.
+            loop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }).sync();
+            ScheduledFuture<?> future = loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }, 50, TimeUnit.MILLISECONDS);
+            assertTrue(future.await(5, TimeUnit.SECONDS));
+            assertTrue(future.isSuccess());
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+}
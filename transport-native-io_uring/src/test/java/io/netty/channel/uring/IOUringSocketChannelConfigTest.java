@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.Assert.*;
+
+public class IOUringSocketChannelConfigTest {
+
+    private static EventLoopGroup group;
+    private static IOUringSocketChannel ch;
+
+    @BeforeClass
+    public static void before() {
+        group = new IOUringEventLoopGroup(1);
+        Bootstrap bootstrap = new Bootstrap();
+        ch = (IOUringSocketChannel) bootstrap.group(group)
+                .channel(IOUringSocketChannel.class)
+                .handler(new ChannelInboundHandlerAdapter())
+                .bind(new InetSocketAddress(0)).syncUninterruptibly().channel();
+    }
+
+    @AfterClass
+    public static void after() {
+        group.shutdownGracefully();
+    }
+
+    @Test
+    public void testTcpNoDelay() {
+        ch.config().setTcpNoDelay(false);
+        assertFalse(ch.config().isTcpNoDelay());
+        ch.config().setTcpNoDelay(true);
+        assertTrue(ch.config().isTcpNoDelay());
+    }
+
+    @Test
+    public void testKeepAlive() {
+        ch.config().setKeepAlive(true);
+        assertTrue(ch.config().isKeepAlive());
+        ch.config().setKeepAlive(false);
+        assertFalse(ch.config().isKeepAlive());
+    }
+
+    @Test
+    public void testReuseAddress() {
+        ch.config().setReuseAddress(true);
+        assertTrue(ch.config().isReuseAddress());
+        ch.config().setReuseAddress(false);
+        assertFalse(ch.config().isReuseAddress());
+    }
+
+    @Test
+    public void testSoLinger() {
+        ch.config().setSoLinger(10);
+        assertEquals(10, ch.config().getSoLinger());
+        ch.config().setSoLinger(-1);
+        assertEquals(-1, ch.config().getSoLinger());
+    }
+
+    @Test
+    public void testBufferSizes() {
+        // The kernel doubles the requested size to leave room for its bookkeeping.
+        ch.config().setSendBufferSize(16384);
+        assertTrue(ch.config().getSendBufferSize() >= 16384);
+        ch.config().setReceiveBufferSize(16384);
+        assertTrue(ch.config().getReceiveBufferSize() >= 16384);
+    }
+}
@@ -33,6 +33,7 @@ import java.nio.channels.ClosedChannelException;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * (Transport implementors only) an internal data structure used by {@link AbstractChannel} to store its pending
@@ -87,6 +88,11 @@ public final class ChannelOutboundBuffer {
 
     private volatile Runnable fireChannelWritabilityChangedTask;
 
+    private static final AtomicReferenceFieldUpdater<ChannelOutboundBuffer, WriteBufferBudget.Member> BUDGET_UPDATER;
+
+    // The WriteBufferBudget the pending bytes are accounted against, if any.
+    private volatile WriteBufferBudget.Member budget;
+
     static {
         AtomicIntegerFieldUpdater<ChannelOutboundBuffer> unwritableUpdater =
                 PlatformDependent.newAtomicIntegerFieldUpdater(ChannelOutboundBuffer.class, "unwritable");
@@ -101,6 +107,14 @@ public final class ChannelOutboundBuffer {
             pendingSizeUpdater = AtomicLongFieldUpdater.newUpdater(ChannelOutboundBuffer.class, "totalPendingSize");
         }
         TOTAL_PENDING_SIZE_UPDATER = pendingSizeUpdater;
+
+        AtomicReferenceFieldUpdater<ChannelOutboundBuffer, WriteBufferBudget.Member> budgetUpdater =
+                PlatformDependent.newAtomicReferenceFieldUpdater(ChannelOutboundBuffer.class, "budget");
+        if (budgetUpdater == null) {
+            budgetUpdater = AtomicReferenceFieldUpdater.newUpdater(
+                    ChannelOutboundBuffer.class, WriteBufferBudget.Member.class, "budget");
+        }
+        BUDGET_UPDATER = budgetUpdater;
     }
 
     ChannelOutboundBuffer(AbstractChannel channel) {
@@ -177,6 +191,10 @@ public final class ChannelOutboundBuffer {
         if (newWriteBufferSize >= channel.config().getWriteBufferHighWaterMark()) {
             setUnwritable(invokeLater);
         }
+        WriteBufferBudget.Member budget = this.budget;
+        if (budget != null) {
+            budget.increment(size);
+        }
     }
 
     /**
@@ -197,6 +215,21 @@ public final class ChannelOutboundBuffer {
             || newWriteBufferSize <= channel.config().getWriteBufferLowWaterMark())) {
             setWritable(invokeLater);
         }
+        WriteBufferBudget.Member budget = this.budget;
+        if (budget != null) {
+            budget.decrement(size);
+        }
+    }
+
+    /**
+     * Attaches this buffer to a {@link WriteBufferBudget}. Returns {@code false} if it is attached to another one.
+     */
+    boolean attachBudget(WriteBufferBudget.Member budget) {
+        return BUDGET_UPDATER.compareAndSet(this, null, budget);
+    }
+
+    void detachBudget(WriteBufferBudget.Member budget) {
+        BUDGET_UPDATER.compareAndSet(this, budget, null);
     }
 
     private static long total(Object msg) {
@@ -655,6 +688,10 @@ public final class ChannelOutboundBuffer {
                 // Just decrease; do not trigger any events via decrementPendingOutboundBytes()
                 int size = e.pendingSize;
                 TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, -size);
+                WriteBufferBudget.Member budget = this.budget;
+                if (budget != null) {
+                    budget.decrement(size);
+                }
 
                 if (!e.cancelled) {
                     ReferenceCountUtil.safeRelease(e.msg);
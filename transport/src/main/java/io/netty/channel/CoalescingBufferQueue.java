@@ -37,11 +37,25 @@ import java.util.ArrayDeque;
 public final class CoalescingBufferQueue {
 
     private final Channel channel;
+    private final boolean updateWritability;
     private final ArrayDeque<Object> bufAndListenerPairs = new ArrayDeque<Object>();
     private int readableBytes;
 
     public CoalescingBufferQueue(Channel channel) {
+        this(channel, false);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param channel the {@link Channel} the bytes will be written to.
+     * @param updateWritability {@code true} if the queued bytes should be accounted as pending outbound bytes of the
+     *                          {@link Channel}, like {@link PendingWriteQueue} does, so they are taken into account
+     *                          by {@link Channel#isWritable()}.
+     */
+    public CoalescingBufferQueue(Channel channel, boolean updateWritability) {
         this.channel = ObjectUtil.checkNotNull(channel, "channel");
+        this.updateWritability = updateWritability;
     }
 
     /**
@@ -83,6 +97,29 @@ public final class CoalescingBufferQueue {
             bufAndListenerPairs.add(listener);
         }
         readableBytes += buf.readableBytes();
+        incrementPendingOutboundBytes(buf.readableBytes());
+    }
+
+    /**
+     * Add a buffer to the front of the queue and associate a promise with it that should be completed when
+     * all the buffers bytes have been consumed from the queue and written. This is useful to give back the rest of a
+     * buffer which was returned by {@link #remove(int, ChannelPromise)} but could not be written completely.
+     * @param buf to add to the head of the queue
+     * @param promise to complete when all the bytes have been consumed and written, can be void.
+     */
+    public void addFirst(ByteBuf buf, ChannelPromise promise) {
+        ObjectUtil.checkNotNull(buf, "buf");
+        ObjectUtil.checkNotNull(promise, "promise");
+        if (readableBytes > Integer.MAX_VALUE - buf.readableBytes()) {
+            throw new IllegalStateException("buffer queue length overflow: " + readableBytes
+                    + " + " + buf.readableBytes());
+        }
+        if (!promise.isVoid()) {
+            bufAndListenerPairs.addFirst(new ChannelPromiseNotifier(promise));
+        }
+        bufAndListenerPairs.addFirst(buf);
+        readableBytes += buf.readableBytes();
+        incrementPendingOutboundBytes(buf.readableBytes());
     }
 
     /**
@@ -135,6 +172,7 @@ public final class CoalescingBufferQueue {
         }
         readableBytes -= originalBytes - bytes;
         assert readableBytes >= 0;
+        decrementPendingOutboundBytes(originalBytes - bytes);
         return toReturn;
     }
 
@@ -181,6 +219,7 @@ public final class CoalescingBufferQueue {
     }
 
     private void releaseAndCompleteAll(ChannelFuture future) {
+        decrementPendingOutboundBytes(readableBytes);
         readableBytes = 0;
         Throwable pending = null;
         for (;;) {
@@ -210,5 +249,25 @@ public final class CoalescingBufferQueue {
     public void copyTo(CoalescingBufferQueue dest) {
         dest.bufAndListenerPairs.addAll(bufAndListenerPairs);
         dest.readableBytes += readableBytes;
+        dest.incrementPendingOutboundBytes(readableBytes);
+    }
+
+    private void incrementPendingOutboundBytes(int size) {
+        if (updateWritability && size > 0) {
+            // The outbound buffer is null once the channel was closed.
+            ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+            if (buffer != null) {
+                buffer.incrementPendingOutboundBytes(size);
+            }
+        }
+    }
+
+    private void decrementPendingOutboundBytes(int size) {
+        if (updateWritability && size > 0) {
+            ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+            if (buffer != null) {
+                buffer.decrementPendingOutboundBytes(size);
+            }
+        }
     }
 }
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.internal.OneTimeTask;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A write buffer budget which is shared by multiple {@link Channel}s and bounds the total number of outbound bytes
+ * which are pending in their {@link ChannelOutboundBuffer}s.
+ * <p>
+ * Once the pending bytes of all attached {@link Channel}s reach the high water mark, the
+ * {@linkplain ChannelOutboundBuffer#setUserDefinedWritability(int, boolean) user-defined writability flag} at
+ * {@link #writabilityIndex()} is set to {@code false} for all of them, so {@link Channel#isWritable()} returns
+ * {@code false} and {@link ChannelHandler#channelWritabilityChanged(ChannelHandlerContext)} is triggered. The flag is
+ * set to {@code true} again once the pending bytes dropped to the low water mark. This complements the per
+ * {@link Channel} {@linkplain ChannelConfig#getWriteBufferHighWaterMark() write buffer water marks}, which can not
+ * protect against many slow {@link Channel}s, for example when broadcasting via a
+ * {@link io.netty.channel.group.ChannelGroup}.
+ * <p>
+ * The pending bytes are accounted exactly like the ones of the {@link ChannelOutboundBuffer}, so they include
+ * unflushed messages. A {@link Channel} is detached automatically once it is closed.
+ */
+public final class WriteBufferBudget {
+
+    /**
+     * The default index of the user-defined writability flag which is used to signal an exhausted budget.
+     */
+    public static final int DEFAULT_WRITABILITY_INDEX = 31;
+
+    private final long lowWaterMark;
+    private final long highWaterMark;
+    private final int writabilityIndex;
+    private final AtomicLong totalPendingBytes = new AtomicLong();
+    private final ConcurrentMap<Channel, Member> members = PlatformDependent.newConcurrentHashMap();
+    private volatile boolean writable = true;
+
+    /**
+     * Creates a new instance which uses {@link #DEFAULT_WRITABILITY_INDEX}.
+     *
+     * @param lowWaterMark  the number of pending bytes at which the attached {@link Channel}s become writable again
+     * @param highWaterMark the number of pending bytes at which the attached {@link Channel}s become unwritable
+     */
+    public WriteBufferBudget(long lowWaterMark, long highWaterMark) {
+        this(lowWaterMark, highWaterMark, DEFAULT_WRITABILITY_INDEX);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param lowWaterMark      the number of pending bytes at which the attached {@link Channel}s become writable
+     *                          again
+     * @param highWaterMark     the number of pending bytes at which the attached {@link Channel}s become unwritable
+     * @param writabilityIndex  the index of the user-defined writability flag to use ({@code 1~31})
+     */
+    public WriteBufferBudget(long lowWaterMark, long highWaterMark, int writabilityIndex) {
+        if (lowWaterMark < 0) {
+            throw new IllegalArgumentException("lowWaterMark: " + lowWaterMark + " (expected: >= 0)");
+        }
+        if (highWaterMark < lowWaterMark) {
+            throw new IllegalArgumentException(
+                    "highWaterMark: " + highWaterMark + " (expected: >= lowWaterMark (" + lowWaterMark + "))");
+        }
+        if (writabilityIndex < 1 || writabilityIndex > 31) {
+            throw new IllegalArgumentException("writabilityIndex: " + writabilityIndex + " (expected: 1~31)");
+        }
+        this.lowWaterMark = lowWaterMark;
+        this.highWaterMark = highWaterMark;
+        this.writabilityIndex = writabilityIndex;
+    }
+
+    /**
+     * Returns the number of pending bytes at which the attached {@link Channel}s become writable again.
+     */
+    public long lowWaterMark() {
+        return lowWaterMark;
+    }
+
+    /**
+     * Returns the number of pending bytes at which the attached {@link Channel}s become unwritable.
+     */
+    public long highWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Returns the index of the user-defined writability flag which is used by this budget.
+     */
+    public int writabilityIndex() {
+        return writabilityIndex;
+    }
+
+    /**
+     * Attaches the given {@link Channel} to this budget, so its pending outbound bytes are accounted against it.
+     * This is done from the {@link EventLoop} of the {@link Channel}, so it may not be done yet when this method
+     * returns. Closed {@link Channel}s are ignored.
+     *
+     * @return the {@link ChannelFuture} which is notified once the {@link Channel} was attached. It is failed with
+     *         an {@link IllegalStateException} if the {@link Channel} is attached to another
+     *         {@link WriteBufferBudget} already.
+     */
+    public ChannelFuture attach(final Channel channel) {
+        checkNotNull(channel, "channel");
+        final ChannelPromise promise = channel.newPromise();
+        EventLoop loop = channel.eventLoop();
+        if (loop.inEventLoop()) {
+            attach0(channel, promise);
+        } else {
+            loop.execute(new OneTimeTask() {
+                @Override
+                public void run() {
+                    attach0(channel, promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void attach0(Channel channel, ChannelPromise promise) {
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        if (buffer == null || members.containsKey(channel)) {
+            // Closed or attached already.
+            promise.setSuccess();
+            return;
+        }
+        final Member member = new Member(this, channel, buffer);
+        if (!buffer.attachBudget(member)) {
+            promise.setFailure(
+                    new IllegalStateException("channel is attached to another " + getClass().getSimpleName()));
+            return;
+        }
+        members.put(channel, member);
+        channel.closeFuture().addListener(member);
+
+        member.increment(buffer.totalPendingWriteBytes());
+        synchronized (this) {
+            // Apply the current state, a concurrent call of updateWritability() may not see the new member yet.
+            if (!writable) {
+                buffer.setUserDefinedWritability(writabilityIndex, false);
+            }
+        }
+        promise.setSuccess();
+    }
+
+    /**
+     * Detaches the given {@link Channel} from this budget and releases its pending outbound bytes from it. This is
+     * done from the {@link EventLoop} of the {@link Channel}, so it may not be done yet when this method returns.
+     */
+    public void detach(final Channel channel) {
+        checkNotNull(channel, "channel");
+        EventLoop loop = channel.eventLoop();
+        if (loop.inEventLoop()) {
+            detach0(channel);
+        } else {
+            loop.execute(new OneTimeTask() {
+                @Override
+                public void run() {
+                    detach0(channel);
+                }
+            });
+        }
+    }
+
+    private void detach0(Channel channel) {
+        Member member = members.remove(channel);
+        if (member == null) {
+            return;
+        }
+        member.buffer.detachBudget(member);
+        channel.closeFuture().removeListener(member);
+        member.decrement(member.pendingBytes.get());
+        // The channel must not stay unwritable because of this budget.
+        member.buffer.setUserDefinedWritability(writabilityIndex, true);
+    }
+
+    /**
+     * Returns {@code true} if the total number of pending bytes did not reach the high water mark yet, or dropped
+     * to the low water mark again.
+     */
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * Returns the total number of outbound bytes which are pending in the attached {@link Channel}s.
+     */
+    public long totalPendingBytes() {
+        return totalPendingBytes.get();
+    }
+
+    /**
+     * Returns the number of outbound bytes which are pending in the given {@link Channel} and accounted against this
+     * budget, or {@code 0} if the {@link Channel} is not attached.
+     */
+    public long pendingBytes(Channel channel) {
+        Member member = members.get(channel);
+        return member == null ? 0 : member.pendingBytes.get();
+    }
+
+    /**
+     * Returns the number of attached {@link Channel}s.
+     */
+    public int size() {
+        return members.size();
+    }
+
+    private void add(long size) {
+        long newTotal = totalPendingBytes.addAndGet(size);
+        if (writable ? newTotal >= highWaterMark : newTotal <= lowWaterMark) {
+            updateWritability();
+        }
+    }
+
+    private synchronized void updateWritability() {
+        // The total is checked again after each transition, as add(...) may have changed it while it still saw the
+        // old state, in which case it did not call this method and the transition would be lost.
+        for (;;) {
+            long total = totalPendingBytes.get();
+            boolean newWritable;
+            if (writable && total >= highWaterMark) {
+                newWritable = false;
+            } else if (!writable && total <= lowWaterMark) {
+                newWritable = true;
+            } else {
+                return;
+            }
+            writable = newWritable;
+            // setUserDefinedWritability(...) is thread-safe and fires the event later from the EventLoop of each
+            // channel.
+            for (Member member: members.values()) {
+                member.buffer.setUserDefinedWritability(writabilityIndex, newWritable);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(channels: " + size() + ", pendingBytes: " + totalPendingBytes() +
+               ", lowWaterMark: " + lowWaterMark + ", highWaterMark: " + highWaterMark + ", writable: " + writable +
+               ')';
+    }
+
+    /**
+     * The accounting of a single {@link Channel}, which is referenced by its {@link ChannelOutboundBuffer}.
+     */
+    static final class Member implements ChannelFutureListener {
+        private final WriteBufferBudget budget;
+        private final Channel channel;
+        final ChannelOutboundBuffer buffer;
+        final AtomicLong pendingBytes = new AtomicLong();
+
+        Member(WriteBufferBudget budget, Channel channel, ChannelOutboundBuffer buffer) {
+            this.budget = budget;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        void increment(long size) {
+            if (size != 0) {
+                pendingBytes.addAndGet(size);
+                budget.add(size);
+            }
+        }
+
+        void decrement(long size) {
+            if (size != 0) {
+                pendingBytes.addAndGet(-size);
+                budget.add(-size);
+            }
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+            // The channel was closed.
+            budget.detach(channel);
+        }
+    }
+}
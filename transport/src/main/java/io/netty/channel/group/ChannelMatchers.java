@@ -30,6 +30,13 @@ public final class ChannelMatchers {
         }
     };
 
+    private static final ChannelMatcher WRITABLE_MATCHER = new ChannelMatcher() {
+        @Override
+        public boolean matches(Channel channel) {
+            return channel.isWritable();
+        }
+    };
+
     private static final ChannelMatcher SERVER_CHANNEL_MATCHER = isInstanceOf(ServerChannel.class);
     private static final ChannelMatcher NON_SERVER_CHANNEL_MATCHER = isNotInstanceOf(ServerChannel.class);
 
@@ -89,6 +96,15 @@ public final class ChannelMatchers {
         return NON_SERVER_CHANNEL_MATCHER;
     }
 
+    /**
+     * Returns a {@link ChannelMatcher} that matches all {@link Channel}s which are {@linkplain Channel#isWritable()
+     * writable}. This allows to skip slow {@link Channel}s when broadcasting, for example in combination with a
+     * {@link io.netty.channel.WriteBufferBudget}.
+     */
+    public static ChannelMatcher isWritable() {
+        return WRITABLE_MATCHER;
+    }
+
     /**
      * Invert the given {@link ChannelMatcher}.
      */
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ThreadExecutorMap;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.ThreadLocalRandom;
+
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.ObjectUtil.*;
+
+/**
+ * {@link ChannelPool} implementation which keeps a separate pool of idle {@link Channel}s for every {@link EventLoop}
+ * of the {@link Bootstrap}'s {@link EventLoopGroup}.
+ * <p>
+ * When {@link #acquire()} is called from one of these {@link EventLoop}s, a {@link Channel} that is registered on the
+ * same {@link EventLoop} is preferred, so the caller can use it without handing work over to another thread. If the
+ * calling {@link EventLoop} has no idle {@link Channel} left, one is stolen from the pool of another
+ * {@link EventLoop}. Only if there is no idle {@link Channel} at all a new one is created, which is then registered on
+ * the calling {@link EventLoop}. Callers which are not running on one of the {@link EventLoop}s have no preference
+ * and just take an idle {@link Channel} from any of the pools.
+ * <p>
+ * Each per {@link EventLoop} pool uses LIFO order for its own {@link EventLoop}, while stealing takes the
+ * {@link Channel} that was idle for the longest time.
+ * <p>
+ * No limit on the maximal concurrent {@link Channel}s is enforced.
+ */
+public class EventLoopAffineChannelPool extends SimpleChannelPool {
+
+    private final Map<EventExecutor, LoopPool> loopPools;
+    private final LoopPool[] loopPoolArray;
+    private final ChannelFutureListener connectListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+            // A newly connected Channel is handed out directly without notifying the ChannelPoolHandler that it
+            // was acquired, so count it here.
+            if (future.isSuccess()) {
+                LoopPool pool = loopPools.get(future.channel().eventLoop().unwrap());
+                if (pool != null) {
+                    pool.activeCount.incrementAndGet();
+                    future.channel().closeFuture().addListener(closeListener);
+                }
+            }
+        }
+    };
+    private final ChannelFutureListener closeListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+            // Do not keep Channels which were closed while they were idle, as they would only be found and
+            // discarded once all the Channels in front of them were acquired.
+            LoopPool pool = loopPools.get(future.channel().eventLoop().unwrap());
+            if (pool != null) {
+                pool.remove(future.channel());
+            }
+        }
+    };
+
+    /**
+     * Creates a new instance using the {@link ChannelHealthChecker#ACTIVE}.
+     *
+     * @param bootstrap         the {@link Bootstrap} that is used for connections
+     * @param handler           the {@link ChannelPoolHandler} that will be notified for the different pool actions
+     */
+    public EventLoopAffineChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler) {
+        this(bootstrap, handler, ChannelHealthChecker.ACTIVE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap         the {@link Bootstrap} that is used for connections
+     * @param handler           the {@link ChannelPoolHandler} that will be notified for the different pool actions
+     * @param healthCheck       the {@link ChannelHealthChecker} that will be used to check if a {@link Channel} is
+     *                          still healthy when obtain from the {@link ChannelPool}
+     */
+    public EventLoopAffineChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler,
+                                      ChannelHealthChecker healthCheck) {
+        this(bootstrap, handler, healthCheck, true);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap          the {@link Bootstrap} that is used for connections
+     * @param handler            the {@link ChannelPoolHandler} that will be notified for the different pool actions
+     * @param healthCheck        the {@link ChannelHealthChecker} that will be used to check if a {@link Channel} is
+     *                           still healthy when obtain from the {@link ChannelPool}
+     * @param releaseHealthCheck will check channel health before offering back if this parameter set to
+     *                           {@code true}.
+     */
+    public EventLoopAffineChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler,
+                                      ChannelHealthChecker healthCheck, boolean releaseHealthCheck) {
+        this(bootstrap, handler, healthCheck, releaseHealthCheck, newLoopPools(bootstrap));
+    }
+
+    private EventLoopAffineChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler,
+                                       ChannelHealthChecker healthCheck, boolean releaseHealthCheck,
+                                       Map<EventExecutor, LoopPool> loopPools) {
+        super(bootstrap, new ActiveCountingChannelPoolHandler(checkNotNull(handler, "handler"), loopPools),
+              healthCheck, releaseHealthCheck);
+        this.loopPools = loopPools;
+        loopPoolArray = loopPools.values().toArray(new LoopPool[loopPools.size()]);
+        for (int i = 0; i < loopPoolArray.length; i++) {
+            loopPoolArray[i].index = i;
+        }
+    }
+
+    private static Map<EventExecutor, LoopPool> newLoopPools(Bootstrap bootstrap) {
+        EventLoopGroup group = checkNotNull(bootstrap, "bootstrap").group();
+        if (group == null) {
+            throw new IllegalArgumentException("bootstrap has no EventLoopGroup set");
+        }
+        Map<EventExecutor, LoopPool> loopPools = new IdentityHashMap<EventExecutor, LoopPool>();
+        for (EventExecutor executor: group.children()) {
+            loopPools.put(executor, new LoopPool((EventLoop) executor));
+        }
+        return loopPools;
+    }
+
+    /**
+     * Returns the number of idle {@link Channel}s that are registered on the given {@link EventLoop} and are ready to
+     * be acquired.
+     */
+    public int idleChannelCount(EventLoop loop) {
+        return loopPool(loop).idleCount.get();
+    }
+
+    /**
+     * Returns the number of {@link Channel}s that are registered on the given {@link EventLoop} and are currently
+     * acquired from this pool.
+     */
+    public int activeChannelCount(EventLoop loop) {
+        return loopPool(loop).activeCount.get();
+    }
+
+    private LoopPool loopPool(EventLoop loop) {
+        LoopPool pool = loopPools.get(checkNotNull(loop, "loop").unwrap());
+        if (pool == null) {
+            throw new IllegalArgumentException("EventLoop " + loop + " is not part of this pool's EventLoopGroup");
+        }
+        return pool;
+    }
+
+    /**
+     * Returns the {@link LoopPool} of the {@link EventLoop} the calling {@link Thread} runs or {@code null} if the
+     * calling {@link Thread} does not belong to this pool's {@link EventLoopGroup}.
+     */
+    private LoopPool currentLoopPool() {
+        EventExecutor current = ThreadExecutorMap.currentExecutor();
+        return current == null ? null : loopPools.get(current);
+    }
+
+    /**
+     * Registers new {@link Channel}s on the calling {@link EventLoop} if it belongs to this pool's
+     * {@link EventLoopGroup}, and falls back to the default behaviour otherwise.
+     */
+    @Override
+    protected ChannelFuture connectChannel(Bootstrap bs) {
+        LoopPool local = currentLoopPool();
+        ChannelFuture future = super.connectChannel(local == null ? bs : bs.clone(local.loop));
+        future.addListener(connectListener);
+        return future;
+    }
+
+    @Override
+    protected Channel pollChannel() {
+        final LoopPool local = currentLoopPool();
+        final LoopPool[] pools = loopPoolArray;
+        final int start;
+        if (local != null) {
+            Channel ch = local.pollLast();
+            if (ch != null) {
+                return ch;
+            }
+            start = local.index + 1;
+        } else {
+            start = ThreadLocalRandom.current().nextInt(pools.length);
+        }
+        // Nothing left for the calling EventLoop, try to steal from the others.
+        for (int i = 0; i < pools.length; i++) {
+            LoopPool pool = pools[(start + i) % pools.length];
+            if (pool != local) {
+                Channel ch = pool.pollFirst();
+                if (ch != null) {
+                    return ch;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected boolean offerChannel(Channel channel) {
+        LoopPool pool = loopPools.get(channel.eventLoop().unwrap());
+        return pool != null && pool.offerLast(channel);
+    }
+
+    private static final class LoopPool {
+        final EventLoop loop;
+        final Deque<Channel> deque = PlatformDependent.newConcurrentDeque();
+        final AtomicInteger idleCount = new AtomicInteger();
+        final AtomicInteger activeCount = new AtomicInteger();
+        int index;
+
+        LoopPool(EventLoop loop) {
+            this.loop = loop;
+        }
+
+        Channel pollLast() {
+            Channel ch = deque.pollLast();
+            if (ch != null) {
+                idleCount.decrementAndGet();
+            }
+            return ch;
+        }
+
+        Channel pollFirst() {
+            Channel ch = deque.pollFirst();
+            if (ch != null) {
+                idleCount.decrementAndGet();
+            }
+            return ch;
+        }
+
+        void remove(Channel ch) {
+            if (deque.remove(ch)) {
+                idleCount.decrementAndGet();
+            }
+        }
+
+        boolean offerLast(Channel ch) {
+            if (deque.offerLast(ch)) {
+                idleCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Keeps track of the acquired {@link Channel}s per {@link EventLoop} before notifying the user's
+     * {@link ChannelPoolHandler}.
+     */
+    private static final class ActiveCountingChannelPoolHandler implements ChannelPoolHandler {
+        private final ChannelPoolHandler handler;
+        private final Map<EventExecutor, LoopPool> loopPools;
+
+        ActiveCountingChannelPoolHandler(ChannelPoolHandler handler, Map<EventExecutor, LoopPool> loopPools) {
+            this.handler = handler;
+            this.loopPools = loopPools;
+        }
+
+        @Override
+        public void channelReleased(Channel ch) throws Exception {
+            LoopPool pool = loopPools.get(ch.eventLoop().unwrap());
+            if (pool != null) {
+                pool.activeCount.decrementAndGet();
+            }
+            handler.channelReleased(ch);
+        }
+
+        @Override
+        public void channelAcquired(Channel ch) throws Exception {
+            handler.channelAcquired(ch);
+            LoopPool pool = loopPools.get(ch.eventLoop().unwrap());
+            if (pool != null) {
+                pool.activeCount.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void channelCreated(Channel ch) throws Exception {
+            handler.channelCreated(ch);
+        }
+    }
+}
@@ -197,6 +197,54 @@ public class CoalescingBufferQueueTest {
         assertTrue(mouseSuccess);
     }
 
+    @Test
+    public void testAddFirst() {
+        writeQueue.add(cat, catPromise);
+        writeQueue.add(mouse, mouseListener);
+        DefaultChannelPromise aggregatePromise = newPromise();
+        ByteBuf removed = writeQueue.remove(8, aggregatePromise);
+        assertQueueSize(0, true);
+
+        // Give back what was not written.
+        removed.skipBytes(4);
+        writeQueue.addFirst(removed, aggregatePromise);
+        assertQueueSize(4, false);
+        assertFalse(catPromise.isDone());
+
+        DefaultChannelPromise secondPromise = newPromise();
+        ByteBuf rest = writeQueue.remove(8, secondPromise);
+        assertQueueSize(0, true);
+        ByteBuf copy = rest.copy();
+        assertEquals("ouse", copy.toString(CharsetUtil.US_ASCII));
+        copy.release();
+        rest.release();
+        assertFalse(catPromise.isDone());
+        assertFalse(mouseDone);
+        secondPromise.trySuccess();
+        assertTrue(catPromise.isSuccess());
+        assertTrue(mouseSuccess);
+    }
+
+    @Test
+    public void testUpdateWritability() {
+        EmbeddedChannel ch = new EmbeddedChannel();
+        ch.config().setWriteBufferLowWaterMark(4);
+        ch.config().setWriteBufferHighWaterMark(8);
+        CoalescingBufferQueue queue = new CoalescingBufferQueue(ch, true);
+        queue.add(cat, ch.voidPromise());
+        assertTrue(ch.isWritable());
+        queue.add(mouse, ch.voidPromise());
+        assertFalse(ch.isWritable());
+
+        ByteBuf removed = queue.remove(5, ch.newPromise());
+        assertTrue(ch.isWritable());
+        removed.release();
+
+        queue.releaseAndFailAll(new Exception());
+        assertEquals(0, ch.unsafe().outboundBuffer().totalPendingWriteBytes());
+        assertFalse(ch.finish());
+    }
+
     private DefaultChannelPromise newPromise() {
         return new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
     }
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelMatchers;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import org.junit.Test;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class WriteBufferBudgetTest {
+
+    @Test
+    public void testAccountsPendingBytesPerChannel() {
+        WriteBufferBudget budget = new WriteBufferBudget(16, 64);
+        EmbeddedChannel ch1 = new EmbeddedChannel();
+        EmbeddedChannel ch2 = new EmbeddedChannel();
+        budget.attach(ch1);
+        budget.attach(ch2);
+        assertEquals(2, budget.size());
+
+        ch1.write(buffer(10));
+        ch2.write(buffer(20));
+        ch2.write(buffer(5));
+        assertEquals(10, budget.pendingBytes(ch1));
+        assertEquals(25, budget.pendingBytes(ch2));
+        assertEquals(35, budget.totalPendingBytes());
+
+        // Flushing writes the messages, so they are not pending anymore.
+        ch2.flush();
+        assertEquals(0, budget.pendingBytes(ch2));
+        assertEquals(10, budget.totalPendingBytes());
+
+        releaseOutbound(ch2);
+        assertFalse(ch1.finish());
+        assertFalse(ch2.finish());
+    }
+
+    @Test
+    public void testAccountsBytesPendingBeforeAttach() {
+        WriteBufferBudget budget = new WriteBufferBudget(16, 64);
+        EmbeddedChannel ch = new EmbeddedChannel();
+        ch.write(buffer(10));
+        budget.attach(ch);
+        assertEquals(10, budget.totalPendingBytes());
+
+        ch.flush();
+        assertEquals(0, budget.totalPendingBytes());
+        releaseOutbound(ch);
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testTogglesWritabilityOfAllChannels() {
+        WriteBufferBudget budget = new WriteBufferBudget(16, 64);
+        final AtomicInteger writabilityChanges = new AtomicInteger();
+        EmbeddedChannel slow = new EmbeddedChannel();
+        EmbeddedChannel idle = new EmbeddedChannel(new ChannelHandlerAdapter() {
+            @Override
+            public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+                writabilityChanges.incrementAndGet();
+            }
+        });
+        budget.attach(slow);
+        budget.attach(idle);
+
+        slow.write(buffer(40));
+        assertTrue(budget.isWritable());
+        assertTrue(idle.isWritable());
+
+        // Crossing the high water mark makes all channels unwritable, even the ones without pending bytes.
+        slow.write(buffer(40));
+        assertFalse(budget.isWritable());
+        assertFalse(slow.isWritable());
+        assertFalse(idle.isWritable());
+        assertFalse(idle.unsafe().outboundBuffer().getUserDefinedWritability(budget.writabilityIndex()));
+        idle.runPendingTasks();
+        assertEquals(1, writabilityChanges.get());
+
+        // Channels attached while the budget is exhausted are unwritable as well.
+        EmbeddedChannel late = new EmbeddedChannel();
+        budget.attach(late);
+        assertFalse(late.isWritable());
+
+        slow.flush();
+        assertEquals(0, budget.totalPendingBytes());
+        assertTrue(budget.isWritable());
+        assertTrue(slow.isWritable());
+        assertTrue(idle.isWritable());
+        assertTrue(late.isWritable());
+        idle.runPendingTasks();
+        assertEquals(2, writabilityChanges.get());
+
+        releaseOutbound(slow);
+        assertFalse(slow.finish());
+        assertFalse(idle.finish());
+        assertFalse(late.finish());
+    }
+
+    @Test
+    public void testHysteresis() {
+        WriteBufferBudget budget = new WriteBufferBudget(16, 64);
+        EmbeddedChannel ch1 = new EmbeddedChannel();
+        EmbeddedChannel ch2 = new EmbeddedChannel();
+        budget.attach(ch1);
+        budget.attach(ch2);
+
+        ch1.write(buffer(32));
+        ch2.write(buffer(32));
+        assertFalse(budget.isWritable());
+
+        // Still above the low water mark.
+        ch1.flush();
+        assertEquals(32, budget.totalPendingBytes());
+        assertFalse(budget.isWritable());
+        assertFalse(ch1.isWritable());
+
+        ch2.flush();
+        assertTrue(budget.isWritable());
+        assertTrue(ch1.isWritable());
+
+        releaseOutbound(ch1);
+        releaseOutbound(ch2);
+        assertFalse(ch1.finish());
+        assertFalse(ch2.finish());
+    }
+
+    @Test
+    public void testDetachReleasesBytesAndWritability() {
+        WriteBufferBudget budget = new WriteBufferBudget(0, 64);
+        EmbeddedChannel ch1 = new EmbeddedChannel();
+        EmbeddedChannel ch2 = new EmbeddedChannel();
+        budget.attach(ch1);
+        budget.attach(ch2);
+
+        ch1.write(buffer(64));
+        ch2.write(buffer(8));
+        assertFalse(ch2.isWritable());
+
+        budget.detach(ch2);
+        assertEquals(1, budget.size());
+        assertEquals(0, budget.pendingBytes(ch2));
+        assertEquals(64, budget.totalPendingBytes());
+        assertTrue(ch2.isWritable());
+
+        // Bytes of a detached channel are not accounted anymore.
+        ch2.flush();
+        assertEquals(64, budget.totalPendingBytes());
+        assertFalse(budget.isWritable());
+
+        budget.detach(ch1);
+        assertEquals(0, budget.totalPendingBytes());
+        assertTrue(budget.isWritable());
+
+        releaseOutbound(ch1);
+        releaseOutbound(ch2);
+        ch1.flush();
+        releaseOutbound(ch1);
+        assertFalse(ch1.finish());
+        assertFalse(ch2.finish());
+    }
+
+    @Test
+    public void testDetachedOnClose() {
+        WriteBufferBudget budget = new WriteBufferBudget(16, 64);
+        EmbeddedChannel ch = new EmbeddedChannel();
+        budget.attach(ch);
+        ch.write(buffer(80));
+        assertFalse(budget.isWritable());
+
+        ch.close();
+        assertEquals(0, budget.size());
+        assertEquals(0, budget.totalPendingBytes());
+        assertTrue(budget.isWritable());
+        assertFalse(ch.finish());
+
+        // Closed channels are ignored.
+        budget.attach(ch);
+        assertEquals(0, budget.size());
+    }
+
+    @Test
+    public void testAttachToMultipleBudgets() {
+        EmbeddedChannel ch = new EmbeddedChannel();
+        WriteBufferBudget budget = new WriteBufferBudget(16, 64);
+        assertTrue(budget.attach(ch).isSuccess());
+        // Attaching again to the same budget is a no-op.
+        assertTrue(budget.attach(ch).isSuccess());
+
+        ChannelFuture future = new WriteBufferBudget(16, 64).attach(ch);
+        assertTrue(future.isDone());
+        assertTrue(future.cause() instanceof IllegalStateException);
+        assertFalse(ch.finish());
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentUpdatesDoNotLoseWritabilityChanges() throws Exception {
+        final WriteBufferBudget budget = new WriteBufferBudget(16, 64);
+        final int numChannels = 4;
+        final EmbeddedChannel[] channels = new EmbeddedChannel[numChannels];
+        for (int i = 0; i < numChannels; i ++) {
+            channels[i] = new EmbeddedChannel();
+            budget.attach(channels[i]);
+        }
+
+        // Every thread crosses the high water mark and drops back to 0, so all transitions race with each other.
+        final CyclicBarrier barrier = new CyclicBarrier(numChannels);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[numChannels];
+        for (int i = 0; i < numChannels; i ++) {
+            final ChannelOutboundBuffer buffer = channels[i].unsafe().outboundBuffer();
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        for (int j = 0; j < 100000; j ++) {
+                            buffer.incrementPendingOutboundBytes(64);
+                            buffer.decrementPendingOutboundBytes(64);
+                        }
+                    } catch (Throwable cause) {
+                        error.compareAndSet(null, cause);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t: threads) {
+            t.join();
+        }
+        assertNull(error.get());
+
+        assertEquals(0, budget.totalPendingBytes());
+        assertTrue(budget.isWritable());
+        for (EmbeddedChannel ch: channels) {
+            assertTrue(ch.unsafe().outboundBuffer().getUserDefinedWritability(budget.writabilityIndex()));
+            assertFalse(ch.finish());
+        }
+    }
+
+    @Test
+    public void testBroadcastSkipsUnwritableChannels() {
+        WriteBufferBudget budget = new WriteBufferBudget(16, 64);
+        ChannelGroup group = new DefaultChannelGroup(ImmediateEventExecutor.INSTANCE);
+        // The channels need distinct ids to be added to the same group.
+        EmbeddedChannel slow = new EmbeddedChannel(DefaultChannelId.newInstance());
+        EmbeddedChannel fast = new EmbeddedChannel(DefaultChannelId.newInstance());
+        for (Channel ch: new Channel[] { slow, fast }) {
+            group.add(ch);
+            budget.attach(ch);
+        }
+
+        slow.write(buffer(64));
+        group.writeAndFlush(buffer(8), ChannelMatchers.isWritable());
+        assertNull(fast.readOutbound());
+
+        slow.flush();
+        group.writeAndFlush(buffer(8), ChannelMatchers.isWritable());
+        ByteBuf buf = fast.readOutbound();
+        assertEquals(8, buf.readableBytes());
+        buf.release();
+
+        releaseOutbound(slow);
+        assertFalse(slow.finish());
+        assertFalse(fast.finish());
+    }
+
+    private static ByteBuf buffer(int size) {
+        return Unpooled.buffer(size).writerIndex(size);
+    }
+
+    private static void releaseOutbound(EmbeddedChannel ch) {
+        for (;;) {
+            ByteBuf buf = ch.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+
+public class EventLoopAffineChannelPoolTest {
+    private static final String LOCAL_ADDR_ID = "test.id";
+
+    private EventLoopGroup group;
+    private EventLoop loopA;
+    private EventLoop loopB;
+    private Channel sc;
+    private CountingChannelPoolHandler handler;
+    private EventLoopAffineChannelPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        group = new DefaultEventLoopGroup(2);
+        Iterator<EventLoop> loops = group.<EventLoop>children().iterator();
+        loopA = loops.next();
+        loopB = loops.next();
+
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+        Bootstrap cb = new Bootstrap();
+        cb.remoteAddress(addr);
+        cb.group(group)
+          .channel(LocalChannel.class);
+
+        ServerBootstrap sb = new ServerBootstrap();
+        sb.group(group)
+          .channel(LocalServerChannel.class)
+          .childHandler(new ChannelInitializer<LocalChannel>() {
+              @Override
+              public void initChannel(LocalChannel ch) throws Exception {
+                  ch.pipeline().addLast(new ChannelHandlerAdapter());
+              }
+          });
+
+        // Start server
+        sc = sb.bind(addr).sync().channel();
+        handler = new CountingChannelPoolHandler();
+        pool = new EventLoopAffineChannelPool(cb, handler);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.close();
+        sc.close().sync();
+        group.shutdownGracefully();
+    }
+
+    @Test
+    public void testAcquireCreatesChannelOnCallingEventLoop() throws Exception {
+        Channel channelA = acquireFrom(loopA);
+        Channel channelB = acquireFrom(loopB);
+        assertSame(loopA, channelA.eventLoop().unwrap());
+        assertSame(loopB, channelB.eventLoop().unwrap());
+        assertEquals(1, pool.activeChannelCount(loopA));
+        assertEquals(1, pool.activeChannelCount(loopB));
+
+        pool.release(channelA).sync();
+        pool.release(channelB).sync();
+        assertEquals(0, pool.activeChannelCount(loopA));
+        assertEquals(0, pool.activeChannelCount(loopB));
+        assertEquals(1, pool.idleChannelCount(loopA));
+        assertEquals(1, pool.idleChannelCount(loopB));
+
+        // Each EventLoop gets its own Channel back.
+        assertSame(channelB, acquireFrom(loopB));
+        assertSame(channelA, acquireFrom(loopA));
+        assertEquals(0, pool.idleChannelCount(loopA));
+        assertEquals(0, pool.idleChannelCount(loopB));
+        assertEquals(2, handler.channelCount());
+        assertEquals(2, handler.acquiredCount());
+
+        pool.release(channelA).sync();
+        pool.release(channelB).sync();
+    }
+
+    @Test
+    public void testClosedIdleChannelIsRemoved() throws Exception {
+        Channel channel = acquireFrom(loopA);
+        pool.release(channel).sync();
+        assertEquals(1, pool.idleChannelCount(loopA));
+
+        channel.close().sync();
+        // Run on the EventLoop so the close listeners were notified.
+        assertEquals(0, (int) loopA.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return pool.idleChannelCount(loopA);
+            }
+        }).sync().getNow());
+
+        // The closed Channel is not handed out anymore.
+        Channel newChannel = acquireFrom(loopA);
+        assertNotSame(channel, newChannel);
+        assertEquals(2, handler.channelCount());
+        pool.release(newChannel).sync();
+    }
+
+    @Test
+    public void testAcquireStealsFromOtherEventLoop() throws Exception {
+        Channel channelA = acquireFrom(loopA);
+        pool.release(channelA).sync();
+        assertEquals(1, pool.idleChannelCount(loopA));
+
+        // loopB has no idle Channel so it needs to steal the one of loopA instead of creating a new one.
+        Channel stolen = acquireFrom(loopB);
+        assertSame(channelA, stolen);
+        assertEquals(0, pool.idleChannelCount(loopA));
+        assertEquals(1, pool.activeChannelCount(loopA));
+        assertEquals(0, pool.activeChannelCount(loopB));
+
+        // Nothing left to steal, so a new Channel is created on loopB.
+        Channel channelB = acquireFrom(loopB);
+        assertSame(loopB, channelB.eventLoop().unwrap());
+        assertEquals(2, handler.channelCount());
+
+        // Released Channels go back to the pool of the EventLoop they are registered on.
+        pool.release(stolen).sync();
+        pool.release(channelB).sync();
+        assertEquals(1, pool.idleChannelCount(loopA));
+        assertEquals(1, pool.idleChannelCount(loopB));
+        assertEquals(0, pool.activeChannelCount(loopA));
+        assertEquals(0, pool.activeChannelCount(loopB));
+    }
+
+    @Test
+    public void testAcquireFromNonEventLoopThread() throws Exception {
+        Channel channel = pool.acquire().sync().getNow();
+        pool.release(channel).sync();
+        assertSame(channel, pool.acquire().sync().getNow());
+        assertEquals(1, pool.activeChannelCount(channel.eventLoop()));
+        pool.release(channel).sync();
+        assertEquals(1, handler.channelCount());
+    }
+
+    @Test
+    public void testCloseDrainsAllEventLoops() throws Exception {
+        Channel channelA = acquireFrom(loopA);
+        Channel channelB = acquireFrom(loopB);
+        pool.release(channelA).sync();
+        pool.release(channelB).sync();
+
+        pool.close();
+        assertEquals(0, pool.idleChannelCount(loopA));
+        assertEquals(0, pool.idleChannelCount(loopB));
+        channelA.closeFuture().sync();
+        channelB.closeFuture().sync();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCountsForUnknownEventLoop() throws Exception {
+        EventLoopGroup other = new DefaultEventLoopGroup(1);
+        try {
+            pool.idleChannelCount(other.next());
+        } finally {
+            other.shutdownGracefully();
+        }
+    }
+
+    private Channel acquireFrom(EventLoop loop) throws Exception {
+        Future<Channel> future = loop.submit(new Callable<Future<Channel>>() {
+            @Override
+            public Future<Channel> call() throws Exception {
+                return pool.acquire();
+            }
+        }).sync().getNow();
+        return future.sync().getNow();
+    }
+}